@@ -0,0 +1,209 @@
+package model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the model benchmarks with the GC profiler and checks them against a baseline.
+ * <p>
+ * The first run writes the time (or throughput) and the allocated bytes per
+ * operation of every benchmark to the baseline file. Later runs compare against
+ * that file and exit with status 1 if any benchmark got slower or allocates more
+ * than the tolerance allows, so a change can be measured before and after.
+ * <p>
+ * Usage: {@code BenchmarkRunner [regex] [baseline] [tolerance]}
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class BenchmarkRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Benchmarks run when no pattern is given.
+     */
+    private static final String DEFAULT_INCLUDE = "model\\..*Benchmark";
+    /**
+     * Baseline file used when none is given.
+     */
+    private static final String DEFAULT_BASELINE = "bench-baseline.properties";
+    /**
+     * Allowed relative regression when none is given.
+     */
+    private static final String DEFAULT_TOLERANCE = "0.10";
+    /**
+     * Name of the GC profiler's normalized allocation rate.
+     */
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    /**
+     * Suffix of the baseline keys holding the allocation rate.
+     */
+    private static final String ALLOCATION_SUFFIX = ".alloc";
+    /**
+     * Allocations this small are noise and never count as a regression.
+     */
+    private static final double ALLOCATION_SLACK = 8;
+
+    private BenchmarkRunner() {
+        super();
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param theArgs the benchmark pattern, baseline file and tolerance, all optional
+     * @throws RunnerException if JMH fails
+     * @throws IOException if the baseline can not be read or written
+     */
+    public static void main(final String[] theArgs) throws RunnerException, IOException {
+        final String include = argument(theArgs, 0, DEFAULT_INCLUDE);
+        final Path baseline = Paths.get(argument(theArgs, 1, DEFAULT_BASELINE));
+        final double tolerance = Double.parseDouble(argument(theArgs, 2, DEFAULT_TOLERANCE));
+        final Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        final Map<String, Double> current = summarize(new Runner(options).run());
+        if (Files.exists(baseline)) {
+            if (compare(load(baseline), current, tolerance)) {
+                System.exit(1);
+            }
+        } else {
+            save(baseline, current);
+            LOGGER.log(Level.INFO, "Wrote baseline " + baseline);
+        }
+    }
+
+    /**
+     * Collects the score and allocation rate of every benchmark. Throughput
+     * scores are stored negated so that a larger number is always worse.
+     *
+     * @param theResults the JMH results
+     * @return the numbers keyed by benchmark and parameters
+     */
+    private static Map<String, Double> summarize(final Collection<RunResult> theResults) {
+        final Map<String, Double> result = new TreeMap<>();
+        for (final RunResult run : theResults) {
+            final String key = run.getParams().getBenchmark()
+                               + run.getParams().getParamsKeys().stream()
+                                       .map(k -> ":" + k + "=" + run.getParams().getParam(k))
+                                       .reduce("", String::concat);
+            double score = run.getPrimaryResult().getScore();
+            if (run.getParams().getMode() == Mode.Throughput) {
+                score = -score;
+            }
+            result.put(key, score);
+            final Result<?> allocation = run.getSecondaryResults().get(ALLOCATION);
+            if (allocation != null) {
+                result.put(key + ALLOCATION_SUFFIX, allocation.getScore());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Logs every benchmark that regressed against the baseline.
+     *
+     * @param theBaseline the baseline numbers
+     * @param theCurrent the numbers of this run
+     * @param theTolerance the allowed relative regression
+     * @return true if anything regressed
+     */
+    private static boolean compare(final Map<String, Double> theBaseline,
+                                   final Map<String, Double> theCurrent,
+                                   final double theTolerance) {
+        boolean regressed = false;
+        for (final Map.Entry<String, Double> entry : theCurrent.entrySet()) {
+            final Double before = theBaseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            final double after = entry.getValue();
+            double limit = before + Math.abs(before) * theTolerance;
+            if (entry.getKey().endsWith(ALLOCATION_SUFFIX)) {
+                limit += ALLOCATION_SLACK;
+            }
+            final String line = String.format("%s: %.3f -> %.3f", entry.getKey(),
+                                              Math.abs(before), Math.abs(after));
+            if (after > limit) {
+                regressed = true;
+                LOGGER.log(Level.WARNING, "REGRESSION " + line);
+            } else {
+                LOGGER.log(Level.INFO, line);
+            }
+        }
+        return regressed;
+    }
+
+    /**
+     * Reads a baseline file.
+     *
+     * @param thePath the baseline file
+     * @return the baseline numbers
+     * @throws IOException if the file can not be read
+     */
+    private static Map<String, Double> load(final Path thePath) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(thePath)) {
+            properties.load(in);
+        }
+        final Map<String, Double> result = new TreeMap<>();
+        for (final String key : properties.stringPropertyNames()) {
+            result.put(key, Double.valueOf(properties.getProperty(key)));
+        }
+        return result;
+    }
+
+    /**
+     * Writes a baseline file.
+     *
+     * @param thePath the baseline file
+     * @param theNumbers the numbers to store
+     * @throws IOException if the file can not be written
+     */
+    private static void save(final Path thePath, final Map<String, Double> theNumbers)
+            throws IOException {
+        final Properties properties = new Properties();
+        theNumbers.forEach((k, v) -> properties.setProperty(k, String.valueOf(v)));
+        try (Writer out = Files.newBufferedWriter(thePath)) {
+            properties.store(out, "Benchmark baseline (ns/op or -ops/s, and bytes/op)");
+        }
+    }
+
+    /**
+     * Returns a command line argument or a default value.
+     *
+     * @param theArgs the command line arguments
+     * @param theIndex the index of the argument
+     * @param theDefault the value to use when the argument is missing
+     * @return the argument
+     */
+    private static String argument(final String[] theArgs, final int theIndex,
+                                   final String theDefault) {
+        String result = theDefault;
+        if (theIndex < theArgs.length) {
+            result = theArgs[theIndex];
+        }
+        return result;
+    }
+}
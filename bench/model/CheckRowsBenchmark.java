@@ -0,0 +1,87 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full row check on boards where every row is filled except for
+ * a single hole, with a configurable number of complete rows at the bottom.
+ * <p>
+ * Clearing rows changes the board, so every call first restores the prepared
+ * board; {@link #restore()} measures that cost on its own so it can be
+ * subtracted from {@link #checkRows()}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckRowsBenchmark {
+    /**
+     * Number of complete rows at the bottom of the prepared board.
+     */
+    @Param({"0", "1", "4"})
+    private int myFullRows;
+
+    /**
+     * The board being measured.
+     */
+    private TetrisBoard myBoard;
+
+    /**
+     * The prepared frozen blocks.
+     */
+    private List<Block[]> myRows;
+
+    /**
+     * Builds the prepared board.
+     */
+    @Setup
+    public void setUp() {
+        myBoard = TetrisBoard.createBoard();
+        myBoard.newGame();
+        myRows = new ArrayList<>();
+        for (int y = 0; y < myBoard.getHeight(); y++) {
+            final Block[] row = new Block[myBoard.getWidth()];
+            for (int x = 0; x < row.length; x++) {
+                if (y < myFullRows || x != y % row.length) {
+                    row[x] = Block.values()[1 + (x + y) % (Block.values().length - 1)];
+                }
+            }
+            myRows.add(row);
+        }
+    }
+
+    /**
+     * Restores the prepared board without checking it.
+     */
+    @Benchmark
+    public void restore() {
+        myBoard.setFrozenBlocks(myRows);
+    }
+
+    /**
+     * Restores the prepared board and checks it for complete rows.
+     */
+    @Benchmark
+    public void checkRows() {
+        myBoard.setFrozenBlocks(myRows);
+        myBoard.checkRows();
+    }
+}
@@ -0,0 +1,107 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.ai.HeadlessGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many complete games per second one thread can play when every
+ * piece receives a few random moves before it is dropped.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    /**
+     * Seed of the moves and pieces so every run plays the same games.
+     */
+    private static final long SEED = 305;
+    /**
+     * Length of the piece sequence.
+     */
+    private static final int PIECES = 1000;
+    /**
+     * The most random moves made with a piece before it is dropped.
+     */
+    private static final int MOVES = 8;
+    /**
+     * The number of different random moves.
+     */
+    private static final int MOVE_TYPES = 4;
+
+    /**
+     * The board the games are played on.
+     */
+    private TetrisBoard myBoard;
+    /**
+     * Chooses the random moves.
+     */
+    private Random myRandom;
+
+    /**
+     * Creates the board.
+     */
+    @Setup
+    public void setUp() {
+        myBoard = TetrisBoard.createBoard();
+        myBoard.setPieceSequence(HeadlessGame.sequence(SEED, PIECES));
+        myRandom = new Random(SEED);
+    }
+
+    /**
+     * Plays one game of random moves until the board fills up.
+     *
+     * @return the number of pieces played, consumed by JMH
+     */
+    @Benchmark
+    public int randomGame() {
+        myBoard.newGame();
+        int pieces = 0;
+        while (!myBoard.isGameOver()) {
+            final int moves = myRandom.nextInt(MOVES);
+            for (int i = 0; i < moves; i++) {
+                move(myRandom.nextInt(MOVE_TYPES));
+            }
+            myBoard.drop();
+            pieces++;
+        }
+        return pieces;
+    }
+
+    /**
+     * Makes one move with the current piece.
+     *
+     * @param theMove the move to make
+     */
+    private void move(final int theMove) {
+        switch (theMove) {
+            case 0:
+                myBoard.left();
+                break;
+            case 1:
+                myBoard.right();
+                break;
+            case 2:
+                myBoard.rotateCW();
+                break;
+            default:
+                myBoard.down();
+        }
+    }
+}
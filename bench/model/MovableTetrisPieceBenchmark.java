@@ -0,0 +1,64 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures converting a movable piece to board coordinates, which every
+ * collision test and every paint of the current piece does.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MovableTetrisPieceBenchmark {
+    /**
+     * The piece type being measured.
+     */
+    @Param({"I", "O", "T"})
+    private TetrisPiece myType;
+
+    /**
+     * The rotation being measured.
+     */
+    @Param({"NONE", "QUARTER", "HALF", "THREEQUARTER"})
+    private Rotation myRotation;
+
+    /**
+     * The piece being measured.
+     */
+    private MyMovableTetrisPiece myPiece;
+
+    /**
+     * Creates the piece in the middle of a standard board.
+     */
+    @Setup
+    public void setUp() {
+        myPiece = new MyMovableTetrisPiece(myType, new Point(4, 10), myRotation);
+    }
+
+    /**
+     * Gets the board points of the piece.
+     *
+     * @return the board points, consumed by JMH
+     */
+    @Benchmark
+    public Point[] getBoardPoints() {
+        return myPiece.getBoardPoints();
+    }
+}
@@ -0,0 +1,115 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import model.ai.HeadlessGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the movement methods of TetrisBoard that run on every key press and tick.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TetrisBoardBenchmark {
+    /**
+     * Seed of the piece sequence so every run sees the same pieces.
+     */
+    private static final long SEED = 305;
+    /**
+     * Length of the piece sequence.
+     */
+    private static final int PIECES = 1000;
+
+    /**
+     * The board being measured.
+     */
+    private TetrisBoard myBoard;
+
+    /**
+     * Starts a new seeded game before every iteration.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        myBoard = TetrisBoard.createBoard();
+        myBoard.setPieceSequence(HeadlessGame.sequence(SEED, PIECES));
+        myBoard.newGame();
+    }
+
+    /**
+     * Moves the current piece left and back right.
+     */
+    @Benchmark
+    public void leftRight() {
+        myBoard.left();
+        myBoard.right();
+    }
+
+    /**
+     * Rotates the current piece clockwise, including wall kicks.
+     */
+    @Benchmark
+    public void rotateCW() {
+        myBoard.rotateCW();
+    }
+
+    /**
+     * Rotates the current piece counter clockwise, including wall kicks.
+     */
+    @Benchmark
+    public void rotateCCW() {
+        myBoard.rotateCCW();
+    }
+
+    /**
+     * Moves the current piece down, locking it and clearing rows when it lands.
+     */
+    @Benchmark
+    public void down() {
+        myBoard.down();
+        restartIfOver();
+    }
+
+    /**
+     * Advances the board by one gravity tick.
+     */
+    @Benchmark
+    public void step() {
+        myBoard.step();
+        restartIfOver();
+    }
+
+    /**
+     * Drops the current piece to the floor and locks it.
+     */
+    @Benchmark
+    public void drop() {
+        myBoard.drop();
+        restartIfOver();
+    }
+
+    /**
+     * Starts a new game once the board has filled up so that the benchmark keeps
+     * measuring live play.
+     */
+    private void restartIfOver() {
+        if (myBoard.isGameOver()) {
+            myBoard.newGame();
+        }
+    }
+}
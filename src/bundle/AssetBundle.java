@@ -0,0 +1,300 @@
+package bundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * A read-only set of named assets packed into one file: an index followed by
+ * every payload, back to back.
+ * <p>
+ * The layout, all numbers big endian, is the magic bytes {@code TPAK}, version
+ * i32, entry count i32, then for each entry its name length u16, its name in
+ * UTF-8, and the offset and length i32 of its payload from the start of the
+ * file. A bundle on disk is memory mapped, so opening it costs one file open
+ * and no reads; a bundle inside a jar is read into one buffer. Either way
+ * {@link #get} hands out read-only slices of that buffer, so looking up an
+ * asset copies nothing. Bundles are built with {@link #pack}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class AssetBundle {
+    /**
+     * The bundle format version.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The first bytes of every bundle.
+     */
+    private static final byte[] MAGIC = "TPAK".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Bytes of the fixed header: magic, version and count.
+     */
+    private static final int HEADER_BYTES = MAGIC.length + 2 * Integer.BYTES;
+    /**
+     * Bytes of an index entry besides its name.
+     */
+    private static final int ENTRY_BYTES = Short.BYTES + 2 * Integer.BYTES;
+
+    /**
+     * The whole bundle.
+     */
+    private final ByteBuffer myData;
+    /**
+     * Offset and length of every payload, by name.
+     */
+    private final Map<String, int[]> myIndex;
+
+    /**
+     * Reads the index of a bundle.
+     *
+     * @param theData the whole bundle
+     * @throws IOException if the data is not a bundle
+     */
+    private AssetBundle(final ByteBuffer theData) throws IOException {
+        super();
+        myData = theData.asReadOnlyBuffer();
+        myIndex = new TreeMap<>();
+        final byte[] magic = new byte[MAGIC.length];
+        myData.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || myData.getInt(MAGIC.length) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " asset bundle");
+        }
+        final int count = myData.getInt(MAGIC.length + Integer.BYTES);
+        int position = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            final byte[] name = new byte[Short.toUnsignedInt(myData.getShort(position))];
+            myData.get(position + Short.BYTES, name);
+            position += Short.BYTES + name.length;
+            final int offset = myData.getInt(position);
+            final int length = myData.getInt(position + Integer.BYTES);
+            position += 2 * Integer.BYTES;
+            if (offset < 0 || length < 0 || offset > myData.limit() - length) {
+                throw new IOException("Asset bundle is truncated");
+            }
+            myIndex.put(new String(name, StandardCharsets.UTF_8), new int[] {offset, length});
+        }
+    }
+
+    /**
+     * Opens a bundle file by memory mapping it.
+     *
+     * @param theFile the bundle file
+     * @return the bundle
+     * @throws IOException if the file can not be mapped or is not a bundle
+     */
+    public static AssetBundle open(final Path theFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new AssetBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                               channel.size()));
+        }
+    }
+
+    /**
+     * Opens a bundle on the class path. A bundle in a directory is memory
+     * mapped; a bundle inside a jar is read into memory once.
+     *
+     * @param theResource the absolute resource name, such as {@code /assets.pak}
+     * @return the bundle, or null if there is no such resource
+     * @throws IOException if the resource can not be read or is not a bundle
+     */
+    public static AssetBundle fromClasspath(final String theResource) throws IOException {
+        final URL url = AssetBundle.class.getResource(theResource);
+        AssetBundle result = null;
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                result = open(Path.of(url.toURI()));
+            } catch (final URISyntaxException e) {
+                throw new IOException(e);
+            }
+        } else if (url != null) {
+            try (InputStream in = url.openStream()) {
+                final byte[] bytes = in.readAllBytes();
+                result = new AssetBundle(ByteBuffer.allocateDirect(bytes.length).put(bytes)
+                                                   .flip());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether the bundle holds an asset.
+     *
+     * @param theName the asset name
+     * @return true if the asset is in the bundle
+     */
+    public boolean contains(final String theName) {
+        return myIndex.containsKey(theName);
+    }
+
+    /**
+     * Returns the names of every asset, sorted.
+     *
+     * @return the asset names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(myIndex.keySet());
+    }
+
+    /**
+     * Returns an asset as a read-only slice of the bundle. Nothing is copied.
+     *
+     * @param theName the asset name
+     * @return the payload, from position 0 to its length
+     * @throws IllegalArgumentException if there is no such asset
+     */
+    public ByteBuffer get(final String theName) {
+        final int[] entry = myIndex.get(theName);
+        if (entry == null) {
+            throw new IllegalArgumentException("No asset " + theName + " in bundle");
+        }
+        return myData.slice(entry[0], entry[1]);
+    }
+
+    /**
+     * Returns an asset as a stream reading straight from the bundle, for
+     * decoders that only take streams. The stream supports mark and reset.
+     *
+     * @param theName the asset name
+     * @return a stream over the payload
+     * @throws IllegalArgumentException if there is no such asset
+     */
+    public InputStream stream(final String theName) {
+        return new BufferInputStream(get(theName));
+    }
+
+    /**
+     * Packs every regular file directly in a directory into a bundle, named by
+     * file name.
+     *
+     * @param theDirectory the directory holding the assets
+     * @param theBundle the bundle file to write
+     * @return the number of assets packed
+     * @throws IOException if a file can not be read or the bundle written
+     */
+    public static int pack(final Path theDirectory, final Path theBundle) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(theDirectory)) {
+            list.filter(Files::isRegularFile).sorted().forEach(files::add);
+        }
+        final List<byte[]> names = new ArrayList<>();
+        int indexBytes = HEADER_BYTES;
+        for (final Path file : files) {
+            final byte[] name = file.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            indexBytes += ENTRY_BYTES + name.length;
+        }
+        final ByteBuffer index = ByteBuffer.allocate(indexBytes);
+        index.put(MAGIC).putInt(VERSION).putInt(files.size());
+        long offset = indexBytes;
+        for (int i = 0; i < files.size(); i++) {
+            final long size = Files.size(files.get(i));
+            if (offset + size > Integer.MAX_VALUE) {
+                throw new IOException("Asset bundle would be larger than 2 GB");
+            }
+            index.putShort((short) names.get(i).length).put(names.get(i));
+            index.putInt((int) offset).putInt((int) size);
+            offset += size;
+        }
+        try (FileChannel out = FileChannel.open(theBundle, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.WRITE)) {
+            out.write(index.flip());
+            for (final Path file : files) {
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long done = 0;
+                    while (done < in.size()) {
+                        done += in.transferTo(done, in.size() - done, out);
+                    }
+                }
+            }
+        }
+        return files.size();
+    }
+
+    /**
+     * An input stream reading a byte buffer without copying it first.
+     */
+    private static final class BufferInputStream extends InputStream {
+        /**
+         * The bytes left to read.
+         */
+        private final ByteBuffer myBuffer;
+
+        /**
+         * Creates a stream over a buffer.
+         *
+         * @param theBuffer the buffer, read from its position to its limit
+         */
+        BufferInputStream(final ByteBuffer theBuffer) {
+            super();
+            myBuffer = theBuffer;
+            myBuffer.mark();
+        }
+
+        @Override
+        public int read() {
+            int result = -1;
+            if (myBuffer.hasRemaining()) {
+                result = Byte.toUnsignedInt(myBuffer.get());
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] theBytes, final int theOffset, final int theLength) {
+            int result = -1;
+            if (theLength == 0) {
+                result = 0;
+            } else if (myBuffer.hasRemaining()) {
+                result = Math.min(theLength, myBuffer.remaining());
+                myBuffer.get(theBytes, theOffset, result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(final long theCount) {
+            final int count = (int) Math.max(0, Math.min(theCount, myBuffer.remaining()));
+            myBuffer.position(myBuffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return myBuffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(final int theLimit) {
+            myBuffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            myBuffer.reset();
+        }
+    }
+}
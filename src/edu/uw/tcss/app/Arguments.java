@@ -0,0 +1,31 @@
+package edu.uw.tcss.app;
+
+/**
+ * Reads the positional command line arguments of the runners in this package.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+final class Arguments {
+
+    private Arguments() {
+        super();
+    }
+
+    /**
+     * Returns a command line argument or a default value.
+     *
+     * @param theArgs the command line arguments
+     * @param theIndex the index of the argument
+     * @param theDefault the value to use when the argument is missing
+     * @return the argument
+     */
+    static String argument(final String[] theArgs, final int theIndex,
+                           final String theDefault) {
+        String result = theDefault;
+        if (theIndex < theArgs.length) {
+            result = theArgs[theIndex];
+        }
+        return result;
+    }
+}
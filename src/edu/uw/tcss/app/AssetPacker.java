@@ -0,0 +1,62 @@
+package edu.uw.tcss.app;
+
+import bundle.AssetBundle;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Packs the asset directory into one {@link AssetBundle} file and lists what
+ * went in.
+ * <p>
+ * Usage: {@code AssetPacker [directory] [bundle]}. Put the bundle on the class
+ * path as {@code /assets.pak}, or point the {@code tetris.assets} system
+ * property at it.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class AssetPacker {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default directory of loose assets.
+     */
+    private static final String DEFAULT_DIRECTORY = "src/assets";
+    /**
+     * Default bundle file.
+     */
+    private static final String DEFAULT_BUNDLE = "assets.pak";
+
+    private AssetPacker() {
+        super();
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs the asset directory and the bundle file, both optional
+     */
+    public static void main(final String[] theArgs) {
+        final Path directory = Path.of(Arguments.argument(theArgs, 0, DEFAULT_DIRECTORY));
+        final Path file = Path.of(Arguments.argument(theArgs, 1, DEFAULT_BUNDLE));
+        try {
+            final int count = AssetBundle.pack(directory, file);
+            final AssetBundle bundle = AssetBundle.open(file);
+            final StringBuilder sb = new StringBuilder("\n");
+            for (final String name : bundle.getNames()) {
+                sb.append(String.format("%-24s %,10d bytes%n", name,
+                                        bundle.get(name).remaining()));
+            }
+            sb.append(String.format("Packed %d assets into %s, %,d bytes", count, file,
+                                    Files.size(file)));
+            LOGGER.log(Level.INFO, sb.toString());
+        } catch (final IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not pack " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.uw.tcss.app;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import server.GameServer;
+import server.LoadGenerator;
+
+/**
+ * Runs a {@link LoadGenerator} against a game server to find how many games
+ * one JVM can tick at the full rate.
+ * <p>
+ * Usage: {@code LoadRunner [clients] [seconds] [port] [inputs]}. Clients may be
+ * a comma separated list such as {@code 500,1000,2000}, which runs one step per
+ * count. With port 0 a server is started in this JVM, and its late ticks are
+ * reported for every step. Thousands of clients need a matching limit on open
+ * files, for example {@code ulimit -n 65536}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class LoadRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default client counts.
+     */
+    private static final String DEFAULT_CLIENTS = "100,1000";
+    /**
+     * Default seconds per step.
+     */
+    private static final String DEFAULT_SECONDS = "10";
+    /**
+     * Default port; 0 starts a server in this JVM.
+     */
+    private static final String DEFAULT_PORT = "0";
+    /**
+     * Default inputs per second of each client.
+     */
+    private static final String DEFAULT_INPUTS = "5";
+    /**
+     * Board width of an embedded server.
+     */
+    private static final int WIDTH = 10;
+    /**
+     * Board height of an embedded server.
+     */
+    private static final int HEIGHT = 20;
+    /**
+     * Ticks between gravity steps of an embedded server.
+     */
+    private static final int GRAVITY = 30;
+
+    private LoadRunner() {
+        super();
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs clients, seconds, port and inputs per second, all optional
+     * @throws IOException if a server can not be started or a client can not connect
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(final String[] theArgs) throws IOException, InterruptedException {
+        final int seconds = Integer.parseInt(Arguments.argument(theArgs, 1, DEFAULT_SECONDS));
+        final int port = Integer.parseInt(Arguments.argument(theArgs, 2, DEFAULT_PORT));
+        final int inputs = Integer.parseInt(Arguments.argument(theArgs, 3, DEFAULT_INPUTS));
+        GameServer server = null;
+        int target = port;
+        if (port == 0) {
+            server = new GameServer(0, WIDTH, HEIGHT, GRAVITY);
+            server.start();
+            target = server.getPort();
+        }
+        for (final String step : Arguments.argument(theArgs, 0, DEFAULT_CLIENTS).split(",")) {
+            long late = 0;
+            if (server != null) {
+                late = server.getLateTicks();
+            }
+            final LoadGenerator.Result result =
+                    new LoadGenerator(target, Integer.parseInt(step.trim()), inputs)
+                            .run(seconds);
+            String line = result.toString();
+            if (server != null) {
+                line += String.format(", %d late ticks on the server",
+                                      server.getLateTicks() - late);
+            }
+            LOGGER.log(Level.INFO, line);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+}
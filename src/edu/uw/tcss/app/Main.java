@@ -1,5 +1,8 @@
 package edu.uw.tcss.app;
 
+import model.TetrisBoard;
+import telemetry.StartupTime;
+import view.AssetLoader;
 import view.TetrisPanel;
 
 /**
@@ -20,6 +23,9 @@ public final class Main {
      * @param theArgs is the command line arguments
      */
     public static void main(final String[] theArgs) {
+        StartupTime.getInstance().mainStarted();
+        AssetLoader.getInstance().preload();
+        TetrisBoard.getInstance().getMetrics().register();
         javax.swing.SwingUtilities.invokeLater(TetrisPanel::createAndShowGUI);
     }
 }
@@ -0,0 +1,94 @@
+package edu.uw.tcss.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.MyMovableTetrisPiece;
+import model.Perft;
+import model.TetrisBoard;
+import model.TetrisPiece;
+
+/**
+ * Runs {@link Perft} from the command line and reports the count below every
+ * root placement, the total and the speed in nodes per second.
+ * <p>
+ * Usage: {@code PerftRunner [depth] [pieces] [threads] [width] [height]}, where
+ * pieces is a piece sequence such as {@code TIOLJSZ} that is looped through.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class PerftRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default search depth.
+     */
+    private static final String DEFAULT_DEPTH = "3";
+    /**
+     * Default piece sequence.
+     */
+    private static final String DEFAULT_PIECES = "TIOLJSZ";
+    /**
+     * Default board width.
+     */
+    private static final String DEFAULT_WIDTH = "10";
+    /**
+     * Default board height.
+     */
+    private static final String DEFAULT_HEIGHT = "20";
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private PerftRunner() {
+        super();
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs depth, piece sequence, threads, width and height, all optional
+     */
+    public static void main(final String[] theArgs) {
+        final int depth = Integer.parseInt(Arguments.argument(theArgs, 0, DEFAULT_DEPTH));
+        final List<TetrisPiece> pieces = new ArrayList<>();
+        for (final char c : Arguments.argument(theArgs, 1, DEFAULT_PIECES).toCharArray()) {
+            pieces.add(TetrisPiece.valueOf(String.valueOf(c)));
+        }
+        final int threads = Integer.parseInt(Arguments.argument(theArgs, 2, String.valueOf(
+                Runtime.getRuntime().availableProcessors())));
+        final TetrisBoard board = TetrisBoard.createBoard(
+                Integer.parseInt(Arguments.argument(theArgs, 3, DEFAULT_WIDTH)),
+                Integer.parseInt(Arguments.argument(theArgs, 4, DEFAULT_HEIGHT)));
+        board.setPieceSequence(pieces);
+        board.newGame();
+
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final Perft perft = new Perft(pool);
+        final long start = System.nanoTime();
+        final Map<MyMovableTetrisPiece, Long> divide = perft.divide(board, depth);
+        final double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        pool.shutdown();
+
+        final StringBuilder sb = new StringBuilder("\n");
+        long total = 0;
+        for (final Map.Entry<MyMovableTetrisPiece, Long> entry : divide.entrySet()) {
+            final MyMovableTetrisPiece root = entry.getKey();
+            sb.append(String.format("%s %s %s: %d%n", root.getTetrisPiece(),
+                                    root.getRotation(), root.getPosition(),
+                                    entry.getValue()));
+            total += entry.getValue();
+        }
+        sb.append(String.format("perft(%d) = %d, %d nodes in %.3f s, %.0f nodes/s",
+                                depth, total, perft.getNodes(), seconds,
+                                perft.getNodes() / seconds));
+        LOGGER.log(Level.INFO, sb.toString());
+    }
+}
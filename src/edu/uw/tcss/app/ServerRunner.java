@@ -0,0 +1,102 @@
+package edu.uw.tcss.app;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import server.GameServer;
+
+/**
+ * Runs a {@link GameServer} on the loopback address and logs its tick rate,
+ * late ticks and bandwidth every few seconds.
+ * <p>
+ * Usage: {@code ServerRunner [port] [width] [height] [gravity] [spectator port]},
+ * where gravity is the number of ticks between automatic steps down.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class ServerRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default port.
+     */
+    private static final String DEFAULT_PORT = "7305";
+    /**
+     * Default board width.
+     */
+    private static final String DEFAULT_WIDTH = "10";
+    /**
+     * Default board height.
+     */
+    private static final String DEFAULT_HEIGHT = "20";
+    /**
+     * Default ticks between gravity steps.
+     */
+    private static final String DEFAULT_GRAVITY = "30";
+    /**
+     * Default spectator port.
+     */
+    private static final String DEFAULT_SPECTATOR_PORT = "7306";
+    /**
+     * Seconds between reports.
+     */
+    private static final int REPORT_SECONDS = 5;
+    /**
+     * Bytes in a kilobyte.
+     */
+    private static final double BYTES_PER_KB = 1024.0;
+
+    private ServerRunner() {
+        super();
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs port, width, height, gravity and spectator port, all optional
+     * @throws IOException if the port can not be bound
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(final String[] theArgs) throws IOException, InterruptedException {
+        final GameServer server = new GameServer(
+                Integer.parseInt(Arguments.argument(theArgs, 0, DEFAULT_PORT)),
+                Integer.parseInt(Arguments.argument(theArgs, 1, DEFAULT_WIDTH)),
+                Integer.parseInt(Arguments.argument(theArgs, 2, DEFAULT_HEIGHT)),
+                Integer.parseInt(Arguments.argument(theArgs, 3, DEFAULT_GRAVITY)));
+        server.start();
+        final int spectators = server.startSpectators(
+                Integer.parseInt(Arguments.argument(theArgs, 4, DEFAULT_SPECTATOR_PORT)));
+        LOGGER.log(Level.INFO, "Game server listening on port " + server.getPort()
+                               + ", spectators on port " + spectators);
+        report(server);
+    }
+
+    /**
+     * Logs the server statistics every few seconds, forever.
+     *
+     * @param theServer the server
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void report(final GameServer theServer) throws InterruptedException {
+        long ticks = theServer.getTicks();
+        long late = theServer.getLateTicks();
+        long bytes = theServer.getBytes();
+        while (true) {
+            TimeUnit.SECONDS.sleep(REPORT_SECONDS);
+            final long newTicks = theServer.getTicks();
+            final long newLate = theServer.getLateTicks();
+            final long newBytes = theServer.getBytes();
+            LOGGER.log(Level.INFO, String.format(
+                    "%d games, %.0f ticks/s, %d late ticks, %.1f KB/s",
+                    theServer.getGames(), (double) (newTicks - ticks) / REPORT_SECONDS,
+                    newLate - late, (newBytes - bytes) / BYTES_PER_KB / REPORT_SECONDS));
+            ticks = newTicks;
+            late = newLate;
+            bytes = newBytes;
+        }
+    }
+}
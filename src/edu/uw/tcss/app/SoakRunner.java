@@ -0,0 +1,367 @@
+package edu.uw.tcss.app;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Mixer;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import model.Board;
+import model.BoardExecutor;
+import model.MovableTetrisPiece;
+import model.Rotation;
+import model.TetrisBoard;
+import model.ai.Bot;
+import model.ai.Evaluator;
+import telemetry.GrowthDetector;
+import telemetry.LatencyHistogram;
+import view.AssetLoader;
+import view.BoardPanel;
+import view.InfoPanel;
+import view.NextPiecePanel;
+import view.SoundPlayer;
+
+/**
+ * Plays games for hours to find what only breaks after a day: leaks and
+ * latency that creeps up.
+ * <p>
+ * Usage: {@code SoakRunner [boards] [minutes] [gravity millis] [sample seconds]}.
+ * Each board runs in a {@link BoardExecutor} with the game's own listeners: a
+ * {@link BoardPanel}, {@link NextPiecePanel} and {@link InfoPanel} painted
+ * into an image at the frame rate, and the row clear sounds. A bot plays every
+ * board at accelerated gravity and a new game starts whenever one ends.
+ * <p>
+ * Every sample the heap used after a collection, the native audio lines open
+ * on every mixer, the live threads and the 99th percentile tick latency are
+ * logged. The tick latency is the time from queueing a gravity step until the
+ * event dispatch thread has run the work queued behind it. A series that grows
+ * through {@value #WINDOW} samples in a row is logged as a warning, and the
+ * runner exits with status 1 if any did. High scores go to a file of their own
+ * unless {@code tetris.highscore} is set.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class SoakRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default number of boards.
+     */
+    private static final String DEFAULT_BOARDS = "4";
+    /**
+     * Default minutes to run.
+     */
+    private static final String DEFAULT_MINUTES = "60";
+    /**
+     * Default milliseconds between gravity steps, sixty times as fast as a new
+     * game in the GUI.
+     */
+    private static final String DEFAULT_GRAVITY = "16";
+    /**
+     * Default seconds between samples.
+     */
+    private static final String DEFAULT_SAMPLE = "60";
+    /**
+     * Samples in a row that must grow for a series to be flagged.
+     */
+    private static final int WINDOW = 10;
+    /**
+     * Heap growth over a window that is flagged, in bytes.
+     */
+    private static final long HEAP_GROWTH = 64 * 1024;
+    /**
+     * Tick latency growth over a window that is flagged, in nanoseconds.
+     */
+    private static final long LATENCY_GROWTH = TimeUnit.MICROSECONDS.toNanos(100);
+    /**
+     * Gravity steps between the pieces the bot plays.
+     */
+    private static final int PIECE_TICKS = 6;
+    /**
+     * Milliseconds between painted frames.
+     */
+    private static final int FRAME_MILLIS = 33;
+    /**
+     * Bytes in a megabyte.
+     */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    /**
+     * Seconds in a minute.
+     */
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    private SoakRunner() {
+        super();
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs boards, minutes, gravity millis and sample seconds, all optional
+     * @throws IOException if the high score file can not be made
+     * @throws InterruptedException if interrupted while waiting
+     * @throws InvocationTargetException if the panels can not be made
+     */
+    public static void main(final String[] theArgs)
+            throws IOException, InterruptedException, InvocationTargetException {
+        final int boards = Integer.parseInt(Arguments.argument(theArgs, 0, DEFAULT_BOARDS));
+        final long minutes = Long.parseLong(Arguments.argument(theArgs, 1, DEFAULT_MINUTES));
+        final int gravity = Integer.parseInt(Arguments.argument(theArgs, 2, DEFAULT_GRAVITY));
+        final int sample = Integer.parseInt(Arguments.argument(theArgs, 3, DEFAULT_SAMPLE));
+        if (System.getProperty("tetris.highscore") == null) {
+            final File scores = File.createTempFile("soak-highscore", ".txt");
+            scores.deleteOnExit();
+            Files.writeString(scores.toPath(), "0");
+            System.setProperty("tetris.highscore", scores.getPath());
+        }
+        AssetLoader.getInstance().preload();
+
+        final LatencyHistogram latency = new LatencyHistogram("tick");
+        final SoundPlayer sounds = new SoundPlayer(SwingUtilities::invokeLater);
+        final List<Game> games = new ArrayList<>();
+        for (int i = 0; i < boards; i++) {
+            games.add(new Game(latency, sounds));
+        }
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(boards);
+        for (final Game game : games) {
+            scheduler.scheduleAtFixedRate(game::tick, gravity, gravity, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleAtFixedRate(() -> SwingUtilities.invokeLater(() -> {
+            for (final Game game : games) {
+                game.paint();
+            }
+        }), FRAME_MILLIS, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+
+        final GrowthDetector heap = new GrowthDetector("heap bytes", WINDOW, HEAP_GROWTH);
+        final GrowthDetector lines = new GrowthDetector("audio lines", WINDOW, 1);
+        final GrowthDetector threads = new GrowthDetector("threads", WINDOW, 1);
+        final GrowthDetector p99 = new GrowthDetector("tick p99 ns", WINDOW, LATENCY_GROWTH);
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long samples = minutes * SECONDS_PER_MINUTE / sample;
+        for (long i = 1; i <= samples; i++) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(sample));
+            memory.gc();
+            final long used = memory.getHeapMemoryUsage().getUsed();
+            final int open = openAudioLines();
+            final int live = threadBean.getThreadCount();
+            final long tick = latency.getValueAtPercentile(LatencyHistogram.P99);
+            long played = 0;
+            for (final Game game : games) {
+                played += game.getGames();
+            }
+            LOGGER.log(Level.INFO, String.format(
+                    "%.1f min: heap %.1f MB, %d audio lines (%d clips), %d threads, "
+                    + "%d games, %s", (double) i * sample / SECONDS_PER_MINUTE,
+                    used / MEGABYTE, open, sounds.getOpenClips(), live, played, latency));
+            latency.reset();
+            check(heap, used);
+            check(lines, open);
+            check(threads, live);
+            check(p99, tick);
+        }
+        scheduler.shutdownNow();
+        for (final Game game : games) {
+            game.stop();
+        }
+        boolean growing = false;
+        for (final GrowthDetector series : List.of(heap, lines, threads, p99)) {
+            LOGGER.log(Level.INFO, series.toString());
+            growing |= series.isGrowing();
+        }
+        if (growing) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Adds a sample to a series and warns if the series grows.
+     *
+     * @param theSeries the series
+     * @param theSample the sample
+     */
+    private static void check(final GrowthDetector theSeries, final long theSample) {
+        if (theSeries.add(theSample)) {
+            LOGGER.log(Level.WARNING, "GROWING " + theSeries.getName() + " for "
+                                      + WINDOW + " samples, now " + theSample);
+        }
+    }
+
+    /**
+     * Counts the audio lines open on every mixer.
+     *
+     * @return the open lines
+     */
+    private static int openAudioLines() {
+        int result = 0;
+        for (final Mixer.Info info : AudioSystem.getMixerInfo()) {
+            result += AudioSystem.getMixer(info).getSourceLines().length;
+        }
+        return result;
+    }
+
+    /**
+     * One board with its panels, sounds and bot.
+     */
+    private static final class Game {
+        /**
+         * The board.
+         */
+        private final BoardExecutor myBoard;
+        /**
+         * The panels, painted every frame.
+         */
+        private final List<JComponent> myPanels;
+        /**
+         * The image the panels are painted into.
+         */
+        private final BufferedImage myImage;
+        /**
+         * Plays the pieces.
+         */
+        private final Bot myBot;
+        /**
+         * Records the tick latency.
+         */
+        private final LatencyHistogram myLatency;
+        /**
+         * Gravity steps queued, only used by the scheduler.
+         */
+        private long myTicks;
+        /**
+         * Games started.
+         */
+        private volatile long myGames;
+
+        /**
+         * Creates a board, its panels and its bot, and starts a game.
+         *
+         * @param theLatency records the tick latency
+         * @param theSounds plays the row clear sounds
+         * @throws InterruptedException if interrupted while the panels are made
+         * @throws InvocationTargetException if the panels can not be made
+         */
+        Game(final LatencyHistogram theLatency, final SoundPlayer theSounds)
+                throws InterruptedException, InvocationTargetException {
+            super();
+            myBoard = new BoardExecutor(TetrisBoard.createBoard(),
+                                        SwingUtilities::invokeLater);
+            myLatency = theLatency;
+            myBot = new Bot(new Evaluator());
+            myPanels = new ArrayList<>();
+            SwingUtilities.invokeAndWait(() -> {
+                myPanels.add(new BoardPanel(myBoard));
+                myPanels.add(new NextPiecePanel(myBoard));
+                myPanels.add(new InfoPanel(myBoard));
+                for (final JComponent panel : myPanels) {
+                    panel.setSize(panel.getPreferredSize());
+                }
+            });
+            int width = 1;
+            int height = 1;
+            for (final JComponent panel : myPanels) {
+                width = Math.max(width, panel.getWidth());
+                height = Math.max(height, panel.getHeight());
+            }
+            myImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            myBoard.addPropertyChangeListener(
+                e -> theSounds.playClear((int) e.getNewValue()), Board.PROPERTY_ROW_CLEARED);
+            myBoard.start();
+            myBoard.newGame();
+            myGames = 1;
+        }
+
+        /**
+         * Queues a gravity step and, every few steps, the moves of the bot's
+         * next piece. Starts a new game when the game is over.
+         */
+        void tick() {
+            final BoardExecutor.Snapshot snapshot = myBoard.snapshot();
+            if (snapshot.isGameOver()) {
+                myBoard.newGame();
+                myGames++;
+            } else {
+                final long start = System.nanoTime();
+                myBoard.step();
+                myBoard.execute(board -> SwingUtilities.invokeLater(
+                        () -> myLatency.record(System.nanoTime() - start)));
+                myTicks++;
+                if (myTicks % PIECE_TICKS == 0 && snapshot.getCurrentPiece() != null) {
+                    playPiece(snapshot.getCurrentPiece());
+                }
+            }
+        }
+
+        /**
+         * Chooses a placement for the current piece and queues the moves to
+         * it. The board may move on while the bot searches, which only makes
+         * it play worse.
+         *
+         * @param thePiece the current piece
+         */
+        private void playPiece(final MovableTetrisPiece thePiece) {
+            myBot.choose(myBoard);
+            final int turns = myBot.getBestRotation().ordinal();
+            if (turns == Rotation.THREEQUARTER.ordinal()) {
+                myBoard.rotateCCW();
+            } else {
+                for (int i = 0; i < turns; i++) {
+                    myBoard.rotateCW();
+                }
+            }
+            final int shift = myBot.getBestX() - thePiece.getPosition().x();
+            for (int i = 0; i < Math.abs(shift); i++) {
+                if (shift > 0) {
+                    myBoard.right();
+                } else {
+                    myBoard.left();
+                }
+            }
+            myBoard.drop();
+        }
+
+        /**
+         * Paints the panels into the image. Runs on the event dispatch thread.
+         */
+        void paint() {
+            final Graphics2D graphics = myImage.createGraphics();
+            for (final JComponent panel : myPanels) {
+                panel.paint(graphics);
+            }
+            graphics.dispose();
+        }
+
+        /**
+         * Returns the number of games started.
+         *
+         * @return the games
+         */
+        long getGames() {
+            return myGames;
+        }
+
+        /**
+         * Stops the board.
+         */
+        void stop() {
+            myBoard.stop();
+        }
+    }
+}
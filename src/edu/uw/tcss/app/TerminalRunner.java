@@ -0,0 +1,236 @@
+package edu.uw.tcss.app;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.Board;
+import model.TetrisBoard;
+import terminal.AnsiRenderer;
+import terminal.RawTerminal;
+
+/**
+ * Plays Tetris in a terminal, for machines without a display or over SSH.
+ * <p>
+ * Usage: {@code TerminalRunner [width] [height]}. Arrows or WASD move and
+ * rotate, z rotates counter clockwise, space drops, c holds, p pauses, n starts
+ * a new game and q quits. The loop runs at 60 frames per second against fixed
+ * deadlines: it applies the keys pressed since the last frame, lets gravity act
+ * and draws only the cells that changed.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class TerminalRunner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default board width.
+     */
+    private static final String DEFAULT_WIDTH = "10";
+    /**
+     * Default board height.
+     */
+    private static final String DEFAULT_HEIGHT = "20";
+    /**
+     * Frames drawn per second.
+     */
+    private static final int FRAMES_PER_SECOND = 60;
+    /**
+     * Nanoseconds between frames.
+     */
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / FRAMES_PER_SECOND;
+    /**
+     * Time between gravity steps at level 1, as in the window version.
+     */
+    private static final long GRAVITY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Factor the time between gravity steps is multiplied by every level.
+     */
+    private static final double DIFFICULTY_INCREASE = 85.0 / 100.0;
+    /**
+     * The key sent by control C in raw mode.
+     */
+    private static final int CONTROL_C = 3;
+    /**
+     * The escape key.
+     */
+    private static final int ESCAPE = 0x1B;
+
+    /**
+     * The game.
+     */
+    private final TetrisBoard myBoard;
+    /**
+     * Where keys come from.
+     */
+    private final RawTerminal myTerminal;
+    /**
+     * Draws the board.
+     */
+    private final AnsiRenderer myRenderer;
+    /**
+     * The action run for each key.
+     */
+    private final Map<Integer, Runnable> myKeys;
+    /**
+     * Lines cleared in this game.
+     */
+    private int myLines;
+    /**
+     * Whether the game is paused.
+     */
+    private boolean myPaused;
+    /**
+     * Whether the loop keeps running.
+     */
+    private boolean myRunning;
+    /**
+     * Frames that started a whole frame late.
+     */
+    private long myLateFrames;
+
+    /**
+     * Creates a game loop.
+     *
+     * @param theBoard the game
+     * @param theTerminal where keys come from
+     * @param theRenderer draws the board
+     */
+    private TerminalRunner(final TetrisBoard theBoard, final RawTerminal theTerminal,
+                           final AnsiRenderer theRenderer) {
+        super();
+        myBoard = theBoard;
+        myTerminal = theTerminal;
+        myRenderer = theRenderer;
+        myKeys = new HashMap<>();
+        myRunning = true;
+        setupKeys();
+        myBoard.addPropertyChangeListener(e -> myLines += (int) e.getNewValue(),
+                                          Board.PROPERTY_ROW_CLEARED);
+        myBoard.addPropertyChangeListener(e -> myLines = 0, Board.PROPERTY_NEW_GAME);
+    }
+
+    /**
+     * Driver method for this class.
+     *
+     * @param theArgs width and height, both optional
+     */
+    public static void main(final String[] theArgs) {
+        final int width = Integer.parseInt(Arguments.argument(theArgs, 0, DEFAULT_WIDTH));
+        final int height = Integer.parseInt(Arguments.argument(theArgs, 1, DEFAULT_HEIGHT));
+        final TetrisBoard board = TetrisBoard.createBoard(width, height);
+        board.getMetrics().register();
+        final AnsiRenderer renderer = new AnsiRenderer(
+                new FileOutputStream(FileDescriptor.out), width, height);
+        long late = 0;
+        try (RawTerminal terminal = new RawTerminal(System.in)) {
+            final TerminalRunner runner = new TerminalRunner(board, terminal, renderer);
+            try {
+                runner.run();
+            } finally {
+                renderer.close();
+                late = runner.myLateFrames;
+            }
+        } catch (final IOException e) {
+            LOGGER.log(Level.SEVERE, "Terminal play needs an interactive terminal", e);
+        }
+        // logged once the terminal is out of raw mode
+        LOGGER.log(Level.INFO, late + " late frames");
+    }
+
+    /**
+     * Maps keys to what they do.
+     */
+    private void setupKeys() {
+        play(RawTerminal.KEY_LEFT, myBoard::left);
+        play('a', myBoard::left);
+        play(RawTerminal.KEY_RIGHT, myBoard::right);
+        play('d', myBoard::right);
+        play(RawTerminal.KEY_DOWN, myBoard::down);
+        play('s', myBoard::down);
+        play(RawTerminal.KEY_UP, myBoard::rotateCW);
+        play('w', myBoard::rotateCW);
+        play('x', myBoard::rotateCW);
+        play('z', myBoard::rotateCCW);
+        play(' ', myBoard::drop);
+        play('c', myBoard::hold);
+        myKeys.put((int) 'p', () -> myPaused = !myPaused);
+        myKeys.put((int) 'n', () -> {
+            myPaused = false;
+            myBoard.newGame();
+        });
+        final Runnable quit = () -> myRunning = false;
+        myKeys.put((int) 'q', quit);
+        myKeys.put(CONTROL_C, quit);
+        myKeys.put(ESCAPE, quit);
+    }
+
+    /**
+     * Maps a key to a board action that only runs during play.
+     *
+     * @param theKey the key
+     * @param theAction the board action
+     */
+    private void play(final int theKey, final Runnable theAction) {
+        myKeys.put(theKey, () -> {
+            if (!myPaused && !myBoard.isGameOver()) {
+                theAction.run();
+            }
+        });
+    }
+
+    /**
+     * Runs frames until the player quits.
+     *
+     * @throws IOException if a frame can not be written
+     */
+    private void run() throws IOException {
+        myBoard.newGame();
+        long deadline = System.nanoTime();
+        long gravity = deadline + GRAVITY_NANOS;
+        while (myRunning) {
+            int key = myTerminal.poll();
+            while (key != RawTerminal.NONE) {
+                final Runnable action = myKeys.get(key);
+                if (action != null) {
+                    action.run();
+                }
+                key = myTerminal.poll();
+            }
+            final long now = System.nanoTime();
+            if (myPaused || myBoard.isGameOver()) {
+                gravity = now + gravityNanos();
+            } else if (now >= gravity) {
+                myBoard.step();
+                gravity = now + gravityNanos();
+            }
+            myRenderer.render(myBoard, myLines, myBoard.getMetrics().getLevel(), myPaused);
+            deadline += FRAME_NANOS;
+            final long wait = deadline - System.nanoTime();
+            if (wait < -FRAME_NANOS) {
+                myLateFrames++;
+                deadline = System.nanoTime();
+            } else if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Returns the time between gravity steps at the current level.
+     *
+     * @return the time in nanoseconds
+     */
+    private long gravityNanos() {
+        return (long) (GRAVITY_NANOS
+                       * Math.pow(DIFFICULTY_INCREASE, myBoard.getMetrics().getLevel() - 1));
+    }
+}
@@ -0,0 +1,424 @@
+package edu.uw.tcss.app;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.ai.Bot;
+import model.ai.Evaluator;
+import model.ai.HeadlessGame;
+import model.ai.TranspositionTable;
+
+/**
+ * Tunes the weights of the AI {@link Evaluator} with a genetic algorithm.
+ * <p>
+ * Every generation each candidate plays the same seeded headless games, spread
+ * over all cores. Fitness is the average number of lines cleared plus the
+ * fraction of the piece limit survived. The population is written to a
+ * checkpoint file after every generation, and an existing checkpoint is
+ * resumed on start.
+ * <p>
+ * Usage: {@code Tuner [checkpoint] [generations] [population] [games] [pieces]}
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class Tuner {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Default checkpoint file.
+     */
+    private static final String DEFAULT_CHECKPOINT = "tuner-checkpoint.properties";
+    /**
+     * Default command line values for generations, population, games and pieces.
+     */
+    private static final int[] DEFAULTS = {50, 32, 8, 500};
+    /**
+     * Fraction of the population replaced by offspring every generation.
+     */
+    private static final double OFFSPRING_FRACTION = 0.3;
+    /**
+     * Fraction of the population taking part in a tournament.
+     */
+    private static final double TOURNAMENT_FRACTION = 0.1;
+    /**
+     * Chance that an offspring is mutated.
+     */
+    private static final double MUTATION_CHANCE = 0.05;
+    /**
+     * Largest change a mutation makes to a single weight.
+     */
+    private static final double MUTATION_SIZE = 0.2;
+    /**
+     * Memory given to each candidate's transposition table.
+     */
+    private static final int TABLE_MEGABYTES = 4;
+    /**
+     * Seed of the random number generator used for evolution.
+     */
+    private static final long EVOLUTION_SEED = 305;
+    /**
+     * Checkpoint key of the next generation to run.
+     */
+    private static final String GENERATION = "generation";
+    /**
+     * Checkpoint key prefix of a candidate's weights.
+     */
+    private static final String CANDIDATE = "candidate.";
+    /**
+     * Checkpoint key of the best weights found so far.
+     */
+    private static final String BEST = "best";
+    /**
+     * Separator of weights in the checkpoint file.
+     */
+    private static final String SEPARATOR = ",";
+
+    /**
+     * The checkpoint file.
+     */
+    private final Path myCheckpoint;
+    /**
+     * The number of seeded games each candidate plays per generation.
+     */
+    private final int myGames;
+    /**
+     * The most pieces played in a single game.
+     */
+    private final int myPieces;
+    /**
+     * The thread pool that plays the games.
+     */
+    private final ExecutorService myPool;
+    /**
+     * Random number generator used for selection and mutation, reseeded from
+     * the generation before every evolution step.
+     */
+    private final Random myRandom;
+    /**
+     * The weights of every candidate.
+     */
+    private List<double[]> myPopulation;
+    /**
+     * The index of the generation being run.
+     */
+    private int myGeneration;
+    /**
+     * The best weights seen so far, or null.
+     */
+    private String myBest;
+
+    /**
+     * Creates a Tuner.
+     *
+     * @param theCheckpoint the checkpoint file
+     * @param theGames the games per candidate per generation
+     * @param thePieces the piece limit of a game
+     */
+    private Tuner(final Path theCheckpoint, final int theGames, final int thePieces) {
+        super();
+        myCheckpoint = theCheckpoint;
+        myGames = theGames;
+        myPieces = thePieces;
+        myPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        myRandom = new Random(EVOLUTION_SEED);
+        myPopulation = new ArrayList<>();
+    }
+
+    /**
+     * Driver method for the tuner.
+     *
+     * @param theArgs checkpoint file, generations, population size, games per
+     *                candidate and pieces per game, all optional
+     * @throws IOException if the checkpoint can not be read or written
+     * @throws InterruptedException if the tuner is interrupted
+     */
+    public static void main(final String[] theArgs) throws IOException, InterruptedException {
+        final Path checkpoint = Paths.get(Arguments.argument(theArgs, 0, DEFAULT_CHECKPOINT));
+        final int[] values = DEFAULTS.clone();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Integer.parseInt(Arguments.argument(theArgs, i + 1,
+                                                            String.valueOf(values[i])));
+        }
+        final Tuner tuner = new Tuner(checkpoint, values[2], values[3]);
+        try {
+            tuner.load(values[1]);
+            tuner.run(values[0]);
+        } finally {
+            tuner.myPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs generations until the given total has been reached.
+     *
+     * @param theGenerations the total number of generations
+     * @throws IOException if the checkpoint can not be written
+     * @throws InterruptedException if the tuner is interrupted
+     */
+    private void run(final int theGenerations) throws IOException, InterruptedException {
+        while (myGeneration < theGenerations) {
+            final long start = System.nanoTime();
+            final List<List<Future<HeadlessGame.Result>>> games = new ArrayList<>();
+            for (final double[] weights : myPopulation) {
+                games.add(submit(weights));
+            }
+            final double[] fitness = new double[games.size()];
+            for (int i = 0; i < fitness.length; i++) {
+                fitness[i] = fitness(games.get(i));
+            }
+            final int best = best(fitness);
+            myBest = join(myPopulation.get(best));
+            LOGGER.log(Level.INFO, String.format("generation %d: best %.2f %s (%d ms)",
+                    myGeneration, fitness[best], myBest,
+                    (System.nanoTime() - start) / 1_000_000));
+            evolve(fitness);
+            myGeneration++;
+            save();
+        }
+    }
+
+    /**
+     * Queues this generation's seeded games of one candidate on the pool. All
+     * candidates are queued before any result is awaited, so every core stays
+     * busy even when there are fewer games per candidate than cores.
+     *
+     * @param theWeights the candidate's weights
+     * @return the candidate's games
+     */
+    private List<Future<HeadlessGame.Result>> submit(final double[] theWeights) {
+        final Evaluator evaluator = new Evaluator(theWeights);
+        final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+        final List<Future<HeadlessGame.Result>> games = new ArrayList<>();
+        for (int g = 0; g < myGames; g++) {
+            final long seed = (long) myGeneration * myGames + g;
+            games.add(myPool.submit(() ->
+                    HeadlessGame.play(new Bot(evaluator, table, true), seed, myPieces)));
+        }
+        return games;
+    }
+
+    /**
+     * Waits for a candidate's games and computes its fitness.
+     *
+     * @param theGames the candidate's games
+     * @return the candidate's fitness
+     * @throws InterruptedException if the tuner is interrupted
+     */
+    private double fitness(final List<Future<HeadlessGame.Result>> theGames)
+            throws InterruptedException {
+        double lines = 0;
+        double pieces = 0;
+        try {
+            for (final Future<HeadlessGame.Result> game : theGames) {
+                lines += game.get().getLines();
+                pieces += game.get().getPieces();
+            }
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return (lines + pieces / myPieces) / theGames.size();
+    }
+
+    /**
+     * Replaces the weakest candidates with offspring of tournament winners.
+     *
+     * @param theFitness the fitness of every candidate
+     */
+    private void evolve(final double[] theFitness) {
+        // seeded from the generation so a run resumed from a checkpoint
+        // evolves exactly as it would have without stopping
+        myRandom.setSeed(EVOLUTION_SEED + myGeneration);
+        final int size = myPopulation.size();
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(theFitness[b], theFitness[a]));
+        final int offspring = Math.max(1, (int) (size * OFFSPRING_FRACTION));
+        final List<double[]> next = new ArrayList<>();
+        for (int i = 0; i < size - offspring; i++) {
+            next.add(myPopulation.get(order[i]));
+        }
+        while (next.size() < size) {
+            final int first = tournament(theFitness);
+            final int second = tournament(theFitness);
+            next.add(crossover(first, second, theFitness));
+        }
+        myPopulation = next;
+    }
+
+    /**
+     * Picks the fittest of a random sample of the population.
+     *
+     * @param theFitness the fitness of every candidate
+     * @return the index of the winner
+     */
+    private int tournament(final double[] theFitness) {
+        final int rounds = Math.max(2, (int) (theFitness.length * TOURNAMENT_FRACTION));
+        int winner = myRandom.nextInt(theFitness.length);
+        for (int i = 1; i < rounds; i++) {
+            final int other = myRandom.nextInt(theFitness.length);
+            if (theFitness[other] > theFitness[winner]) {
+                winner = other;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Creates a child as the fitness weighted average of two parents,
+     * occasionally mutating one of its weights.
+     *
+     * @param theFirst the index of the first parent
+     * @param theSecond the index of the second parent
+     * @param theFitness the fitness of every candidate
+     * @return the child's weights
+     */
+    private double[] crossover(final int theFirst, final int theSecond,
+                               final double[] theFitness) {
+        final double[] a = myPopulation.get(theFirst);
+        final double[] b = myPopulation.get(theSecond);
+        final double fa = Math.max(theFitness[theFirst], Double.MIN_VALUE);
+        final double fb = Math.max(theFitness[theSecond], Double.MIN_VALUE);
+        final double[] child = new double[a.length];
+        for (int i = 0; i < child.length; i++) {
+            child[i] = (a[i] * fa + b[i] * fb) / (fa + fb);
+        }
+        if (myRandom.nextDouble() < MUTATION_CHANCE) {
+            child[myRandom.nextInt(child.length)] +=
+                    (myRandom.nextDouble() * 2 - 1) * MUTATION_SIZE;
+        }
+        return normalize(child);
+    }
+
+    /**
+     * Loads the checkpoint, or creates a random population if there is none.
+     *
+     * @param theSize the population size for a new run
+     * @throws IOException if the checkpoint can not be read
+     */
+    private void load(final int theSize) throws IOException {
+        if (Files.exists(myCheckpoint)) {
+            final Properties properties = new Properties();
+            try (Reader in = Files.newBufferedReader(myCheckpoint)) {
+                properties.load(in);
+            }
+            myGeneration = Integer.parseInt(properties.getProperty(GENERATION));
+            myBest = properties.getProperty(BEST);
+            for (int i = 0; properties.containsKey(CANDIDATE + i); i++) {
+                myPopulation.add(split(properties.getProperty(CANDIDATE + i)));
+            }
+            LOGGER.log(Level.INFO, "Resuming " + myCheckpoint + " at generation "
+                                   + myGeneration);
+        } else {
+            myPopulation.add(normalize(Evaluator.getDefaultWeights()));
+            while (myPopulation.size() < theSize) {
+                final double[] weights = new double[Evaluator.FEATURE_COUNT];
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = myRandom.nextDouble() * 2 - 1;
+                }
+                myPopulation.add(normalize(weights));
+            }
+        }
+    }
+
+    /**
+     * Writes the population to the checkpoint file, replacing it atomically.
+     *
+     * @throws IOException if the checkpoint can not be written
+     */
+    private void save() throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(GENERATION, String.valueOf(myGeneration));
+        properties.setProperty(BEST, myBest);
+        for (int i = 0; i < myPopulation.size(); i++) {
+            properties.setProperty(CANDIDATE + i, join(myPopulation.get(i)));
+        }
+        final Path temp = myCheckpoint.resolveSibling(myCheckpoint.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp)) {
+            properties.store(out, "Tetris AI tuner checkpoint");
+        }
+        Files.move(temp, myCheckpoint, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Scales weights to unit length.
+     *
+     * @param theWeights the weights, modified in place
+     * @return the weights
+     */
+    private static double[] normalize(final double[] theWeights) {
+        double length = 0;
+        for (final double w : theWeights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        for (int i = 0; i < theWeights.length && length > 0; i++) {
+            theWeights[i] /= length;
+        }
+        return theWeights;
+    }
+
+    /**
+     * Finds the index of the largest fitness.
+     *
+     * @param theFitness the fitness of every candidate
+     * @return the index of the fittest candidate
+     */
+    private static int best(final double[] theFitness) {
+        int best = 0;
+        for (int i = 1; i < theFitness.length; i++) {
+            if (theFitness[i] > theFitness[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Formats weights for the checkpoint file.
+     *
+     * @param theWeights the weights
+     * @return the weights separated by commas
+     */
+    private static String join(final double[] theWeights) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < theWeights.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(theWeights[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses weights from the checkpoint file.
+     *
+     * @param theText the weights separated by commas
+     * @return the weights
+     */
+    private static double[] split(final String theText) {
+        return Arrays.stream(theText.split(SEPARATOR)).mapToDouble(Double::parseDouble)
+                     .toArray();
+    }
+}
@@ -16,7 +16,8 @@ public interface Board {
      */
     String PROPERTY_GAME_OVER = "Game over";
     /**
-     * Name for the property change for when the next piece changes.
+     * Name for the property change for when the previewed pieces or the hold
+     * slot change. The new value is a {@link PiecePreview}.
      */
     String PROPERTY_NEXT_PIECE = "Next piece";
     /**
@@ -35,6 +36,15 @@ public interface Board {
      * Name for the property change for when a new game is started.
      */
     String PROPERTY_NEW_GAME = "New game";
+    /**
+     * Name for the property change for when the score changes. The new value
+     * is a {@link ScoringEngine.Snapshot}.
+     */
+    String PROPERTY_SCORE = "Score";
+    /**
+     * Landing height returned where the current piece does not fit between the walls.
+     */
+    int NO_LANDING = Integer.MIN_VALUE;
 
     /**
      * Get the width of the board.
@@ -50,7 +60,70 @@ public interface Board {
      */
     int getHeight();
 
+    /**
+     * Get a copy of the frozen blocks on the board, bottom row first.
+     * Empty cells are null. The caller may change the copy; use
+     * {@link #getState()} to read the blocks without copying them.
+     *
+     * @return Copy of the frozen blocks.
+     */
+    List<Block[]> getFrozenBlocks();
 
+    /**
+     * Get the frozen blocks as an immutable state, which can be kept or
+     * forked without copying.
+     *
+     * @return The current stack.
+     */
+    BoardState getState();
+
+    /**
+     * Get the piece that is currently moving.
+     *
+     * @return The current movable piece, or null before the first game.
+     */
+    MovableTetrisPiece getCurrentPiece();
+
+    /**
+     * Get the piece that will be played after the current one.
+     *
+     * @return The next piece, or null before the first game.
+     */
+    TetrisPiece getNextPiece();
+
+    /**
+     * Get the pieces coming up after the current one and the hold slot.
+     *
+     * @return The preview, or null before the first game.
+     */
+    PiecePreview getPreview();
+
+    /**
+     * Get the y position the current piece comes to rest at when dropped
+     * straight down from above the stack in a rotation and column. The heights
+     * are kept in a table built once per piece and stack, so this is a lookup.
+     *
+     * @param theRotation the rotation of the piece
+     * @param theX the x position of the piece
+     * @return the resting y position, or {@link #NO_LANDING} if the piece does
+     *         not fit between the walls there or there is no current piece
+     */
+    int getLandingY(Rotation theRotation, int theX);
+
+    /**
+     * Get where the current piece would come to rest if it were dropped now.
+     *
+     * @return The current piece moved down as far as it goes, or null if there
+     *         is no piece or the game is over.
+     */
+    MovableTetrisPiece getGhostPiece();
+
+    /**
+     * Get whether the current game has ended.
+     *
+     * @return True if the game is over.
+     */
+    boolean isGameOver();
 
     /**
      * Resets the board for a new game.
@@ -60,12 +133,23 @@ public interface Board {
     void newGame();
 
     /**
-     * Sets a non random sequence of pieces to loop through.
+     * Sets a non random sequence of pieces to loop through. The list is not
+     * copied and must not change while the board plays it.
      *
-     * @param thePieces the List of non random TetrisPieces.
+     * @param thePieces the List of non random TetrisPieces, or an empty List
+     *          for random pieces.
      */
     void setPieceSequence(List<TetrisPiece> thePieces);
 
+    /**
+     * Sets the source every game takes its pieces from. Each game plays a
+     * {@link PieceSource#fork() fork} of the source as it is now, so the source
+     * itself is not moved and may be given to other boards as well.
+     *
+     * @param thePieces the source, or null for random pieces.
+     */
+    void setPieceSource(PieceSource thePieces);
+
     /**
      * Advances the board by one 'step'.
      * <p>
@@ -108,6 +192,12 @@ public interface Board {
      */
     void drop();
 
+    /**
+     * Swap the movable piece with the held piece, or with the next piece when
+     * nothing is held. Allowed once until the piece is set.
+     */
+    void hold();
+
     /**
      * Add a property change listener.
      *
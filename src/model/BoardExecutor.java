@@ -0,0 +1,822 @@
+package model;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a {@link TetrisBoard} on a single owner thread and lets any thread use
+ * it through the {@link Board} interface.
+ * <p>
+ * Every mutation, such as {@link #left()}, is queued as a command and returns
+ * at once. The owner thread applies the commands in the order they were
+ * queued, so the board is only ever touched by that one thread and needs no
+ * locks. The queue is a linked list that producers append to with a single
+ * atomic swap and that only the owner reads, so a producer never waits for
+ * another producer or for the owner. After each batch of commands the owner
+ * publishes an immutable {@link Snapshot} through a volatile field, and every
+ * query is answered from the latest snapshot, so render and network threads
+ * see a consistent board without stopping the game.
+ * <p>
+ * Property changes of the board are passed on to the listeners of this
+ * executor through an {@link Executor}, for example
+ * {@code SwingUtilities::invokeLater}, with this executor as their source.
+ * The frozen blocks they carry are an immutable {@link BoardState} view, so
+ * nothing is copied for them. They are passed on while the batch is applied,
+ * before its snapshot is published, so a renderer should draw the snapshot of
+ * {@link #PROPERTY_SNAPSHOT}, which follows them, rather than mix their values
+ * with queries. Moves queued after the game ended are dropped, as the game
+ * server does.
+ * <p>
+ * Every move is recorded by a {@link TimeMachine}, so the game can be stepped
+ * back and forward with {@link #seekBy(int)} and {@link #seek(int)}. A move
+ * played after going back plays on from that tick.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class BoardExecutor implements Board {
+    /**
+     * Property fired after going back or forward in time, with the snapshot
+     * of the tick gone to as its new value.
+     */
+    public static final String PROPERTY_TIME_TRAVEL = "Time travel";
+    /**
+     * Property fired after every snapshot published, with the snapshot as its
+     * new value.
+     */
+    public static final String PROPERTY_SNAPSHOT = "Snapshot";
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Commands applied at most before a snapshot is published, so a flood of
+     * commands can not keep the snapshot from moving on.
+     */
+    private static final int BATCH = 64;
+    /**
+     * Every rotation, by ordinal.
+     */
+    private static final Rotation[] ROTATIONS = Rotation.values();
+    /**
+     * The board, only touched by the owner thread once started.
+     */
+    private final TetrisBoard myBoard;
+    /**
+     * Runs the delivery of property changes to the listeners.
+     */
+    private final Executor myEvents;
+    /**
+     * The listeners of this executor.
+     */
+    private final PropertyChangeSupport myPCS;
+    /**
+     * Records the moves, only used by the owner thread once started.
+     */
+    private final TimeMachine myTimeMachine;
+    /**
+     * The node queued last. Producers swap their node in here and then link
+     * the node they replaced to it.
+     */
+    private final AtomicReference<Node> myTail;
+    /**
+     * Number of commands queued.
+     */
+    private final AtomicLong myQueued;
+    /**
+     * The node applied last, only used by the owner thread.
+     */
+    private Node myHead;
+    /**
+     * The latest snapshot.
+     */
+    private volatile Snapshot mySnapshot;
+    /**
+     * Set while the owner thread found the queue empty and is about to park.
+     */
+    private volatile boolean myWaiting;
+    /**
+     * Whether the owner thread should keep running.
+     */
+    private volatile boolean myRunning;
+    /**
+     * The owner thread, or null when stopped.
+     */
+    private volatile Thread myOwner;
+    /**
+     * The score last published by the board.
+     */
+    private ScoringEngine.Snapshot myScore;
+    /**
+     * Landing heights of the current piece by rotation and column, shared by
+     * snapshots until the piece or the stack changes.
+     */
+    private int[][] myLanding;
+    /**
+     * The piece myLanding was built for.
+     */
+    private TetrisPiece myLandingPiece;
+    /**
+     * The stack myLanding was built on.
+     */
+    private BoardState myLandingStack;
+    /**
+     * Version of the snapshot published last.
+     */
+    private long myVersion;
+    /**
+     * Number of commands applied, only used by the owner thread.
+     */
+    private long myApplied;
+
+    /**
+     * Creates an executor for a board. The board must not be used directly
+     * any more once the executor is started.
+     *
+     * @param theBoard the board
+     * @param theEvents runs the delivery of property changes to the listeners
+     */
+    public BoardExecutor(final TetrisBoard theBoard, final Executor theEvents) {
+        super();
+        myBoard = theBoard;
+        myEvents = theEvents;
+        myPCS = new PropertyChangeSupport(this);
+        myTimeMachine = new TimeMachine(theBoard);
+        myHead = new Node(null, null);
+        myTail = new AtomicReference<>(myHead);
+        myQueued = new AtomicLong();
+        myScore = theBoard.getScoring().snapshot();
+        myLanding = new int[ROTATIONS.length][0];
+        myBoard.addPropertyChangeListener(this::boardChanged);
+        publish();
+    }
+
+    /**
+     * Starts the owner thread if it is not running. Commands queued before
+     * are applied first.
+     */
+    public synchronized void start() {
+        if (myOwner == null) {
+            myRunning = true;
+            myOwner = new Thread(this::run, "board-" + myBoard.getId());
+            myOwner.setDaemon(true);
+            myOwner.start();
+        }
+    }
+
+    /**
+     * Stops the owner thread after the command it is applying and waits for it
+     * to end, so that a restarted executor never has two owners. Commands still
+     * queued are applied if the executor is started again.
+     */
+    public synchronized void stop() {
+        final Thread owner = myOwner;
+        if (owner != null) {
+            myRunning = false;
+            myOwner = null;
+            LockSupport.unpark(owner);
+            if (owner != Thread.currentThread()) {
+                try {
+                    owner.join();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the state of the board after the latest batch of commands.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return mySnapshot;
+    }
+
+    /**
+     * Returns the number of commands queued so far. A snapshot whose
+     * {@link Snapshot#getApplied()} has reached the count read right after
+     * queuing a command includes that command. This is exact while commands
+     * are queued from one thread, as the game queues them from the event
+     * dispatch thread; with several producers a command may be counted before
+     * one queued ahead of it.
+     *
+     * @return the commands queued
+     */
+    public long getQueued() {
+        return myQueued.get();
+    }
+
+    /**
+     * Queues any command for the board, for example to change its preview
+     * size. The command runs on the owner thread and must not keep the board.
+     * It is not recorded, so it should not change the game being played.
+     *
+     * @param theCommand the command
+     */
+    public void execute(final Consumer<? super TetrisBoard> theCommand) {
+        submit(theCommand);
+    }
+
+    /**
+     * Queues going a number of ticks back or forward in the game, stopping at
+     * the first and the last tick recorded.
+     *
+     * @param theTicks the ticks to go forward, negative to go back
+     */
+    public void seekBy(final int theTicks) {
+        submit(board -> travel(myTimeMachine.getTick() + theTicks));
+    }
+
+    /**
+     * Queues going to a tick of the game, stopping at the first and the last
+     * tick recorded.
+     *
+     * @param theTick the tick
+     */
+    public void seek(final int theTick) {
+        submit(board -> travel(theTick));
+    }
+
+    @Override
+    public int getWidth() {
+        return myBoard.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return myBoard.getHeight();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The copy is made from the latest snapshot. Use {@link #getState()} to
+     * read the rows without copying them.
+     */
+    @Override
+    public List<Block[]> getFrozenBlocks() {
+        return mySnapshot.getState().getFrozenBlocks();
+    }
+
+    @Override
+    public BoardState getState() {
+        return mySnapshot.getState();
+    }
+
+    @Override
+    public MovableTetrisPiece getCurrentPiece() {
+        return mySnapshot.getCurrentPiece();
+    }
+
+    @Override
+    public TetrisPiece getNextPiece() {
+        return mySnapshot.getNextPiece();
+    }
+
+    @Override
+    public PiecePreview getPreview() {
+        return mySnapshot.getPreview();
+    }
+
+    @Override
+    public int getLandingY(final Rotation theRotation, final int theX) {
+        return mySnapshot.getLandingY(theRotation, theX);
+    }
+
+    @Override
+    public MovableTetrisPiece getGhostPiece() {
+        return mySnapshot.getGhostPiece();
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return mySnapshot.isGameOver();
+    }
+
+    @Override
+    public void newGame() {
+        submit(board -> {
+            board.newGame();
+            myTimeMachine.reset();
+        });
+    }
+
+    @Override
+    public void setPieceSequence(final List<TetrisPiece> thePieces) {
+        submit(board -> {
+            board.setPieceSequence(thePieces);
+            myTimeMachine.reset();
+        });
+    }
+
+    @Override
+    public void setPieceSource(final PieceSource thePieces) {
+        // fork here, so the caller may move the source on while the command waits
+        PieceSource pieces = null;
+        if (thePieces != null) {
+            pieces = thePieces.fork();
+        }
+        final PieceSource source = pieces;
+        submit(board -> {
+            board.setPieceSource(source);
+            myTimeMachine.reset();
+        });
+    }
+
+    @Override
+    public void step() {
+        submit(Move.STEP);
+    }
+
+    @Override
+    public void down() {
+        submit(Move.DOWN);
+    }
+
+    @Override
+    public void left() {
+        submit(Move.LEFT);
+    }
+
+    @Override
+    public void right() {
+        submit(Move.RIGHT);
+    }
+
+    @Override
+    public void rotateCW() {
+        submit(Move.ROTATE_CW);
+    }
+
+    @Override
+    public void rotateCCW() {
+        submit(Move.ROTATE_CCW);
+    }
+
+    @Override
+    public void drop() {
+        submit(Move.DROP);
+    }
+
+    @Override
+    public void hold() {
+        submit(Move.HOLD);
+    }
+
+    @Override
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myPCS.addPropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void addPropertyChangeListener(final PropertyChangeListener theListener,
+                                          final String thePropertyName) {
+        myPCS.addPropertyChangeListener(thePropertyName, theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final PropertyChangeListener theListener) {
+        myPCS.removePropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final PropertyChangeListener theListener,
+                                             final String thePropertyName) {
+        myPCS.removePropertyChangeListener(thePropertyName, theListener);
+    }
+
+    /**
+     * Queues a command. May be called from any thread.
+     *
+     * @param theCommand the command
+     */
+    private void submit(final Consumer<? super TetrisBoard> theCommand) {
+        enqueue(new Node(null, theCommand));
+    }
+
+    /**
+     * Queues a move to be played and recorded. May be called from any thread.
+     *
+     * @param theMove the move
+     */
+    private void submit(final Move theMove) {
+        enqueue(new Node(theMove, null));
+    }
+
+    /**
+     * Links a node to the queue and wakes the owner thread if it is waiting for
+     * one. May be called from any thread.
+     *
+     * @param theNode the node
+     */
+    private void enqueue(final Node theNode) {
+        myQueued.incrementAndGet();
+        myTail.getAndSet(theNode).myNext = theNode;
+        if (myWaiting) {
+            final Thread owner = myOwner;
+            if (owner != null) {
+                LockSupport.unpark(owner);
+            }
+        }
+    }
+
+    /**
+     * The owner thread: applies queued commands and publishes a snapshot after
+     * each batch, parking while the queue is empty.
+     */
+    private void run() {
+        int applied = 0;
+        while (myRunning) {
+            final Node next = myHead.myNext;
+            if (next == null) {
+                if (applied > 0) {
+                    publish();
+                    applied = 0;
+                }
+                // a producer linking its node after the check below sees the flag
+                myWaiting = true;
+                if (myHead.myNext == null && myRunning) {
+                    LockSupport.park(this);
+                }
+                myWaiting = false;
+            } else {
+                myHead = next;
+                apply(next);
+                myApplied++;
+                applied++;
+                if (applied == BATCH) {
+                    publish();
+                    applied = 0;
+                }
+            }
+        }
+        if (applied > 0) {
+            publish();
+        }
+    }
+
+    /**
+     * Plays the move or applies the command of a node, logging instead of dying
+     * if it fails.
+     *
+     * @param theNode the node
+     */
+    private void apply(final Node theNode) {
+        try {
+            if (theNode.myMove == null) {
+                theNode.myCommand.accept(myBoard);
+            } else {
+                myTimeMachine.play(theNode.myMove);
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Board command failed", e);
+        }
+    }
+
+    /**
+     * Keeps the score the board reports and passes its property changes on to
+     * the listeners. Runs on the owner thread.
+     *
+     * @param theEvent the property change of the board
+     */
+    private void boardChanged(final PropertyChangeEvent theEvent) {
+        final String name = theEvent.getPropertyName();
+        if (PROPERTY_SCORE.equals(name)) {
+            myScore = (ScoringEngine.Snapshot) theEvent.getNewValue();
+        }
+        if (myPCS.hasListeners(name)) {
+            final PropertyChangeEvent event = new PropertyChangeEvent(
+                    this, name, theEvent.getOldValue(), theEvent.getNewValue());
+            myEvents.execute(() -> myPCS.firePropertyChange(event));
+        }
+    }
+
+    /**
+     * Goes to a tick, publishes its snapshot at once and tells the listeners.
+     * Runs on the owner thread.
+     *
+     * @param theTick the tick, clamped to the ticks recorded
+     */
+    private void travel(final int theTick) {
+        myTimeMachine.seek(Math.max(0, Math.min(theTick, myTimeMachine.getLength())));
+        publish();
+        if (myPCS.hasListeners(PROPERTY_TIME_TRAVEL)) {
+            final PropertyChangeEvent event = new PropertyChangeEvent(
+                    this, PROPERTY_TIME_TRAVEL, null, mySnapshot);
+            myEvents.execute(() -> myPCS.firePropertyChange(event));
+        }
+    }
+
+    /**
+     * Publishes a snapshot of the board and tells the listeners. The stack is
+     * shared, and the landing table is copied only when a new piece or stack
+     * needs one.
+     */
+    private void publish() {
+        final MovableTetrisPiece current = myBoard.getCurrentPiece();
+        final BoardState stack = myBoard.getState();
+        if (current != null
+            && (current.getTetrisPiece() != myLandingPiece || stack != myLandingStack)) {
+            final int[][] landing = new int[ROTATIONS.length][];
+            for (final Rotation rotation : ROTATIONS) {
+                final int[] heights = new int[myBoard.getWidth() + TetrisBoard.LANDING_MARGIN];
+                for (int column = 0; column < heights.length; column++) {
+                    heights[column] = myBoard.getLandingY(rotation,
+                                                          column - TetrisBoard.LANDING_MARGIN);
+                }
+                landing[rotation.ordinal()] = heights;
+            }
+            myLanding = landing;
+            myLandingPiece = current.getTetrisPiece();
+            myLandingStack = stack;
+        }
+        myVersion++;
+        final Snapshot snapshot = new Snapshot(myVersion, stack, current,
+                                               myBoard.getGhostPiece(), myBoard.getPreview(),
+                                               myScore, myBoard.isGameOver(), myLanding,
+                                               myTimeMachine.getTick(),
+                                               myTimeMachine.getLength(), myApplied,
+                                               System.nanoTime());
+        mySnapshot = snapshot;
+        if (myPCS.hasListeners(PROPERTY_SNAPSHOT)) {
+            myEvents.execute(() -> myPCS.firePropertyChange(PROPERTY_SNAPSHOT, null,
+                                                            snapshot));
+        }
+    }
+
+    /**
+     * A queued command.
+     */
+    private static final class Node {
+        /**
+         * The move, or null if the node holds a command.
+         */
+        private final Move myMove;
+        /**
+         * The command, or null if the node holds a move or is the first node.
+         */
+        private final Consumer<? super TetrisBoard> myCommand;
+        /**
+         * The node queued after this one, set by the producer that queued it.
+         */
+        private volatile Node myNext;
+
+        /**
+         * Creates a node.
+         *
+         * @param theMove the move, or null
+         * @param theCommand the command, or null
+         */
+        Node(final Move theMove, final Consumer<? super TetrisBoard> theCommand) {
+            super();
+            myMove = theMove;
+            myCommand = theCommand;
+        }
+    }
+
+    /**
+     * The state of a board at one moment, safe to read from any thread.
+     */
+    public static final class Snapshot {
+        /**
+         * Version of the snapshot, one more than the one before.
+         */
+        private final long myVersion;
+        /**
+         * The frozen blocks.
+         */
+        private final BoardState myState;
+        /**
+         * The current piece, or null.
+         */
+        private final MovableTetrisPiece myCurrentPiece;
+        /**
+         * Where the current piece would land, or null.
+         */
+        private final MovableTetrisPiece myGhostPiece;
+        /**
+         * The previewed pieces and the hold slot, or null before the first piece.
+         */
+        private final PiecePreview myPreview;
+        /**
+         * The score.
+         */
+        private final ScoringEngine.Snapshot myScore;
+        /**
+         * Whether the game is over.
+         */
+        private final boolean myGameOver;
+        /**
+         * Landing heights by rotation and column plus the landing margin.
+         */
+        private final int[][] myLanding;
+        /**
+         * The tick of the game.
+         */
+        private final int myTick;
+        /**
+         * The number of ticks recorded.
+         */
+        private final int myLength;
+        /**
+         * The number of commands applied.
+         */
+        private final long myApplied;
+        /**
+         * When the snapshot was published, from System.nanoTime.
+         */
+        private final long myPublished;
+
+        /**
+         * Creates a snapshot. The landing table must never change.
+         *
+         * @param theVersion the version
+         * @param theState the frozen blocks
+         * @param theCurrentPiece the current piece
+         * @param theGhostPiece the ghost piece
+         * @param thePreview the preview
+         * @param theScore the score
+         * @param theGameOver whether the game is over
+         * @param theLanding the landing table
+         * @param theTick the tick of the game
+         * @param theLength the number of ticks recorded
+         * @param theApplied the number of commands applied
+         * @param thePublished when the snapshot was published
+         */
+        private Snapshot(final long theVersion, final BoardState theState,
+                         final MovableTetrisPiece theCurrentPiece,
+                         final MovableTetrisPiece theGhostPiece,
+                         final PiecePreview thePreview, final ScoringEngine.Snapshot theScore,
+                         final boolean theGameOver, final int[][] theLanding,
+                         final int theTick, final int theLength, final long theApplied,
+                         final long thePublished) {
+            super();
+            myVersion = theVersion;
+            myState = theState;
+            myCurrentPiece = theCurrentPiece;
+            myGhostPiece = theGhostPiece;
+            myPreview = thePreview;
+            myScore = theScore;
+            myGameOver = theGameOver;
+            myLanding = theLanding;
+            myTick = theTick;
+            myLength = theLength;
+            myApplied = theApplied;
+            myPublished = thePublished;
+        }
+
+        /**
+         * Returns the version, which tells readers whether anything changed.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return myVersion;
+        }
+
+        /**
+         * Returns the frozen blocks.
+         *
+         * @return the stack
+         */
+        public BoardState getState() {
+            return myState;
+        }
+
+        /**
+         * Returns the frozen blocks, shared by every reader. Neither the list
+         * nor its rows may be changed.
+         *
+         * @return the rows, bottom first
+         */
+        public List<Block[]> getFrozenBlocks() {
+            return myState.asList();
+        }
+
+        /**
+         * Returns the current piece.
+         *
+         * @return the piece, or null before the first game
+         */
+        public MovableTetrisPiece getCurrentPiece() {
+            return myCurrentPiece;
+        }
+
+        /**
+         * Returns where the current piece would land.
+         *
+         * @return the ghost piece, or null if there is none
+         */
+        public MovableTetrisPiece getGhostPiece() {
+            return myGhostPiece;
+        }
+
+        /**
+         * Returns the previewed pieces and the hold slot.
+         *
+         * @return the preview, or null before the first game
+         */
+        public PiecePreview getPreview() {
+            return myPreview;
+        }
+
+        /**
+         * Returns the next piece.
+         *
+         * @return the piece, or null before the first game
+         */
+        public TetrisPiece getNextPiece() {
+            TetrisPiece result = null;
+            if (myPreview != null) {
+                result = myPreview.get(0);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the score.
+         *
+         * @return the score
+         */
+        public ScoringEngine.Snapshot getScore() {
+            return myScore;
+        }
+
+        /**
+         * Returns whether the game is over.
+         *
+         * @return true if the game is over
+         */
+        public boolean isGameOver() {
+            return myGameOver;
+        }
+
+        /**
+         * Returns the tick of the game: the number of moves played to get to
+         * this snapshot since the game started.
+         *
+         * @return the tick
+         */
+        public int getTick() {
+            return myTick;
+        }
+
+        /**
+         * Returns the number of ticks recorded. It is more than the tick after
+         * going back in time.
+         *
+         * @return the last tick that can be gone to
+         */
+        public int getLength() {
+            return myLength;
+        }
+
+        /**
+         * Returns the number of commands applied to get to this snapshot, to
+         * compare with {@link BoardExecutor#getQueued()}.
+         *
+         * @return the commands applied
+         */
+        public long getApplied() {
+            return myApplied;
+        }
+
+        /**
+         * Returns when this snapshot was published.
+         *
+         * @return the time from System.nanoTime
+         */
+        public long getPublished() {
+            return myPublished;
+        }
+
+        /**
+         * Returns the y position the current piece lands at, as
+         * {@link Board#getLandingY}.
+         *
+         * @param theRotation the rotation of the piece
+         * @param theX the x position of the piece
+         * @return the resting y position, or {@link Board#NO_LANDING}
+         */
+        public int getLandingY(final Rotation theRotation, final int theX) {
+            int result = NO_LANDING;
+            final int[] heights = myLanding[theRotation.ordinal()];
+            final int column = theX + TetrisBoard.LANDING_MARGIN;
+            if (myCurrentPiece != null && column >= 0 && column < heights.length) {
+                result = heights[column];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,720 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable stack of frozen blocks. Placing a piece or clearing rows makes
+ * a new state that shares every row it did not change with the state it came
+ * from.
+ * <p>
+ * Each row keeps its blocks, a bitset of its filled cells, bit x of word x / 64
+ * set when column x is filled, and whether it is full, found by comparing the
+ * words with those of a full row. A piece is tested for collisions a row at a
+ * time, by ANDing a mask of its cells in that row with the row's words. Rows
+ * are never changed once built, so any number of states can hold the same row,
+ * and a state can be kept, forked or handed to another thread without copying.
+ * <p>
+ * The rows are the nodes of a persistent treap ordered by row index, bottom
+ * first. Each node knows how many rows and how many full rows are below it in
+ * the tree and which columns any of them fill. Only the rows up to the highest
+ * one a piece was placed in are kept; every row above them is empty. Placing a
+ * piece copies the path to each row it touches, and clearing rows takes them
+ * out of the tree so the rows above move down by index alone. Both cost a few
+ * nodes per changed row times the depth of the tree, which grows with the
+ * logarithm of the stack height, so a board thousands of rows high forks as
+ * cheaply as a small one. Counting full rows reads the root, and finding the
+ * height of a column walks one path down the tree.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class BoardState {
+    /**
+     * Number of cells in one word of a row bitset.
+     */
+    private static final int WORD = Long.SIZE;
+
+    /**
+     * Width of the board.
+     */
+    private final int myWidth;
+    /**
+     * Height of the board.
+     */
+    private final int myHeight;
+    /**
+     * The empty row, shared by every row above the kept ones and by every
+     * state made from this one.
+     */
+    private final Row myEmpty;
+    /**
+     * The kept rows, or null if every row is empty.
+     */
+    private final Node myRoot;
+    /**
+     * The rows as a list, created when first asked for.
+     */
+    private List<Block[]> myList;
+
+    /**
+     * Creates a state.
+     *
+     * @param theWidth the width of the board
+     * @param theHeight the height of the board
+     * @param theEmpty the empty row
+     * @param theRoot the kept rows, or null
+     */
+    private BoardState(final int theWidth, final int theHeight, final Row theEmpty,
+                       final Node theRoot) {
+        super();
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myEmpty = theEmpty;
+        myRoot = theRoot;
+    }
+
+    /**
+     * Creates an empty board. All of its rows are the same empty row.
+     *
+     * @param theWidth the width in cells
+     * @param theHeight the height in cells
+     * @return the empty state
+     */
+    public static BoardState empty(final int theWidth, final int theHeight) {
+        return new BoardState(theWidth, theHeight, new Row(new Block[theWidth], theWidth),
+                              null);
+    }
+
+    /**
+     * Creates a state holding a copy of some rows.
+     *
+     * @param theWidth the width in cells
+     * @param theRows the rows, bottom first, each theWidth long
+     * @return the state
+     */
+    public static BoardState of(final int theWidth, final List<Block[]> theRows) {
+        final Row empty = new Row(new Block[theWidth], theWidth);
+        int top = theRows.size();
+        while (top > 0 && Arrays.equals(theRows.get(top - 1), empty.myBlocks)) {
+            top--;
+        }
+        Node root = null;
+        for (int y = 0; y < top; y++) {
+            root = merge(root, new Node(new Row(theRows.get(y).clone(), theWidth)));
+        }
+        return new BoardState(theWidth, theRows.size(), empty, root);
+    }
+
+    /**
+     * Returns the width.
+     *
+     * @return the width in cells
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height.
+     *
+     * @return the number of rows
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the block in a cell.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return the block, or null if the cell is empty or outside the board
+     */
+    public Block getBlock(final int theX, final int theY) {
+        Block result = null;
+        if (isOnBoard(theX, theY)) {
+            result = row(theY).myBlocks[theX];
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a cell on the board is filled.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return true if the cell is on the board and filled
+     */
+    public boolean isFilled(final int theX, final int theY) {
+        return isOnBoard(theX, theY)
+               && (row(theY).myBits[theX / WORD] & 1L << theX) != 0;
+    }
+
+    /**
+     * Tells whether piece cells placed at a position are inside the walls and
+     * floor and miss every block. Cells above the top of the board are legal.
+     * Each row of the piece is tested at once, its mask shifted to the piece
+     * position and ANDed with the words of the board row.
+     *
+     * @param theMasks the filled local columns of each local row of the piece,
+     *                 bit x set when local column x is filled
+     * @param theX x coordinate of the piece position
+     * @param theY y coordinate of the piece position
+     * @return true if every cell fits
+     */
+    boolean fits(final int[] theMasks, final int theX, final int theY) {
+        final int kept = size(myRoot);
+        boolean result = true;
+        for (int i = 0; result && i < theMasks.length; i++) {
+            final int mask = theMasks[i];
+            if (mask != 0) {
+                final int y = theY + i;
+                final int left = theX + Integer.numberOfTrailingZeros(mask);
+                final int right = theX + Integer.SIZE - 1 - Integer.numberOfLeadingZeros(mask);
+                // rows above the kept ones are empty, so only those need a lookup
+                result = left >= 0 && right < myWidth && y >= 0
+                         && (y >= kept || !overlaps(row(y).myBits, mask, theX));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the height of a column: one above its highest filled cell.
+     *
+     * @param theX the column
+     * @return the column height, 0 for an empty column
+     */
+    public int getColumnHeight(final int theX) {
+        final int word = theX / WORD;
+        final long bit = 1L << theX;
+        int result = 0;
+        int below = 0;
+        Node node = myRoot;
+        while (node != null) {
+            final int left = size(node.myLeft);
+            if (node.myRight != null && (node.myRight.myBits[word] & bit) != 0) {
+                below += left + 1;
+                node = node.myRight;
+            } else if ((node.myRow.myBits[word] & bit) != 0) {
+                result = below + left + 1;
+                node = null;
+            } else {
+                node = node.myLeft;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of full rows.
+     *
+     * @return the full rows
+     */
+    public int countFullRows() {
+        return full(myRoot);
+    }
+
+    /**
+     * Returns the state with the blocks of a piece added. Cells outside the
+     * board are left out. Only the rows the piece touches are copied, and only
+     * the paths to them in the tree.
+     *
+     * @param thePiece the piece
+     * @return the new state
+     */
+    public BoardState place(final MovableTetrisPiece thePiece) {
+        final Block block = thePiece.getTetrisPiece().getBlock();
+        final Point[] points = thePiece.getBoardPoints();
+        final int[] ys = new int[points.length];
+        final Row[] rows = new Row[points.length];
+        int count = 0;
+        for (int i = 0; i < points.length; i++) {
+            final int y = points[i].y();
+            if (isOnBoard(points[i].x(), y) && isFirstInRow(points, i)) {
+                // the first cell in this row copies it for every cell in it
+                final Row old = row(y);
+                final Block[] blocks = old.myBlocks.clone();
+                final long[] bits = old.myBits.clone();
+                for (int j = i; j < points.length; j++) {
+                    final int x = points[j].x();
+                    if (points[j].y() == y && isOnBoard(x, y)) {
+                        blocks[x] = block;
+                        bits[x / WORD] |= 1L << x;
+                    }
+                }
+                // insertion sort, as a piece touches at most four rows
+                int k = count;
+                while (k > 0 && ys[k - 1] > y) {
+                    ys[k] = ys[k - 1];
+                    rows[k] = rows[k - 1];
+                    k--;
+                }
+                ys[k] = y;
+                rows[k] = new Row(blocks, bits, myWidth);
+                count++;
+            }
+        }
+        final int kept = size(myRoot);
+        int inside = 0;
+        while (inside < count && ys[inside] < kept) {
+            inside++;
+        }
+        Node root = replace(myRoot, 0, ys, rows, 0, inside);
+        for (int i = inside; i < count; i++) {
+            while (size(root) < ys[i]) {
+                root = merge(root, new Node(myEmpty));
+            }
+            root = merge(root, new Node(rows[i]));
+        }
+        return new BoardState(myWidth, myHeight, myEmpty, root);
+    }
+
+    /**
+     * Returns the state with every full row removed and as many empty rows
+     * added on top. No row is copied, and only the paths to the full rows in
+     * the tree are.
+     *
+     * @return the new state, or this state if no row is full
+     */
+    public BoardState clearFullRows() {
+        BoardState result = this;
+        if (full(myRoot) > 0) {
+            result = new BoardState(myWidth, myHeight, myEmpty, removeFull(myRoot));
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a row of this state is the very same row as in another
+     * state, which means it is unchanged without comparing its cells.
+     *
+     * @param theOther the other state
+     * @param theY the row
+     * @return true if both states share the row
+     */
+    public boolean sharesRow(final BoardState theOther, final int theY) {
+        return theY >= 0 && theY < myHeight && theY < theOther.myHeight
+               && row(theY) == theOther.row(theY);
+    }
+
+    /**
+     * Returns the rows as a read-only list without copying them. The rows are
+     * shared with every state holding them and must not be changed.
+     *
+     * @return the rows, bottom first
+     */
+    public List<Block[]> asList() {
+        List<Block[]> result = myList;
+        if (result == null) {
+            // a race creates an equal view twice, which does no harm
+            result = new RowList(this);
+            myList = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the rows that the caller may change.
+     *
+     * @return the rows, bottom first
+     */
+    public List<Block[]> getFrozenBlocks() {
+        final List<Block[]> result = new ArrayList<>(myHeight);
+        for (int y = 0; y < myHeight; y++) {
+            result.add(row(y).myBlocks.clone());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object theOther) {
+        boolean result = theOther == this;
+        if (!result && theOther instanceof BoardState) {
+            final BoardState other = (BoardState) theOther;
+            result = other.myWidth == myWidth && other.myHeight == myHeight;
+            for (int y = 0; result && y < myHeight; y++) {
+                final Row row = row(y);
+                final Row otherRow = other.row(y);
+                result = row == otherRow || Arrays.equals(row.myBlocks, otherRow.myBlocks);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = myWidth;
+        for (int y = 0; y < myHeight; y++) {
+            result = 31 * result + Arrays.hashCode(row(y).myBits);
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a cell is on the board.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return true if the cell is inside the walls, floor and top
+     */
+    private boolean isOnBoard(final int theX, final int theY) {
+        return theX >= 0 && theX < myWidth && theY >= 0 && theY < myHeight;
+    }
+
+    /**
+     * Tells whether a piece row mask at a position inside the walls overlaps
+     * the filled cells of a row.
+     *
+     * @param theBits the filled cells of the row
+     * @param theMask the filled local columns of the piece row
+     * @param theX x coordinate of the piece position
+     * @return true if a cell of the piece is filled in the row
+     */
+    private static boolean overlaps(final long[] theBits, final int theMask, final int theX) {
+        final int low = Integer.numberOfTrailingZeros(theMask);
+        final int start = theX + low;
+        final int word = start / WORD;
+        final int shift = start % WORD;
+        // the lowest cell is on the board, so the mask is only shifted left
+        final long mask = theMask >>> low;
+        boolean result = (theBits[word] & mask << shift) != 0;
+        if (shift > 0 && word + 1 < theBits.length) {
+            result |= (theBits[word + 1] & mask >>> WORD - shift) != 0;
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a point is the first of the points on the board in its row.
+     *
+     * @param thePoints the points
+     * @param theIndex the index of the point
+     * @return true if no earlier point on the board is in the same row
+     */
+    private boolean isFirstInRow(final Point[] thePoints, final int theIndex) {
+        boolean result = true;
+        for (int j = 0; result && j < theIndex; j++) {
+            result = thePoints[j].y() != thePoints[theIndex].y()
+                     || !isOnBoard(thePoints[j].x(), thePoints[j].y());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a row.
+     *
+     * @param theY the row, on the board
+     * @return the row, the empty row if it is above the kept ones
+     */
+    private Row row(final int theY) {
+        Row result = myEmpty;
+        int index = theY;
+        Node node = myRoot;
+        while (node != null) {
+            final int left = size(node.myLeft);
+            if (index < left) {
+                node = node.myLeft;
+            } else if (index == left) {
+                result = node.myRow;
+                node = null;
+            } else {
+                index -= left + 1;
+                node = node.myRight;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a tree with some of its rows replaced, copying each node on the
+     * paths to them once.
+     *
+     * @param theNode the tree, or null if there are no rows to replace
+     * @param theBelow the number of rows below the tree
+     * @param theYs the rows to replace, ascending
+     * @param theRows the new rows
+     * @param theFrom the index in theYs of the first row in the tree
+     * @param theTo the index in theYs after the last row in the tree
+     * @return the new tree
+     */
+    private static Node replace(final Node theNode, final int theBelow, final int[] theYs,
+                                final Row[] theRows, final int theFrom, final int theTo) {
+        Node result = theNode;
+        if (theFrom < theTo) {
+            final int y = theBelow + size(theNode.myLeft);
+            int split = theFrom;
+            while (split < theTo && theYs[split] < y) {
+                split++;
+            }
+            final Node left = replace(theNode.myLeft, theBelow, theYs, theRows, theFrom,
+                                      split);
+            Row row = theNode.myRow;
+            if (split < theTo && theYs[split] == y) {
+                row = theRows[split];
+                split++;
+            }
+            final Node right = replace(theNode.myRight, y + 1, theYs, theRows, split, theTo);
+            result = new Node(row, left, right, theNode.myPriority);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a tree of the rows of one tree followed by the rows of another.
+     *
+     * @param theLower the lower rows, or null
+     * @param theUpper the upper rows, or null
+     * @return the joined tree
+     */
+    private static Node merge(final Node theLower, final Node theUpper) {
+        final Node result;
+        if (theLower == null) {
+            result = theUpper;
+        } else if (theUpper == null) {
+            result = theLower;
+        } else if (theLower.myPriority > theUpper.myPriority) {
+            result = new Node(theLower.myRow, theLower.myLeft,
+                              merge(theLower.myRight, theUpper), theLower.myPriority);
+        } else {
+            result = new Node(theUpper.myRow, merge(theLower, theUpper.myLeft),
+                              theUpper.myRight, theUpper.myPriority);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a tree without its full rows, copying only the paths to them.
+     *
+     * @param theNode the tree, or null
+     * @return the tree without full rows
+     */
+    private static Node removeFull(final Node theNode) {
+        Node result = theNode;
+        if (full(theNode) > 0) {
+            final Node left = removeFull(theNode.myLeft);
+            final Node right = removeFull(theNode.myRight);
+            if (theNode.myRow.myFull) {
+                result = merge(left, right);
+            } else {
+                result = new Node(theNode.myRow, left, right, theNode.myPriority);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of rows in a tree.
+     *
+     * @param theNode the tree, or null
+     * @return the rows
+     */
+    private static int size(final Node theNode) {
+        int result = 0;
+        if (theNode != null) {
+            result = theNode.mySize;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of full rows in a tree.
+     *
+     * @param theNode the tree, or null
+     * @return the full rows
+     */
+    private static int full(final Node theNode) {
+        int result = 0;
+        if (theNode != null) {
+            result = theNode.myFull;
+        }
+        return result;
+    }
+
+    /**
+     * One row of blocks, never changed once built.
+     */
+    private static final class Row {
+        /**
+         * The blocks, null for empty cells.
+         */
+        private final Block[] myBlocks;
+        /**
+         * The filled cells as a bitset.
+         */
+        private final long[] myBits;
+        /**
+         * Whether every cell is filled.
+         */
+        private final boolean myFull;
+
+        /**
+         * Creates a row, taking ownership of its blocks.
+         *
+         * @param theBlocks the blocks
+         * @param theWidth the width of the board
+         */
+        Row(final Block[] theBlocks, final int theWidth) {
+            this(theBlocks, bits(theBlocks, theWidth), theWidth);
+        }
+
+        /**
+         * Creates a row from its blocks and their bitset, taking ownership of
+         * both.
+         *
+         * @param theBlocks the blocks
+         * @param theBits the filled cells of the blocks as a bitset
+         * @param theWidth the width of the board
+         */
+        Row(final Block[] theBlocks, final long[] theBits, final int theWidth) {
+            super();
+            myBlocks = theBlocks;
+            myBits = theBits;
+            // a full row is all ones up to the last word, which is all ones up to the width
+            final int last = theBits.length - 1;
+            boolean full = theBits[last] == -1L >>> (theBits.length * WORD - theWidth);
+            for (int i = 0; full && i < last; i++) {
+                full = theBits[i] == -1L;
+            }
+            myFull = full;
+        }
+
+        /**
+         * Builds the bitset of the filled cells of some blocks.
+         *
+         * @param theBlocks the blocks
+         * @param theWidth the width of the board
+         * @return bit x of word x / 64 set when column x is filled
+         */
+        private static long[] bits(final Block[] theBlocks, final int theWidth) {
+            final long[] result = new long[(theWidth + WORD - 1) / WORD];
+            for (int x = 0; x < theWidth; x++) {
+                if (theBlocks[x] != null) {
+                    result[x / WORD] |= 1L << x;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A node of the treap: a row, the rows below it on the left and the rows
+     * above it on the right, and what they hold together. Never changed once
+     * built.
+     */
+    private static final class Node {
+        /**
+         * The row.
+         */
+        private final Row myRow;
+        /**
+         * The rows below, or null.
+         */
+        private final Node myLeft;
+        /**
+         * The rows above, or null.
+         */
+        private final Node myRight;
+        /**
+         * Random priority that keeps the tree balanced; no node is below a
+         * node of lower priority.
+         */
+        private final int myPriority;
+        /**
+         * Number of rows in the tree.
+         */
+        private final int mySize;
+        /**
+         * Number of full rows in the tree.
+         */
+        private final int myFull;
+        /**
+         * The columns filled in any row of the tree, as a bitset.
+         */
+        private final long[] myBits;
+
+        /**
+         * Creates a tree of one row with a new priority.
+         *
+         * @param theRow the row
+         */
+        Node(final Row theRow) {
+            this(theRow, null, null, ThreadLocalRandom.current().nextInt());
+        }
+
+        /**
+         * Creates a tree.
+         *
+         * @param theRow the row
+         * @param theLeft the rows below, or null
+         * @param theRight the rows above, or null
+         * @param thePriority the priority
+         */
+        Node(final Row theRow, final Node theLeft, final Node theRight,
+             final int thePriority) {
+            super();
+            myRow = theRow;
+            myLeft = theLeft;
+            myRight = theRight;
+            myPriority = thePriority;
+            mySize = size(theLeft) + 1 + size(theRight);
+            int fullRows = full(theLeft) + full(theRight);
+            if (theRow.myFull) {
+                fullRows++;
+            }
+            myFull = fullRows;
+            if (theLeft == null && theRight == null) {
+                // a leaf fills what its row fills, and rows are never changed
+                myBits = theRow.myBits;
+            } else {
+                myBits = theRow.myBits.clone();
+                for (int i = 0; i < myBits.length; i++) {
+                    if (theLeft != null) {
+                        myBits[i] |= theLeft.myBits[i];
+                    }
+                    if (theRight != null) {
+                        myBits[i] |= theRight.myBits[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A read-only list view of the rows.
+     */
+    private static final class RowList extends AbstractList<Block[]> implements RandomAccess {
+        /**
+         * The state.
+         */
+        private final BoardState myState;
+
+        /**
+         * Creates a view.
+         *
+         * @param theState the state
+         */
+        RowList(final BoardState theState) {
+            super();
+            myState = theState;
+        }
+
+        @Override
+        public Block[] get(final int theIndex) {
+            if (theIndex < 0 || theIndex >= myState.myHeight) {
+                throw new IndexOutOfBoundsException(theIndex);
+            }
+            return myState.row(theIndex).myBlocks;
+        }
+
+        @Override
+        public int size() {
+            return myState.myHeight;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The Super Rotation System wall kick offsets, precomputed for every piece
+ * and pair of rotations.
+ * <p>
+ * Each entry is a flat array of offsets {@code {dx0, dy0, dx1, dy1, ...}} in the
+ * order they are tried. The arrays are shared and must not be modified, which
+ * lets a rotation test every kick without allocating.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+final class KickTable {
+    /**
+     * Kicks for J, L, S, T and Z by starting rotation, turning clockwise.
+     */
+    private static final int[][] JLSTZ_CW = {
+        {0, 0, -1, 0, -1, 1, 0, -2, -1, -2},
+        {0, 0, 1, 0, 1, -1, 0, 2, 1, 2},
+        {0, 0, 1, 0, 1, 1, 0, -2, 1, -2},
+        {0, 0, -1, 0, -1, -1, 0, 2, -1, 2},
+    };
+    /**
+     * Kicks for J, L, S, T and Z by starting rotation, turning counter clockwise.
+     */
+    private static final int[][] JLSTZ_CCW = {
+        {0, 0, 1, 0, 1, 1, 0, -2, 1, -2},
+        {0, 0, 1, 0, 1, -1, 0, 2, 1, 2},
+        {0, 0, -1, 0, -1, 1, 0, -2, -1, -2},
+        {0, 0, -1, 0, -1, -1, 0, 2, -1, 2},
+    };
+    /**
+     * Kicks for I by starting rotation, turning clockwise.
+     */
+    private static final int[][] I_CW = {
+        {0, 0, -2, 0, 1, 0, -2, -1, 1, 2},
+        {0, 0, -1, 0, 2, 0, -1, 2, 2, -1},
+        {0, 0, 2, 0, -1, 0, 2, 1, -1, -2},
+        {0, 0, 1, 0, -2, 0, 1, -2, -2, 1},
+    };
+    /**
+     * Kicks for I by starting rotation, turning counter clockwise.
+     */
+    private static final int[][] I_CCW = {
+        {0, 0, -1, 0, 2, 0, -1, 2, 2, -1},
+        {0, 0, 2, 0, -1, 0, 2, 1, -1, -2},
+        {0, 0, 1, 0, -2, 0, 1, -2, -2, 1},
+        {0, 0, -2, 0, 1, 0, -2, -1, 1, 2},
+    };
+    /**
+     * The O piece rotates in place and never kicks.
+     */
+    private static final int[] NO_KICK = {0, 0};
+    /**
+     * Used for pairs of rotations that are not a quarter turn apart.
+     */
+    private static final int[] NONE = {};
+    /**
+     * The kicks indexed by piece, starting rotation and ending rotation.
+     */
+    private static final int[][][][] KICKS;
+
+    static {
+        final Rotation[] rotations = Rotation.values();
+        KICKS = new int[TetrisPiece.values().length][rotations.length][rotations.length][];
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            for (final Rotation from : rotations) {
+                final int[][] kicks = KICKS[piece.ordinal()][from.ordinal()];
+                Arrays.fill(kicks, NONE);
+                kicks[from.clockwise().ordinal()] = select(piece, from, I_CW, JLSTZ_CW);
+                kicks[from.counterClockwise().ordinal()] =
+                        select(piece, from, I_CCW, JLSTZ_CCW);
+            }
+        }
+    }
+
+    private KickTable() {
+        super();
+    }
+
+    /**
+     * Returns the kicks to try when rotating a piece.
+     *
+     * @param thePiece the piece being rotated
+     * @param theFrom the rotation before turning
+     * @param theTo the rotation after turning
+     * @return the shared offsets {dx0, dy0, dx1, dy1, ...}; empty if the
+     *         rotations are not a quarter turn apart
+     */
+    static int[] getKicks(final TetrisPiece thePiece, final Rotation theFrom,
+                          final Rotation theTo) {
+        return KICKS[thePiece.ordinal()][theFrom.ordinal()][theTo.ordinal()];
+    }
+
+    /**
+     * Picks the kick row for one piece and starting rotation.
+     *
+     * @param thePiece the piece
+     * @param theFrom the starting rotation
+     * @param theIKicks the kicks used by the I piece
+     * @param theOtherKicks the kicks used by J, L, S, T and Z
+     * @return the kicks for the piece
+     */
+    private static int[] select(final TetrisPiece thePiece, final Rotation theFrom,
+                                final int[][] theIKicks, final int[][] theOtherKicks) {
+        final int[] result;
+        if (thePiece == TetrisPiece.O) {
+            result = NO_KICK;
+        } else if (thePiece == TetrisPiece.I) {
+            result = theIKicks[theFrom.ordinal()];
+        } else {
+            result = theOtherKicks[theFrom.ordinal()];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+/**
+ * The moves that play a game: every input of the player and every gravity
+ * tick. A game is its first board plus the moves played on it, which is what
+ * a {@link TimeMachine} records.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public enum Move {
+
+    /**
+     * A gravity tick.
+     */
+    STEP,
+
+    /**
+     * Moves the piece down.
+     */
+    DOWN,
+
+    /**
+     * Moves the piece left.
+     */
+    LEFT,
+
+    /**
+     * Moves the piece right.
+     */
+    RIGHT,
+
+    /**
+     * Rotates the piece clockwise.
+     */
+    ROTATE_CW,
+
+    /**
+     * Rotates the piece counter-clockwise.
+     */
+    ROTATE_CCW,
+
+    /**
+     * Drops the piece.
+     */
+    DROP,
+
+    /**
+     * Holds the piece.
+     */
+    HOLD;
+
+    /**
+     * Every move, by ordinal.
+     */
+    private static final Move[] VALUES = values();
+
+    /**
+     * Returns the move with an ordinal, without copying the values.
+     *
+     * @param theOrdinal the ordinal
+     * @return the move
+     */
+    static Move of(final int theOrdinal) {
+        return VALUES[theOrdinal];
+    }
+
+    /**
+     * Plays this move on a board.
+     *
+     * @param theBoard the board
+     */
+    public void playOn(final Board theBoard) {
+        switch (this) {
+            case STEP:
+                theBoard.step();
+                break;
+            case DOWN:
+                theBoard.down();
+                break;
+            case LEFT:
+                theBoard.left();
+                break;
+            case RIGHT:
+                theBoard.right();
+                break;
+            case ROTATE_CW:
+                theBoard.rotateCW();
+                break;
+            case ROTATE_CCW:
+                theBoard.rotateCCW();
+                break;
+            case DROP:
+                theBoard.drop();
+                break;
+            default:
+                theBoard.hold();
+                break;
+        }
+    }
+}
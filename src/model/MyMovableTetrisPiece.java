@@ -21,6 +21,38 @@ public final class MyMovableTetrisPiece implements MovableTetrisPiece {
      * The number of Points in a TetrisPiece.
      */
     private static final int BLOCKS = 4;
+
+    /**
+     * Local block coordinates {x0, y0, x1, y1, ...} of every piece in every rotation.
+     */
+    private static final int[][][] CELLS =
+            new int[TetrisPiece.values().length][Rotation.values().length][];
+
+    /**
+     * The filled local columns of every piece in every rotation as a bit mask
+     * per local row, bit x set when local column x is filled.
+     */
+    private static final int[][][] ROW_MASKS =
+            new int[TetrisPiece.values().length][Rotation.values().length][];
+
+    static {
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            for (final Rotation rotation : Rotation.values()) {
+                final Point[] points = rotate(piece, rotation);
+                final int[] cells = new int[BLOCKS * 2];
+                for (int i = 0; i < BLOCKS; i++) {
+                    cells[2 * i] = points[i].x();
+                    cells[2 * i + 1] = points[i].y();
+                }
+                CELLS[piece.ordinal()][rotation.ordinal()] = cells;
+                final int[] masks = new int[BLOCKS];
+                for (int i = 0; i < BLOCKS; i++) {
+                    masks[cells[2 * i + 1]] |= 1 << cells[2 * i];
+                }
+                ROW_MASKS[piece.ordinal()][rotation.ordinal()] = masks;
+            }
+        }
+    }
     
     /**
      * The TetrisPiece.
@@ -219,6 +251,31 @@ public final class MyMovableTetrisPiece implements MovableTetrisPiece {
     
     // private methods
 
+    /**
+     * Returns the local block coordinates of a piece in a rotation.
+     * The array is shared and must not be modified.
+     *
+     * @param thePiece the piece
+     * @param theRotation the rotation
+     * @return the coordinates {x0, y0, x1, y1, ...}
+     */
+    static int[] getCells(final TetrisPiece thePiece, final Rotation theRotation) {
+        return CELLS[thePiece.ordinal()][theRotation.ordinal()];
+    }
+
+    /**
+     * Returns the filled local columns of a piece in a rotation as a bit mask
+     * per local row, bottom row first. The array is shared and must not be
+     * modified.
+     *
+     * @param thePiece the piece
+     * @param theRotation the rotation
+     * @return the mask of each local row, bit x set when local column x is filled
+     */
+    static int[] getRowMasks(final TetrisPiece thePiece, final Rotation theRotation) {
+        return ROW_MASKS[thePiece.ordinal()][theRotation.ordinal()];
+    }
+
     /**
      * Get the block points of the TetrisPiece transformed by x and y.
      * 
@@ -226,25 +283,47 @@ public final class MyMovableTetrisPiece implements MovableTetrisPiece {
      * @return array of TetrisPiece block points.
      */
     private Point[] getPoints(final Point thePoint) {
+        final int[] cells = getCells(myTetrisPiece, myRotation);
+        int x = 0;
+        int y = 0;
+        if (thePoint != null) {
+            x = thePoint.x();
+            y = thePoint.y();
+        }
+        final Point[] blocks = new Point[BLOCKS];
+        for (int i = 0; i < BLOCKS; i++) {
+            blocks[i] = new Point(x + cells[2 * i], y + cells[2 * i + 1]);
+        }
+        return blocks;
+    }
 
-        final Point[] blocks = myTetrisPiece.getPoints();
+    /**
+     * Rotates the local points of a TetrisPiece.
+     * 
+     * @param thePiece the piece to rotate.
+     * @param theRotation the rotation to apply.
+     * @return array of TetrisPiece block points.
+     */
+    private static Point[] rotate(final TetrisPiece thePiece, final Rotation theRotation) {
+
+        final Point[] blocks = thePiece.getPoints();
         
         for (int i = 0; i < blocks.length; i++) {
             final Point block = blocks[i];
-            if (myTetrisPiece != TetrisPiece.O) {
-                switch (myRotation) {
+            if (thePiece != TetrisPiece.O) {
+                switch (theRotation) {
                     case QUARTER:
                         blocks[i] = new Point(block.y(),
-                                              myTetrisPiece.getWidth() - block.x() - 1);
+                                              thePiece.getWidth() - block.x() - 1);
                         
                         break;
                     case HALF:
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.x() - 1,
-                                              myTetrisPiece.getWidth() - block.y() - 1);
+                        blocks[i] = new Point(thePiece.getWidth() - block.x() - 1,
+                                              thePiece.getWidth() - block.y() - 1);
                         
                         break;
                     case THREEQUARTER:                 
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.y() - 1,
+                        blocks[i] = new Point(thePiece.getWidth() - block.y() - 1,
                                               block.x());
                         
                         
@@ -252,9 +331,6 @@ public final class MyMovableTetrisPiece implements MovableTetrisPiece {
                     default:
                 }
             }
-            if (thePoint != null) {
-                blocks[i] = blocks[i].transform(thePoint);
-            }
         }
 
         return blocks;
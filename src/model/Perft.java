@@ -0,0 +1,280 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts every distinct sequence of piece placements reachable from a board,
+ * in the spirit of "perft" in chess engines.
+ * <p>
+ * Placements are generated with the board's own movement, collision and wall
+ * kick code: from the spawn position every state reachable by left, right,
+ * rotate and soft drop moves is searched, and each state that can not move
+ * down is a placement. Placements that lock the same cells are counted once.
+ * A placement that ends the game has no children, so like checkmate in chess
+ * it only counts at the last level.
+ * <p>
+ * The root placements are searched in parallel on a fork/join pool, each on its
+ * own copy of the board. Below the root every task reuses one detached board
+ * per depth, loading the parent into it for each placement, so nodes do not
+ * allocate boards. The counts do not depend on the number of threads, so
+ * they are a regression oracle for any change to the board representation.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class Perft {
+    /**
+     * Offset that keeps encoded piece coordinates positive.
+     */
+    private static final int OFFSET = 8;
+    /**
+     * Number of rotations.
+     */
+    private static final int ROTATIONS = Rotation.values().length;
+    /**
+     * Number of sideways and rotation moves tried from every state.
+     */
+    private static final int MOVES = 4;
+
+    /**
+     * Number of placement nodes generated, including interior nodes.
+     */
+    private final LongAdder myNodes;
+    /**
+     * The pool running the root moves.
+     */
+    private final ForkJoinPool myPool;
+
+    /**
+     * Creates a Perft that uses the common fork/join pool.
+     */
+    public Perft() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a Perft that uses the given pool.
+     *
+     * @param thePool the pool running the root moves
+     */
+    public Perft(final ForkJoinPool thePool) {
+        super();
+        myNodes = new LongAdder();
+        myPool = thePool;
+    }
+
+    /**
+     * Counts the placement sequences of the given depth, searching the root
+     * placements in parallel.
+     *
+     * @param theBoard the board to start from; it is not changed
+     * @param theDepth the number of pieces to place
+     * @return the number of distinct placement sequences
+     */
+    public long perft(final TetrisBoard theBoard, final int theDepth) {
+        long total = 0;
+        for (final long count : divide(theBoard, theDepth).values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Counts the placement sequences of the given depth below each root placement.
+     *
+     * @param theBoard the board to start from; it is not changed
+     * @param theDepth the number of pieces to place, at least 1
+     * @return the count for each root placement, keyed by the placed piece
+     */
+    public Map<MyMovableTetrisPiece, Long> divide(final TetrisBoard theBoard,
+                                                  final int theDepth) {
+        final TetrisBoard board = theBoard.copy();
+        final List<MyMovableTetrisPiece> roots = placements(board);
+        myNodes.add(roots.size());
+        final List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (final MyMovableTetrisPiece root : roots) {
+            final TetrisBoard child = board.copy();
+            place(child, root);
+            tasks.add(myPool.submit(new Subtree(child, theDepth - 1)));
+        }
+        final Map<MyMovableTetrisPiece, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < roots.size(); i++) {
+            result.put(roots.get(i), tasks.get(i).join());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of placement nodes generated since this Perft was created.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return myNodes.sum();
+    }
+
+    /**
+     * Counts the placement sequences below a board sequentially.
+     *
+     * @param theBoard the board
+     * @param theDepth the remaining depth
+     * @param theScratch the boards to place on, at index remaining depth - 2
+     * @return the number of sequences
+     */
+    private long count(final TetrisBoard theBoard, final int theDepth,
+                       final TetrisBoard[] theScratch) {
+        long result = 1;
+        if (theDepth > 0) {
+            result = 0;
+            if (!theBoard.isGameOver()) {
+                final List<MyMovableTetrisPiece> placements = placements(theBoard);
+                myNodes.add(placements.size());
+                if (theDepth == 1) {
+                    result = placements.size();
+                } else {
+                    final TetrisBoard child = theScratch[theDepth - 2];
+                    for (final MyMovableTetrisPiece placement : placements) {
+                        child.reload(theBoard);
+                        place(child, placement);
+                        result += count(child, theDepth - 1, theScratch);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds every distinct placement of the board's current piece.
+     *
+     * @param theBoard the board; its current piece is restored afterwards
+     * @return the placements, one per distinct set of locked cells
+     */
+    private static List<MyMovableTetrisPiece> placements(final TetrisBoard theBoard) {
+        final MyMovableTetrisPiece start = theBoard.getCurrentPiece();
+        final List<MyMovableTetrisPiece> result = new ArrayList<>();
+        final Set<Set<Point>> cells = new HashSet<>();
+        final Map<Integer, MyMovableTetrisPiece> seen = new HashMap<>();
+        final ArrayDeque<MyMovableTetrisPiece> queue = new ArrayDeque<>();
+        seen.put(encode(start), start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            final MyMovableTetrisPiece state = queue.poll();
+            final MyMovableTetrisPiece below = state.down();
+            if (theBoard.isLegal(below)) {
+                visit(below, seen, queue);
+            } else if (cells.add(Set.of(state.getBoardPoints()))) {
+                result.add(state);
+            }
+            for (int move = 0; move < MOVES; move++) {
+                theBoard.setCurrentPiece(state);
+                switch (move) {
+                    case 0:
+                        theBoard.left();
+                        break;
+                    case 1:
+                        theBoard.right();
+                        break;
+                    case 2:
+                        theBoard.rotateCW();
+                        break;
+                    default:
+                        theBoard.rotateCCW();
+                }
+                visit(theBoard.getCurrentPiece(), seen, queue);
+            }
+        }
+        theBoard.setCurrentPiece(start);
+        return result;
+    }
+
+    /**
+     * Queues a piece state that has not been seen before.
+     *
+     * @param theState the piece state
+     * @param theSeen the states seen so far
+     * @param theQueue the states still to search
+     */
+    private static void visit(final MyMovableTetrisPiece theState,
+                              final Map<Integer, MyMovableTetrisPiece> theSeen,
+                              final ArrayDeque<MyMovableTetrisPiece> theQueue) {
+        if (theSeen.putIfAbsent(encode(theState), theState) == null) {
+            theQueue.add(theState);
+        }
+    }
+
+    /**
+     * Locks a placement on a board, clearing rows and spawning the next piece
+     * exactly like play does.
+     *
+     * @param theBoard the board before the placement, changed to the board after it
+     * @param thePlacement the placement
+     */
+    private static void place(final TetrisBoard theBoard,
+                              final MyMovableTetrisPiece thePlacement) {
+        theBoard.setCurrentPiece(thePlacement);
+        theBoard.down();
+    }
+
+    /**
+     * Encodes the position and rotation of a piece state as one number.
+     *
+     * @param thePiece the piece state
+     * @return the code of the state
+     */
+    private static int encode(final MyMovableTetrisPiece thePiece) {
+        final Point position = thePiece.getPosition();
+        return (((position.x() + OFFSET) << Short.SIZE) + position.y() + OFFSET) * ROTATIONS
+               + thePiece.getRotation().ordinal();
+    }
+
+    /**
+     * Counts the sequences below one root placement.
+     */
+    private final class Subtree extends RecursiveTask<Long> {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The board after the root placement.
+         */
+        private final transient TetrisBoard myBoard;
+        /**
+         * The remaining depth.
+         */
+        private final int myDepth;
+
+        /**
+         * Creates the task.
+         *
+         * @param theBoard the board after the root placement
+         * @param theDepth the remaining depth
+         */
+        Subtree(final TetrisBoard theBoard, final int theDepth) {
+            super();
+            myBoard = theBoard;
+            myDepth = theDepth;
+        }
+
+        @Override
+        protected Long compute() {
+            final TetrisBoard[] scratch = new TetrisBoard[Math.max(myDepth - 1, 0)];
+            for (int i = 0; i < scratch.length; i++) {
+                scratch[i] = myBoard.copy();
+            }
+            return count(myBoard, myDepth, scratch);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Loops through a list of pieces without copying it. The list must not be
+ * changed while the source or a fork of it is used.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class PieceList implements PieceSource {
+    /**
+     * The pieces.
+     */
+    private final List<TetrisPiece> myPieces;
+    /**
+     * Index of the next piece.
+     */
+    private int myIndex;
+
+    /**
+     * Creates a source that loops through a list, starting at its first piece.
+     *
+     * @param thePieces the pieces, at least one
+     * @throws IllegalArgumentException if the list is empty
+     */
+    public PieceList(final List<TetrisPiece> thePieces) {
+        this(thePieces, 0);
+    }
+
+    /**
+     * Creates a source that loops through a list from an index.
+     *
+     * @param thePieces the pieces
+     * @param theIndex the index of the next piece
+     */
+    private PieceList(final List<TetrisPiece> thePieces, final int theIndex) {
+        super();
+        if (thePieces.isEmpty()) {
+            throw new IllegalArgumentException("No pieces to loop through");
+        }
+        myPieces = thePieces;
+        myIndex = theIndex;
+    }
+
+    @Override
+    public TetrisPiece nextPiece() {
+        final TetrisPiece result = myPieces.get(myIndex);
+        myIndex++;
+        if (myIndex == myPieces.size()) {
+            myIndex = 0;
+        }
+        return result;
+    }
+
+    @Override
+    public TetrisPiece peek(final int theAhead) {
+        if (theAhead < 0) {
+            throw new IllegalArgumentException("Can not peek behind: " + theAhead);
+        }
+        return myPieces.get((int) (((long) myIndex + theAhead) % myPieces.size()));
+    }
+
+    @Override
+    public PieceSource fork() {
+        return new PieceList(myPieces, myIndex);
+    }
+}
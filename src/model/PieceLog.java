@@ -0,0 +1,199 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loops through a piece sequence in a file, such as the fixed sequence every
+ * player of a tournament gets, reading it straight from a memory mapping.
+ * <p>
+ * The layout is the magic bytes {@code TPLG}, version i32 big endian, then the
+ * ordinal of every piece as one byte. The file is mapped in chunks of 1 GB so
+ * it may be longer than a buffer can be, and opening it reads nothing: pages
+ * are read as the game gets to them. Forks share the mapping. Logs are written
+ * with {@link #write}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class PieceLog implements PieceSource {
+    /**
+     * The log format version.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The first bytes of every log.
+     */
+    private static final byte[] MAGIC = "TPLG".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Bytes of the header: magic and version.
+     */
+    private static final int HEADER_BYTES = MAGIC.length + Integer.BYTES;
+    /**
+     * Log of the bytes in a mapped chunk.
+     */
+    private static final int CHUNK_BITS = 30;
+    /**
+     * Bytes written at a time.
+     */
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /**
+     * The ordinals of the pieces, 2 to the CHUNK_BITS of them per chunk.
+     */
+    private final ByteBuffer[] myChunks;
+    /**
+     * Number of pieces.
+     */
+    private final long myLength;
+    /**
+     * Index of the next piece.
+     */
+    private long myIndex;
+
+    /**
+     * Creates a source on mapped pieces.
+     *
+     * @param theChunks the pieces
+     * @param theLength the number of pieces
+     * @param theIndex the index of the next piece
+     */
+    private PieceLog(final ByteBuffer[] theChunks, final long theLength, final long theIndex) {
+        super();
+        myChunks = theChunks;
+        myLength = theLength;
+        myIndex = theIndex;
+    }
+
+    /**
+     * Opens a piece log by memory mapping it.
+     *
+     * @param theFile the log file
+     * @return a source starting at the first piece of the log
+     * @throws IOException if the file can not be mapped, is not a log or has no pieces
+     */
+    public static PieceLog open(final Path theFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            final long length = channel.size() - HEADER_BYTES;
+            if (length < 1) {
+                throw new IOException("Not a piece log or no pieces: " + theFile);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                  HEADER_BYTES);
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            final int version = header.getInt();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+                throw new IOException("Not a piece log of version " + VERSION + ": "
+                                      + theFile);
+            }
+            final int count = (int) ((length - 1 >>> CHUNK_BITS) + 1);
+            final ByteBuffer[] chunks = new ByteBuffer[count];
+            for (int i = 0; i < chunks.length; i++) {
+                final long start = (long) i << CHUNK_BITS;
+                // the mappings stay valid after the channel is closed
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start,
+                                        Math.min(1L << CHUNK_BITS, length - start));
+            }
+            return new PieceLog(chunks, length, 0);
+        }
+    }
+
+    /**
+     * Writes pieces from a source to a piece log, replacing the file.
+     *
+     * @param theFile the log file
+     * @param thePieces the source, which is moved past the pieces written
+     * @param theCount the number of pieces to write, at least 1
+     * @throws IOException if the file can not be written
+     * @throws IllegalArgumentException if theCount is less than 1
+     */
+    public static void write(final Path theFile, final PieceSource thePieces,
+                             final long theCount) throws IOException {
+        if (theCount < 1) {
+            throw new IllegalArgumentException("A piece log needs a piece: " + theCount);
+        }
+        try (FileChannel out = FileChannel.open(theFile, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+            buffer.put(MAGIC).putInt(VERSION);
+            for (long i = 0; i < theCount; i++) {
+                if (!buffer.hasRemaining()) {
+                    drain(out, buffer);
+                }
+                buffer.put((byte) thePieces.nextPiece().ordinal());
+            }
+            drain(out, buffer);
+        }
+    }
+
+    /**
+     * Returns the number of pieces in the log, after which it starts over.
+     *
+     * @return the number of pieces
+     */
+    public long getLength() {
+        return myLength;
+    }
+
+    @Override
+    public TetrisPiece nextPiece() {
+        final TetrisPiece result = pieceAt(myIndex);
+        myIndex++;
+        if (myIndex == myLength) {
+            myIndex = 0;
+        }
+        return result;
+    }
+
+    @Override
+    public TetrisPiece peek(final int theAhead) {
+        if (theAhead < 0) {
+            throw new IllegalArgumentException("Can not peek behind: " + theAhead);
+        }
+        return pieceAt((myIndex + theAhead) % myLength);
+    }
+
+    @Override
+    public PieceSource fork() {
+        return new PieceLog(myChunks, myLength, myIndex);
+    }
+
+    /**
+     * Reads a piece.
+     *
+     * @param theIndex the index of the piece
+     * @return the piece
+     * @throws IllegalStateException if the byte there is not a piece
+     */
+    private TetrisPiece pieceAt(final long theIndex) {
+        final int ordinal = myChunks[(int) (theIndex >>> CHUNK_BITS)]
+                .get((int) (theIndex & (1L << CHUNK_BITS) - 1));
+        if (ordinal < 0 || ordinal >= TetrisPiece.count()) {
+            throw new IllegalStateException("Not a piece at " + theIndex + ": " + ordinal);
+        }
+        return TetrisPiece.of(ordinal);
+    }
+
+    /**
+     * Writes out what a buffer holds and empties it.
+     *
+     * @param theOut the file
+     * @param theBuffer the buffer
+     * @throws IOException if the file can not be written
+     */
+    private static void drain(final FileChannel theOut, final ByteBuffer theBuffer)
+            throws IOException {
+        theBuffer.flip();
+        while (theBuffer.hasRemaining()) {
+            theOut.write(theBuffer);
+        }
+        theBuffer.clear();
+    }
+}
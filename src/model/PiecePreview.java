@@ -0,0 +1,199 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * The pieces coming up after the current one and the piece in the hold slot,
+ * packed into a single int.
+ * <p>
+ * Bits 0 to 2 hold the number of previewed pieces, then every previewed piece
+ * takes three bits, soonest first, as its ordinal plus one. The three bits after
+ * the last possible preview hold the held piece the same way, 0 for none, and
+ * the bit above them is set while the player may still hold. A board publishes
+ * one of these each time the preview or the hold slot changes, so listeners get
+ * the whole state in one event instead of one event per piece.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class PiecePreview {
+    /**
+     * The most pieces that can be previewed.
+     */
+    public static final int MAX_SIZE = 7;
+    /**
+     * Bits used by one piece or by the size.
+     */
+    private static final int BITS = 3;
+    /**
+     * Mask of one piece or of the size.
+     */
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * Shift of the held piece.
+     */
+    private static final int HOLD_SHIFT = BITS * (MAX_SIZE + 1);
+    /**
+     * The bit set while the player may hold.
+     */
+    private static final int HOLD_AVAILABLE = 1 << HOLD_SHIFT + BITS;
+    /**
+     * Every piece, by ordinal.
+     */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * The packed preview.
+     */
+    private final int myBits;
+
+    /**
+     * Creates a preview from its packed form.
+     *
+     * @param theBits the packed preview
+     */
+    private PiecePreview(final int theBits) {
+        super();
+        myBits = theBits;
+    }
+
+    /**
+     * Packs a preview from a ring buffer of upcoming pieces.
+     *
+     * @param theRing the ring buffer, its length a power of two
+     * @param theHead the index of the next piece in the ring
+     * @param theSize how many pieces are previewed, at most MAX_SIZE
+     * @param theHold the held piece, or null
+     * @param theHoldAvailable whether the player may hold
+     * @return the preview
+     */
+    static PiecePreview of(final TetrisPiece[] theRing, final int theHead, final int theSize,
+                           final TetrisPiece theHold, final boolean theHoldAvailable) {
+        final int mask = theRing.length - 1;
+        int bits = theSize;
+        for (int i = 0; i < theSize; i++) {
+            bits |= code(theRing[theHead + i & mask]) << BITS * (i + 1);
+        }
+        bits |= code(theHold) << HOLD_SHIFT;
+        if (theHoldAvailable) {
+            bits |= HOLD_AVAILABLE;
+        }
+        return new PiecePreview(bits);
+    }
+
+    /**
+     * Unpacks a preview, for example one received over the network.
+     *
+     * @param theBits the packed preview from {@link #getBits()}
+     * @return the preview
+     */
+    public static PiecePreview fromBits(final int theBits) {
+        return new PiecePreview(theBits);
+    }
+
+    /**
+     * Returns the packed form of this preview.
+     *
+     * @return the packed preview
+     */
+    public int getBits() {
+        return myBits;
+    }
+
+    /**
+     * Returns the number of previewed pieces.
+     *
+     * @return the preview size
+     */
+    public int size() {
+        return myBits & MASK;
+    }
+
+    /**
+     * Returns a previewed piece.
+     *
+     * @param theIndex 0 for the next piece, 1 for the one after it and so on
+     * @return the piece
+     * @throws IndexOutOfBoundsException if the index is not below the size
+     */
+    public TetrisPiece get(final int theIndex) {
+        Objects.checkIndex(theIndex, size());
+        return piece(myBits >>> BITS * (theIndex + 1));
+    }
+
+    /**
+     * Returns the piece in the hold slot.
+     *
+     * @return the held piece, or null if nothing is held
+     */
+    public TetrisPiece getHold() {
+        return piece(myBits >>> HOLD_SHIFT);
+    }
+
+    /**
+     * Tells whether the player may hold, which is once per piece.
+     *
+     * @return true if holding is allowed
+     */
+    public boolean isHoldAvailable() {
+        return (myBits & HOLD_AVAILABLE) != 0;
+    }
+
+    @Override
+    public boolean equals(final Object theOther) {
+        return theOther instanceof PiecePreview
+               && ((PiecePreview) theOther).myBits == myBits;
+    }
+
+    @Override
+    public int hashCode() {
+        return myBits;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size(); i++) {
+            sb.append(get(i).name());
+        }
+        sb.append(" hold ");
+        if (getHold() == null) {
+            sb.append('-');
+        } else {
+            sb.append(getHold().name());
+        }
+        if (!isHoldAvailable()) {
+            sb.append(" used");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes a piece in three bits.
+     *
+     * @param thePiece the piece, or null
+     * @return the ordinal plus one, or 0 for null
+     */
+    private static int code(final TetrisPiece thePiece) {
+        int result = 0;
+        if (thePiece != null) {
+            result = thePiece.ordinal() + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a piece from the lowest three bits.
+     *
+     * @param theBits the bits
+     * @return the piece, or null for 0
+     */
+    private static TetrisPiece piece(final int theBits) {
+        final int code = theBits & MASK;
+        TetrisPiece result = null;
+        if (code != 0) {
+            result = PIECES[code - 1];
+        }
+        return result;
+    }
+}
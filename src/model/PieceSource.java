@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Where a board gets its pieces from: an endless stream read one piece at a
+ * time, so a sequence of any length is never held in a list.
+ * <p>
+ * A board does not play the source it is given but a {@link #fork()} of it,
+ * and forks it again for every new game, so one source may be handed to many
+ * boards and each plays the same pieces. Forks share whatever the source reads
+ * from, which never changes, so a fork may be used on another thread than the
+ * source it was made from.
+ *
+ * @author johannn
+ * @version 1.0
+ * @see PieceList
+ * @see SeededPieces
+ * @see PieceLog
+ */
+public interface PieceSource {
+
+    /**
+     * Returns the next piece and moves past it.
+     *
+     * @return the next piece
+     */
+    TetrisPiece nextPiece();
+
+    /**
+     * Returns a piece ahead without moving past it.
+     *
+     * @param theAhead how far ahead, 0 for the piece {@link #nextPiece()}
+     *          returns next
+     * @return the piece
+     * @throws IllegalArgumentException if theAhead is negative
+     */
+    TetrisPiece peek(int theAhead);
+
+    /**
+     * Creates a source that returns the same pieces as this one from here on,
+     * and moves on its own.
+     *
+     * @return the fork
+     */
+    PieceSource fork();
+}
@@ -41,13 +41,18 @@ public enum Rotation {
      */
     private static final Random GENERATOR = new Random();
 
+    /**
+     * Every rotation in order, kept so that turning does not copy values().
+     */
+    private static final Rotation[] VALUES = values();
+
     /**
      * Create a new Rotation from this one rotated clockwise.
      * 
      * @return new Rotation object that is rotated 90 degrees clockwise.
      */
     public Rotation clockwise() {
-        return values()[(this.ordinal() + 1) % values().length];
+        return VALUES[(this.ordinal() + 1) % VALUES.length];
     }
 
     /**
@@ -56,7 +61,7 @@ public enum Rotation {
      * @return new Rotation object that is rotated 90 degrees clockwise.
      */
     public Rotation counterClockwise() {
-        return values()[(this.ordinal() - 1 + values().length) % values().length];
+        return VALUES[(this.ordinal() - 1 + VALUES.length) % VALUES.length];
     }
 
     /**
@@ -65,7 +70,7 @@ public enum Rotation {
      * @return new random Rotation.
      */
     public static Rotation random() {
-        return values()[GENERATOR.nextInt(values().length)];
+        return VALUES[GENERATOR.nextInt(VALUES.length)];
     }
 
 }
@@ -0,0 +1,308 @@
+package model;
+
+/**
+ * Keeps the score of one game: line clear points, level, combos, back to back
+ * bonuses and T-spins.
+ * <p>
+ * The board reports every locked piece with the number of lines it cleared and
+ * the kind of spin it was locked with, so scores are kept for every game,
+ * including headless ones. Points follow the guideline: 100, 300, 500 and 800
+ * for one to four lines, 100 and 200 for a mini T-spin with zero or one line,
+ * 400, 800, 1200 and 1600 for a T-spin with zero to three lines, all times the
+ * level the piece was locked at. A tetris or a T-spin that clears lines right
+ * after another one is worth half again as much, and every clear after the
+ * first in a row of clearing pieces adds 50 times the combo times the level.
+ * Each locked piece also scores a few points. Everything is kept in primitive
+ * fields; {@link #snapshot()} is only needed to hand the score to other threads
+ * or listeners.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class ScoringEngine {
+    /**
+     * Lines to clear to advance one level.
+     */
+    public static final int LINES_PER_LEVEL = 5;
+    /**
+     * Points for each piece locked.
+     */
+    private static final int PIECE_POINTS = 4;
+    /**
+     * Points for clearing zero to four lines without a spin.
+     */
+    private static final int[] CLEAR_POINTS = {0, 100, 300, 500, 800};
+    /**
+     * Points for a mini T-spin clearing zero to two lines.
+     */
+    private static final int[] MINI_POINTS = {100, 200, 400};
+    /**
+     * Points for a T-spin clearing zero to three lines.
+     */
+    private static final int[] SPIN_POINTS = {400, 800, 1200, 1600};
+    /**
+     * Points per combo step and level.
+     */
+    private static final int COMBO_POINTS = 50;
+    /**
+     * Combo count while the last piece cleared nothing.
+     */
+    private static final int NO_COMBO = -1;
+    /**
+     * Lines of a tetris.
+     */
+    private static final int TETRIS = 4;
+
+    /**
+     * The score.
+     */
+    private long myScore;
+    /**
+     * Lines cleared.
+     */
+    private int myLines;
+    /**
+     * Pieces locked.
+     */
+    private int myPieces;
+    /**
+     * Clearing pieces in a row minus one, or NO_COMBO.
+     */
+    private int myCombo;
+    /**
+     * Longest combo of the game.
+     */
+    private int myMaxCombo;
+    /**
+     * Whether the last clear was a tetris or a T-spin.
+     */
+    private boolean myBackToBack;
+    /**
+     * T-spins, mini or full, locked.
+     */
+    private int myTSpins;
+    /**
+     * Tetrises cleared.
+     */
+    private int myTetrises;
+    /**
+     * Points scored by the last piece.
+     */
+    private int myLastPoints;
+    /**
+     * Lines cleared by the last piece.
+     */
+    private int myLastLines;
+    /**
+     * Spin of the last piece.
+     */
+    private Spin myLastSpin;
+    /**
+     * Whether the last piece got the back to back bonus.
+     */
+    private boolean myLastBackToBack;
+
+    /**
+     * Creates an engine for a new game.
+     */
+    public ScoringEngine() {
+        super();
+        reset();
+    }
+
+    /**
+     * Starts a new game.
+     */
+    public void reset() {
+        myScore = 0;
+        myLines = 0;
+        myPieces = 0;
+        myCombo = NO_COMBO;
+        myMaxCombo = 0;
+        myBackToBack = false;
+        myTSpins = 0;
+        myTetrises = 0;
+        myLastPoints = 0;
+        myLastLines = 0;
+        myLastSpin = Spin.NONE;
+        myLastBackToBack = false;
+    }
+
+    /**
+     * Scores a locked piece.
+     *
+     * @param theSpin how the piece was spun into place
+     * @param theLines the lines it cleared
+     * @return the points scored
+     */
+    public int locked(final Spin theSpin, final int theLines) {
+        final int level = getLevel();
+        int points;
+        switch (theSpin) {
+            case MINI:
+                points = MINI_POINTS[Math.min(theLines, MINI_POINTS.length - 1)];
+                break;
+            case FULL:
+                points = SPIN_POINTS[Math.min(theLines, SPIN_POINTS.length - 1)];
+                break;
+            default:
+                points = CLEAR_POINTS[theLines];
+        }
+        points *= level;
+        myLastBackToBack = false;
+        if (theLines > 0) {
+            final boolean difficult = theLines == TETRIS || theSpin != Spin.NONE;
+            if (difficult && myBackToBack) {
+                points += points / 2;
+                myLastBackToBack = true;
+            }
+            myBackToBack = difficult;
+            myCombo++;
+            points += COMBO_POINTS * myCombo * level;
+            myMaxCombo = Math.max(myMaxCombo, myCombo);
+        } else {
+            myCombo = NO_COMBO;
+        }
+        if (theSpin != Spin.NONE) {
+            myTSpins++;
+        }
+        if (theLines == TETRIS) {
+            myTetrises++;
+        }
+        points += PIECE_POINTS;
+        myScore += points;
+        myLines += theLines;
+        myPieces++;
+        myLastPoints = points;
+        myLastLines = theLines;
+        myLastSpin = theSpin;
+        return points;
+    }
+
+    /**
+     * Returns the score.
+     *
+     * @return the score
+     */
+    public long getScore() {
+        return myScore;
+    }
+
+    /**
+     * Returns the lines cleared.
+     *
+     * @return the lines
+     */
+    public int getLines() {
+        return myLines;
+    }
+
+    /**
+     * Returns the level, which goes up every few lines cleared.
+     *
+     * @return the level, starting at 1
+     */
+    public int getLevel() {
+        return myLines / LINES_PER_LEVEL + 1;
+    }
+
+    /**
+     * Returns the pieces locked.
+     *
+     * @return the pieces
+     */
+    public int getPieces() {
+        return myPieces;
+    }
+
+    /**
+     * Returns the current combo: 0 after the first of several clearing pieces
+     * in a row, 1 after the second and so on.
+     *
+     * @return the combo, or -1 if the last piece cleared nothing
+     */
+    public int getCombo() {
+        return myCombo;
+    }
+
+    /**
+     * Returns the T-spins locked, mini or full.
+     *
+     * @return the T-spins
+     */
+    public int getTSpins() {
+        return myTSpins;
+    }
+
+    /**
+     * Copies the score of a game into the state of this engine.
+     *
+     * @param theOther the engine to copy
+     */
+    void copyFrom(final ScoringEngine theOther) {
+        myScore = theOther.myScore;
+        myLines = theOther.myLines;
+        myPieces = theOther.myPieces;
+        myCombo = theOther.myCombo;
+        myMaxCombo = theOther.myMaxCombo;
+        myBackToBack = theOther.myBackToBack;
+        myTSpins = theOther.myTSpins;
+        myTetrises = theOther.myTetrises;
+        myLastPoints = theOther.myLastPoints;
+        myLastLines = theOther.myLastLines;
+        myLastSpin = theOther.myLastSpin;
+        myLastBackToBack = theOther.myLastBackToBack;
+    }
+
+    /**
+     * Returns an immutable copy of the score.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(myScore, myLines, getLevel(), myPieces, myCombo, myMaxCombo,
+                            myTSpins, myTetrises, myLastPoints, myLastLines, myLastSpin,
+                            myLastBackToBack);
+    }
+
+    /**
+     * How a piece was spun into place, told by the board when it locks.
+     */
+    public enum Spin {
+        /**
+         * Not a T-spin.
+         */
+        NONE,
+        /**
+         * A T rotated into place with three corners around its centre filled
+         * but only one of the two it points to.
+         */
+        MINI,
+        /**
+         * A T rotated into place with three corners around its centre filled,
+         * including both it points to, or kicked in by the last kick.
+         */
+        FULL
+    }
+
+    /**
+     * The score of a game at one moment.
+     *
+     * @param score the score
+     * @param lines the lines cleared
+     * @param level the level
+     * @param pieces the pieces locked
+     * @param combo the current combo, or -1
+     * @param maxCombo the longest combo
+     * @param tSpins the T-spins locked
+     * @param tetrises the tetrises cleared
+     * @param lastPoints the points of the last piece
+     * @param lastLines the lines cleared by the last piece
+     * @param lastSpin the spin of the last piece
+     * @param lastBackToBack whether the last piece got the back to back bonus
+     */
+    public record Snapshot(long score, int lines, int level, int pieces, int combo,
+                           int maxCombo, int tSpins, int tetrises, int lastPoints,
+                           int lastLines, Spin lastSpin, boolean lastBackToBack) {
+    }
+}
@@ -0,0 +1,111 @@
+package model;
+
+/**
+ * Generates random pieces from a seed, as many as are asked for, without
+ * keeping any of them. The pieces are the ones {@code new Random(seed)} picks
+ * with {@code nextInt} from {@link TetrisPiece#values()}, so a game seeded
+ * here gets the same pieces as a list generated with {@link java.util.Random}.
+ * The generator is the linear congruential one that {@code Random} specifies,
+ * kept in a long so it can be forked and looked ahead without drawing.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class SeededPieces implements PieceSource {
+    /**
+     * Multiplier of the generator, as in java.util.Random.
+     */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /**
+     * Increment of the generator, as in java.util.Random.
+     */
+    private static final long INCREMENT = 0xBL;
+    /**
+     * The generator keeps 48 bits.
+     */
+    private static final long MASK = (1L << 48) - 1;
+    /**
+     * Shift taking the top 31 of the 48 bits.
+     */
+    private static final int SHIFT = 17;
+
+    /**
+     * The state of the generator.
+     */
+    private long mySeed;
+
+    /**
+     * Creates a generator with a seed.
+     *
+     * @param theSeed the seed
+     */
+    public SeededPieces(final long theSeed) {
+        this(theSeed, true);
+    }
+
+    /**
+     * Creates a generator with a seed or a state.
+     *
+     * @param theSeed the seed, or the state if not scrambled
+     * @param theScramble whether theSeed is a seed to scramble, as Random does
+     */
+    private SeededPieces(final long theSeed, final boolean theScramble) {
+        super();
+        if (theScramble) {
+            mySeed = (theSeed ^ MULTIPLIER) & MASK;
+        } else {
+            mySeed = theSeed;
+        }
+    }
+
+    @Override
+    public TetrisPiece nextPiece() {
+        mySeed = draw(mySeed);
+        return piece(mySeed);
+    }
+
+    @Override
+    public TetrisPiece peek(final int theAhead) {
+        if (theAhead < 0) {
+            throw new IllegalArgumentException("Can not peek behind: " + theAhead);
+        }
+        long seed = mySeed;
+        for (int i = 0; i <= theAhead; i++) {
+            seed = draw(seed);
+        }
+        return piece(seed);
+    }
+
+    @Override
+    public PieceSource fork() {
+        return new SeededPieces(mySeed, false);
+    }
+
+    /**
+     * Draws a piece, skipping the values Random rejects so every piece is as
+     * likely as the others.
+     *
+     * @param theSeed the state before the draw
+     * @return the state after the draw, from which {@link #piece(long)} reads it
+     */
+    private static long draw(final long theSeed) {
+        final int bound = TetrisPiece.count();
+        long seed = theSeed;
+        int value;
+        do {
+            seed = seed * MULTIPLIER + INCREMENT & MASK;
+            value = (int) (seed >>> SHIFT);
+        } while (value - value % bound + bound - 1 < 0);
+        return seed;
+    }
+
+    /**
+     * Returns the piece drawn by the last step of the generator.
+     *
+     * @param theSeed the state after the draw
+     * @return the piece
+     */
+    private static TetrisPiece piece(final long theSeed) {
+        return TetrisPiece.of((int) (theSeed >>> SHIFT) % TetrisPiece.count());
+    }
+}
@@ -10,9 +10,15 @@ package model;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import model.wallkicks.WallKick;
+import java.util.concurrent.atomic.AtomicInteger;
+import telemetry.BoardMetrics;
+import telemetry.GameOverEvent;
+import telemetry.GravityTickEvent;
+import telemetry.LineClearEvent;
+import telemetry.PieceLockEvent;
+import telemetry.PieceSpawnEvent;
 
 /**
  * Represents a Tetris board. Board objects communicate with clients via Observer pattern. 
@@ -38,11 +44,6 @@ import model.wallkicks.WallKick;
 public final class TetrisBoard implements Board {
     // Class constants
 
-    /**
-     * Contains the only
-     */
-    private static final TetrisBoard INSTANCE = new TetrisBoard();
-    
     /**
      * Default width of a Tetris game board.
      */
@@ -53,6 +54,67 @@ public final class TetrisBoard implements Board {
      */
     private static final int DEFAULT_HEIGHT = 20;
 
+    /**
+     * Columns a piece position can be left of the wall, as piece cells lie up
+     * to three columns right of the position.
+     */
+    static final int LANDING_MARGIN = 3;
+
+    /**
+     * Slots in the ring buffer of upcoming pieces, a power of two larger than
+     * the longest preview so it always holds the preview and a spare piece.
+     */
+    private static final int QUEUE_CAPACITY = 8;
+
+    /**
+     * Pieces previewed unless set otherwise.
+     */
+    private static final int DEFAULT_PREVIEW = 1;
+
+    /**
+     * Pieces previewed on the shared board unless set otherwise.
+     */
+    private static final int SHARED_PREVIEW = 3;
+
+    /**
+     * Index of the last wall kick, which always makes a T-spin a full one.
+     */
+    private static final int LAST_KICK = 4;
+
+    /**
+     * Corners around the centre of a T that make a T-spin.
+     */
+    private static final int SPIN_CORNERS = 3;
+
+    /**
+     * Every rotation, by ordinal, so the landing table is built without the
+     * copy Rotation.values() makes.
+     */
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    /**
+     * Id of the next board created.
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * Id of the copies made for searching and going back in time, which have
+     * no telemetry.
+     */
+    private static final int DETACHED_ID = 0;
+
+    /**
+     * Contains the only shared board. Its size can be set with the tetris.width
+     * and tetris.height system properties, for example for large sandbox boards.
+     */
+    private static final TetrisBoard INSTANCE = new TetrisBoard(
+            Integer.getInteger("tetris.width", DEFAULT_WIDTH),
+            Integer.getInteger("tetris.height", DEFAULT_HEIGHT));
+
+    static {
+        INSTANCE.setPreviewSize(Integer.getInteger("tetris.preview", SHARED_PREVIEW));
+    }
+
     
     // Instance fields
     
@@ -67,9 +129,10 @@ public final class TetrisBoard implements Board {
     private final int myHeight;
     
     /**
-     * The frozen blocks on the board.
+     * The frozen blocks on the board. Every lock replaces the state with one
+     * sharing the untouched rows, so copies of the board share it freely.
      */
-    private final List<Block[]> myFrozenBlocks;
+    private BoardState myStack;
     
     /**
      * The game over state.
@@ -77,19 +140,65 @@ public final class TetrisBoard implements Board {
     private boolean myGameOver;
 
     /**
-     * Contains a non random sequence of TetrisPieces to loop through.
+     * The source every game takes its pieces from, or null for random pieces.
+     * It is only forked, never read, so each game starts it over.
+     */
+    private PieceSource mySource;
+
+    /**
+     * The fork of mySource the current game takes its pieces from, or null
+     * for random pieces.
+     */
+    private PieceSource myPieces;
+
+    /**
+     * The random pieces drawn in the current game, in order. A board and its
+     * checkpoints share the list, so a checkpoint replayed to a later tick
+     * gets the pieces the board got, even where the board has moved on.
      */
-    private List<TetrisPiece> myNonRandomPieces;
+    private List<TetrisPiece> myDrawnPieces;
 
     /**
-     * The current index in the non random piece sequence.
+     * Index in myDrawnPieces of the next random piece to queue. Pieces below
+     * the end of the list are taken from it, and new ones are drawn after it.
      */
-    private int mySequenceIndex;
+    private int myDrawIndex;
     
     /**
-     * Piece that is next to play.
+     * Ring buffer of the pieces after the current one, refilled from the
+     * sequence or the randomizer a whole buffer at a time.
+     */
+    private final TetrisPiece[] myQueue;
+
+    /**
+     * Index of the next piece in the ring buffer.
+     */
+    private int myQueueHead;
+
+    /**
+     * Number of pieces in the ring buffer.
      */
-    private TetrisPiece myNextPiece;
+    private int myQueueSize;
+
+    /**
+     * Number of pieces previewed.
+     */
+    private int myPreviewSize;
+
+    /**
+     * Piece in the hold slot, or null.
+     */
+    private TetrisPiece myHeldPiece;
+
+    /**
+     * Whether the current piece came out of a hold, so it may not be held again.
+     */
+    private boolean myHoldUsed;
+
+    /**
+     * The preview last published.
+     */
+    private PiecePreview myPreview;
     
     /**
      * Piece that is currently movable.
@@ -103,10 +212,68 @@ public final class TetrisBoard implements Board {
      */
     private boolean myDrop;
     /**
-     * The support object used to fir events to property change listeners
+     * The support object used to fir events to property change listeners, or
+     * null for a detached copy.
      */
     private final PropertyChangeSupport myPCS;
 
+    /**
+     * Id of this board, used to tell boards apart in recordings.
+     */
+    private final int myId;
+
+    /**
+     * Lines cleared in the current game.
+     */
+    private int myLinesCleared;
+
+    /**
+     * Pieces frozen in place since the board was created.
+     */
+    private int myPiecesLocked;
+
+    /**
+     * Live counters of this board for JMX, or null for a detached copy.
+     */
+    private final BoardMetrics myMetrics;
+
+    /**
+     * The score of the current game.
+     */
+    private final ScoringEngine myScoring;
+
+    /**
+     * Whether the last successful action on the current piece was a rotation.
+     */
+    private boolean myLastMoveRotated;
+
+    /**
+     * The wall kick used by the last rotation.
+     */
+    private int myLastKick;
+
+    /**
+     * Height of each column: one above its highest frozen block, or 0. Null
+     * until the landing table is first built.
+     */
+    private int[] myColumnHeights;
+
+    /**
+     * Resting y of the landing piece by rotation and x + LANDING_MARGIN, when
+     * dropped from above the stack. Null until it is first built.
+     */
+    private int[][] myLanding;
+
+    /**
+     * The piece the landing table was built for, or null before it is built.
+     */
+    private TetrisPiece myLandingPiece;
+
+    /**
+     * The stack the landing table was built on.
+     */
+    private BoardState myLandingStack;
+
     
     // Constructors
 
@@ -128,17 +295,41 @@ public final class TetrisBoard implements Board {
         super();
         myWidth = theWidth;
         myHeight = theHeight;
-        myFrozenBlocks = new LinkedList<>();
+        myStack = BoardState.empty(theWidth, theHeight);
          
-        myNonRandomPieces = new ArrayList<>();
-        mySequenceIndex = 0;
+        myDrawnPieces = new ArrayList<>();
+        myQueue = new TetrisPiece[QUEUE_CAPACITY];
+        myPreviewSize = DEFAULT_PREVIEW;
 
         myPCS = new PropertyChangeSupport(this);
+        myId = NEXT_ID.incrementAndGet();
+        myMetrics = new BoardMetrics(myId);
+        myScoring = new ScoringEngine();
 
-        /*  myNextPiece and myCurrentPiece
+        /*  the queue and myCurrentPiece
          *  are initialized by the newGame() method.
          */
     }
+
+    /**
+     * Creates a detached copy of a board: the same game, but without an id of
+     * its own, telemetry or listeners, so searching and going back in time do
+     * not show up as new boards in recordings or over JMX. The random pieces
+     * drawn are left to the caller.
+     *
+     * @param theOther the board to copy
+     */
+    private TetrisBoard(final TetrisBoard theOther) {
+        super();
+        myWidth = theOther.myWidth;
+        myHeight = theOther.myHeight;
+        myQueue = new TetrisPiece[QUEUE_CAPACITY];
+        myPCS = null;
+        myId = DETACHED_ID;
+        myMetrics = null;
+        myScoring = new ScoringEngine();
+        copyFrom(theOther);
+    }
     // Static factory method
 
     /**
@@ -150,6 +341,56 @@ public final class TetrisBoard implements Board {
         return INSTANCE;
     }
 
+    /**
+     * Creates a new standard size TetrisBoard that is independent of the shared
+     * instance. Used for headless games such as simulations and AI training.
+     *
+     * @return a new TetrisBoard
+     */
+    public static TetrisBoard createBoard() {
+        return new TetrisBoard();
+    }
+
+    /**
+     * Creates a new TetrisBoard of the given size that is independent of the
+     * shared instance.
+     *
+     * @param theWidth Width of the Tetris game board.
+     * @param theHeight Height of the Tetris game board.
+     * @return a new TetrisBoard
+     */
+    public static TetrisBoard createBoard(final int theWidth, final int theHeight) {
+        return new TetrisBoard(theWidth, theHeight);
+    }
+
+    /**
+     * Returns the id of this board, unique within the JVM.
+     *
+     * @return the board id, 0 for a detached copy
+     */
+    public int getId() {
+        return myId;
+    }
+
+    /**
+     * Returns the live counters of this board. They are only visible over JMX
+     * once {@link BoardMetrics#register()} is called.
+     *
+     * @return the board metrics, or null for a detached copy
+     */
+    public BoardMetrics getMetrics() {
+        return myMetrics;
+    }
+
+    /**
+     * Returns the score of the current game.
+     *
+     * @return the scoring engine
+     */
+    public ScoringEngine getScoring() {
+        return myScoring;
+    }
+
     // PCS methods
     /**
      * Adds a property change listener.
@@ -158,6 +399,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        checkTracked();
         myPCS.addPropertyChangeListener(theListener);
     }
     /**
@@ -169,6 +411,7 @@ public final class TetrisBoard implements Board {
     @Override
     public void addPropertyChangeListener(final PropertyChangeListener theListener,
                                           final String thePropertyName) {
+        checkTracked();
         myPCS.addPropertyChangeListener(thePropertyName, theListener);
     }
     /**
@@ -178,7 +421,9 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public void removePropertyChangeListener(final PropertyChangeListener theListener) {
-        myPCS.removePropertyChangeListener(theListener);
+        if (isTracked()) {
+            myPCS.removePropertyChangeListener(theListener);
+        }
     }
     /**
      * Removes a property change listener from a given property name.
@@ -189,7 +434,9 @@ public final class TetrisBoard implements Board {
     @Override
     public void removePropertyChangeListener(final PropertyChangeListener theListener,
                                              final String thePropertyName) {
-        myPCS.removePropertyChangeListener(thePropertyName, theListener);
+        if (isTracked()) {
+            myPCS.removePropertyChangeListener(thePropertyName, theListener);
+        }
     }
     
 
@@ -205,27 +452,133 @@ public final class TetrisBoard implements Board {
         return myHeight;
     }
 
+    @Override
+    public List<Block[]> getFrozenBlocks() {
+        return getBoard();
+    }
+
+    @Override
+    public BoardState getState() {
+        return myStack;
+    }
+
+    @Override
+    public MyMovableTetrisPiece getCurrentPiece() {
+        return myCurrentPiece;
+    }
+
+    @Override
+    public TetrisPiece getNextPiece() {
+        return myQueue[myQueueHead];
+    }
+
+    @Override
+    public PiecePreview getPreview() {
+        return myPreview;
+    }
+
+    /**
+     * Sets how many pieces are previewed. Takes effect at once, also during a game.
+     *
+     * @param theSize the number of pieces, from 1 to {@link PiecePreview#MAX_SIZE}
+     * @throws IllegalArgumentException if the size is out of range
+     */
+    public void setPreviewSize(final int theSize) {
+        if (theSize < 1 || theSize > PiecePreview.MAX_SIZE) {
+            throw new IllegalArgumentException("Preview size must be from 1 to "
+                                               + PiecePreview.MAX_SIZE);
+        }
+        myPreviewSize = theSize;
+        if (myCurrentPiece != null) {
+            refillQueue();
+            publishPreview();
+        }
+    }
+
+    @Override
+    public int getLandingY(final Rotation theRotation, final int theX) {
+        int result = NO_LANDING;
+        final int column = theX + LANDING_MARGIN;
+        if (myCurrentPiece != null && column >= 0 && column < myWidth + LANDING_MARGIN) {
+            updateLanding(myCurrentPiece.getTetrisPiece());
+            result = myLanding[theRotation.ordinal()][column];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A piece at or above its table height has nothing below it until that
+     * height, so the table answers. Only a piece slid under an overhang is
+     * dropped cell by cell.
+     */
+    @Override
+    public MyMovableTetrisPiece getGhostPiece() {
+        MyMovableTetrisPiece result = null;
+        if (myCurrentPiece != null && !myGameOver) {
+            final Point position = myCurrentPiece.getPosition();
+            int y = getLandingY(myCurrentPiece.getRotation(), position.x());
+            if (y > position.y()) {
+                final int[] masks = MyMovableTetrisPiece.getRowMasks(
+                        myCurrentPiece.getTetrisPiece(), myCurrentPiece.getRotation());
+                y = position.y();
+                while (fits(masks, position.x(), y - 1)) {
+                    y--;
+                }
+            }
+            result = myCurrentPiece.setPosition(new Point(position.x(), y));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return myGameOver;
+    }
+
     @Override
     public void newGame() {
         
-        mySequenceIndex = 0;
-        myFrozenBlocks.clear();
-        for (int h = 0; h < myHeight; h++) {
-            myFrozenBlocks.add(new Block[myWidth]);
+        if (mySource != null) {
+            myPieces = mySource.fork();
         }
+        myDrawnPieces = new ArrayList<>();
+        myDrawIndex = 0;
+        myStack = BoardState.empty(myWidth, myHeight);
 
         myGameOver = false;
+        myLinesCleared = 0;
+        myScoring.reset();
+        if (isTracked()) {
+            myMetrics.setLevel(getLevel());
+        }
         myCurrentPiece = nextMovablePiece(true);
         myDrop = false;
 
         // TODO Publish Update!
-        myPCS.firePropertyChange(PROPERTY_NEW_GAME, null, null);
+        fire(PROPERTY_NEW_GAME, null, null);
+        publishScore();
     }
 
     @Override
     public void setPieceSequence(final List<TetrisPiece> thePieces) {
-        myNonRandomPieces = new ArrayList<>(thePieces);
-        mySequenceIndex = 0;
+        if (thePieces.isEmpty()) {
+            setPieceSource(null);
+        } else {
+            setPieceSource(new PieceList(thePieces));
+        }
+    }
+
+    @Override
+    public void setPieceSource(final PieceSource thePieces) {
+        mySource = thePieces;
+        myPieces = null;
+        if (thePieces != null) {
+            myPieces = thePieces.fork();
+        }
+        myDrawnPieces = new ArrayList<>();
+        myDrawIndex = 0;
         myCurrentPiece = nextMovablePiece(true);
     }
 
@@ -237,22 +590,43 @@ public final class TetrisBoard implements Board {
          * However, more code could be added to this method
          * to implement additional functionality
          */
-        down();
+        if (isTracked()) {
+            final GravityTickEvent tick = GravityTickEvent.start();
+            final long start = System.nanoTime();
+            final int locked = myPiecesLocked;
+            down();
+            myMetrics.ticked(System.nanoTime() - start);
+            tick.finish(myId, getLevel(), myPiecesLocked != locked);
+        } else {
+            down();
+        }
     }
 
     @Override
     public void down() {
-        if (!move(myCurrentPiece.down())) {
+        if (!fall(1)) {
             // the piece froze, so clear lines and update current piece
-            addPieceToBoardData(myFrozenBlocks, myCurrentPiece);
+            myPiecesLocked++;
+            if (isTracked()) {
+                myMetrics.locked();
+                PieceLockEvent.emit(myId, getLevel(), myCurrentPiece.getTetrisPiece().name(),
+                                    myCurrentPiece.getRotation().name(),
+                                    myCurrentPiece.getPosition().x(),
+                                    myCurrentPiece.getPosition().y(), myDrop);
+            }
+            final ScoringEngine.Spin spin = getSpin();
+            final int lines = myLinesCleared;
+            freeze(myCurrentPiece);
             checkRows();
+            myScoring.locked(spin, myLinesCleared - lines);
+            publishScore();
             if (!myGameOver) {
                 myCurrentPiece = nextMovablePiece(false);
             }
             // TODO Publish Update!
         }
 
-        myPCS.firePropertyChange(PROPERTY_BOARD_CHANGE, null, myFrozenBlocks);
+        fire(PROPERTY_BOARD_CHANGE, null, myStack.asList());
     }
 
     @Override
@@ -272,42 +646,30 @@ public final class TetrisBoard implements Board {
     @Override
     public void rotateCW() {
         if (myCurrentPiece != null) {
-            if (myCurrentPiece.getTetrisPiece() == TetrisPiece.O) {
-                move(myCurrentPiece.rotateCW());
-            } else {
-                final MyMovableTetrisPiece cwPiece = myCurrentPiece.rotateCW();
-                final Point[] offsets = WallKick.getWallKicks(cwPiece.getTetrisPiece(),
-                                                    myCurrentPiece.getRotation(),
-                                                    cwPiece.getRotation());
-                for (final Point p : offsets) {
-                    final Point offsetLocation = cwPiece.getPosition().transform(p);
-                    final MyMovableTetrisPiece temp = cwPiece.setPosition(offsetLocation);
-                    if (move(temp)) {
-                        break;
-                    }
-                }
-            }
+            rotate(myCurrentPiece.getRotation().clockwise());
         }
     }
 
     @Override
     public void rotateCCW() {
         if (myCurrentPiece != null) {
-            if (myCurrentPiece.getTetrisPiece() == TetrisPiece.O) {
-                move(myCurrentPiece.rotateCCW());
+            rotate(myCurrentPiece.getRotation().counterClockwise());
+        }
+    }
+
+    @Override
+    public void hold() {
+        if (myCurrentPiece != null && !myGameOver && !myHoldUsed) {
+            final TetrisPiece held = myHeldPiece;
+            myHeldPiece = myCurrentPiece.getTetrisPiece();
+            if (held == null) {
+                myCurrentPiece = spawn(takePiece());
             } else {
-                final MyMovableTetrisPiece ccwPiece = myCurrentPiece.rotateCCW();
-                final Point[] offsets = WallKick.getWallKicks(ccwPiece.getTetrisPiece(),
-                                                    myCurrentPiece.getRotation(),
-                                                    ccwPiece.getRotation());
-                for (final Point p : offsets) {
-                    final Point offsetLocation = ccwPiece.getPosition().transform(p);
-                    final MyMovableTetrisPiece temp = ccwPiece.setPosition(offsetLocation);
-                    if (move(temp)) {
-                        break;
-                    }
-                }
+                myCurrentPiece = spawn(held);
             }
+            myHoldUsed = true;
+            publishPreview();
+            fire(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
         }
     }
 
@@ -315,8 +677,15 @@ public final class TetrisBoard implements Board {
     public void drop() {
         if (!myGameOver) {
             myDrop = true;
-            while (isPieceLegal(myCurrentPiece.down())) {
-                down();  // move down as far as possible
+            final Point position = myCurrentPiece.getPosition();
+            final int[] masks = MyMovableTetrisPiece.getRowMasks(
+                    myCurrentPiece.getTetrisPiece(), myCurrentPiece.getRotation());
+            int rows = 0;
+            while (fits(masks, position.x(), position.y() - rows - 1)) {
+                rows++;
+            }
+            if (rows > 0) {
+                fall(rows);  // move down as far as possible in one move
             }
             myDrop = false;
             down();  // move down one more time to freeze in place
@@ -375,15 +744,76 @@ public final class TetrisBoard implements Board {
         boolean result = false;
         if (isPieceLegal(theMovedPiece)) {
             myCurrentPiece = theMovedPiece;
+            myLastMoveRotated = false;
             result = true;
             if (!myDrop) {
                 // TODO Publish Update!
             }
         }
-        myPCS.firePropertyChange(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
+        if (isTracked()) {
+            myMetrics.moved(result);
+        }
+        fire(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
+        return result;
+    }
+
+    /**
+     * Helper function to move the current piece down. The rows below it are
+     * tested on the shared row masks, so a piece is only allocated when it
+     * can fall and a piece that locks allocates nothing.
+     *
+     * @param theRows the rows to fall
+     * @return True if the piece fell
+     */
+    private boolean fall(final int theRows) {
+        final Point position = myCurrentPiece.getPosition();
+        final TetrisPiece type = myCurrentPiece.getTetrisPiece();
+        final Rotation rotation = myCurrentPiece.getRotation();
+        final int y = position.y() - theRows;
+        final boolean result = fits(MyMovableTetrisPiece.getRowMasks(type, rotation),
+                                    position.x(), y);
+        if (result) {
+            myCurrentPiece = new MyMovableTetrisPiece(type, new Point(position.x(), y),
+                                                      rotation);
+            myLastMoveRotated = false;
+        }
+        if (isTracked()) {
+            myMetrics.moved(result);
+        }
+        fire(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
         return result;
     }
 
+    /**
+     * Helper function to rotate the current piece, trying each wall kick in
+     * order until one fits. Kicks are tested on the shared row mask and kick
+     * tables, so only the piece that is finally placed is allocated.
+     *
+     * @param theTo the rotation to turn the current piece to
+     */
+    private void rotate(final Rotation theTo) {
+        final TetrisPiece type = myCurrentPiece.getTetrisPiece();
+        final Point position = myCurrentPiece.getPosition();
+        final int[] masks = MyMovableTetrisPiece.getRowMasks(type, theTo);
+        final int[] kicks = KickTable.getKicks(type, myCurrentPiece.getRotation(), theTo);
+        int kick = -1;
+        for (int i = 0; i < kicks.length; i += 2) {
+            final int x = position.x() + kicks[i];
+            final int y = position.y() + kicks[i + 1];
+            if (fits(masks, x, y)) {
+                myCurrentPiece = new MyMovableTetrisPiece(type, new Point(x, y), theTo);
+                kick = i / 2;
+                myLastMoveRotated = true;
+                myLastKick = kick;
+                break;
+            }
+        }
+        if (isTracked()) {
+            myMetrics.rotated(kick);
+        }
+        fire(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
+    }
+
     /**
      * Helper function to test if the piece is in a legal state.
      * <p>
@@ -395,17 +825,140 @@ public final class TetrisBoard implements Board {
      * @return Returns true if the piece is in a legal state; false otherwise
      */
     private boolean isPieceLegal(final MyMovableTetrisPiece thePiece) {
-        boolean result = true;
-        
-        for (final Point p : thePiece.getBoardPoints()) {
-            if (p.x() < 0 || p.x() >= myWidth) {
-                result = false;
+        final Point position = thePiece.getPosition();
+        return fits(MyMovableTetrisPiece.getRowMasks(thePiece.getTetrisPiece(),
+                                                     thePiece.getRotation()),
+                    position.x(), position.y());
+    }
+
+    /**
+     * Helper function to test if piece cells placed at a position are inside
+     * the walls and floor and do not collide with frozen blocks. Cells above
+     * the top of the board are legal.
+     *
+     * @param theMasks the filled local columns of each local row of the piece
+     * @param theX x coordinate of the piece position
+     * @param theY y coordinate of the piece position
+     * @return true if every cell fits
+     */
+    private boolean fits(final int[] theMasks, final int theX, final int theY) {
+        return myStack.fits(theMasks, theX, theY);
+    }
+
+    /**
+     * Builds the landing table for a piece unless it is already built for it
+     * on the current stack: the column heights once, then for every rotation
+     * and x the lowest y at which no cell is below its column height.
+     *
+     * @param thePiece the piece to build the table for
+     */
+    private void updateLanding(final TetrisPiece thePiece) {
+        if (myLandingPiece == thePiece && myLandingStack == myStack) {
+            return;
+        }
+        if (myLanding == null) {
+            myColumnHeights = new int[myWidth];
+            myLanding = new int[ROTATIONS.length][myWidth + LANDING_MARGIN];
+        }
+        for (int x = 0; x < myWidth; x++) {
+            myColumnHeights[x] = myStack.getColumnHeight(x);
+        }
+        for (final Rotation rotation : ROTATIONS) {
+            final int[] cells = MyMovableTetrisPiece.getCells(thePiece, rotation);
+            final int[] landing = myLanding[rotation.ordinal()];
+            for (int column = 0; column < landing.length; column++) {
+                final int x = column - LANDING_MARGIN;
+                int y = NO_LANDING;
+                for (int i = 0; i < cells.length; i += 2) {
+                    final int cellX = x + cells[i];
+                    if (cellX < 0 || cellX >= myWidth) {
+                        y = NO_LANDING;
+                        break;
+                    }
+                    y = Math.max(y, myColumnHeights[cellX] - cells[i + 1]);
+                }
+                landing[column] = y;
+            }
+        }
+        myLandingPiece = thePiece;
+        myLandingStack = myStack;
+    }
+
+    /**
+     * Tells how the current piece was spun into place, by the three corner
+     * rule: a T whose last action was a rotation and with at least three of the
+     * four cells diagonal to its centre filled or outside the board. It is a
+     * full T-spin if both corners on the side the T points to are among them,
+     * or if the rotation needed the last kick, and a mini one otherwise.
+     *
+     * @return the spin
+     */
+    private ScoringEngine.Spin getSpin() {
+        ScoringEngine.Spin result = ScoringEngine.Spin.NONE;
+        if (myLastMoveRotated && myCurrentPiece.getTetrisPiece() == TetrisPiece.T) {
+            final int[] cells = MyMovableTetrisPiece.getCells(TetrisPiece.T,
+                                                              myCurrentPiece.getRotation());
+            // the centre touches the other three cells, which add up to where it points
+            int centre = 0;
+            for (int i = 0; i < cells.length; i += 2) {
+                int touching = 0;
+                for (int j = 0; j < cells.length; j += 2) {
+                    if (Math.abs(cells[i] - cells[j])
+                        + Math.abs(cells[i + 1] - cells[j + 1]) == 1) {
+                        touching++;
+                    }
+                }
+                if (touching == cells.length / 2 - 1) {
+                    centre = i;
+                }
             }
-            if (p.y() < 0) {
-                result = false;
+            int frontX = -cells.length / 2 * cells[centre];
+            int frontY = -cells.length / 2 * cells[centre + 1];
+            for (int i = 0; i < cells.length; i += 2) {
+                frontX += cells[i];
+                frontY += cells[i + 1];
             }
+            final int x = myCurrentPiece.getPosition().x() + cells[centre];
+            final int y = myCurrentPiece.getPosition().y() + cells[centre + 1];
+            // the side direction is the front direction turned a quarter
+            int front = 0;
+            int back = 0;
+            for (int side = -1; side <= 1; side += 2) {
+                if (isFilled(x + frontX + side * frontY, y + frontY - side * frontX)) {
+                    front++;
+                }
+                if (isFilled(x - frontX + side * frontY, y - frontY - side * frontX)) {
+                    back++;
+                }
+            }
+            if (front + back >= SPIN_CORNERS) {
+                result = ScoringEngine.Spin.MINI;
+                if (front == 2 || myLastKick == LAST_KICK) {
+                    result = ScoringEngine.Spin.FULL;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a cell is filled, counting the walls and floor as filled.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return true if the cell is filled or outside the walls or floor
+     */
+    private boolean isFilled(final int theX, final int theY) {
+        return theX < 0 || theX >= myWidth || theY < 0 || myStack.isFilled(theX, theY);
+    }
+
+    /**
+     * Publishes the score, if anyone listens for it.
+     */
+    private void publishScore() {
+        if (isTracked() && myPCS.hasListeners(PROPERTY_SCORE)) {
+            fire(PROPERTY_SCORE, null, myScoring.snapshot());
         }
-        return result && !collision(thePiece);      
     }
 
     /**
@@ -425,47 +978,188 @@ public final class TetrisBoard implements Board {
         }
     }
 
+    /**
+     * Adds a piece to the frozen blocks. The game is over if part of it is
+     * above the top of the board.
+     *
+     * @param thePiece the piece to freeze
+     */
+    private void freeze(final MyMovableTetrisPiece thePiece) {
+        final Point position = thePiece.getPosition();
+        final int[] cells = MyMovableTetrisPiece.getCells(thePiece.getTetrisPiece(),
+                                                          thePiece.getRotation());
+        boolean outside = false;
+        for (int i = 0; i < cells.length; i += 2) {
+            outside |= !isPointOnBoard(position.x() + cells[i], position.y() + cells[i + 1]);
+        }
+        myStack = myStack.place(thePiece);
+        if (outside) {
+            endGame();
+        }
+    }
+
     /**
      * Checks the board for complete rows.
+     * Package visible so that benchmarks can measure it on prepared boards.
      */
-    private void checkRows() {
-        final List<Integer> completeRows = new ArrayList<>();
-        for (final Block[] row : myFrozenBlocks) {
-            boolean complete = true;
-            for (final Block b : row) {
-                if (b == null) {
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete) {
-                completeRows.add(myFrozenBlocks.indexOf(row));
-             // TODO Publish Update!
-//                myPCS.firePropertyChange(PROPERTY_ROW_CLEARED, null, null);
+    void checkRows() {
+        final int cleared = myStack.countFullRows();
+        if (cleared > 0) {
+            myStack = myStack.clearFullRows();
+            myLinesCleared += cleared;
+            if (isTracked()) {
+                myMetrics.cleared(cleared);
+                myMetrics.setLevel(getLevel());
+                LineClearEvent.emit(myId, getLevel(), cleared, myLinesCleared);
             }
+            fire(PROPERTY_ROW_CLEARED, null, cleared);
         }
-        // loop through list backwards removing items by index
-        if (!completeRows.isEmpty()) {
-            for (int i = completeRows.size() - 1; i >= 0; i--) {
-                final Block[] row = myFrozenBlocks.get(completeRows.get(i));
-                myFrozenBlocks.remove(row);
-                myFrozenBlocks.add(new Block[myWidth]);
-            }
-            myPCS.firePropertyChange(PROPERTY_ROW_CLEARED, null, completeRows.size());
+    }
+
+    /**
+     * Replaces the frozen blocks with a copy of the given rows.
+     * Used by benchmarks to start from a prepared board.
+     *
+     * @param theRows the new frozen blocks, bottom row first
+     */
+    void setFrozenBlocks(final List<Block[]> theRows) {
+        myStack = BoardState.of(myWidth, theRows);
+    }
+
+    /**
+     * Creates a detached copy of this board that shares no mutable state with
+     * it. The piece sequence and the position in it are copied as well, so the
+     * copy sees the same pieces as this board. The copy has no listeners and
+     * reports no telemetry.
+     *
+     * @return a copy of the board
+     */
+    TetrisBoard copy() {
+        final TetrisBoard copy = new TetrisBoard(this);
+        // random pieces this board drew before going back but has not queued again
+        copy.myDrawnPieces = new ArrayList<>(
+                myDrawnPieces.subList(myDrawIndex, myDrawnPieces.size()));
+        return copy;
+    }
+
+    /**
+     * Makes this board, a copy made by {@link #copy()}, hold the game of
+     * another board as a new copy would, reusing its arrays. Searches that
+     * visit many boards one at a time load each into the same copy.
+     *
+     * @param theOther the board to copy, of the same size
+     */
+    void reload(final TetrisBoard theOther) {
+        copyFrom(theOther);
+        myDrawnPieces.clear();
+        myDrawnPieces.addAll(
+                theOther.myDrawnPieces.subList(theOther.myDrawIndex,
+                                               theOther.myDrawnPieces.size()));
+        myDrawIndex = 0;
+    }
+
+    /**
+     * Creates a copy of this board for going back to later, as {@link #copy()}
+     * but sharing the random pieces drawn in this game. Whatever this board
+     * draws later is drawn for the checkpoint too, so replaying the same moves
+     * on the checkpoint gets to the same board. The checkpoint must only be used
+     * on the thread that uses this board.
+     *
+     * @return the checkpoint
+     */
+    TetrisBoard checkpoint() {
+        final TetrisBoard checkpoint = new TetrisBoard(this);
+        checkpoint.myDrawnPieces = myDrawnPieces;
+        checkpoint.myDrawIndex = myDrawIndex;
+        return checkpoint;
+    }
+
+    /**
+     * Puts this board back into the state of a checkpoint of it and tells the
+     * listeners, as if the game had been played to that state. The checkpoint
+     * is not changed and may be restored again. The preview keeps its size.
+     *
+     * @param theCheckpoint a checkpoint of this board, possibly played on
+     */
+    void restore(final TetrisBoard theCheckpoint) {
+        final boolean wasOver = myGameOver;
+        final int previewSize = myPreviewSize;
+        copyFrom(theCheckpoint);
+        myDrawnPieces = theCheckpoint.myDrawnPieces;
+        myDrawIndex = theCheckpoint.myDrawIndex;
+        myPreviewSize = previewSize;
+        myDrop = false;
+        if (isTracked()) {
+            myMetrics.setLevel(getLevel());
+        }
+        fire(PROPERTY_BOARD_CHANGE, null, myStack.asList());
+        fire(PROPERTY_CURRENT_PIECE, null, myCurrentPiece);
+        if (myCurrentPiece != null) {
+            refillQueue();
+            publishPreview();
+        }
+        publishScore();
+        if (wasOver != myGameOver) {
+            fire(PROPERTY_GAME_OVER, wasOver, myGameOver);
         }
     }
-    
+
+    /**
+     * Copies the game from another board of the same size, except for the
+     * random pieces drawn, which the callers handle.
+     *
+     * @param theOther the board to copy
+     */
+    private void copyFrom(final TetrisBoard theOther) {
+        myStack = theOther.myStack;
+        myGameOver = theOther.myGameOver;
+        myLinesCleared = theOther.myLinesCleared;
+        myScoring.copyFrom(theOther.myScoring);
+        myLastMoveRotated = theOther.myLastMoveRotated;
+        myLastKick = theOther.myLastKick;
+        mySource = theOther.mySource;
+        myPieces = null;
+        if (theOther.myPieces != null) {
+            // forks share nothing that moves, so a copy may be played on another thread
+            myPieces = theOther.myPieces.fork();
+        }
+        System.arraycopy(theOther.myQueue, 0, myQueue, 0, QUEUE_CAPACITY);
+        myQueueHead = theOther.myQueueHead;
+        myQueueSize = theOther.myQueueSize;
+        myPreviewSize = theOther.myPreviewSize;
+        myHeldPiece = theOther.myHeldPiece;
+        myHoldUsed = theOther.myHoldUsed;
+        myPreview = theOther.myPreview;
+        myCurrentPiece = theOther.myCurrentPiece;
+    }
+
+    /**
+     * Replaces the current piece without checking that it is legal.
+     * Used by move generation to continue a search from any piece state.
+     *
+     * @param thePiece the new current piece
+     */
+    void setCurrentPiece(final MyMovableTetrisPiece thePiece) {
+        myCurrentPiece = thePiece;
+    }
+
+    /**
+     * Tests whether a piece fits on the board using the same rules as every move.
+     *
+     * @param thePiece the piece to test
+     * @return true if the piece is inside the walls and does not collide
+     */
+    boolean isLegal(final MyMovableTetrisPiece thePiece) {
+        return isPieceLegal(thePiece);
+    }
+
     /**
      * Helper function to copy the board.
      * 
      * @return A new copy of the board.
      */
     private List<Block[]> getBoard() {
-        final List<Block[]> board = new ArrayList<>();
-        for (final Block[] row : myFrozenBlocks) {
-            board.add(row.clone());
-        }
-        return board;
+        return myStack.getFrozenBlocks();
     }
 
     /**
@@ -480,6 +1174,17 @@ public final class TetrisBoard implements Board {
                && thePoint.y() < theBoard.size();
     }
 
+    /**
+     * Determines if a cell is on the game board.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return True if the cell is on the board otherwise false.
+     */
+    private boolean isPointOnBoard(final int theX, final int theY) {
+        return theX >= 0 && theX < myWidth && theY >= 0 && theY < myHeight;
+    }
+
     /**
      * Sets a block at a board point.
      * 
@@ -494,43 +1199,23 @@ public final class TetrisBoard implements Board {
         if (isPointOnBoard(theBoard, thePoint)) { 
             final Block[] row = theBoard.get(thePoint.y());
             row[thePoint.x()] = theBlock;
-        } else if (!myGameOver) {
-            myGameOver = true;
-            // TODO Publish Update!
-            myPCS.firePropertyChange(PROPERTY_GAME_OVER, false, true);
+        } else {
+            endGame();
         }
     }
 
     /**
-     * Returns the block at a specific board point.
-     * 
-     * @param thePoint the specific Point to check
-     * @return the Block type at point or null if no block exists.
+     * Ends the game unless it is already over.
      */
-    private Block getPoint(final Point thePoint) {
-        Block b = null;
-        if (isPointOnBoard(myFrozenBlocks, thePoint)) {
-            b = myFrozenBlocks.get(thePoint.y())[thePoint.x()];
-        }
-        return b;
-    }
-
-    /**
-     * Helper function to determine of a movable block has collided with set
-     * blocks.
-     * 
-     * @param theTest movable TetrisPiece to test for collision.
-     * @return Returns true if any of the blocks has collided with a set board
-     *         block.
-     */
-    private boolean collision(final MyMovableTetrisPiece theTest) {
-        boolean res = false;
-        for (final Point p : theTest.getBoardPoints()) {
-            if (getPoint(p) != null) {
-                res = true;
+    private void endGame() {
+        if (!myGameOver) {
+            myGameOver = true;
+            if (isTracked()) {
+                GameOverEvent.emit(myId, getLevel(), myLinesCleared);
             }
+            // TODO Publish Update!
+            fire(PROPERTY_GAME_OVER, false, true);
         }
-        return res;
     }
 
     /**
@@ -541,41 +1226,129 @@ public final class TetrisBoard implements Board {
      */
     private MyMovableTetrisPiece nextMovablePiece(final boolean theRestart) {
         
-        if (myNextPiece == null || theRestart) {
-            prepareNextMovablePiece();
+        if (theRestart) {
+            Arrays.fill(myQueue, null);
+            myQueueHead = 0;
+            myQueueSize = 0;
+            myHeldPiece = null;
         }
-        
-        final TetrisPiece next = myNextPiece;
-        
+        myHoldUsed = false;
+        final MyMovableTetrisPiece result = spawn(takePiece());
+        publishPreview();
+        return result;
+    }
+
+    /**
+     * Creates a piece at the top of the board.
+     *
+     * @param thePiece the piece to place
+     * @return the new MovableTetrisPiece
+     */
+    private MyMovableTetrisPiece spawn(final TetrisPiece thePiece) {
         int startY = myHeight - 1;
-        if (myNextPiece == TetrisPiece.I) {
+        if (thePiece == TetrisPiece.I) {
             startY--; 
         }
         
-        prepareNextMovablePiece();
-        return new MyMovableTetrisPiece(
-                       next,
-                       new Point((myWidth - myNextPiece.getWidth()) / 2, startY));
+        final int startX = (myWidth - getNextPiece().getWidth()) / 2;
+        myLastMoveRotated = false;
+        if (isTracked()) {
+            PieceSpawnEvent.emit(myId, getLevel(), thePiece.name(), startX, startY);
+        }
+        return new MyMovableTetrisPiece(thePiece, new Point(startX, startY));
     }
-    
+
     /**
-     * Prepares the Next movable piece for preview.
+     * Takes the next piece out of the ring buffer, refilling it first if it
+     * would hold fewer pieces than the preview afterwards.
+     *
+     * @return the next piece
      */
-    private void prepareNextMovablePiece() {
-        
-        final boolean share = myNextPiece != null;
-        if (myNonRandomPieces == null || myNonRandomPieces.isEmpty()) {
-            myNextPiece = TetrisPiece.getRandomPiece();
-        } else {
-            mySequenceIndex %= myNonRandomPieces.size();
-            myNextPiece = myNonRandomPieces.get(mySequenceIndex++);
+    private TetrisPiece takePiece() {
+        refillQueue();
+        final TetrisPiece result = myQueue[myQueueHead];
+        myQueue[myQueueHead] = null;
+        myQueueHead = myQueueHead + 1 & QUEUE_CAPACITY - 1;
+        myQueueSize--;
+        return result;
+    }
+
+    /**
+     * Fills every free slot of the ring buffer in one go once it runs as low
+     * as the preview, so pieces are generated a buffer at a time rather than
+     * one per spawn.
+     */
+    private void refillQueue() {
+        if (myQueueSize <= myPreviewSize) {
+            for (; myQueueSize < QUEUE_CAPACITY; myQueueSize++) {
+                final int slot = myQueueHead + myQueueSize & QUEUE_CAPACITY - 1;
+                if (myPieces == null) {
+                    if (myDrawIndex == myDrawnPieces.size()) {
+                        myDrawnPieces.add(TetrisPiece.getRandomPiece());
+                    }
+                    myQueue[slot] = myDrawnPieces.get(myDrawIndex++);
+                } else {
+                    myQueue[slot] = myPieces.nextPiece();
+                }
+            }
         }
-        if (share && !myGameOver) {
-            // TODO Publish Update!
+    }
+
+    /**
+     * Publishes the previewed pieces and the hold slot as one event.
+     */
+    private void publishPreview() {
+        myPreview = PiecePreview.of(myQueue, myQueueHead, myPreviewSize, myHeldPiece,
+                                    !myHoldUsed);
+        fire(PROPERTY_NEXT_PIECE, null, myPreview);
+    }
+
+    /**
+     * Fires a property change event and counts it.
+     *
+     * @param theProperty the property name
+     * @param theOld the old value
+     * @param theNew the new value
+     */
+    private void fire(final String theProperty, final Object theOld, final Object theNew) {
+        if (isTracked()) {
+            myMetrics.fired(theProperty);
+            // an event is only worth creating if someone listens for it
+            if (myPCS.hasListeners(theProperty)) {
+                myPCS.firePropertyChange(theProperty, theOld, theNew);
+            }
         }
-        //fire property change
-        myPCS.firePropertyChange(PROPERTY_NEXT_PIECE, null, myNextPiece);
-    }    
+    }
+
+    /**
+     * Tells whether this board has listeners and telemetry, which detached
+     * copies do not.
+     *
+     * @return true unless this is a detached copy
+     */
+    private boolean isTracked() {
+        return myMetrics != null;
+    }
+
+    /**
+     * Makes sure this board can have listeners.
+     *
+     * @throws IllegalStateException if this is a detached copy
+     */
+    private void checkTracked() {
+        if (!isTracked()) {
+            throw new IllegalStateException("A copy of a board has no listeners");
+        }
+    }
+
+    /**
+     * Returns the level being played, which goes up every few lines cleared.
+     *
+     * @return the level, starting at 1
+     */
+    private int getLevel() {
+        return myLinesCleared / ScoringEngine.LINES_PER_LEVEL + 1;
+    }
 
     
     // Inner classes
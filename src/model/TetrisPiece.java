@@ -97,6 +97,11 @@ public enum TetrisPiece {
      */
     private static final Random RANDOM = new Random();
 
+    /**
+     * Every piece in order, kept so that drawing one does not copy values().
+     */
+    private static final TetrisPiece[] VALUES = values();
+
     
     // instance fields
     /**
@@ -189,12 +194,31 @@ public enum TetrisPiece {
         return myPointsByRotation[theRotation.ordinal()].clone();
     }
 
+    /**
+     * Returns the piece with an ordinal, without copying the values.
+     *
+     * @param theOrdinal the ordinal
+     * @return the piece
+     */
+    static TetrisPiece of(final int theOrdinal) {
+        return VALUES[theOrdinal];
+    }
+
+    /**
+     * Returns the number of pieces.
+     *
+     * @return the number of pieces
+     */
+    static int count() {
+        return VALUES.length;
+    }
+
     /**
      * Get a random TetrisPiece.
      * 
      * @return a random TetrisPiece.
      */
     public static TetrisPiece getRandomPiece() {
-        return values()[RANDOM.nextInt(values().length)];
+        return VALUES[RANDOM.nextInt(VALUES.length)];
     }
 }
@@ -0,0 +1,271 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records every move played on a board so the game can be stepped back and
+ * forward, moved to any tick and played on from there.
+ * <p>
+ * A tick is the number of moves played since the timeline started. The moves
+ * are kept as one byte each, and every {@link #getInterval()} ticks the board
+ * is kept as a checkpoint. Since checkpoints share the frozen blocks and the
+ * random pieces with the board, one costs a few small arrays. Going to a tick
+ * copies the checkpoint at or before it and plays the moves after the
+ * checkpoint on the copy, so it replays fewer moves than the interval however
+ * long the game is. The board then takes the state of the copy and tells its
+ * listeners, which redraw that exact tick.
+ * <p>
+ * Playing a move while back in time forgets the moves that were ahead, as an
+ * editor forgets its redo history. At most {@link #getLimit()} moves are kept:
+ * past that the oldest interval of moves and its checkpoint are forgotten, and
+ * tick 0 becomes the oldest tick still kept. The time machine and the board must only
+ * be used on one thread, such as the owner thread of a {@link BoardExecutor}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class TimeMachine {
+    /**
+     * Default number of ticks between checkpoints.
+     */
+    public static final int DEFAULT_INTERVAL = 256;
+    /**
+     * Default number of moves kept, a few hours of play at a tick every 16 ms.
+     */
+    public static final int DEFAULT_LIMIT = 1 << 20;
+    /**
+     * Moves the move log has room for at first.
+     */
+    private static final int INITIAL_MOVES = 1024;
+
+    /**
+     * The board played on.
+     */
+    private final TetrisBoard myBoard;
+    /**
+     * Ticks between checkpoints.
+     */
+    private final int myInterval;
+    /**
+     * Most moves kept.
+     */
+    private final int myLimit;
+    /**
+     * The board at tick i * myInterval, by i.
+     */
+    private final List<TetrisBoard> myCheckpoints;
+    /**
+     * The ordinals of the moves played, by tick.
+     */
+    private byte[] myMoves;
+    /**
+     * Number of moves recorded, the last tick that can be gone to.
+     */
+    private int myLength;
+    /**
+     * The tick the board is at.
+     */
+    private int myTick;
+
+    /**
+     * Creates a time machine for a board, checkpointing every
+     * {@link #DEFAULT_INTERVAL} ticks. The timeline starts at the board as it
+     * is now.
+     *
+     * @param theBoard the board
+     */
+    public TimeMachine(final TetrisBoard theBoard) {
+        this(theBoard, DEFAULT_INTERVAL, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates a time machine for a board, keeping {@link #DEFAULT_LIMIT} moves.
+     * The timeline starts at the board as it is now.
+     *
+     * @param theBoard the board
+     * @param theInterval ticks between checkpoints, from 1 to the default limit
+     * @throws IllegalArgumentException if the interval is out of range
+     */
+    public TimeMachine(final TetrisBoard theBoard, final int theInterval) {
+        this(theBoard, theInterval, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates a time machine for a board. The timeline starts at the board as
+     * it is now.
+     *
+     * @param theBoard the board
+     * @param theInterval ticks between checkpoints, at least 1
+     * @param theLimit most moves kept, at least the interval
+     * @throws IllegalArgumentException if the interval is less than 1 or the
+     *                                  limit less than the interval
+     */
+    public TimeMachine(final TetrisBoard theBoard, final int theInterval, final int theLimit) {
+        super();
+        if (theInterval < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1: " + theInterval);
+        }
+        if (theLimit < theInterval) {
+            throw new IllegalArgumentException("Limit must be at least the interval: "
+                                               + theLimit);
+        }
+        myBoard = theBoard;
+        myInterval = theInterval;
+        myLimit = theLimit;
+        myCheckpoints = new ArrayList<>();
+        myMoves = new byte[Math.min(INITIAL_MOVES, theLimit + 1)];
+        reset();
+    }
+
+    /**
+     * Forgets every recorded move and starts the timeline at the board as it is
+     * now, for example after a new game.
+     */
+    public void reset() {
+        myCheckpoints.clear();
+        myCheckpoints.add(myBoard.checkpoint());
+        myLength = 0;
+        myTick = 0;
+    }
+
+    /**
+     * Plays a move on the board and records it, unless the game is over. Any
+     * moves recorded after the current tick are forgotten first.
+     *
+     * @param theMove the move
+     */
+    public void play(final Move theMove) {
+        if (!myBoard.isGameOver()) {
+            if (myTick < myLength) {
+                truncate();
+            }
+            theMove.playOn(myBoard);
+            if (myLength == myMoves.length) {
+                myMoves = Arrays.copyOf(myMoves, Math.min(myLength * 2, myLimit + 1));
+            }
+            myMoves[myLength] = (byte) theMove.ordinal();
+            myLength++;
+            myTick = myLength;
+            if (myTick % myInterval == 0) {
+                myCheckpoints.add(myBoard.checkpoint());
+            }
+            if (myLength > myLimit) {
+                forgetOldest();
+            }
+        }
+    }
+
+    /**
+     * Puts the board at a tick.
+     *
+     * @param theTick the tick, from 0 to {@link #getLength()}
+     * @throws IllegalArgumentException if the tick is not recorded
+     */
+    public void seek(final int theTick) {
+        if (theTick < 0 || theTick > myLength) {
+            throw new IllegalArgumentException("No tick " + theTick + " in 0.." + myLength);
+        }
+        final int index = theTick / myInterval;
+        TetrisBoard board = myCheckpoints.get(index);
+        if (index * myInterval < theTick) {
+            // restoring leaves the checkpoint as it is, so only replaying copies it
+            board = board.checkpoint();
+            for (int tick = index * myInterval; tick < theTick; tick++) {
+                Move.of(myMoves[tick]).playOn(board);
+            }
+        }
+        myBoard.restore(board);
+        myTick = theTick;
+    }
+
+    /**
+     * Goes one tick back, if there is one.
+     */
+    public void back() {
+        if (myTick > 0) {
+            seek(myTick - 1);
+        }
+    }
+
+    /**
+     * Goes one tick forward, if one was recorded.
+     */
+    public void forward() {
+        if (myTick < myLength) {
+            seek(myTick + 1);
+        }
+    }
+
+    /**
+     * Returns the tick the board is at.
+     *
+     * @return the tick
+     */
+    public int getTick() {
+        return myTick;
+    }
+
+    /**
+     * Returns the number of moves recorded.
+     *
+     * @return the last tick that can be gone to
+     */
+    public int getLength() {
+        return myLength;
+    }
+
+    /**
+     * Returns the move played at a tick, taking the board to the next tick.
+     *
+     * @param theTick the tick, from 0 to {@link #getLength()} - 1
+     * @return the move
+     * @throws IllegalArgumentException if no move was recorded at the tick
+     */
+    public Move getMove(final int theTick) {
+        if (theTick < 0 || theTick >= myLength) {
+            throw new IllegalArgumentException("No move at tick " + theTick);
+        }
+        return Move.of(myMoves[theTick]);
+    }
+
+    /**
+     * Returns the number of ticks between checkpoints.
+     *
+     * @return the interval
+     */
+    public int getInterval() {
+        return myInterval;
+    }
+
+    /**
+     * Returns the most moves kept.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return myLimit;
+    }
+
+    /**
+     * Forgets the oldest interval of moves and its checkpoint, so the second
+     * checkpoint becomes tick 0. Once the limit is reached this happens once
+     * an interval, so the moves are shifted rarely.
+     */
+    private void forgetOldest() {
+        myCheckpoints.remove(0);
+        System.arraycopy(myMoves, myInterval, myMoves, 0, myLength - myInterval);
+        myLength -= myInterval;
+        myTick -= myInterval;
+    }
+
+    /**
+     * Forgets the moves after the current tick and the checkpoints after it.
+     */
+    private void truncate() {
+        myLength = myTick;
+        final int keep = myTick / myInterval + 1;
+        myCheckpoints.subList(keep, myCheckpoints.size()).clear();
+    }
+}
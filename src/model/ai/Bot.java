@@ -0,0 +1,414 @@
+package model.ai;
+
+import java.util.List;
+import model.Block;
+import model.Board;
+import model.MovableTetrisPiece;
+import model.MyMovableTetrisPiece;
+import model.Point;
+import model.Rotation;
+import model.TetrisPiece;
+
+/**
+ * A simple AI player that places each piece where the {@link Evaluator} likes
+ * the resulting board best, optionally looking one piece ahead at the next piece.
+ * <p>
+ * Placements are searched on a private copy of the board where every piece is
+ * dropped straight down from its spawn height. The copy is a
+ * {@link FeatureIndex}, so scoring a placement only looks at the rows and
+ * columns it touches, and each placement is undone before the next one is
+ * tried, so the board is copied once per search level rather than once per
+ * placement. Where a piece comes to rest is read off the column heights. A
+ * Bot keeps scratch buffers and
+ * must only be used by one thread at a time; the {@link TranspositionTable} it
+ * is given may be shared between Bots on different threads.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class Bot {
+    /**
+     * The number of blocks in a TetrisPiece.
+     */
+    private static final int BLOCKS = 4;
+    /**
+     * Local block coordinates (x0, y0, x1, y1, ...) by piece and rotation.
+     */
+    private static final int[][][] CELLS = new int[TetrisPiece.values().length]
+                                                  [Rotation.values().length][];
+    /**
+     * The depth recorded in the transposition table for one piece of lookahead.
+     */
+    private static final int LOOKAHEAD_DEPTH = 1;
+    /**
+     * Widest board that fits one row in a long.
+     */
+    private static final int MAX_WIDTH = Long.SIZE;
+    /**
+     * The only rotation worth searching for the O piece.
+     */
+    private static final Rotation[] O_ROTATIONS = {Rotation.NONE};
+    /**
+     * Every rotation.
+     */
+    private static final Rotation[] ALL_ROTATIONS = Rotation.values();
+
+    static {
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            for (final Rotation rotation : Rotation.values()) {
+                final Point[] points = new MyMovableTetrisPiece(piece, new Point(0, 0),
+                                                                rotation).getBoardPoints();
+                final int[] cells = new int[BLOCKS * 2];
+                for (int i = 0; i < BLOCKS; i++) {
+                    cells[2 * i] = points[i].x();
+                    cells[2 * i + 1] = points[i].y();
+                }
+                CELLS[piece.ordinal()][rotation.ordinal()] = cells;
+            }
+        }
+    }
+
+    /**
+     * The Evaluator used to score boards.
+     */
+    private final Evaluator myEvaluator;
+    /**
+     * Shared cache of lookahead scores, or null to search without one.
+     */
+    private final TranspositionTable myTable;
+    /**
+     * Whether the next piece is considered when scoring a placement.
+     */
+    private final boolean myLookahead;
+    /**
+     * The board being searched, then a scratch board per search level.
+     */
+    private final FeatureIndex[] myBoards;
+    /**
+     * The rotation chosen by the last search.
+     */
+    private Rotation myBestRotation;
+    /**
+     * The x position chosen by the last search.
+     */
+    private int myBestX;
+
+    /**
+     * Creates a Bot that looks one piece ahead without a transposition table.
+     *
+     * @param theEvaluator the Evaluator used to score boards
+     */
+    public Bot(final Evaluator theEvaluator) {
+        this(theEvaluator, null, true);
+    }
+
+    /**
+     * Creates a Bot.
+     *
+     * @param theEvaluator the Evaluator used to score boards
+     * @param theTable a transposition table for lookahead scores, or null
+     * @param theLookahead whether to look ahead at the next piece
+     */
+    public Bot(final Evaluator theEvaluator, final TranspositionTable theTable,
+               final boolean theLookahead) {
+        super();
+        myEvaluator = theEvaluator;
+        myTable = theTable;
+        myLookahead = theLookahead;
+        myBoards = new FeatureIndex[LOOKAHEAD_DEPTH + 2];
+        myBestRotation = Rotation.NONE;
+    }
+
+    /**
+     * Chooses a placement for the board's current piece and plays it by rotating,
+     * shifting and dropping the piece.
+     *
+     * @param theBoard the board to play on
+     * @throws IllegalArgumentException if the board is wider than 64 columns
+     */
+    public void play(final Board theBoard) {
+        final MovableTetrisPiece piece = theBoard.getCurrentPiece();
+        if (piece == null || theBoard.isGameOver()) {
+            return;
+        }
+        choose(theBoard);
+        final int turns = myBestRotation.ordinal();
+        if (turns == Rotation.THREEQUARTER.ordinal()) {
+            theBoard.rotateCCW();
+        } else {
+            for (int i = 0; i < turns; i++) {
+                theBoard.rotateCW();
+            }
+        }
+        shift(theBoard);
+        theBoard.drop();
+    }
+
+    /**
+     * Searches for the best placement of the board's current piece.
+     *
+     * @param theBoard the board to search
+     * @return the score of the best placement
+     */
+    public double choose(final Board theBoard) {
+        final int width = theBoard.getWidth();
+        if (width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Bots support boards up to "
+                                               + MAX_WIDTH + " columns");
+        }
+        final int height = theBoard.getHeight();
+        if (myBoards[0] == null || myBoards[0].getWidth() != width
+            || myBoards[0].getHeight() != height) {
+            for (int i = 0; i < myBoards.length; i++) {
+                myBoards[i] = new FeatureIndex(width, height);
+            }
+        }
+        myBoards[0].reset(toRows(theBoard.getState().asList(), height));
+        if (myTable != null) {
+            myTable.newSearch();
+        }
+        return search(myBoards[0], theBoard.getCurrentPiece().getTetrisPiece(),
+                      theBoard.getNextPiece(), 0);
+    }
+
+    /**
+     * Returns the rotation of the placement chosen by the last search.
+     *
+     * @return the rotation
+     */
+    public Rotation getBestRotation() {
+        return myBestRotation;
+    }
+
+    /**
+     * Returns the x position of the placement chosen by the last search.
+     *
+     * @return the x position
+     */
+    public int getBestX() {
+        return myBestX;
+    }
+
+    /**
+     * Scores every placement of a piece, remembering the best one at the top level.
+     *
+     * @param theBoard the board before the placement
+     * @param thePiece the piece to place
+     * @param theNext the piece after it, or null
+     * @param theLevel the search level, 0 for the current piece
+     * @return the best score found
+     */
+    private double search(final FeatureIndex theBoard, final TetrisPiece thePiece,
+                          final TetrisPiece theNext, final int theLevel) {
+        final FeatureIndex board = myBoards[theLevel + 1];
+        board.copyFrom(theBoard);
+        final int width = theBoard.getWidth();
+        double best = Double.NEGATIVE_INFINITY;
+        for (final Rotation rotation : rotations(thePiece)) {
+            final int[] cells = CELLS[thePiece.ordinal()][rotation.ordinal()];
+            for (int x = -BLOCKS + 1; x < width; x++) {
+                final int y = restingY(theBoard, thePiece, cells, x);
+                if (y == Integer.MIN_VALUE) {
+                    continue;
+                }
+                final double score = scorePlacement(board, cells, x, y, thePiece, theNext,
+                                                    theLevel);
+                if (score > best || theLevel == 0 && best == Double.NEGATIVE_INFINITY) {
+                    best = score;
+                    if (theLevel == 0) {
+                        myBestRotation = rotation;
+                        myBestX = x;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Places a piece on a scratch board, scores the result and takes the piece
+     * back. The index keeps the features of the board as the piece is placed
+     * and removed, so scoring costs the rows and columns the piece touches
+     * rather than the whole board.
+     *
+     * @param theBoard the scratch board, left as it was
+     * @param theCells the local cells of the piece
+     * @param theX the x position of the piece
+     * @param theY the y position of the piece
+     * @param thePiece the piece being placed
+     * @param theNext the piece after it, or null
+     * @param theLevel the search level
+     * @return the score of the placement
+     */
+    private double scorePlacement(final FeatureIndex theBoard, final int[] theCells,
+                                  final int theX, final int theY, final TetrisPiece thePiece,
+                                  final TetrisPiece theNext, final int theLevel) {
+        for (int i = 0; i < theCells.length; i += 2) {
+            if (theY + theCells[i + 1] >= theBoard.getHeight()) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+        final int lines = theBoard.place(theCells, theX, theY);
+        final double score = scoreBoard(theBoard, lines, theNext, theLevel);
+        theBoard.undo();
+        return score;
+    }
+
+    /**
+     * Scores a board a piece was just placed on, searching the placements of
+     * the next piece if looking ahead.
+     *
+     * @param theBoard the board after the placement
+     * @param theLines the lines the placement cleared
+     * @param theNext the piece after it, or null
+     * @param theLevel the search level
+     * @return the score of the board
+     */
+    private double scoreBoard(final FeatureIndex theBoard, final int theLines,
+                              final TetrisPiece theNext, final int theLevel) {
+        double score;
+        if (myLookahead && theLevel == 0 && theNext != null) {
+            long key = 0;
+            score = Double.NaN;
+            if (myTable != null) {
+                // the lookahead score only depends on the board and the next piece
+                key = TranspositionTable.key(TranspositionTable.boardHash(theBoard.getRows()),
+                                             theNext);
+                score = myTable.probe(key, LOOKAHEAD_DEPTH);
+            }
+            if (Double.isNaN(score)) {
+                score = search(theBoard, theNext, null, 1);
+                if (myTable != null) {
+                    myTable.store(key, score, LOOKAHEAD_DEPTH);
+                }
+            }
+            score += myEvaluator.getWeight(Evaluator.LINES) * theLines;
+        } else {
+            score = myEvaluator.evaluate(theBoard, theLines);
+        }
+        return score;
+    }
+
+    /**
+     * Finds where a piece comes to rest when dropped from its spawn height.
+     * Unless a cell starts below the top of its column, every cell falls until
+     * one lands on top of its column, which the column heights tell at once.
+     *
+     * @param theBoard the board
+     * @param thePiece the piece being dropped
+     * @param theCells the local cells of the piece
+     * @param theX the x position of the piece
+     * @return the resting y position, or Integer.MIN_VALUE if the piece does not fit
+     */
+    private static int restingY(final FeatureIndex theBoard, final TetrisPiece thePiece,
+                                final int[] theCells, final int theX) {
+        final int width = theBoard.getWidth();
+        final int height = theBoard.getHeight();
+        int y = height - 1;
+        if (thePiece == TetrisPiece.I) {
+            y--;
+        }
+        int landing = Integer.MIN_VALUE;
+        for (int i = 0; i < theCells.length && landing != Integer.MAX_VALUE; i += 2) {
+            final int x = theX + theCells[i];
+            if (x < 0 || x >= width) {
+                landing = Integer.MAX_VALUE;
+            } else {
+                landing = Math.max(landing, theBoard.getColumnHeight(x) - theCells[i + 1]);
+            }
+        }
+        int result = Integer.MIN_VALUE;
+        if (landing <= y) {
+            result = landing;
+        } else if (landing != Integer.MAX_VALUE) {
+            // a cell starts under the stack, so drop it a row at a time
+            final long[] rows = theBoard.getRows();
+            if (fits(rows, width, height, theCells, theX, y)) {
+                while (fits(rows, width, height, theCells, theX, y - 1)) {
+                    y--;
+                }
+                result = y;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether a piece fits at a position.
+     *
+     * @param theRows the board
+     * @param theWidth the width of the board
+     * @param theHeight the height of the board
+     * @param theCells the local cells of the piece
+     * @param theX the x position of the piece
+     * @param theY the y position of the piece
+     * @return true if every block is inside the walls, above the floor and not filled
+     */
+    private static boolean fits(final long[] theRows, final int theWidth, final int theHeight,
+                                final int[] theCells, final int theX, final int theY) {
+        boolean result = true;
+        for (int i = 0; i < theCells.length && result; i += 2) {
+            final int x = theX + theCells[i];
+            final int y = theY + theCells[i + 1];
+            result = x >= 0 && x < theWidth && y >= 0
+                     && (y >= theHeight || (theRows[y] & 1L << x) == 0);
+        }
+        return result;
+    }
+
+    /**
+     * Moves the current piece sideways until it reaches the chosen x position
+     * or can not move any further.
+     *
+     * @param theBoard the board to play on
+     */
+    private void shift(final Board theBoard) {
+        int x = theBoard.getCurrentPiece().getPosition().x();
+        while (x != myBestX) {
+            if (x < myBestX) {
+                theBoard.right();
+            } else {
+                theBoard.left();
+            }
+            final int moved = theBoard.getCurrentPiece().getPosition().x();
+            if (moved == x) {
+                break;
+            }
+            x = moved;
+        }
+    }
+
+    /**
+     * Returns the rotations that give a piece distinct shapes.
+     *
+     * @param thePiece the piece
+     * @return the rotations worth searching
+     */
+    private static Rotation[] rotations(final TetrisPiece thePiece) {
+        Rotation[] result = ALL_ROTATIONS;
+        if (thePiece == TetrisPiece.O) {
+            result = O_ROTATIONS;
+        }
+        return result;
+    }
+
+    /**
+     * Converts frozen blocks into row bit masks.
+     *
+     * @param theBlocks the frozen blocks, bottom row first
+     * @param theHeight the height of the board
+     * @return one bit mask per row
+     */
+    private static long[] toRows(final List<Block[]> theBlocks, final int theHeight) {
+        final long[] rows = new long[theHeight];
+        for (int y = 0; y < theHeight; y++) {
+            final Block[] row = theBlocks.get(y);
+            for (int x = 0; x < row.length; x++) {
+                if (row[x] != null) {
+                    rows[y] |= 1L << x;
+                }
+            }
+        }
+        return rows;
+    }
+}
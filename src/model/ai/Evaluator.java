@@ -0,0 +1,153 @@
+package model.ai;
+
+import java.util.Arrays;
+
+/**
+ * Scores a board for the AI as a weighted sum of board features.
+ * <p>
+ * Boards are given as one {@code long} per row (bottom row first) where bit x
+ * is set when column x of that row is filled, so boards up to 64 columns wide
+ * are supported.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class Evaluator {
+    /**
+     * Index of the weight for lines cleared by the placement.
+     */
+    public static final int LINES = 0;
+    /**
+     * Index of the weight for the sum of all column heights.
+     */
+    public static final int HEIGHT = 1;
+    /**
+     * Index of the weight for empty cells that have a filled cell above them.
+     */
+    public static final int HOLES = 2;
+    /**
+     * Index of the weight for the sum of height differences of adjacent columns.
+     */
+    public static final int BUMPINESS = 3;
+    /**
+     * Number of features (and weights) used by the evaluation.
+     */
+    public static final int FEATURE_COUNT = 4;
+    /**
+     * Hand tuned starting weights.
+     */
+    private static final double[] DEFAULT_WEIGHTS = {0.760666, -0.510066, -0.35663, -0.184483};
+
+    /**
+     * The weight of every feature.
+     */
+    private final double[] myWeights;
+
+    /**
+     * Creates an Evaluator using the default weights.
+     */
+    public Evaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Creates an Evaluator using the given weights.
+     *
+     * @param theWeights one weight per feature, indexed by the feature constants
+     * @throws IllegalArgumentException if the number of weights is wrong
+     */
+    public Evaluator(final double... theWeights) {
+        super();
+        if (theWeights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT + " weights");
+        }
+        myWeights = theWeights.clone();
+    }
+
+    /**
+     * Returns a copy of the default weights.
+     *
+     * @return the default weights
+     */
+    public static double[] getDefaultWeights() {
+        return DEFAULT_WEIGHTS.clone();
+    }
+
+    /**
+     * Returns a copy of the weights used by this Evaluator.
+     *
+     * @return the weights
+     */
+    public double[] getWeights() {
+        return myWeights.clone();
+    }
+
+    /**
+     * Returns the weight of a single feature.
+     *
+     * @param theFeature the index of the feature
+     * @return the weight of the feature
+     */
+    public double getWeight(final int theFeature) {
+        return myWeights[theFeature];
+    }
+
+    /**
+     * Scores a board. Higher scores are better.
+     *
+     * @param theRows the occupancy of each row, bottom row first
+     * @param theWidth the number of columns on the board
+     * @param theLines the number of lines the placement cleared
+     * @return the score of the board
+     */
+    public double evaluate(final long[] theRows, final int theWidth, final int theLines) {
+        int aggregate = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int previous = -1;
+        for (int x = 0; x < theWidth; x++) {
+            final long bit = 1L << x;
+            int height = 0;
+            int covered = 0;
+            for (int y = theRows.length - 1; y >= 0; y--) {
+                if ((theRows[y] & bit) != 0) {
+                    if (height == 0) {
+                        height = y + 1;
+                    }
+                } else if (height != 0) {
+                    covered++;
+                }
+            }
+            aggregate += height;
+            holes += covered;
+            if (previous >= 0) {
+                bumpiness += Math.abs(height - previous);
+            }
+            previous = height;
+        }
+        return myWeights[LINES] * theLines
+               + myWeights[HEIGHT] * aggregate
+               + myWeights[HOLES] * holes
+               + myWeights[BUMPINESS] * bumpiness;
+    }
+
+    /**
+     * Scores a board from the features its index keeps, without scanning it.
+     * Gives the same score as {@link #evaluate(long[], int, int)} on the rows.
+     *
+     * @param theBoard the index of the board
+     * @param theLines the number of lines the placement cleared
+     * @return the score of the board
+     */
+    public double evaluate(final FeatureIndex theBoard, final int theLines) {
+        return myWeights[LINES] * theLines
+               + myWeights[HEIGHT] * theBoard.getAggregateHeight()
+               + myWeights[HOLES] * theBoard.getHoles()
+               + myWeights[BUMPINESS] * theBoard.getBumpiness();
+    }
+
+    @Override
+    public String toString() {
+        return "Evaluator" + Arrays.toString(myWeights);
+    }
+}
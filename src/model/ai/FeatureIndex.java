@@ -0,0 +1,551 @@
+package model.ai;
+
+import java.util.Arrays;
+
+/**
+ * A board for the AI that keeps its features up to date as pieces are placed,
+ * so scoring a placement does not scan the whole board.
+ * <p>
+ * The board is one {@code long} per row (bottom row first) where bit x is set
+ * when column x is filled, as the {@link Evaluator} takes it. Besides the rows
+ * the index keeps the height of every column, the row transitions of every row
+ * and the column transitions between every row and the one below it, and the
+ * totals of all of them. Placing a piece updates the rows it touches and the
+ * columns next to it, so it costs a few bit counts per cell. Clearing lines
+ * moves the rows from the lowest full one up to the top of the stack down,
+ * carrying their row transitions with them, and recounts only the column
+ * transitions of those rows. Every column height drops by at least the number
+ * of lines cleared, and further only past the empty cells below a top cell
+ * that was cleared.
+ * <p>
+ * Before a placement changes anything, the rows it is about to change and the
+ * column heights and totals are saved, so {@link #undo()} puts the index back
+ * at the cost of the placement rather than of a copy of the whole board.
+ * <p>
+ * The per row features are bit counts of the row masks: a row mask already
+ * holds a whole row, so counting its bits replaces a lookup table over row
+ * occupancies and works for every width up to 64 columns.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class FeatureIndex {
+    /**
+     * Number of totals saved for undo.
+     */
+    private static final int TOTALS = 6;
+    /**
+     * Width of the board.
+     */
+    private final int myWidth;
+    /**
+     * Height of the board.
+     */
+    private final int myHeight;
+    /**
+     * The mask of a full row.
+     */
+    private final long myFull;
+    /**
+     * The occupancy of each row, bottom row first.
+     */
+    private final long[] myRows;
+    /**
+     * The height of each column: one above its highest filled cell.
+     */
+    private final int[] myHeights;
+    /**
+     * The row transitions of each row.
+     */
+    private final int[] myRowTransitions;
+    /**
+     * The column transitions between each row and the row below it, the floor
+     * counting as filled.
+     */
+    private final int[] myColumnTransitions;
+    /**
+     * Number of filled cells.
+     */
+    private int myCells;
+    /**
+     * Sum of the column heights.
+     */
+    private int myAggregateHeight;
+    /**
+     * Sum of the height differences of adjacent columns.
+     */
+    private int myBumpiness;
+    /**
+     * Sum of the well depths.
+     */
+    private int myWells;
+    /**
+     * Sum of the row transitions.
+     */
+    private int myRowTotal;
+    /**
+     * Sum of the column transitions.
+     */
+    private int myColumnTotal;
+    /**
+     * The rows as they were before the last placement, between mySavedFrom
+     * and mySavedTo.
+     */
+    private final long[] mySavedRows;
+    /**
+     * The row transitions as they were before the last placement.
+     */
+    private final int[] mySavedRowTransitions;
+    /**
+     * The column transitions as they were before the last placement.
+     */
+    private final int[] mySavedColumnTransitions;
+    /**
+     * The column heights as they were before the last placement.
+     */
+    private final int[] mySavedHeights;
+    /**
+     * The totals as they were before the last placement: cells, aggregate
+     * height, bumpiness, wells, row transitions and column transitions.
+     */
+    private final int[] mySavedTotals;
+    /**
+     * The first row saved.
+     */
+    private int mySavedFrom;
+    /**
+     * One past the last row saved, or -1 if there is no placement to undo.
+     */
+    private int mySavedTo;
+
+    /**
+     * Creates an index of an empty board.
+     *
+     * @param theWidth the width of the board, 1 to 64
+     * @param theHeight the height of the board
+     * @throws IllegalArgumentException if the width does not fit a long
+     */
+    public FeatureIndex(final int theWidth, final int theHeight) {
+        super();
+        if (theWidth < 1 || theWidth > Long.SIZE) {
+            throw new IllegalArgumentException("Width must be 1 to " + Long.SIZE + ": "
+                                               + theWidth);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myFull = -1L >>> (Long.SIZE - theWidth);
+        myRows = new long[theHeight];
+        myHeights = new int[theWidth];
+        myRowTransitions = new int[theHeight];
+        myColumnTransitions = new int[theHeight];
+        mySavedRows = new long[theHeight];
+        mySavedRowTransitions = new int[theHeight];
+        mySavedColumnTransitions = new int[theHeight];
+        mySavedHeights = new int[theWidth];
+        mySavedTotals = new int[TOTALS];
+        rebuild();
+        mySavedTo = -1;
+    }
+
+    /**
+     * Puts a board into the index, replacing what it held.
+     *
+     * @param theRows the occupancy of each row, bottom row first
+     */
+    public void reset(final long[] theRows) {
+        System.arraycopy(theRows, 0, myRows, 0, myHeight);
+        rebuild();
+        mySavedTo = -1;
+    }
+
+    /**
+     * Makes this index hold the same board as another one of the same size.
+     *
+     * @param theOther the index to copy
+     */
+    public void copyFrom(final FeatureIndex theOther) {
+        System.arraycopy(theOther.myRows, 0, myRows, 0, myHeight);
+        System.arraycopy(theOther.myHeights, 0, myHeights, 0, myWidth);
+        System.arraycopy(theOther.myRowTransitions, 0, myRowTransitions, 0, myHeight);
+        System.arraycopy(theOther.myColumnTransitions, 0, myColumnTransitions, 0, myHeight);
+        myCells = theOther.myCells;
+        myAggregateHeight = theOther.myAggregateHeight;
+        myBumpiness = theOther.myBumpiness;
+        myWells = theOther.myWells;
+        myRowTotal = theOther.myRowTotal;
+        myColumnTotal = theOther.myColumnTotal;
+        mySavedTo = -1;
+    }
+
+    /**
+     * Fills the cells of a piece and clears the lines it completes. Only the
+     * rows and columns the piece touches are updated unless lines are cleared.
+     * The placement can be taken back with {@link #undo()}.
+     *
+     * @param theCells the local cells of the piece {x0, y0, x1, y1, ...}
+     * @param theX the x position of the piece
+     * @param theY the y position of the piece
+     * @return the number of lines cleared
+     * @throws IllegalArgumentException if a cell is off the board
+     */
+    public int place(final int[] theCells, final int theX, final int theY) {
+        int left = myWidth;
+        int right = -1;
+        int bottom = myHeight;
+        int top = -1;
+        for (int i = 0; i < theCells.length; i += 2) {
+            final int x = theX + theCells[i];
+            final int y = theY + theCells[i + 1];
+            if (x < 0 || x >= myWidth || y < 0 || y >= myHeight) {
+                throw new IllegalArgumentException("Cell off the board: " + x + ", " + y);
+            }
+            left = Math.min(left, x);
+            right = Math.max(right, x);
+            bottom = Math.min(bottom, y);
+            top = Math.max(top, y);
+        }
+        save(bottom, top + 2);
+        myBumpiness -= bumpiness(left - 1, right);
+        myWells -= wells(left - 1, right + 1);
+        boolean full = false;
+        for (int i = 0; i < theCells.length; i += 2) {
+            final int x = theX + theCells[i];
+            final int y = theY + theCells[i + 1];
+            myRows[y] |= 1L << x;
+            myCells++;
+            if (y + 1 > myHeights[x]) {
+                myAggregateHeight += y + 1 - myHeights[x];
+                myHeights[x] = y + 1;
+            }
+            updateRow(y);
+            full |= myRows[y] == myFull;
+        }
+        myBumpiness += bumpiness(left - 1, right);
+        myWells += wells(left - 1, right + 1);
+        int result = 0;
+        if (full) {
+            result = clearLines(bottom);
+        }
+        return result;
+    }
+
+    /**
+     * Takes back the last placement, putting the index back as it was before
+     * it. Only the rows the placement changed are restored.
+     *
+     * @throws IllegalStateException if nothing was placed since the index was
+     *                               last reset, copied or undone
+     */
+    public void undo() {
+        if (mySavedTo < 0) {
+            throw new IllegalStateException("No placement to undo");
+        }
+        final int length = mySavedTo - mySavedFrom;
+        System.arraycopy(mySavedRows, mySavedFrom, myRows, mySavedFrom, length);
+        System.arraycopy(mySavedRowTransitions, mySavedFrom, myRowTransitions, mySavedFrom,
+                         length);
+        System.arraycopy(mySavedColumnTransitions, mySavedFrom, myColumnTransitions,
+                         mySavedFrom, length);
+        System.arraycopy(mySavedHeights, 0, myHeights, 0, myWidth);
+        myCells = mySavedTotals[0];
+        myAggregateHeight = mySavedTotals[1];
+        myBumpiness = mySavedTotals[2];
+        myWells = mySavedTotals[3];
+        myRowTotal = mySavedTotals[4];
+        myColumnTotal = mySavedTotals[5];
+        mySavedTo = -1;
+    }
+
+    /**
+     * Returns the rows without copying them. They must not be changed.
+     *
+     * @return the occupancy of each row, bottom row first
+     */
+    public long[] getRows() {
+        return myRows;
+    }
+
+    /**
+     * Returns the width of the board.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the board.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the height of a column.
+     *
+     * @param theX the column
+     * @return one above its highest filled cell, 0 for an empty column
+     */
+    public int getColumnHeight(final int theX) {
+        return myHeights[theX];
+    }
+
+    /**
+     * Returns the sum of all column heights.
+     *
+     * @return the aggregate height
+     */
+    public int getAggregateHeight() {
+        return myAggregateHeight;
+    }
+
+    /**
+     * Returns the number of empty cells that have a filled cell above them.
+     *
+     * @return the holes
+     */
+    public int getHoles() {
+        // every cell below a column's height that is not filled is a hole
+        return myAggregateHeight - myCells;
+    }
+
+    /**
+     * Returns the sum of the height differences of adjacent columns.
+     *
+     * @return the bumpiness
+     */
+    public int getBumpiness() {
+        return myBumpiness;
+    }
+
+    /**
+     * Returns the number of times a cell and the cell next to it in a row
+     * differ, the walls counting as filled, summed over the rows that are not
+     * empty.
+     *
+     * @return the row transitions
+     */
+    public int getRowTransitions() {
+        return myRowTotal;
+    }
+
+    /**
+     * Returns the number of times a cell and the cell below it differ, the
+     * floor counting as filled, summed over the columns.
+     *
+     * @return the column transitions
+     */
+    public int getColumnTransitions() {
+        return myColumnTotal;
+    }
+
+    /**
+     * Returns the sum of the well depths: how far each column is below the
+     * lower of its neighbours, the walls counting as the height of the board.
+     *
+     * @return the well depths
+     */
+    public int getWellDepths() {
+        return myWells;
+    }
+
+    /**
+     * Saves the heights, the totals and a range of rows before a placement
+     * changes them.
+     *
+     * @param theFrom the first row the placement changes
+     * @param theTo one past the last row it changes, possibly off the board
+     */
+    private void save(final int theFrom, final int theTo) {
+        mySavedFrom = theFrom;
+        mySavedTo = theFrom;
+        saveRows(theTo);
+        System.arraycopy(myHeights, 0, mySavedHeights, 0, myWidth);
+        mySavedTotals[0] = myCells;
+        mySavedTotals[1] = myAggregateHeight;
+        mySavedTotals[2] = myBumpiness;
+        mySavedTotals[3] = myWells;
+        mySavedTotals[4] = myRowTotal;
+        mySavedTotals[5] = myColumnTotal;
+    }
+
+    /**
+     * Saves more rows, up to a row, unless they are saved already.
+     *
+     * @param theTo one past the last row to save, possibly off the board
+     */
+    private void saveRows(final int theTo) {
+        final int to = Math.min(theTo, myHeight);
+        if (to > mySavedTo) {
+            final int length = to - mySavedTo;
+            System.arraycopy(myRows, mySavedTo, mySavedRows, mySavedTo, length);
+            System.arraycopy(myRowTransitions, mySavedTo, mySavedRowTransitions, mySavedTo,
+                             length);
+            System.arraycopy(myColumnTransitions, mySavedTo, mySavedColumnTransitions,
+                             mySavedTo, length);
+            mySavedTo = to;
+        }
+    }
+
+    /**
+     * Removes full rows, moving the rows above them down to the top of the
+     * stack. A full row has no row transitions, so the row transition total
+     * stays as it is. Every full row is at or below the top of every column,
+     * so each column drops by the number of rows removed, and then past any
+     * empty cells that were below a removed top cell.
+     *
+     * @param theFrom a row at or below the lowest full row
+     * @return the number of rows removed
+     */
+    private int clearLines(final int theFrom) {
+        int top = 0;
+        for (final int height : myHeights) {
+            top = Math.max(top, height);
+        }
+        // the moved rows and the column transitions of the row above them
+        saveRows(top + 1);
+        int kept = theFrom;
+        for (int y = theFrom; y < top; y++) {
+            if (myRows[y] != myFull) {
+                myRows[kept] = myRows[y];
+                myRowTransitions[kept] = myRowTransitions[y];
+                kept++;
+            }
+        }
+        Arrays.fill(myRows, kept, top, 0);
+        Arrays.fill(myRowTransitions, kept, top, 0);
+        for (int y = theFrom; y < Math.min(top + 1, myHeight); y++) {
+            updateColumns(y);
+        }
+        final int cleared = top - kept;
+        myAggregateHeight = 0;
+        for (int x = 0; x < myWidth; x++) {
+            int height = myHeights[x] - cleared;
+            while (height > 0 && (myRows[height - 1] & 1L << x) == 0) {
+                height--;
+            }
+            myHeights[x] = height;
+            myAggregateHeight += height;
+        }
+        myCells -= cleared * myWidth;
+        myBumpiness = bumpiness(0, myWidth - 1);
+        myWells = wells(0, myWidth - 1);
+        return cleared;
+    }
+
+    /**
+     * Computes every feature from the rows.
+     */
+    private void rebuild() {
+        Arrays.fill(myHeights, 0);
+        long seen = 0;
+        for (int y = myHeight - 1; y >= 0; y--) {
+            long top = myRows[y] & ~seen;
+            while (top != 0) {
+                myHeights[Long.numberOfTrailingZeros(top)] = y + 1;
+                top &= top - 1;
+            }
+            seen |= myRows[y];
+        }
+        myCells = 0;
+        myRowTotal = 0;
+        myColumnTotal = 0;
+        Arrays.fill(myRowTransitions, 0);
+        Arrays.fill(myColumnTransitions, 0);
+        for (int y = 0; y < myHeight; y++) {
+            myCells += Long.bitCount(myRows[y]);
+            updateRow(y);
+        }
+        myAggregateHeight = 0;
+        for (final int height : myHeights) {
+            myAggregateHeight += height;
+        }
+        myBumpiness = bumpiness(0, myWidth - 1);
+        myWells = wells(0, myWidth - 1);
+    }
+
+    /**
+     * Recounts the transitions of a row and the column transitions to the rows
+     * below and above it.
+     *
+     * @param theY the row
+     */
+    private void updateRow(final int theY) {
+        final long row = myRows[theY];
+        int transitions = 0;
+        if (row != 0) {
+            transitions = Long.bitCount((row ^ row >>> 1) & myFull >>> 1)
+                          + (int) (~row & 1) + (int) (~row >>> myWidth - 1 & 1);
+        }
+        myRowTotal += transitions - myRowTransitions[theY];
+        myRowTransitions[theY] = transitions;
+        updateColumns(theY);
+        if (theY + 1 < myHeight) {
+            updateColumns(theY + 1);
+        }
+    }
+
+    /**
+     * Recounts the column transitions between a row and the row below it.
+     *
+     * @param theY the row
+     */
+    private void updateColumns(final int theY) {
+        long below = myFull;
+        if (theY > 0) {
+            below = myRows[theY - 1];
+        }
+        final int transitions = Long.bitCount(myRows[theY] ^ below);
+        myColumnTotal += transitions - myColumnTransitions[theY];
+        myColumnTransitions[theY] = transitions;
+    }
+
+    /**
+     * Sums the height differences of adjacent columns from a column to the
+     * one after another, leaving out pairs off the board.
+     *
+     * @param theFrom the left column of the first pair
+     * @param theTo the left column of the last pair
+     * @return the bumpiness of the pairs
+     */
+    private int bumpiness(final int theFrom, final int theTo) {
+        int result = 0;
+        for (int x = Math.max(theFrom, 0); x <= Math.min(theTo, myWidth - 2); x++) {
+            result += Math.abs(myHeights[x] - myHeights[x + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Sums the well depths of a range of columns, leaving out columns off the
+     * board.
+     *
+     * @param theFrom the first column
+     * @param theTo the last column
+     * @return the well depths of the columns
+     */
+    private int wells(final int theFrom, final int theTo) {
+        int result = 0;
+        for (int x = Math.max(theFrom, 0); x <= Math.min(theTo, myWidth - 1); x++) {
+            result += Math.max(0, Math.min(heightOf(x - 1), heightOf(x + 1)) - myHeights[x]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the height of a column, or of the board for the walls.
+     *
+     * @param theX the column, possibly a wall
+     * @return the height
+     */
+    private int heightOf(final int theX) {
+        int result = myHeight;
+        if (theX >= 0 && theX < myWidth) {
+            result = myHeights[theX];
+        }
+        return result;
+    }
+}
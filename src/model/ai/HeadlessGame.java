@@ -0,0 +1,128 @@
+package model.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.ScoringEngine;
+import model.SeededPieces;
+import model.TetrisBoard;
+import model.TetrisPiece;
+
+/**
+ * Plays complete games of Tetris with a {@link Bot} without any user interface.
+ * <p>
+ * Every game is played on its own TetrisBoard with pieces generated from a
+ * seed as they are needed, so a game can be repeated exactly and different Bots can be
+ * compared on the same pieces. Games on different threads do not share state.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class HeadlessGame {
+
+    private HeadlessGame() {
+        super();
+    }
+
+    /**
+     * Plays one seeded game until the game is over or the piece limit is reached.
+     *
+     * @param theBot the Bot that plays the game
+     * @param theSeed the seed of the piece sequence
+     * @param theMaxPieces the most pieces to play
+     * @return the lines cleared, pieces placed and score of the game
+     */
+    public static Result play(final Bot theBot, final long theSeed, final int theMaxPieces) {
+        final TetrisBoard board = TetrisBoard.createBoard();
+        board.setPieceSource(new SeededPieces(theSeed));
+        board.newGame();
+        int pieces = 0;
+        while (pieces < theMaxPieces && !board.isGameOver()) {
+            theBot.play(board);
+            pieces++;
+        }
+        final ScoringEngine scoring = board.getScoring();
+        return new Result(scoring.getLines(), pieces, scoring.getScore());
+    }
+
+    /**
+     * Generates a seeded random piece sequence, the first pieces of a
+     * {@link SeededPieces} with the seed.
+     *
+     * @param theSeed the seed
+     * @param theLength the number of pieces
+     * @return the piece sequence
+     */
+    public static List<TetrisPiece> sequence(final long theSeed, final int theLength) {
+        final SeededPieces pieces = new SeededPieces(theSeed);
+        final List<TetrisPiece> result = new ArrayList<>(theLength + 1);
+        for (int i = 0; i <= theLength; i++) {
+            result.add(pieces.nextPiece());
+        }
+        return result;
+    }
+
+    /**
+     * The outcome of a headless game.
+     */
+    public static final class Result {
+        /**
+         * The number of lines cleared.
+         */
+        private final int myLines;
+        /**
+         * The number of pieces placed before the game ended.
+         */
+        private final int myPieces;
+        /**
+         * The score of the game.
+         */
+        private final long myScore;
+
+        /**
+         * Creates a Result.
+         *
+         * @param theLines the number of lines cleared
+         * @param thePieces the number of pieces placed
+         * @param theScore the score
+         */
+        public Result(final int theLines, final int thePieces, final long theScore) {
+            super();
+            myLines = theLines;
+            myPieces = thePieces;
+            myScore = theScore;
+        }
+
+        /**
+         * Returns the number of lines cleared.
+         *
+         * @return the lines cleared
+         */
+        public int getLines() {
+            return myLines;
+        }
+
+        /**
+         * Returns the number of pieces placed, which measures how long the Bot survived.
+         *
+         * @return the pieces placed
+         */
+        public int getPieces() {
+            return myPieces;
+        }
+
+        /**
+         * Returns the score, as kept by the board's {@link ScoringEngine}.
+         *
+         * @return the score
+         */
+        public long getScore() {
+            return myScore;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Result[lines=%d, pieces=%d, score=%d]", myLines, myPieces,
+                                 myScore);
+        }
+    }
+}
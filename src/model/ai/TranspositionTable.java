@@ -0,0 +1,385 @@
+package model.ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import model.Block;
+import model.TetrisPiece;
+
+/**
+ * A fixed size, lock-free cache of placement evaluations shared between search threads.
+ * <p>
+ * Entries are keyed by a hash of the frozen blocks plus the TetrisPiece to be
+ * placed on them next. The table is one open-addressed {@code long[]} split into
+ * buckets of {@value #BUCKET_SLOTS} slots; every slot holds two longs, the score as
+ * a full double, and the top 48 bits of the key with the depth and search
+ * generation in the low 16 bits, xor'ed with the score. A reader only accepts a
+ * slot whose two words still xor back to its key, so a torn write from a racing
+ * thread reads as a miss instead of a wrong evaluation and no locks are needed.
+ * A hit returns exactly the score that was stored, so a search gets the same
+ * result whether or not another thread got there first.
+ * <p>
+ * When a bucket is full the slot with the lowest depth, aged by how many searches
+ * ago it was written, is replaced. {@link #newSearch()} starts a new generation.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class TranspositionTable {
+    /**
+     * Default size of the table in megabytes.
+     */
+    public static final int DEFAULT_MEGABYTES = 16;
+    /**
+     * Number of slots probed in a single bucket (one 64 byte cache line).
+     */
+    private static final int BUCKET_SLOTS = 4;
+    /**
+     * Number of longs used by one slot.
+     */
+    private static final int SLOT_LONGS = 2;
+    /**
+     * Number of longs used by one bucket.
+     */
+    private static final int BUCKET_LONGS = BUCKET_SLOTS * SLOT_LONGS;
+    /**
+     * Number of bytes in a megabyte.
+     */
+    private static final long BYTES_PER_MEGABYTE = 1L << 20;
+    /**
+     * Largest number of buckets a single long array can hold.
+     */
+    private static final int MAX_BUCKETS = Integer.highestOneBit(Integer.MAX_VALUE / 16);
+    /**
+     * Bit offset of the search generation inside an entry's check word; the
+     * depth is in the bits below it.
+     */
+    private static final int AGE_SHIFT = 8;
+    /**
+     * Mask for the depth in the check word.
+     */
+    private static final int DEPTH_MASK = 0xFF;
+    /**
+     * Mask for the search generation after shifting it down.
+     */
+    private static final int AGE_MASK = 0x7F;
+    /**
+     * Flag bit marking a check word as written so that an all zero slot reads as empty.
+     */
+    private static final long USED = 1L << 15;
+    /**
+     * The bits of the check word that hold the key; the rest hold the depth,
+     * the generation and the used flag.
+     */
+    private static final long KEY_BITS = -1L << 16;
+    /**
+     * Multiplier used to mix hashes (the 64 bit golden ratio).
+     */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    /**
+     * Opaque access to the table words so a long is never split on 32 bit platforms.
+     */
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The table storage, {@value #BUCKET_LONGS} longs per bucket.
+     */
+    private final long[] myTable;
+    /**
+     * Mask used to turn a key into a bucket index.
+     */
+    private final int myBucketMask;
+    /**
+     * The current search generation, used to age out old entries.
+     */
+    private final AtomicInteger myAge;
+    /**
+     * Number of probes that found a usable entry.
+     */
+    private final LongAdder myHits;
+    /**
+     * Number of probes that did not find a usable entry.
+     */
+    private final LongAdder myMisses;
+    /**
+     * Number of stores that overwrote an entry for a different key.
+     */
+    private final LongAdder myReplacements;
+
+    /**
+     * Creates a table using {@value #DEFAULT_MEGABYTES} megabytes.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Creates a table that uses at most the given number of megabytes.
+     * The number of buckets is rounded down to a power of two.
+     *
+     * @param theMegabytes the memory budget of the table
+     * @throws IllegalArgumentException if theMegabytes is less than 1
+     */
+    public TranspositionTable(final int theMegabytes) {
+        super();
+        if (theMegabytes < 1) {
+            throw new IllegalArgumentException("The table needs at least 1 megabyte");
+        }
+        final long buckets = theMegabytes * BYTES_PER_MEGABYTE / (BUCKET_LONGS * Long.BYTES);
+        final int count = (int) Math.min(Long.highestOneBit(buckets), MAX_BUCKETS);
+        myTable = new long[count * BUCKET_LONGS];
+        myBucketMask = count - 1;
+        myAge = new AtomicInteger();
+        myHits = new LongAdder();
+        myMisses = new LongAdder();
+        myReplacements = new LongAdder();
+    }
+
+    /**
+     * Hashes the occupancy of a list of board rows. The block types are ignored
+     * since evaluations only depend on which cells are filled.
+     *
+     * @param theRows the rows of the board, bottom row first
+     * @return the hash of the board
+     */
+    public static long boardHash(final List<Block[]> theRows) {
+        long hash = 0;
+        for (final Block[] row : theRows) {
+            long bits = 0;
+            for (int x = 0; x < row.length; x++) {
+                if (row[x] != null) {
+                    bits |= 1L << (x & (Long.SIZE - 1));
+                }
+            }
+            hash = mix(hash ^ bits);
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a board given as one occupancy bit mask per row.
+     * Equal boards hash the same as {@link #boardHash(List)} does.
+     *
+     * @param theRows the occupancy of each row, bottom row first
+     * @return the hash of the board
+     */
+    public static long boardHash(final long... theRows) {
+        long hash = 0;
+        for (final long row : theRows) {
+            hash = mix(hash ^ row);
+        }
+        return hash;
+    }
+
+    /**
+     * Combines a board hash with the piece to be placed on it into a table key.
+     * The pieces placed before do not matter, so the same position reached by
+     * placing pieces in a different order has the same key.
+     *
+     * @param theBoardHash the hash of the frozen blocks
+     * @param thePiece the piece to be placed on them
+     * @return the key for the position
+     */
+    public static long key(final long theBoardHash, final TetrisPiece thePiece) {
+        return mix(theBoardHash + (thePiece.ordinal() + 1) * GOLDEN);
+    }
+
+    /**
+     * Looks up the score stored for a key.
+     *
+     * @param theKey the key of the position
+     * @param theMinDepth the smallest search depth that is acceptable
+     * @return the stored score, or {@link Double#NaN} when there is no usable entry
+     */
+    public double probe(final long theKey, final int theMinDepth) {
+        final int base = bucket(theKey);
+        double result = Double.NaN;
+        for (int i = base; i < base + BUCKET_LONGS; i += SLOT_LONGS) {
+            final long score = (long) WORDS.getOpaque(myTable, i + 1);
+            final long meta = (long) WORDS.getOpaque(myTable, i) ^ score;
+            if (matches(meta, theKey) && depth(meta) >= theMinDepth) {
+                result = Double.longBitsToDouble(score);
+                break;
+            }
+        }
+        if (Double.isNaN(result)) {
+            myMisses.increment();
+        } else {
+            myHits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Stores a score for a key. An existing entry for the same key is only
+     * overwritten by a search of at least the same depth.
+     *
+     * @param theKey the key of the position
+     * @param theScore the evaluation of the position
+     * @param theDepth the search depth that produced the evaluation (0 to 255)
+     */
+    public void store(final long theKey, final double theScore, final int theDepth) {
+        final int age = myAge.get() & AGE_MASK;
+        final int base = bucket(theKey);
+        int victim = base;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_LONGS; i += SLOT_LONGS) {
+            final long meta = (long) WORDS.getOpaque(myTable, i)
+                              ^ (long) WORDS.getOpaque(myTable, i + 1);
+            final boolean used = (meta & USED) != 0;
+            if (!used || matches(meta, theKey)) {
+                if (used && depth(meta) > theDepth && age(meta) == age) {
+                    return;
+                }
+                write(i, theKey, theScore, theDepth, age);
+                return;
+            }
+            final int worth = depth(meta) - ((age - age(meta)) & AGE_MASK);
+            if (worth < victimWorth) {
+                victimWorth = worth;
+                victim = i;
+            }
+        }
+        myReplacements.increment();
+        write(victim, theKey, theScore, theDepth, age);
+    }
+
+    /**
+     * Starts a new search generation so that entries from older searches
+     * are replaced first.
+     */
+    public void newSearch() {
+        myAge.incrementAndGet();
+    }
+
+    /**
+     * Empties the table and resets the counters.
+     */
+    public void clear() {
+        for (int i = 0; i < myTable.length; i++) {
+            WORDS.setOpaque(myTable, i, 0L);
+        }
+        myHits.reset();
+        myMisses.reset();
+        myReplacements.reset();
+    }
+
+    /**
+     * Returns the number of successful probes.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return myHits.sum();
+    }
+
+    /**
+     * Returns the number of failed probes.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return myMisses.sum();
+    }
+
+    /**
+     * Returns the number of entries that were evicted by a different key.
+     *
+     * @return the replacement count
+     */
+    public long getReplacements() {
+        return myReplacements.sum();
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     *
+     * @return the capacity of the table
+     */
+    public int getCapacity() {
+        return myTable.length / SLOT_LONGS;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[capacity=%d, hits=%d, misses=%d, "
+                             + "replacements=%d]", getCapacity(), getHits(), getMisses(),
+                             getReplacements());
+    }
+
+    /**
+     * Writes an entry into a slot.
+     *
+     * @param theIndex index of the slot's first word
+     * @param theKey the key of the position
+     * @param theScore the evaluation of the position
+     * @param theDepth the search depth
+     * @param theAge the current search generation
+     */
+    private void write(final int theIndex, final long theKey, final double theScore,
+                       final int theDepth, final int theAge) {
+        final long score = Double.doubleToRawLongBits(theScore);
+        final long meta = theKey & KEY_BITS | USED
+                          | (long) (theAge & AGE_MASK) << AGE_SHIFT
+                          | theDepth & DEPTH_MASK;
+        WORDS.setOpaque(myTable, theIndex, meta ^ score);
+        WORDS.setOpaque(myTable, theIndex + 1, score);
+    }
+
+    /**
+     * Tells whether a check word, with the score xor'ed out, was written for a key.
+     *
+     * @param theMeta the check word xor the score word
+     * @param theKey the key of the position
+     * @return true if the slot is used and holds the key
+     */
+    private static boolean matches(final long theMeta, final long theKey) {
+        return (theMeta & USED) != 0 && ((theMeta ^ theKey) & KEY_BITS) == 0;
+    }
+
+    /**
+     * Finds the first word of the bucket for a key.
+     *
+     * @param theKey the key of the position
+     * @return the index of the bucket in the table
+     */
+    private int bucket(final long theKey) {
+        // the low bits pick the bucket and the high bits are checked, so they do not overlap
+        return ((int) theKey & myBucketMask) * BUCKET_LONGS;
+    }
+
+    /**
+     * Extracts the depth from a check word with the score xor'ed out.
+     *
+     * @param theMeta the check word xor the score word
+     * @return the stored depth
+     */
+    private static int depth(final long theMeta) {
+        return (int) theMeta & DEPTH_MASK;
+    }
+
+    /**
+     * Extracts the search generation from a check word with the score xor'ed out.
+     *
+     * @param theMeta the check word xor the score word
+     * @return the stored generation
+     */
+    private static int age(final long theMeta) {
+        return (int) (theMeta >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /**
+     * Scrambles the bits of a hash (the finalizer of SplitMix64).
+     *
+     * @param theValue the value to mix
+     * @return the mixed value
+     */
+    private static long mix(final long theValue) {
+        long z = theValue;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
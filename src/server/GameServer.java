@@ -0,0 +1,349 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent headless games over TCP, one per connection.
+ * <p>
+ * Every connection gets its own board and is driven by its own virtual thread,
+ * which runs the game at {@link #TICKS_PER_SECOND} ticks per second against
+ * fixed deadlines: it applies the inputs received since the last tick, lets
+ * gravity act, and sends the client what changed using {@link Protocol}. A
+ * second virtual thread per connection only reads input bytes. Because virtual
+ * threads are cheap the number of games is limited by CPU and sockets, not by
+ * threads. The server counts ticks and ticks that missed their deadline so the
+ * number of games one JVM can sustain can be measured. Spectators may watch any
+ * running game through a {@link SpectatorBroadcaster}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class GameServer implements Closeable {
+    /**
+     * The rate every game is ticked at.
+     */
+    public static final int TICKS_PER_SECOND = 60;
+    /**
+     * Nanoseconds between ticks.
+     */
+    static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / TICKS_PER_SECOND;
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Number of connections that may wait to be accepted.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * The listening socket, bound to the loopback address.
+     */
+    private final ServerSocket mySocket;
+    /**
+     * Width of every board.
+     */
+    private final int myWidth;
+    /**
+     * Height of every board.
+     */
+    private final int myHeight;
+    /**
+     * Ticks between gravity steps.
+     */
+    private final int myGravity;
+    /**
+     * Id of the next game.
+     */
+    private final AtomicInteger myNextId;
+    /**
+     * Games currently running.
+     */
+    private final AtomicInteger myGames;
+    /**
+     * Ticks run by all games.
+     */
+    private final LongAdder myTicks;
+    /**
+     * Ticks that started after their deadline had passed by a whole tick.
+     */
+    private final LongAdder myLateTicks;
+    /**
+     * Bytes sent to all clients.
+     */
+    private final LongAdder myBytes;
+    /**
+     * The spectator broadcaster of every running game, by game id.
+     */
+    private final Map<Integer, SpectatorBroadcaster> myBroadcasters;
+    /**
+     * The listening spectator socket, or null if spectators are not accepted.
+     */
+    private ServerSocketChannel mySpectatorSocket;
+    /**
+     * The thread accepting connections.
+     */
+    private Thread myAcceptor;
+
+    /**
+     * Creates a server listening on the loopback address.
+     *
+     * @param thePort the port, or 0 for any free port
+     * @param theWidth the width of every board
+     * @param theHeight the height of every board
+     * @param theGravity the ticks between gravity steps
+     * @throws IOException if the port can not be bound
+     */
+    public GameServer(final int thePort, final int theWidth, final int theHeight,
+                      final int theGravity) throws IOException {
+        super();
+        mySocket = new ServerSocket(thePort, BACKLOG, InetAddress.getLoopbackAddress());
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myGravity = theGravity;
+        myNextId = new AtomicInteger();
+        myGames = new AtomicInteger();
+        myTicks = new LongAdder();
+        myLateTicks = new LongAdder();
+        myBytes = new LongAdder();
+        myBroadcasters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts accepting connections on a new thread.
+     */
+    public synchronized void start() {
+        if (myAcceptor == null) {
+            myAcceptor = Thread.ofPlatform().name("game-server-accept").daemon()
+                    .start(this::accept);
+        }
+    }
+
+    /**
+     * Starts accepting spectators on a second loopback port. A spectator sends
+     * the id of a game as a big endian i32 and then receives the same frames
+     * as its player, starting with a hello frame and a keyframe.
+     *
+     * @param thePort the port, or 0 for any free port
+     * @return the port spectators connect to
+     * @throws IOException if the port can not be bound
+     */
+    public synchronized int startSpectators(final int thePort) throws IOException {
+        if (mySpectatorSocket == null) {
+            mySpectatorSocket = ServerSocketChannel.open();
+            mySpectatorSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                                         thePort), BACKLOG);
+            Thread.ofPlatform().name("game-server-spectators").daemon()
+                    .start(this::acceptSpectators);
+        }
+        return ((InetSocketAddress) mySpectatorSocket.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the spectator broadcaster of a running game.
+     *
+     * @param theId the id of the game
+     * @return the broadcaster, or null if the game is not running
+     */
+    public SpectatorBroadcaster getBroadcaster(final int theId) {
+        return myBroadcasters.get(theId);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return mySocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of games currently running.
+     *
+     * @return the number of games
+     */
+    public int getGames() {
+        return myGames.get();
+    }
+
+    /**
+     * Returns the number of ticks run by all games.
+     *
+     * @return the number of ticks
+     */
+    public long getTicks() {
+        return myTicks.sum();
+    }
+
+    /**
+     * Returns the number of ticks that started a whole tick late.
+     *
+     * @return the number of late ticks
+     */
+    public long getLateTicks() {
+        return myLateTicks.sum();
+    }
+
+    /**
+     * Returns the number of bytes sent to all clients.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return myBytes.sum();
+    }
+
+    /**
+     * Stops accepting connections. Running games end when their clients disconnect.
+     *
+     * @throws IOException if the socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        mySocket.close();
+        synchronized (this) {
+            if (mySpectatorSocket != null) {
+                mySpectatorSocket.close();
+            }
+        }
+    }
+
+    /**
+     * Accepts connections until the socket is closed and starts a game for each.
+     */
+    private void accept() {
+        try {
+            while (!mySocket.isClosed()) {
+                final Socket client = mySocket.accept();
+                client.setTcpNoDelay(true);
+                final int id = myNextId.incrementAndGet();
+                Thread.ofVirtual().name("game-" + id)
+                        .start(new GameSession(id, client, this));
+            }
+        } catch (final IOException e) {
+            if (!mySocket.isClosed()) {
+                LOGGER.log(Level.WARNING, "Game server stopped accepting", e);
+            }
+        }
+    }
+
+    /**
+     * Accepts spectators until the socket is closed and hands each one to the
+     * broadcaster of the game it asks for.
+     */
+    private void acceptSpectators() {
+        try {
+            while (mySpectatorSocket.isOpen()) {
+                final SocketChannel spectator = mySpectatorSocket.accept();
+                spectator.socket().setTcpNoDelay(true);
+                Thread.ofVirtual().name("spectator-handshake").start(() -> watch(spectator));
+            }
+        } catch (final IOException e) {
+            if (mySpectatorSocket.isOpen()) {
+                LOGGER.log(Level.WARNING, "Game server stopped accepting spectators", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the game id a spectator asks for and subscribes it to that game.
+     *
+     * @param theSpectator the connection to the spectator
+     */
+    private void watch(final SocketChannel theSpectator) {
+        final ByteBuffer id = ByteBuffer.allocate(Integer.BYTES);
+        try {
+            while (id.hasRemaining() && theSpectator.read(id) >= 0) {
+                // keep reading until the id is complete
+            }
+            final SpectatorBroadcaster broadcaster = myBroadcasters.get(id.getInt(0));
+            if (id.hasRemaining() || broadcaster == null) {
+                theSpectator.close();
+            } else {
+                broadcaster.subscribe(theSpectator);
+            }
+        } catch (final IOException e) {
+            // the spectator went away during the handshake
+        }
+    }
+
+    /**
+     * Returns the width of every board.
+     *
+     * @return the width
+     */
+    int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of every board.
+     *
+     * @return the height
+     */
+    int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the ticks between gravity steps.
+     *
+     * @return the gravity
+     */
+    int getGravity() {
+        return myGravity;
+    }
+
+    /**
+     * Records that a game started so spectators can find it.
+     *
+     * @param theId the id of the game
+     * @param theBroadcaster the spectator broadcaster of the game
+     */
+    void gameStarted(final int theId, final SpectatorBroadcaster theBroadcaster) {
+        myGames.incrementAndGet();
+        myBroadcasters.put(theId, theBroadcaster);
+    }
+
+    /**
+     * Records that a game ended.
+     *
+     * @param theId the id of the game
+     */
+    void gameEnded(final int theId) {
+        myBroadcasters.remove(theId);
+        myGames.decrementAndGet();
+    }
+
+    /**
+     * Records one tick of a game.
+     *
+     * @param theLate whether the tick started a whole tick late
+     * @param theBytes the bytes sent in the tick
+     */
+    void ticked(final boolean theLate, final int theBytes) {
+        myTicks.increment();
+        if (theLate) {
+            myLateTicks.increment();
+        }
+        if (theBytes > 0) {
+            myBytes.add(theBytes);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import model.Block;
+import model.Board;
+import model.BoardState;
+import model.TetrisBoard;
+
+/**
+ * One game on the server: a board, the connection to its client and the loop
+ * that ticks it. The board is only touched by the thread running this session;
+ * the reader thread only queues input bytes.
+ * <p>
+ * The session remembers the rows it last sent, so that a tick in which the
+ * board changed sends only the piece state and the rows that differ. The same
+ * frames are published once to the game's spectators.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+final class GameSession implements Runnable {
+    /**
+     * The id of the game.
+     */
+    private final int myId;
+    /**
+     * The connection to the client.
+     */
+    private final Socket mySocket;
+    /**
+     * The server hosting the game.
+     */
+    private final GameServer myServer;
+    /**
+     * The game.
+     */
+    private final TetrisBoard myBoard;
+    /**
+     * Inputs received from the client and not yet applied.
+     */
+    private final Queue<Integer> myInputs;
+    /**
+     * The rows as last sent to the client, one byte per cell.
+     */
+    private final byte[][] mySent;
+    /**
+     * Scratch space for encoding one row.
+     */
+    private final byte[] myRow;
+    /**
+     * The frames of the current tick.
+     */
+    private final ByteBuffer myFrame;
+    /**
+     * Scratch space for keyframes sent only to spectators.
+     */
+    private final ByteBuffer myKeyframe;
+    /**
+     * Sends the frames of this game to its spectators.
+     */
+    private final SpectatorBroadcaster myBroadcaster;
+    /**
+     * The stack the rows last sent were encoded from. Rows the board's stack
+     * still shares with it are unchanged and are not encoded again.
+     */
+    private BoardState mySentState;
+    /**
+     * The tick number.
+     */
+    private int myTick;
+    /**
+     * Lines cleared in the current game.
+     */
+    private int myLines;
+    /**
+     * Whether the piece state changed since the last frame.
+     */
+    private boolean myPieceChanged;
+    /**
+     * Whether the rows may have changed since the last frame.
+     */
+    private boolean myRowsChanged;
+    /**
+     * Whether the game over frame has been sent.
+     */
+    private boolean myGameOverSent;
+    /**
+     * Whether the frames of this tick start with a keyframe.
+     */
+    private boolean myStartsWithKeyframe;
+    /**
+     * Whether the client is still connected.
+     */
+    private volatile boolean myRunning;
+
+    /**
+     * Creates a session with a new game.
+     *
+     * @param theId the id of the game
+     * @param theSocket the connection to the client
+     * @param theServer the server hosting the game
+     */
+    GameSession(final int theId, final Socket theSocket, final GameServer theServer) {
+        super();
+        myId = theId;
+        mySocket = theSocket;
+        myServer = theServer;
+        myBoard = TetrisBoard.createBoard(theServer.getWidth(), theServer.getHeight());
+        myInputs = new ConcurrentLinkedQueue<>();
+        mySent = new byte[theServer.getHeight()][theServer.getWidth()];
+        myRow = new byte[theServer.getWidth()];
+        final int frameBytes = Protocol.maxFrameBytes(theServer.getWidth(),
+                                                      theServer.getHeight());
+        myFrame = ByteBuffer.allocate(2 * frameBytes);
+        myKeyframe = ByteBuffer.allocate(frameBytes);
+        myBoard.addPropertyChangeListener(e -> myPieceChanged = true,
+                                          Board.PROPERTY_CURRENT_PIECE);
+        myBoard.addPropertyChangeListener(e -> myRowsChanged = true,
+                                          Board.PROPERTY_BOARD_CHANGE);
+        myBoard.addPropertyChangeListener(e -> myLines += (int) e.getNewValue(),
+                                          Board.PROPERTY_ROW_CLEARED);
+        myRunning = true;
+        hello(myKeyframe);
+        myBroadcaster = new SpectatorBroadcaster(myKeyframe.flip());
+    }
+
+    /**
+     * Runs the game until the client disconnects.
+     */
+    @Override
+    public void run() {
+        myServer.gameStarted(myId, myBroadcaster);
+        myBoard.getMetrics().setGravityMillis(
+                TimeUnit.NANOSECONDS.toMillis(GameServer.TICK_NANOS * myServer.getGravity()));
+        myBoard.getMetrics().register();
+        try (mySocket) {
+            final InputStream in = mySocket.getInputStream();
+            final OutputStream out = new BufferedOutputStream(mySocket.getOutputStream(),
+                                                              myFrame.capacity());
+            Thread.ofVirtual().name("game-" + myId + "-input").start(() -> read(in));
+            hello(myFrame);
+            newGame();
+            out.write(myFrame.array(), 0, myFrame.position());
+            out.flush();
+            myFrame.clear();
+            long deadline = System.nanoTime();
+            while (myRunning) {
+                tick();
+                final int bytes = myFrame.position();
+                broadcast(bytes);
+                if (bytes > 0) {
+                    out.write(myFrame.array(), 0, bytes);
+                    out.flush();
+                    myFrame.clear();
+                }
+                deadline += GameServer.TICK_NANOS;
+                final long wait = deadline - System.nanoTime();
+                final boolean late = wait < -GameServer.TICK_NANOS;
+                if (late) {
+                    // too far behind to catch up, so start counting again from now
+                    deadline = System.nanoTime();
+                } else if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                myServer.ticked(late, bytes);
+            }
+        } catch (final IOException e) {
+            // the client went away; the game simply ends
+        } finally {
+            myRunning = false;
+            myServer.gameEnded(myId);
+            myBroadcaster.close();
+            myBoard.getMetrics().unregister();
+        }
+    }
+
+    /**
+     * Queues input bytes until the client disconnects.
+     *
+     * @param theIn the input stream of the socket
+     */
+    private void read(final InputStream theIn) {
+        try {
+            int input = theIn.read();
+            while (input >= 0) {
+                myInputs.add(input);
+                input = theIn.read();
+            }
+        } catch (final IOException e) {
+            // treated like a disconnect
+        }
+        myRunning = false;
+    }
+
+    /**
+     * Runs one tick: applies the queued inputs, lets gravity act and writes
+     * the frames describing what changed.
+     */
+    private void tick() {
+        myTick++;
+        Integer input = myInputs.poll();
+        while (input != null) {
+            apply(input);
+            input = myInputs.poll();
+        }
+        if (!myBoard.isGameOver() && myTick % myServer.getGravity() == 0) {
+            myBoard.step();
+        }
+        if (myBoard.isGameOver()) {
+            if (!myGameOverSent) {
+                final int start = Protocol.begin(myFrame, Protocol.GAME_OVER);
+                myFrame.putInt(myTick).putInt(myLines);
+                Protocol.end(myFrame, start);
+                myGameOverSent = true;
+            }
+        } else if (myPieceChanged || myRowsChanged) {
+            delta();
+        }
+    }
+
+    /**
+     * Applies one input to the board.
+     *
+     * @param theInput the input code
+     */
+    private void apply(final int theInput) {
+        if (theInput == Protocol.INPUT_NEW_GAME) {
+            // the keyframe replaces anything already written in this tick
+            myFrame.clear();
+            newGame();
+            myStartsWithKeyframe = true;
+        } else if (!myBoard.isGameOver()) {
+            switch (theInput) {
+                case Protocol.INPUT_LEFT:
+                    myBoard.left();
+                    break;
+                case Protocol.INPUT_RIGHT:
+                    myBoard.right();
+                    break;
+                case Protocol.INPUT_DOWN:
+                    myBoard.down();
+                    break;
+                case Protocol.INPUT_ROTATE_CW:
+                    myBoard.rotateCW();
+                    break;
+                case Protocol.INPUT_ROTATE_CCW:
+                    myBoard.rotateCCW();
+                    break;
+                case Protocol.INPUT_DROP:
+                    myBoard.drop();
+                    break;
+                case Protocol.INPUT_HOLD:
+                    myBoard.hold();
+                    break;
+                default:
+                    // unknown inputs are ignored
+            }
+        }
+    }
+
+    /**
+     * Writes the hello frame.
+     *
+     * @param theBuffer the buffer to write to
+     */
+    private void hello(final ByteBuffer theBuffer) {
+        final int start = Protocol.begin(theBuffer, Protocol.HELLO);
+        theBuffer.put((byte) Protocol.VERSION).putInt(myId);
+        theBuffer.putShort((short) myBoard.getWidth()).putShort((short) myBoard.getHeight());
+        Protocol.end(theBuffer, start);
+    }
+
+    /**
+     * Starts a new game and writes a keyframe with its complete state.
+     */
+    private void newGame() {
+        myBoard.newGame();
+        mySentState = myBoard.getState();
+        myLines = 0;
+        myGameOverSent = false;
+        final List<Block[]> rows = mySentState.asList();
+        for (int y = 0; y < mySent.length; y++) {
+            Protocol.encodeRow(rows.get(y), mySent[y]);
+        }
+        keyframe(myFrame);
+        myPieceChanged = false;
+        myRowsChanged = false;
+    }
+
+    /**
+     * Writes a keyframe with the state last sent.
+     *
+     * @param theBuffer the buffer to write to
+     */
+    private void keyframe(final ByteBuffer theBuffer) {
+        final int start = Protocol.begin(theBuffer, Protocol.KEYFRAME);
+        Protocol.putPieceState(theBuffer, myTick, myBoard.getCurrentPiece(),
+                               myBoard.getNextPiece(), myLines);
+        for (final byte[] row : mySent) {
+            theBuffer.put(row);
+        }
+        Protocol.end(theBuffer, start);
+    }
+
+    /**
+     * Sends the frames of this tick to the spectators, followed by a keyframe
+     * when a spectator is waiting for one.
+     *
+     * @param theBytes the number of bytes of frames in this tick
+     */
+    private void broadcast(final int theBytes) {
+        if (myBroadcaster.hasSpectators()) {
+            myBroadcaster.publish(myFrame, 0, theBytes, myStartsWithKeyframe);
+            if (myBroadcaster.needsKeyframe()) {
+                myKeyframe.clear();
+                keyframe(myKeyframe);
+                myBroadcaster.publish(myKeyframe, 0, myKeyframe.position(), true);
+            }
+        }
+        myStartsWithKeyframe = false;
+    }
+
+    /**
+     * Writes a delta frame with the piece state and the rows that changed
+     * since the last frame.
+     */
+    private void delta() {
+        final int start = Protocol.begin(myFrame, Protocol.DELTA);
+        Protocol.putPieceState(myFrame, myTick, myBoard.getCurrentPiece(),
+                               myBoard.getNextPiece(), myLines);
+        final int countAt = myFrame.position();
+        myFrame.putShort((short) 0);
+        int count = 0;
+        if (myRowsChanged) {
+            final BoardState state = myBoard.getState();
+            final List<Block[]> rows = state.asList();
+            for (int y = 0; y < mySent.length; y++) {
+                if (!state.sharesRow(mySentState, y)) {
+                    Protocol.encodeRow(rows.get(y), myRow);
+                    if (!Arrays.equals(myRow, mySent[y])) {
+                        System.arraycopy(myRow, 0, mySent[y], 0, myRow.length);
+                        myFrame.putShort((short) y).put(myRow);
+                        count++;
+                    }
+                }
+            }
+            mySentState = state;
+        }
+        myFrame.putShort(countAt, (short) count);
+        Protocol.end(myFrame, start);
+        myPieceChanged = false;
+        myRowsChanged = false;
+    }
+}
@@ -0,0 +1,332 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connects many simulated players to a {@link GameServer} and measures how
+ * fast each of their games actually ticks.
+ * <p>
+ * Every client runs on two virtual threads: one sends a random input at the
+ * given rate and starts a new game when the last one ended, the other reads
+ * frames and remembers the first and last tick it saw. A game that keeps up
+ * advances {@link GameServer#TICKS_PER_SECOND} ticks per second, so the tick
+ * rates seen by the clients show whether the server sustains the load.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class LoadGenerator {
+    /**
+     * Fraction of the full tick rate a game must reach to count as keeping up.
+     */
+    public static final double KEEPING_UP = 0.95;
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Percent of a fraction.
+     */
+    private static final double PERCENT = 100.0;
+    /**
+     * Bytes in a kilobyte.
+     */
+    private static final double BYTES_PER_KB = 1024.0;
+    /**
+     * Number of different gameplay inputs, which are numbered from 1.
+     */
+    private static final int INPUTS = Protocol.INPUT_DROP;
+
+    /**
+     * The port of the server.
+     */
+    private final int myPort;
+    /**
+     * The number of clients.
+     */
+    private final int myClients;
+    /**
+     * Inputs each client sends per second.
+     */
+    private final int myInputRate;
+    /**
+     * Frames received by all clients.
+     */
+    private final LongAdder myFrames;
+    /**
+     * Bytes received by all clients.
+     */
+    private final LongAdder myBytes;
+
+    /**
+     * Creates a load generator for a server on the loopback address.
+     *
+     * @param thePort the port of the server
+     * @param theClients the number of clients
+     * @param theInputRate the inputs each client sends per second, at least 1
+     */
+    public LoadGenerator(final int thePort, final int theClients, final int theInputRate) {
+        super();
+        myPort = thePort;
+        myClients = theClients;
+        myInputRate = theInputRate;
+        myFrames = new LongAdder();
+        myBytes = new LongAdder();
+    }
+
+    /**
+     * Connects the clients, lets them play and disconnects them.
+     *
+     * @param theSeconds how long the clients play
+     * @return the measurements
+     * @throws IOException if a client can not connect
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Result run(final int theSeconds) throws IOException, InterruptedException {
+        final List<Client> clients = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < myClients; i++) {
+            final Client client = new Client(new Socket(InetAddress.getLoopbackAddress(),
+                                                        myPort));
+            clients.add(client);
+            threads.add(Thread.ofVirtual().start(client::receive));
+            threads.add(Thread.ofVirtual().start(client::send));
+        }
+        TimeUnit.SECONDS.sleep(theSeconds);
+        for (final Client client : clients) {
+            client.close();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final double[] rates = new double[clients.size()];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = clients.get(i).getTickRate();
+        }
+        return new Result(rates, myFrames.sum(), myBytes.sum(), theSeconds);
+    }
+
+    /**
+     * One simulated player.
+     */
+    private final class Client {
+        /**
+         * The connection to the server.
+         */
+        private final Socket mySocket;
+        /**
+         * Whether the game ended and a new one should be started.
+         */
+        private volatile boolean myGameOver;
+        /**
+         * Whether the client is closing.
+         */
+        private volatile boolean myClosed;
+        /**
+         * The first tick seen, or -1.
+         */
+        private int myFirstTick;
+        /**
+         * When the first tick was seen.
+         */
+        private long myFirstTime;
+        /**
+         * The last tick seen.
+         */
+        private int myLastTick;
+        /**
+         * When the last tick was seen.
+         */
+        private long myLastTime;
+
+        /**
+         * Creates a client.
+         *
+         * @param theSocket the connection to the server
+         * @throws IOException if the socket can not be configured
+         */
+        Client(final Socket theSocket) throws IOException {
+            super();
+            mySocket = theSocket;
+            mySocket.setTcpNoDelay(true);
+            myFirstTick = -1;
+        }
+
+        /**
+         * Sends random inputs until closed.
+         */
+        void send() {
+            final long pause = TimeUnit.SECONDS.toNanos(1) / myInputRate;
+            try {
+                final OutputStream out = mySocket.getOutputStream();
+                while (!myClosed) {
+                    int input = ThreadLocalRandom.current().nextInt(INPUTS) + 1;
+                    if (myGameOver) {
+                        myGameOver = false;
+                        input = Protocol.INPUT_NEW_GAME;
+                    }
+                    out.write(input);
+                    out.flush();
+                    TimeUnit.NANOSECONDS.sleep(pause);
+                }
+            } catch (final IOException | InterruptedException e) {
+                // closing
+            }
+        }
+
+        /**
+         * Reads frames until closed and records the ticks they carry.
+         */
+        void receive() {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(mySocket.getInputStream()))) {
+                while (!myClosed) {
+                    final int type = in.readUnsignedByte();
+                    final int length = in.readInt();
+                    int read = 0;
+                    if (type == Protocol.KEYFRAME || type == Protocol.DELTA
+                        || type == Protocol.GAME_OVER) {
+                        tick(in.readInt());
+                        read = Integer.BYTES;
+                    }
+                    if (type == Protocol.GAME_OVER) {
+                        myGameOver = true;
+                    }
+                    in.skipNBytes(length - read);
+                    myFrames.increment();
+                    myBytes.add(Protocol.HEADER_BYTES + length);
+                }
+            } catch (final IOException e) {
+                // closing
+            }
+        }
+
+        /**
+         * Records a tick.
+         *
+         * @param theTick the tick carried by a frame
+         */
+        private void tick(final int theTick) {
+            final long now = System.nanoTime();
+            if (myFirstTick < 0) {
+                myFirstTick = theTick;
+                myFirstTime = now;
+            }
+            myLastTick = theTick;
+            myLastTime = now;
+        }
+
+        /**
+         * Returns the ticks per second seen by this client.
+         *
+         * @return the tick rate, 0 if too few frames arrived
+         */
+        double getTickRate() {
+            double result = 0;
+            if (myLastTime > myFirstTime) {
+                result = (myLastTick - myFirstTick) * NANOS_PER_SECOND
+                         / (myLastTime - myFirstTime);
+            }
+            return result;
+        }
+
+        /**
+         * Disconnects the client.
+         */
+        void close() {
+            myClosed = true;
+            try {
+                mySocket.close();
+            } catch (final IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * The measurements of one run.
+     */
+    public static final class Result {
+        /**
+         * The tick rate seen by each client, sorted.
+         */
+        private final double[] myRates;
+        /**
+         * Frames received by all clients.
+         */
+        private final long myFrameCount;
+        /**
+         * Bytes received by all clients.
+         */
+        private final long myByteCount;
+        /**
+         * How long the clients played.
+         */
+        private final int mySeconds;
+
+        /**
+         * Creates a result.
+         *
+         * @param theRates the tick rate seen by each client
+         * @param theFrames frames received by all clients
+         * @param theBytes bytes received by all clients
+         * @param theSeconds how long the clients played
+         */
+        Result(final double[] theRates, final long theFrames, final long theBytes,
+               final int theSeconds) {
+            super();
+            myRates = theRates.clone();
+            Arrays.sort(myRates);
+            myFrameCount = theFrames;
+            myByteCount = theBytes;
+            mySeconds = theSeconds;
+        }
+
+        /**
+         * Returns the fraction of games that ticked at least
+         * {@link #KEEPING_UP} times the full rate.
+         *
+         * @return the fraction from 0 to 1
+         */
+        public double getKeepingUp() {
+            int count = 0;
+            for (final double rate : myRates) {
+                if (rate >= KEEPING_UP * GameServer.TICKS_PER_SECOND) {
+                    count++;
+                }
+            }
+            return (double) count / Math.max(1, myRates.length);
+        }
+
+        /**
+         * Returns a summary of the run.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            double median = 0;
+            double min = 0;
+            if (myRates.length > 0) {
+                median = myRates[myRates.length / 2];
+                min = myRates[0];
+            }
+            return String.format("%d games: median %.1f ticks/s, min %.1f ticks/s, "
+                                 + "%.1f%% keeping up, %.0f frames/s, %.1f KB/s",
+                                 myRates.length, median, min, getKeepingUp() * PERCENT,
+                                 (double) myFrameCount / mySeconds,
+                                 myByteCount / BYTES_PER_KB / mySeconds);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package server;
+
+import java.nio.ByteBuffer;
+import model.Block;
+import model.MovableTetrisPiece;
+import model.TetrisPiece;
+
+/**
+ * The binary protocol between the game server and its clients.
+ * <p>
+ * A client sends one byte per input: one of the {@code INPUT_*} codes. The
+ * server sends frames of the form {@code [type u8][length i32][payload]}, all
+ * numbers big endian:
+ * <dl>
+ * <dt>{@link #HELLO}</dt>
+ * <dd>version u8, game id i32, width u16, height u16</dd>
+ * <dt>{@link #KEYFRAME}</dt>
+ * <dd>the piece state, then every row bottom first as one byte per cell</dd>
+ * <dt>{@link #DELTA}</dt>
+ * <dd>the piece state, row count u16, then for each changed row its index u16
+ * and one byte per cell</dd>
+ * <dt>{@link #GAME_OVER}</dt>
+ * <dd>tick i32, lines i32</dd>
+ * </dl>
+ * The piece state is tick i32, current piece u8, rotation u8, x i16, y i16,
+ * next piece u8 and lines i32. Pieces are sent as their ordinal plus one with 0
+ * for none, and cells as the {@link Block} ordinal with 0 for empty.
+ * <p>
+ * A spectator sends the game id as an i32 instead of inputs and receives the
+ * hello frame, a keyframe and then the same frames as the player.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class Protocol {
+    /**
+     * The protocol version sent in the hello frame.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Frame sent once when a client connects.
+     */
+    public static final int HELLO = 1;
+    /**
+     * Frame holding the complete game state.
+     */
+    public static final int KEYFRAME = 2;
+    /**
+     * Frame holding the piece state and the rows that changed.
+     */
+    public static final int DELTA = 3;
+    /**
+     * Frame sent when the game ends.
+     */
+    public static final int GAME_OVER = 4;
+    /**
+     * Input moving the piece left.
+     */
+    public static final int INPUT_LEFT = 1;
+    /**
+     * Input moving the piece right.
+     */
+    public static final int INPUT_RIGHT = 2;
+    /**
+     * Input moving the piece down.
+     */
+    public static final int INPUT_DOWN = 3;
+    /**
+     * Input rotating the piece clockwise.
+     */
+    public static final int INPUT_ROTATE_CW = 4;
+    /**
+     * Input rotating the piece counter clockwise.
+     */
+    public static final int INPUT_ROTATE_CCW = 5;
+    /**
+     * Input dropping the piece.
+     */
+    public static final int INPUT_DROP = 6;
+    /**
+     * Input starting a new game.
+     */
+    public static final int INPUT_NEW_GAME = 7;
+    /**
+     * Input swapping the piece with the hold slot.
+     */
+    public static final int INPUT_HOLD = 8;
+    /**
+     * Number of bytes before the payload of a frame.
+     */
+    public static final int HEADER_BYTES = Byte.BYTES + Integer.BYTES;
+    /**
+     * Number of bytes of the piece state.
+     */
+    public static final int PIECE_STATE_BYTES = 2 * Integer.BYTES + 2 * Short.BYTES
+                                                + 3 * Byte.BYTES;
+
+    private Protocol() {
+        super();
+    }
+
+    /**
+     * Returns the largest frame a board of the given size can produce.
+     *
+     * @param theWidth the board width
+     * @param theHeight the board height
+     * @return the size in bytes
+     */
+    public static int maxFrameBytes(final int theWidth, final int theHeight) {
+        return HEADER_BYTES + PIECE_STATE_BYTES + Short.BYTES
+               + theHeight * (Short.BYTES + theWidth);
+    }
+
+    /**
+     * Starts a frame. The length is filled in by {@link #end}.
+     *
+     * @param theBuffer the buffer to write to
+     * @param theType the frame type
+     * @return the position of the frame, to pass to end
+     */
+    public static int begin(final ByteBuffer theBuffer, final int theType) {
+        final int start = theBuffer.position();
+        theBuffer.put((byte) theType);
+        theBuffer.putInt(0);
+        return start;
+    }
+
+    /**
+     * Finishes a frame by writing its payload length.
+     *
+     * @param theBuffer the buffer holding the frame
+     * @param theStart the position returned by begin
+     */
+    public static void end(final ByteBuffer theBuffer, final int theStart) {
+        theBuffer.putInt(theStart + Byte.BYTES,
+                         theBuffer.position() - theStart - HEADER_BYTES);
+    }
+
+    /**
+     * Writes the piece state.
+     *
+     * @param theBuffer the buffer to write to
+     * @param theTick the game tick
+     * @param thePiece the current piece, may be null
+     * @param theNext the next piece, may be null
+     * @param theLines the lines cleared in this game
+     */
+    public static void putPieceState(final ByteBuffer theBuffer, final int theTick,
+                                     final MovableTetrisPiece thePiece,
+                                     final TetrisPiece theNext, final int theLines) {
+        theBuffer.putInt(theTick);
+        if (thePiece == null) {
+            theBuffer.put((byte) 0).put((byte) 0).putShort((short) 0).putShort((short) 0);
+        } else {
+            theBuffer.put((byte) (thePiece.getTetrisPiece().ordinal() + 1));
+            theBuffer.put((byte) thePiece.getRotation().ordinal());
+            theBuffer.putShort((short) thePiece.getPosition().x());
+            theBuffer.putShort((short) thePiece.getPosition().y());
+        }
+        if (theNext == null) {
+            theBuffer.put((byte) 0);
+        } else {
+            theBuffer.put((byte) (theNext.ordinal() + 1));
+        }
+        theBuffer.putInt(theLines);
+    }
+
+    /**
+     * Encodes one row as one byte per cell.
+     *
+     * @param theRow the row
+     * @param theCells receives the cell codes
+     */
+    public static void encodeRow(final Block[] theRow, final byte[] theCells) {
+        for (int x = 0; x < theRow.length; x++) {
+            byte cell = 0;
+            if (theRow[x] != null) {
+                cell = (byte) theRow[x].ordinal();
+            }
+            theCells[x] = cell;
+        }
+    }
+}
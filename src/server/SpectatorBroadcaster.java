@@ -0,0 +1,498 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the frames of one game to any number of spectators.
+ * <p>
+ * The game publishes the frames of each tick once. They are copied a single
+ * time into a read-only region of direct memory that every spectator shares:
+ * each one only gets its own position and limit over the same memory, and its
+ * socket writes straight from it. The regions are cut one after another from
+ * pooled direct slabs, and a slab goes back to the pool once the game has
+ * moved on to another slab and no spectator holds a region of it any more, so
+ * publishing does not allocate direct memory once the pool is warm.
+ * Spectators never slow the game down. Every
+ * spectator has a bounded queue; when it is full the spectator is behind, so
+ * its queue is thrown away and it waits for the next keyframe, which carries
+ * the complete state. A spectator that falls behind {@link #MAX_SKIPS} times
+ * without ever catching up is disconnected.
+ * <p>
+ * {@link #publish} must only be called from the thread running the game.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class SpectatorBroadcaster implements Closeable {
+    /**
+     * Number of ticks a spectator may be behind before it skips to a keyframe.
+     */
+    public static final int QUEUE_FRAMES = 120;
+    /**
+     * Number of times in a row a spectator may skip before it is disconnected.
+     */
+    public static final int MAX_SKIPS = 3;
+    /**
+     * Size of a pooled slab of direct memory, in bytes. Larger ticks get a
+     * slab of their own that is not pooled.
+     */
+    private static final int SLAB_BYTES = 1 << 16;
+
+    /**
+     * The hello frame, shared by every spectator.
+     */
+    private final ByteBuffer myHello;
+    /**
+     * The connected spectators.
+     */
+    private final List<Spectator> mySpectators;
+    /**
+     * Slabs no frame is using any more.
+     */
+    private final Queue<Slab> myFreeSlabs;
+    /**
+     * The slab ticks are being copied into, used by the game thread only.
+     */
+    private Slab mySlab;
+    /**
+     * Ticks published.
+     */
+    private final LongAdder myPublished;
+    /**
+     * Times a spectator skipped to a keyframe.
+     */
+    private final LongAdder mySkips;
+    /**
+     * Spectators disconnected for being too slow.
+     */
+    private final LongAdder myDropped;
+    /**
+     * Whether the broadcaster was closed.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Creates a broadcaster.
+     *
+     * @param theHello the hello frame of the game, sent first to every spectator
+     */
+    public SpectatorBroadcaster(final ByteBuffer theHello) {
+        super();
+        myHello = share(theHello, theHello.position(), theHello.remaining());
+        mySpectators = new CopyOnWriteArrayList<>();
+        myFreeSlabs = new ConcurrentLinkedQueue<>();
+        mySlab = new Slab(SLAB_BYTES);
+        myPublished = new LongAdder();
+        mySkips = new LongAdder();
+        myDropped = new LongAdder();
+    }
+
+    /**
+     * Adds a spectator and starts the virtual thread writing to it.
+     *
+     * @param theChannel the blocking connection to the spectator
+     */
+    public void subscribe(final SocketChannel theChannel) {
+        final Spectator spectator = new Spectator(theChannel);
+        mySpectators.add(spectator);
+        if (myClosed) {
+            spectator.close();
+        } else {
+            spectator.start();
+        }
+    }
+
+    /**
+     * Tells whether anyone is watching, so the game can skip publishing.
+     *
+     * @return true if there are spectators
+     */
+    public boolean hasSpectators() {
+        return !mySpectators.isEmpty();
+    }
+
+    /**
+     * Tells whether a spectator is waiting for a keyframe.
+     *
+     * @return true if the game should publish a keyframe soon
+     */
+    public boolean needsKeyframe() {
+        boolean result = false;
+        for (final Spectator spectator : mySpectators) {
+            result |= spectator.isWaiting();
+        }
+        return result;
+    }
+
+    /**
+     * Publishes the frames of one tick to every spectator.
+     *
+     * @param theFrames a buffer holding the frames
+     * @param theOffset the position of the first frame
+     * @param theLength the number of bytes of frames
+     * @param theKeyframe whether the frames start with a keyframe
+     */
+    public void publish(final ByteBuffer theFrames, final int theOffset, final int theLength,
+                       final boolean theKeyframe) {
+        if (!mySpectators.isEmpty() && theLength > 0) {
+            final Slab slab = slabFor(theLength);
+            final ByteBuffer shared = slab.copy(theFrames, theOffset, theLength);
+            for (final Spectator spectator : mySpectators) {
+                spectator.offer(shared, slab, theKeyframe);
+            }
+            myPublished.increment();
+        }
+    }
+
+    /**
+     * Returns the number of connected spectators.
+     *
+     * @return the number of spectators
+     */
+    public int getSpectators() {
+        return mySpectators.size();
+    }
+
+    /**
+     * Returns how often a spectator skipped to a keyframe.
+     *
+     * @return the number of skips
+     */
+    public long getSkips() {
+        return mySkips.sum();
+    }
+
+    /**
+     * Returns how many spectators were disconnected for being too slow.
+     *
+     * @return the number of dropped spectators
+     */
+    public long getDropped() {
+        return myDropped.sum();
+    }
+
+    /**
+     * Returns the number of ticks published.
+     *
+     * @return the number of ticks
+     */
+    public long getPublished() {
+        return myPublished.sum();
+    }
+
+    /**
+     * Disconnects every spectator.
+     */
+    @Override
+    public void close() {
+        myClosed = true;
+        for (final Spectator spectator : mySpectators) {
+            spectator.close();
+        }
+    }
+
+    /**
+     * Returns a slab with room for a tick, moving on from the current slab
+     * to a pooled or new one if it is full.
+     *
+     * @param theLength the number of bytes of the tick
+     * @return the slab to copy the tick into
+     */
+    private Slab slabFor(final int theLength) {
+        Slab result = mySlab;
+        if (!result.fits(theLength)) {
+            if (theLength > SLAB_BYTES) {
+                result = new Slab(theLength);
+            } else {
+                result = myFreeSlabs.poll();
+                if (result == null) {
+                    result = new Slab(SLAB_BYTES);
+                }
+                result.reuse();
+            }
+            // the game lets go of the old slab, which is freed with its last frame
+            mySlab.release();
+            mySlab = result;
+        }
+        return result;
+    }
+
+    /**
+     * Copies bytes once into a read-only direct buffer.
+     *
+     * @param theSource the buffer holding the bytes
+     * @param theOffset the position of the first byte
+     * @param theLength the number of bytes
+     * @return the shared buffer
+     */
+    private static ByteBuffer share(final ByteBuffer theSource, final int theOffset,
+                                    final int theLength) {
+        final ByteBuffer copy = ByteBuffer.allocateDirect(theLength);
+        copy.put(0, theSource, theOffset, theLength);
+        return copy.asReadOnlyBuffer();
+    }
+
+    /**
+     * A block of direct memory that the frames of many ticks are copied into
+     * one after another. It counts its users: the game while it copies into
+     * it, and every queued or written frame cut from it. When the count drops
+     * to zero a pooled slab goes back to the pool.
+     */
+    private final class Slab {
+        /**
+         * The memory.
+         */
+        private final ByteBuffer myBuffer;
+        /**
+         * The game, if it still copies into the slab, and the frames using it.
+         */
+        private final AtomicInteger myUsers;
+        /**
+         * Bytes used, by the game thread only.
+         */
+        private int myUsed;
+
+        /**
+         * Creates a slab used by the game.
+         *
+         * @param theBytes the size of the slab
+         */
+        Slab(final int theBytes) {
+            super();
+            myBuffer = ByteBuffer.allocateDirect(theBytes);
+            myUsers = new AtomicInteger(1);
+        }
+
+        /**
+         * Tells whether bytes fit in the rest of the slab.
+         *
+         * @param theLength the number of bytes
+         * @return true if they fit
+         */
+        boolean fits(final int theLength) {
+            return myBuffer.capacity() - myUsed >= theLength;
+        }
+
+        /**
+         * Copies bytes into the slab.
+         *
+         * @param theSource the buffer holding the bytes
+         * @param theOffset the position of the first byte
+         * @param theLength the number of bytes
+         * @return a read-only view of the copy
+         */
+        ByteBuffer copy(final ByteBuffer theSource, final int theOffset,
+                        final int theLength) {
+            myBuffer.put(myUsed, theSource, theOffset, theLength);
+            final ByteBuffer result = myBuffer.slice(myUsed, theLength).asReadOnlyBuffer();
+            myUsed += theLength;
+            return result;
+        }
+
+        /**
+         * Starts using a slab from the pool again.
+         */
+        void reuse() {
+            myUsed = 0;
+            myUsers.set(1);
+        }
+
+        /**
+         * Counts a new frame using the slab.
+         */
+        void acquire() {
+            myUsers.incrementAndGet();
+        }
+
+        /**
+         * Lets go of the slab, returning it to the pool if nothing uses it.
+         */
+        void release() {
+            if (myUsers.decrementAndGet() == 0 && myBuffer.capacity() == SLAB_BYTES) {
+                myFreeSlabs.offer(this);
+            }
+        }
+    }
+
+    /**
+     * A spectator's view of the frames of one tick and the slab holding them.
+     *
+     * @param buffer the view, with its own position
+     * @param slab the slab holding the frames
+     */
+    private record Frame(ByteBuffer buffer, Slab slab) {
+    }
+
+    /**
+     * One connected spectator.
+     */
+    private final class Spectator {
+        /**
+         * The connection to the spectator.
+         */
+        private final SocketChannel myChannel;
+        /**
+         * Frames waiting to be written, each a view of a shared slab.
+         */
+        private final BlockingQueue<Frame> myQueue;
+        /**
+         * Times in a row the spectator skipped without catching up.
+         */
+        private final AtomicInteger mySkipsInARow;
+        /**
+         * Whether the spectator ignores frames until the next keyframe.
+         */
+        private volatile boolean myWaiting;
+        /**
+         * The thread writing to the spectator.
+         */
+        private volatile Thread myWriter;
+
+        /**
+         * Creates a spectator that waits for a keyframe.
+         *
+         * @param theChannel the connection to the spectator
+         */
+        Spectator(final SocketChannel theChannel) {
+            super();
+            myChannel = theChannel;
+            myQueue = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+            mySkipsInARow = new AtomicInteger();
+            myWaiting = true;
+        }
+
+        /**
+         * Tells whether the spectator waits for a keyframe.
+         *
+         * @return true if waiting
+         */
+        boolean isWaiting() {
+            return myWaiting;
+        }
+
+        /**
+         * Queues the frames of one tick, skipping to a keyframe if the
+         * spectator is behind. Never blocks.
+         *
+         * @param theFrames the shared frames
+         * @param theSlab the slab holding them
+         * @param theKeyframe whether they start with a keyframe
+         */
+        void offer(final ByteBuffer theFrames, final Slab theSlab, final boolean theKeyframe) {
+            if (theKeyframe && myWaiting) {
+                clear();
+                myWaiting = false;
+            }
+            if (!myWaiting && !queue(theFrames, theSlab)) {
+                clear();
+                mySkips.increment();
+                if (mySkipsInARow.incrementAndGet() > MAX_SKIPS) {
+                    myDropped.increment();
+                    close();
+                } else if (theKeyframe) {
+                    queue(theFrames, theSlab);
+                } else {
+                    myWaiting = true;
+                }
+            }
+        }
+
+        /**
+         * Queues a view of shared frames, counting it as a user of its slab.
+         *
+         * @param theFrames the shared frames
+         * @param theSlab the slab holding them
+         * @return false if the queue is full
+         */
+        private boolean queue(final ByteBuffer theFrames, final Slab theSlab) {
+            theSlab.acquire();
+            final boolean result = myQueue.offer(new Frame(theFrames.duplicate(), theSlab));
+            if (!result) {
+                theSlab.release();
+            }
+            return result;
+        }
+
+        /**
+         * Throws away the queued frames, letting go of their slabs.
+         */
+        private void clear() {
+            Frame frame = myQueue.poll();
+            while (frame != null) {
+                frame.slab().release();
+                frame = myQueue.poll();
+            }
+        }
+
+        /**
+         * Starts the virtual thread writing to the spectator.
+         */
+        void start() {
+            myWriter = Thread.ofVirtual().name("spectator").start(this::write);
+        }
+
+        /**
+         * Writes the hello frame and then queued frames until disconnected.
+         */
+        private void write() {
+            try {
+                writeFully(myHello.duplicate());
+                while (myChannel.isOpen()) {
+                    final Frame frame = myQueue.take();
+                    try {
+                        writeFully(frame.buffer());
+                    } finally {
+                        frame.slab().release();
+                    }
+                    if (myQueue.isEmpty()) {
+                        mySkipsInARow.set(0);
+                    }
+                }
+            } catch (final IOException | InterruptedException e) {
+                // the spectator went away
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Writes a whole buffer to the channel.
+         *
+         * @param theBuffer the buffer
+         * @throws IOException if the spectator went away
+         */
+        private void writeFully(final ByteBuffer theBuffer) throws IOException {
+            while (theBuffer.hasRemaining()) {
+                myChannel.write(theBuffer);
+            }
+        }
+
+        /**
+         * Disconnects the spectator.
+         */
+        void close() {
+            mySpectators.remove(this);
+            clear();
+            try {
+                myChannel.close();
+            } catch (final IOException e) {
+                // already closed
+            }
+            final Thread writer = myWriter;
+            if (writer != null && writer != Thread.currentThread()) {
+                writer.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fields shared by every flight recorder event about one board.
+ * <p>
+ * Events are created, filled and committed on the thread driving the board.
+ * When no recording is running {@link #shouldCommit()} is false, the fields are
+ * never set and the JIT removes the allocation, so the hooks cost next to
+ * nothing. Stack traces are off because the call sites are fixed. The fields
+ * are protected because the recorder leaves out private fields of superclasses.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Category("Tetris")
+@StackTrace(false)
+abstract class BoardEvent extends jdk.jfr.Event {
+    /**
+     * The id of the board.
+     */
+    @Name("boardId")
+    @Label("Board Id")
+    protected int myBoardId;
+    /**
+     * The level being played.
+     */
+    @Name("level")
+    @Label("Level")
+    protected int myLevel;
+
+    /**
+     * Sets the board the event is about.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level being played
+     */
+    final void setBoard(final int theBoardId, final int theLevel) {
+        myBoardId = theBoardId;
+        myLevel = theLevel;
+    }
+}
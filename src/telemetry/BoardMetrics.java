@@ -0,0 +1,338 @@
+package telemetry;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of one board, readable over JMX.
+ * <p>
+ * The board updates the counters from the thread driving it while JMX clients
+ * read them from others. Every counter is a {@link LongAdder}, so updates never
+ * contend with reads or with other boards, and reading costs a short sum. Every
+ * board has metrics, but only boards that call {@link #register()} are visible,
+ * so throwaway copies used by search do not flood the MBean server.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class BoardMetrics implements BoardMetricsMXBean {
+    /**
+     * The JMX domain of the board MBeans.
+     */
+    public static final String DOMAIN = "tetris";
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * The most rows one piece can clear at once.
+     */
+    private static final int MAX_CLEAR = 4;
+    /**
+     * Nanoseconds in a microsecond.
+     */
+    private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+    /**
+     * The id of the board.
+     */
+    private final int myBoardId;
+    /**
+     * Successful moves.
+     */
+    private final LongAdder myMoves;
+    /**
+     * Blocked moves.
+     */
+    private final LongAdder myBlockedMoves;
+    /**
+     * Successful rotations.
+     */
+    private final LongAdder myRotations;
+    /**
+     * Rotations that needed a kick.
+     */
+    private final LongAdder myKicks;
+    /**
+     * Rotations that did not fit.
+     */
+    private final LongAdder myFailedKicks;
+    /**
+     * Pieces frozen in place.
+     */
+    private final LongAdder myLocks;
+    /**
+     * Line clears, indexed by the number of rows cleared.
+     */
+    private final LongAdder[] myClears;
+    /**
+     * Events fired, by property name.
+     */
+    private final Map<String, LongAdder> myEvents;
+    /**
+     * Gravity ticks.
+     */
+    private final LongAdder myTicks;
+    /**
+     * Total time of all gravity ticks.
+     */
+    private final LongAdder myTickNanos;
+    /**
+     * The longest gravity tick.
+     */
+    private final LongAccumulator myMaxTickNanos;
+    /**
+     * The level being played.
+     */
+    private volatile int myLevel;
+    /**
+     * Milliseconds between gravity ticks.
+     */
+    private volatile long myGravityMillis;
+    /**
+     * The name the metrics are registered under, or null.
+     */
+    private ObjectName myName;
+
+    /**
+     * Creates zeroed metrics.
+     *
+     * @param theBoardId the id of the board
+     */
+    public BoardMetrics(final int theBoardId) {
+        super();
+        myBoardId = theBoardId;
+        myMoves = new LongAdder();
+        myBlockedMoves = new LongAdder();
+        myRotations = new LongAdder();
+        myKicks = new LongAdder();
+        myFailedKicks = new LongAdder();
+        myLocks = new LongAdder();
+        myClears = new LongAdder[MAX_CLEAR + 1];
+        for (int i = 1; i < myClears.length; i++) {
+            myClears[i] = new LongAdder();
+        }
+        myEvents = new ConcurrentHashMap<>();
+        myTicks = new LongAdder();
+        myTickNanos = new LongAdder();
+        myMaxTickNanos = new LongAccumulator(Math::max, 0);
+        myLevel = 1;
+    }
+
+    /**
+     * Makes the metrics visible in the platform MBean server. Failures are
+     * logged, since a game should run without monitoring.
+     */
+    public synchronized void register() {
+        if (myName == null) {
+            try {
+                final ObjectName name = new ObjectName(DOMAIN + ":type=Board,id=" + myBoardId);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+                myName = name;
+            } catch (final JMException e) {
+                LOGGER.log(Level.WARNING, "Could not register board metrics", e);
+            }
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        if (myName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(myName);
+            } catch (final JMException e) {
+                LOGGER.log(Level.WARNING, "Could not unregister board metrics", e);
+            }
+            myName = null;
+        }
+    }
+
+    /**
+     * Counts a move.
+     *
+     * @param theMoved whether the piece moved
+     */
+    public void moved(final boolean theMoved) {
+        if (theMoved) {
+            myMoves.increment();
+        } else {
+            myBlockedMoves.increment();
+        }
+    }
+
+    /**
+     * Counts a rotation.
+     *
+     * @param theKick the index of the kick that fit, 0 for none needed, -1 if none fit
+     */
+    public void rotated(final int theKick) {
+        if (theKick < 0) {
+            myFailedKicks.increment();
+        } else {
+            myRotations.increment();
+            if (theKick > 0) {
+                myKicks.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts a piece freezing in place.
+     */
+    public void locked() {
+        myLocks.increment();
+    }
+
+    /**
+     * Counts a line clear.
+     *
+     * @param theRows the number of rows cleared at once
+     */
+    public void cleared(final int theRows) {
+        myClears[Math.min(theRows, MAX_CLEAR)].increment();
+    }
+
+    /**
+     * Counts a property change event.
+     *
+     * @param theProperty the property name
+     */
+    public void fired(final String theProperty) {
+        myEvents.computeIfAbsent(theProperty, p -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records the time of a gravity tick.
+     *
+     * @param theNanos the tick time in nanoseconds
+     */
+    public void ticked(final long theNanos) {
+        myTicks.increment();
+        myTickNanos.add(theNanos);
+        myMaxTickNanos.accumulate(theNanos);
+    }
+
+    /**
+     * Sets the level being played.
+     *
+     * @param theLevel the level
+     */
+    public void setLevel(final int theLevel) {
+        myLevel = theLevel;
+    }
+
+    /**
+     * Sets the time between gravity ticks.
+     *
+     * @param theMillis the gravity interval in milliseconds
+     */
+    public void setGravityMillis(final long theMillis) {
+        myGravityMillis = theMillis;
+    }
+
+    @Override
+    public int getBoardId() {
+        return myBoardId;
+    }
+
+    @Override
+    public long getMoves() {
+        return myMoves.sum();
+    }
+
+    @Override
+    public long getBlockedMoves() {
+        return myBlockedMoves.sum();
+    }
+
+    @Override
+    public long getRotations() {
+        return myRotations.sum();
+    }
+
+    @Override
+    public long getKicks() {
+        return myKicks.sum();
+    }
+
+    @Override
+    public long getFailedKicks() {
+        return myFailedKicks.sum();
+    }
+
+    @Override
+    public long getLocks() {
+        return myLocks.sum();
+    }
+
+    @Override
+    public Map<Integer, Long> getClearsBySize() {
+        final Map<Integer, Long> result = new TreeMap<>();
+        for (int i = 1; i < myClears.length; i++) {
+            result.put(i, myClears[i].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getEventsFired() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (final Map.Entry<String, LongAdder> entry : myEvents.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public long getTicks() {
+        return myTicks.sum();
+    }
+
+    @Override
+    public double getAverageTickMicros() {
+        return myTickNanos.sum() / NANOS_PER_MICRO / Math.max(1, myTicks.sum());
+    }
+
+    @Override
+    public double getMaxTickMicros() {
+        return myMaxTickNanos.get() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public int getLevel() {
+        return myLevel;
+    }
+
+    @Override
+    public long getGravityMillis() {
+        return myGravityMillis;
+    }
+
+    @Override
+    public void reset() {
+        myMoves.reset();
+        myBlockedMoves.reset();
+        myRotations.reset();
+        myKicks.reset();
+        myFailedKicks.reset();
+        myLocks.reset();
+        for (int i = 1; i < myClears.length; i++) {
+            myClears[i].reset();
+        }
+        myEvents.clear();
+        myTicks.reset();
+        myTickNanos.reset();
+        myMaxTickNanos.reset();
+    }
+}
@@ -0,0 +1,115 @@
+package telemetry;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link BoardMetrics}, one per board, registered as
+ * {@code tetris:type=Board,id=<board id>}.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public interface BoardMetricsMXBean {
+    /**
+     * Returns the id of the board.
+     *
+     * @return the board id
+     */
+    int getBoardId();
+
+    /**
+     * Returns the number of moves left, right or down that succeeded.
+     *
+     * @return the number of moves
+     */
+    long getMoves();
+
+    /**
+     * Returns the number of moves blocked by a wall or frozen blocks.
+     *
+     * @return the number of blocked moves
+     */
+    long getBlockedMoves();
+
+    /**
+     * Returns the number of rotations that succeeded, with or without a kick.
+     *
+     * @return the number of rotations
+     */
+    long getRotations();
+
+    /**
+     * Returns the number of rotations that only fit after a wall kick.
+     *
+     * @return the number of successful kicks
+     */
+    long getKicks();
+
+    /**
+     * Returns the number of rotations that did not fit with any wall kick.
+     *
+     * @return the number of failed kicks
+     */
+    long getFailedKicks();
+
+    /**
+     * Returns the number of pieces frozen in place.
+     *
+     * @return the number of locks
+     */
+    long getLocks();
+
+    /**
+     * Returns the number of line clears by the number of rows cleared at once.
+     *
+     * @return clears by size, from 1 for a single to 4 for a tetris
+     */
+    Map<Integer, Long> getClearsBySize();
+
+    /**
+     * Returns the number of property change events fired by property name.
+     *
+     * @return events by property name
+     */
+    Map<String, Long> getEventsFired();
+
+    /**
+     * Returns the number of gravity ticks.
+     *
+     * @return the number of ticks
+     */
+    long getTicks();
+
+    /**
+     * Returns the average time of a gravity tick, including its listeners.
+     *
+     * @return the average tick time in microseconds
+     */
+    double getAverageTickMicros();
+
+    /**
+     * Returns the longest gravity tick since the last reset.
+     *
+     * @return the longest tick time in microseconds
+     */
+    double getMaxTickMicros();
+
+    /**
+     * Returns the level being played.
+     *
+     * @return the level, starting at 1
+     */
+    int getLevel();
+
+    /**
+     * Returns the time between gravity ticks.
+     *
+     * @return the gravity interval in milliseconds, 0 if unknown
+     */
+    long getGravityMillis();
+
+    /**
+     * Sets every counter back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,40 @@
+package telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the end of a game.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.GameOver")
+@Label("Game Over")
+@Description("A piece froze above the top of the board")
+public final class GameOverEvent extends BoardEvent {
+    /**
+     * The rows removed in the game.
+     */
+    @Name("totalLines")
+    @Label("Total Lines")
+    private int myTotalLines;
+
+    /**
+     * Records the end of a game if a recording wants it.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level reached
+     * @param theTotalLines the rows removed in the game
+     */
+    public static void emit(final int theBoardId, final int theLevel,
+                            final int theTotalLines) {
+        final GameOverEvent event = new GameOverEvent();
+        if (event.shouldCommit()) {
+            event.setBoard(theBoardId, theLevel);
+            event.myTotalLines = theTotalLines;
+            event.commit();
+        }
+    }
+}
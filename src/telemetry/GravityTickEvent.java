@@ -0,0 +1,58 @@
+package telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event timing one gravity step of a board, including any lock,
+ * line clear and spawn it causes and the listeners it notifies.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.GravityTick")
+@Label("Gravity Tick")
+@Description("Time to move the piece down one row and notify listeners")
+public final class GravityTickEvent extends BoardEvent {
+    /**
+     * Whether the piece froze during the tick.
+     */
+    @Name("locked")
+    @Label("Locked")
+    private boolean myLocked;
+
+    /**
+     * Creates an event; use {@link #start()}.
+     */
+    private GravityTickEvent() {
+        super();
+    }
+
+    /**
+     * Starts timing a gravity step.
+     *
+     * @return the event to pass the result to
+     */
+    public static GravityTickEvent start() {
+        final GravityTickEvent event = new GravityTickEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops timing and records the step if a recording wants it.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level being played
+     * @param theLocked whether the piece froze during the tick
+     */
+    public void finish(final int theBoardId, final int theLevel, final boolean theLocked) {
+        end();
+        if (shouldCommit()) {
+            setBoard(theBoardId, theLevel);
+            myLocked = theLocked;
+            commit();
+        }
+    }
+}
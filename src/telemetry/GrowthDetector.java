@@ -0,0 +1,120 @@
+package telemetry;
+
+/**
+ * Watches a series of samples taken over time, such as the heap used after a
+ * collection or the number of threads, for growth that does not stop.
+ * <p>
+ * A healthy process levels off: its samples go up and down around a plateau.
+ * A leak shows as a series that never goes down. The series is flagged when
+ * each of the last few samples is at least the one before and together they
+ * grew by at least a minimum, so noise of a flat series is not flagged and a
+ * real leak is found within one window of samples.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class GrowthDetector {
+    /**
+     * Name of the series.
+     */
+    private final String myName;
+    /**
+     * The last samples, as a ring buffer.
+     */
+    private final long[] myWindow;
+    /**
+     * Growth over the window that counts as a leak.
+     */
+    private final long myMinGrowth;
+    /**
+     * Number of samples added.
+     */
+    private long myCount;
+    /**
+     * The first sample.
+     */
+    private long myFirst;
+    /**
+     * Whether the series has been flagged.
+     */
+    private boolean myGrowing;
+
+    /**
+     * Creates a detector.
+     *
+     * @param theName the name of the series
+     * @param theWindow the number of samples that must not go down, at least 2
+     * @param theMinGrowth how much they must grow together to be flagged, at least 1
+     * @throws IllegalArgumentException if the window or the growth is too small
+     */
+    public GrowthDetector(final String theName, final int theWindow, final long theMinGrowth) {
+        super();
+        if (theWindow < 2 || theMinGrowth < 1) {
+            throw new IllegalArgumentException("Window must be at least 2 and growth at least 1: "
+                                               + theWindow + ", " + theMinGrowth);
+        }
+        myName = theName;
+        myWindow = new long[theWindow];
+        myMinGrowth = theMinGrowth;
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param theSample the sample
+     * @return true if the last window of samples never went down and grew by
+     *          at least the minimum
+     */
+    public boolean add(final long theSample) {
+        if (myCount == 0) {
+            myFirst = theSample;
+        }
+        myWindow[(int) (myCount % myWindow.length)] = theSample;
+        myCount++;
+        boolean result = myCount >= myWindow.length;
+        long previous = 0;
+        for (int i = 0; result && i < myWindow.length; i++) {
+            final long sample = myWindow[(int) ((myCount + i) % myWindow.length)];
+            result = i == 0 || sample >= previous;
+            previous = sample;
+        }
+        final long oldest = myWindow[(int) (myCount % myWindow.length)];
+        result = result && previous - oldest >= myMinGrowth;
+        myGrowing |= result;
+        return result;
+    }
+
+    /**
+     * Tells whether the series was ever flagged.
+     *
+     * @return true if it grew through a whole window
+     */
+    public boolean isGrowing() {
+        return myGrowing;
+    }
+
+    /**
+     * Returns the name of the series.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return myName;
+    }
+
+    /**
+     * Returns a one line summary of the series.
+     *
+     * @return the name, the first and the last sample, and whether it grows
+     */
+    @Override
+    public String toString() {
+        final long last = myWindow[(int) ((myCount + myWindow.length - 1) % myWindow.length)];
+        String result = String.format("%s %d -> %d over %d samples", myName, myFirst, last,
+                                      myCount);
+        if (myGrowing) {
+            result += ", GROWING";
+        }
+        return result;
+    }
+}
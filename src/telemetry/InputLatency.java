@@ -0,0 +1,156 @@
+package telemetry;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures how long it takes from a key press arriving in the key listener,
+ * through the board update it causes, to the paint that shows the result.
+ * <p>
+ * The marks are made from the event dispatch thread, which hands the moves to
+ * the board's owner thread and paints, so they need no locking. When the move
+ * is queued the count of commands queued is kept as a ticket. A paint only
+ * ends the measurement once the snapshot it painted has applied that many
+ * commands, so a repaint of an older snapshot that happens to run first is
+ * not counted. The board update is the time that snapshot was published. Only
+ * the oldest key press that has not been painted yet is timed; presses that
+ * arrive while one is in flight are folded into it. Auto repeats have no key
+ * event and are not timed.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class InputLatency {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * The instance shared by the key listener, the game and the board panel.
+     */
+    private static final InputLatency INSTANCE = new InputLatency();
+    /**
+     * Marks a stage that has not happened.
+     */
+    private static final long NONE = -1;
+
+    /**
+     * Time from the key event to the board update.
+     */
+    private final LatencyHistogram myKeyToUpdate;
+    /**
+     * Time from the board update to the paint.
+     */
+    private final LatencyHistogram myUpdateToPaint;
+    /**
+     * Time from the key event to the paint.
+     */
+    private final LatencyHistogram myKeyToPaint;
+    /**
+     * When the key event being timed arrived, or NONE.
+     */
+    private long myKeyTime;
+    /**
+     * The commands queued up to the move of that key event, or NONE.
+     */
+    private long myTicket;
+
+    /**
+     * Creates the empty histograms.
+     */
+    private InputLatency() {
+        super();
+        myKeyToUpdate = new LatencyHistogram("key->update");
+        myUpdateToPaint = new LatencyHistogram("update->paint");
+        myKeyToPaint = new LatencyHistogram("key->paint");
+        myKeyTime = NONE;
+        myTicket = NONE;
+    }
+
+    /**
+     * Returns the shared instance.
+     *
+     * @return the input latency tracker
+     */
+    public static InputLatency getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks the arrival of a key event that will change the board.
+     *
+     * @param theNanos the arrival time from System.nanoTime
+     */
+    public void keyEvent(final long theNanos) {
+        if (myKeyTime == NONE) {
+            myKeyTime = theNanos;
+        }
+    }
+
+    /**
+     * Marks that the move of the key event has been queued to the board.
+     *
+     * @param theTicket the number of commands queued, including the move
+     */
+    public void moveQueued(final long theTicket) {
+        if (myKeyTime != NONE && myTicket == NONE) {
+            myTicket = theTicket;
+        }
+    }
+
+    /**
+     * Marks that a snapshot of the board has been painted. It ends the
+     * measurement if the snapshot includes the move being timed.
+     *
+     * @param theApplied the number of commands the snapshot has applied
+     * @param thePublished when the snapshot was published, from System.nanoTime
+     */
+    public void painted(final long theApplied, final long thePublished) {
+        if (myTicket != NONE && theApplied >= myTicket) {
+            final long now = System.nanoTime();
+            myKeyToUpdate.record(thePublished - myKeyTime);
+            myUpdateToPaint.record(now - thePublished);
+            myKeyToPaint.record(now - myKeyTime);
+            myKeyTime = NONE;
+            myTicket = NONE;
+        }
+    }
+
+    /**
+     * Forgets a key event that did not update the board, for example because
+     * the game was paused before it was applied.
+     */
+    public void cancel() {
+        myKeyTime = NONE;
+        myTicket = NONE;
+    }
+
+    /**
+     * Returns the histogram of the whole path from key event to paint.
+     *
+     * @return the key to paint histogram
+     */
+    public LatencyHistogram getKeyToPaint() {
+        return myKeyToPaint;
+    }
+
+    /**
+     * Returns a summary of every stage, one per line.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        return myKeyToUpdate + "\n" + myUpdateToPaint + "\n" + myKeyToPaint;
+    }
+
+    /**
+     * Logs the summary when the program exits, if anything was measured.
+     */
+    public void logOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (myKeyToPaint.getCount() > 0) {
+                LOGGER.log(Level.INFO, "Input latency\n" + summary());
+            }
+        }, "input-latency-dump"));
+    }
+}
@@ -0,0 +1,186 @@
+package telemetry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in the style of HdrHistogram: values are counted in
+ * buckets whose width grows with the value, so every recorded value is kept to
+ * within about 1.6% over a range from one nanosecond to several minutes in a
+ * few thousand counters.
+ * <p>
+ * Values below 128 have a bucket each. Above that every power of two is split
+ * into 64 equal buckets. Recording is lock free and may happen on any thread;
+ * percentiles read while values are being recorded are approximate.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+    /**
+     * The 50th percentile.
+     */
+    public static final double P50 = 50.0;
+    /**
+     * The 99th percentile.
+     */
+    public static final double P99 = 99.0;
+    /**
+     * The 99.9th percentile.
+     */
+    public static final double P999 = 99.9;
+    /**
+     * Number of bits of precision kept for every value.
+     */
+    private static final int SUB_BITS = 7;
+    /**
+     * Number of buckets per power of two above the linear range.
+     */
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    /**
+     * Largest value recorded exactly; larger values are clamped to it.
+     */
+    private static final long MAX_VALUE = TimeUnit.MINUTES.toNanos(10);
+    /**
+     * Number of nanoseconds in a microsecond, for the summary.
+     */
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    /**
+     * Percent of the count.
+     */
+    private static final double PERCENT = 100.0;
+
+    /**
+     * The name shown in the summary.
+     */
+    private final String myName;
+    /**
+     * The count of every bucket.
+     */
+    private final AtomicLongArray myCounts;
+    /**
+     * The number of values recorded.
+     */
+    private final AtomicLong myTotal;
+    /**
+     * The largest value recorded.
+     */
+    private final AtomicLong myMax;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param theName the name shown in the summary
+     */
+    public LatencyHistogram(final String theName) {
+        super();
+        myName = theName;
+        myCounts = new AtomicLongArray(index(MAX_VALUE) + 1);
+        myTotal = new AtomicLong();
+        myMax = new AtomicLong();
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param theNanos the duration in nanoseconds; negative values count as 0
+     */
+    public void record(final long theNanos) {
+        final long value = Math.min(Math.max(theNanos, 0), MAX_VALUE);
+        myCounts.incrementAndGet(index(value));
+        myTotal.incrementAndGet();
+        myMax.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return myTotal.get();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the maximum in nanoseconds, 0 when empty
+     */
+    public long getMax() {
+        return myMax.get();
+    }
+
+    /**
+     * Returns the value below or at which the given percent of the recorded
+     * values fall, rounded up to the end of its bucket.
+     *
+     * @param thePercentile the percentile, from 0 to 100
+     * @return the value in nanoseconds, 0 when empty
+     */
+    public long getValueAtPercentile(final double thePercentile) {
+        final long total = myTotal.get();
+        final long rank = Math.max(1, (long) Math.ceil(thePercentile / PERCENT * total));
+        long result = 0;
+        long seen = 0;
+        for (int i = 0; i < myCounts.length() && total > 0; i++) {
+            seen += myCounts.get(i);
+            if (seen >= rank) {
+                result = Math.min(highest(i), myMax.get());
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < myCounts.length(); i++) {
+            myCounts.set(i, 0);
+        }
+        myTotal.set(0);
+        myMax.set(0);
+    }
+
+    /**
+     * Returns a one line summary with the count, p50, p99, p99.9 and maximum
+     * in microseconds.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("%s n=%d p50=%.0fus p99=%.0fus p99.9=%.0fus max=%.0fus",
+                             myName, getCount(),
+                             getValueAtPercentile(P50) / NANOS_PER_MICRO,
+                             getValueAtPercentile(P99) / NANOS_PER_MICRO,
+                             getValueAtPercentile(P999) / NANOS_PER_MICRO,
+                             getMax() / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param theValue a value from 0 to MAX_VALUE
+     * @return the bucket index
+     */
+    private static int index(final long theValue) {
+        final int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(theValue)
+                                      - SUB_BITS);
+        return (shift << (SUB_BITS - 1)) + (int) (theValue >>> shift);
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     *
+     * @param theIndex the bucket index
+     * @return the largest value of the bucket
+     */
+    private static long highest(final int theIndex) {
+        final int shift = Math.max(0, theIndex / HALF - 1);
+        final long lowest = (long) (theIndex - (shift << (SUB_BITS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
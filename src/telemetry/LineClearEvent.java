@@ -0,0 +1,48 @@
+package telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for complete rows being removed.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.LineClear")
+@Label("Line Clear")
+@Description("Complete rows were removed from the board")
+public final class LineClearEvent extends BoardEvent {
+    /**
+     * The number of rows removed at once.
+     */
+    @Name("count")
+    @Label("Count")
+    private int myCount;
+    /**
+     * The rows removed in the game so far, including these.
+     */
+    @Name("totalLines")
+    @Label("Total Lines")
+    private int myTotalLines;
+
+    /**
+     * Records a line clear if a recording wants it.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level being played
+     * @param theCount the number of rows removed at once
+     * @param theTotalLines the rows removed in the game so far
+     */
+    public static void emit(final int theBoardId, final int theLevel, final int theCount,
+                            final int theTotalLines) {
+        final LineClearEvent event = new LineClearEvent();
+        if (event.shouldCommit()) {
+            event.setBoard(theBoardId, theLevel);
+            event.myCount = theCount;
+            event.myTotalLines = theTotalLines;
+            event.commit();
+        }
+    }
+}
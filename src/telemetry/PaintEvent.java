@@ -0,0 +1,78 @@
+package telemetry;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event timing one paintComponent call of a game panel.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.Paint")
+@Label("Panel Paint")
+@Category("Tetris")
+@Description("Time spent in paintComponent of a game panel")
+@StackTrace(false)
+public final class PaintEvent extends jdk.jfr.Event {
+    /**
+     * The simple class name of the panel.
+     */
+    @Name("panel")
+    @Label("Panel")
+    private String myPanel;
+    /**
+     * Width of the area painted, in pixels.
+     */
+    @Name("clipWidth")
+    @Label("Clip Width")
+    private int myClipWidth;
+    /**
+     * Height of the area painted, in pixels.
+     */
+    @Name("clipHeight")
+    @Label("Clip Height")
+    private int myClipHeight;
+
+    /**
+     * Creates an event; use {@link #start()}.
+     */
+    private PaintEvent() {
+        super();
+    }
+
+    /**
+     * Starts timing a paint.
+     *
+     * @return the event to pass the result to
+     */
+    public static PaintEvent start() {
+        final PaintEvent event = new PaintEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops timing and records the paint if a recording wants it.
+     *
+     * @param thePanel the simple class name of the panel
+     * @param theGraphics the graphics the panel painted with, for the clip
+     */
+    public void finish(final String thePanel, final Graphics theGraphics) {
+        end();
+        if (shouldCommit()) {
+            myPanel = thePanel;
+            final Rectangle clip = theGraphics.getClipBounds();
+            if (clip != null) {
+                myClipWidth = clip.width;
+                myClipHeight = clip.height;
+            }
+            commit();
+        }
+    }
+}
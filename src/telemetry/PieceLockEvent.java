@@ -0,0 +1,73 @@
+package telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a piece freezing in place.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.PieceLock")
+@Label("Piece Lock")
+@Description("A piece could not move down and froze in place")
+public final class PieceLockEvent extends BoardEvent {
+    /**
+     * The type of the piece.
+     */
+    @Name("piece")
+    @Label("Piece")
+    private String myPiece;
+    /**
+     * The rotation of the piece.
+     */
+    @Name("rotation")
+    @Label("Rotation")
+    private String myRotation;
+    /**
+     * The column the piece froze at.
+     */
+    @Name("x")
+    @Label("X")
+    private int myX;
+    /**
+     * The row the piece froze at.
+     */
+    @Name("y")
+    @Label("Y")
+    private int myY;
+    /**
+     * Whether the piece was hard dropped.
+     */
+    @Name("dropped")
+    @Label("Hard Dropped")
+    private boolean myDropped;
+
+    /**
+     * Records a lock if a recording wants it.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level being played
+     * @param thePiece the type of the piece
+     * @param theRotation the rotation of the piece
+     * @param theX the column the piece froze at
+     * @param theY the row the piece froze at
+     * @param theDropped whether the piece was hard dropped
+     */
+    public static void emit(final int theBoardId, final int theLevel, final String thePiece,
+                            final String theRotation, final int theX, final int theY,
+                            final boolean theDropped) {
+        final PieceLockEvent event = new PieceLockEvent();
+        if (event.shouldCommit()) {
+            event.setBoard(theBoardId, theLevel);
+            event.myPiece = thePiece;
+            event.myRotation = theRotation;
+            event.myX = theX;
+            event.myY = theY;
+            event.myDropped = theDropped;
+            event.commit();
+        }
+    }
+}
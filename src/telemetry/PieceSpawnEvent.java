@@ -0,0 +1,56 @@
+package telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a new piece entering the board.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@Name("tetris.PieceSpawn")
+@Label("Piece Spawn")
+@Description("A new piece entered the board")
+public final class PieceSpawnEvent extends BoardEvent {
+    /**
+     * The type of the piece.
+     */
+    @Name("piece")
+    @Label("Piece")
+    private String myPiece;
+    /**
+     * The column the piece entered at.
+     */
+    @Name("x")
+    @Label("X")
+    private int myX;
+    /**
+     * The row the piece entered at.
+     */
+    @Name("y")
+    @Label("Y")
+    private int myY;
+
+    /**
+     * Records a spawn if a recording wants it.
+     *
+     * @param theBoardId the id of the board
+     * @param theLevel the level being played
+     * @param thePiece the type of the piece
+     * @param theX the column the piece entered at
+     * @param theY the row the piece entered at
+     */
+    public static void emit(final int theBoardId, final int theLevel, final String thePiece,
+                            final int theX, final int theY) {
+        final PieceSpawnEvent event = new PieceSpawnEvent();
+        if (event.shouldCommit()) {
+            event.setBoard(theBoardId, theLevel);
+            event.myPiece = thePiece;
+            event.myX = theX;
+            event.myY = theY;
+            event.commit();
+        }
+    }
+}
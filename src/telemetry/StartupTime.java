@@ -0,0 +1,85 @@
+package telemetry;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures time to first frame: from JVM start and from the start of
+ * {@code main} to the first time the board is painted.
+ * <p>
+ * Both marks are taken once; later calls are ignored, so the paint hook costs
+ * a single field read after the first frame.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class StartupTime {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * The instance shared by main and the board panel.
+     */
+    private static final StartupTime INSTANCE = new StartupTime();
+
+    /**
+     * When main started, from System.nanoTime, or 0 if not marked.
+     */
+    private volatile long myMainNanos;
+    /**
+     * Main to first frame in milliseconds, or -1 before the first frame.
+     */
+    private volatile long myFirstFrameMillis;
+
+    /**
+     * Creates the timer.
+     */
+    private StartupTime() {
+        super();
+        myFirstFrameMillis = -1;
+    }
+
+    /**
+     * Returns the shared instance.
+     *
+     * @return the startup timer
+     */
+    public static StartupTime getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks the start of main.
+     */
+    public void mainStarted() {
+        if (myMainNanos == 0) {
+            myMainNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks a painted frame and logs the startup times the first time.
+     */
+    public void framePainted() {
+        if (myFirstFrameMillis < 0 && myMainNanos != 0) {
+            myFirstFrameMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                                               - myMainNanos);
+            final long sinceJvm = System.currentTimeMillis()
+                                  - ManagementFactory.getRuntimeMXBean().getStartTime();
+            LOGGER.log(Level.INFO, "First frame " + myFirstFrameMillis + " ms after main, "
+                                   + sinceJvm + " ms after JVM start");
+        }
+    }
+
+    /**
+     * Returns the time from main to the first frame.
+     *
+     * @return the time in milliseconds, or -1 before the first frame
+     */
+    public long getFirstFrameMillis() {
+        return myFirstFrameMillis;
+    }
+}
@@ -0,0 +1,431 @@
+package terminal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import model.Block;
+import model.Board;
+import model.MovableTetrisPiece;
+import model.Point;
+import model.TetrisPiece;
+
+/**
+ * Draws a board on an ANSI terminal, two columns per cell with a coloured
+ * background.
+ * <p>
+ * The renderer keeps the cells it last drew. Each frame it builds the new
+ * cells from the frozen rows and the current piece, and only cells that differ
+ * are sent: a cursor move when the cell does not follow the previous one, a
+ * colour change when the colour differs, and two spaces. All escapes go into
+ * one reused byte buffer that is handed to the output stream in a single write,
+ * so a frame in which nothing changed costs no system call and a typical frame
+ * is a few dozen bytes. Nothing is allocated per frame.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class AnsiRenderer {
+    /**
+     * Marks a cell that has never been drawn.
+     */
+    private static final byte UNKNOWN = -1;
+    /**
+     * The escape character.
+     */
+    private static final byte ESC = 0x1B;
+    /**
+     * Columns used by one cell.
+     */
+    private static final int CELL_COLUMNS = 2;
+    /**
+     * Terminal row of the top border; the board starts one row lower.
+     */
+    private static final int TOP = 1;
+    /**
+     * Terminal column of the left border; the board starts one column right.
+     */
+    private static final int LEFT = 1;
+    /**
+     * Largest number of bytes one cell can need.
+     */
+    private static final int MAX_CELL_BYTES = 32;
+    /**
+     * Largest number of bytes the status line can need.
+     */
+    private static final int MAX_STATUS_BYTES = 128;
+    /**
+     * Radix of printed numbers.
+     */
+    private static final int DECIMAL = 10;
+    /**
+     * Status state while playing.
+     */
+    private static final int PLAYING = 0;
+    /**
+     * Status state while paused.
+     */
+    private static final int PAUSE = 1;
+    /**
+     * Status state after the game ended.
+     */
+    private static final int OVER = 2;
+    /**
+     * Select graphic rendition codes of each block, by ordinal: default
+     * background for empty, then I, J, L, O, S, T and Z in their usual colours.
+     */
+    private static final String[] BLOCK_COLORS = {
+        "0", "46", "44", "48;5;208", "43", "42", "45", "41",
+    };
+    /**
+     * Escape sequences selecting the colour of each block.
+     */
+    private static final byte[][] COLORS = new byte[BLOCK_COLORS.length][];
+
+    static {
+        for (int i = 0; i < COLORS.length; i++) {
+            COLORS[i] = ascii("\u001B[" + BLOCK_COLORS[i] + "m");
+        }
+    }
+
+    /**
+     * Clears the screen and hides the cursor.
+     */
+    private static final byte[] START = ascii("\u001B[0m\u001B[2J\u001B[?25l");
+    /**
+     * Resets the colours, shows the cursor and clears to the end of the line.
+     */
+    private static final byte[] END = ascii("\u001B[0m\u001B[?25h\u001B[K");
+    /**
+     * Clears to the end of the line.
+     */
+    private static final byte[] CLEAR_LINE = ascii("\u001B[K");
+    /**
+     * Status label before the lines.
+     */
+    private static final byte[] LINES = ascii("Lines ");
+    /**
+     * Status label before the level.
+     */
+    private static final byte[] LEVEL = ascii("  Level ");
+    /**
+     * Status label before the next piece.
+     */
+    private static final byte[] NEXT = ascii("  Next ");
+    /**
+     * Status shown when paused.
+     */
+    private static final byte[] PAUSED = ascii("  PAUSED");
+    /**
+     * Status shown when the game is over.
+     */
+    private static final byte[] GAME_OVER = ascii("  GAME OVER");
+
+    /**
+     * Where frames are written.
+     */
+    private final OutputStream myOut;
+    /**
+     * Width of the board in cells.
+     */
+    private final int myWidth;
+    /**
+     * Height of the board in cells.
+     */
+    private final int myHeight;
+    /**
+     * The cells being built for this frame, top row first, as block ordinals.
+     */
+    private final byte[] myBack;
+    /**
+     * The cells on the screen, top row first, as block ordinals.
+     */
+    private final byte[] myFront;
+    /**
+     * The escape sequences of the frame being built.
+     */
+    private byte[] myBuffer;
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int myLength;
+    /**
+     * The colour selected on the terminal, or UNKNOWN.
+     */
+    private int myColor;
+    /**
+     * The lines shown in the status line, or -1 before the first frame.
+     */
+    private int myShownLines;
+    /**
+     * The level shown in the status line.
+     */
+    private int myShownLevel;
+    /**
+     * The next piece shown in the status line.
+     */
+    private TetrisPiece myShownNext;
+    /**
+     * The state shown in the status line.
+     */
+    private int myShownState;
+
+    /**
+     * Creates a renderer for boards of the given size.
+     *
+     * @param theOut where frames are written, ideally unbuffered
+     * @param theWidth width of the board in cells
+     * @param theHeight height of the board in cells
+     */
+    public AnsiRenderer(final OutputStream theOut, final int theWidth, final int theHeight) {
+        super();
+        myOut = theOut;
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myBack = new byte[theWidth * theHeight];
+        myFront = new byte[theWidth * theHeight];
+        myBuffer = new byte[START.length + MAX_STATUS_BYTES
+                            + (theWidth + 2) * (theHeight + 2) * MAX_CELL_BYTES];
+        invalidate();
+    }
+
+    /**
+     * Forgets what is on the screen, so the next frame clears it and redraws
+     * everything, for example after the terminal was resized.
+     */
+    public void invalidate() {
+        Arrays.fill(myFront, UNKNOWN);
+        myColor = UNKNOWN;
+        myShownLines = -1;
+        myLength = 0;
+        put(START);
+        drawBorder();
+    }
+
+    /**
+     * Draws the board, sending only what changed since the last frame.
+     *
+     * @param theBoard the board to draw
+     * @param theLines the lines cleared in this game
+     * @param theLevel the level being played
+     * @param thePaused whether the game is paused
+     * @throws IOException if the frame can not be written
+     */
+    public void render(final Board theBoard, final int theLines, final int theLevel,
+                       final boolean thePaused) throws IOException {
+        fillBack(theBoard);
+        int lastCell = UNKNOWN;
+        for (int i = 0; i < myBack.length; i++) {
+            if (myBack[i] != myFront[i]) {
+                if (i != lastCell + 1 || i % myWidth == 0) {
+                    moveTo(TOP + 1 + i / myWidth, LEFT + 1 + i % myWidth * CELL_COLUMNS);
+                }
+                color(myBack[i]);
+                put((byte) ' ');
+                put((byte) ' ');
+                myFront[i] = myBack[i];
+                lastCell = i;
+            }
+        }
+        int state = PLAYING;
+        if (theBoard.isGameOver()) {
+            state = OVER;
+        } else if (thePaused) {
+            state = PAUSE;
+        }
+        status(theLines, theLevel, theBoard.getNextPiece(), state);
+        flush();
+    }
+
+    /**
+     * Restores the terminal colours and cursor and moves below the board.
+     *
+     * @throws IOException if the bytes can not be written
+     */
+    public void close() throws IOException {
+        moveTo(TOP + myHeight + 2 + 1, LEFT);
+        put(END);
+        flush();
+    }
+
+    /**
+     * Builds the cells of this frame from the frozen rows and the current piece.
+     *
+     * @param theBoard the board
+     */
+    private void fillBack(final Board theBoard) {
+        // the state's rows are read in place; getFrozenBlocks() would copy them every frame
+        final List<Block[]> rows = theBoard.getState().asList();
+        for (int y = 0; y < myHeight; y++) {
+            final Block[] row = rows.get(y);
+            final int offset = (myHeight - 1 - y) * myWidth;
+            for (int x = 0; x < myWidth; x++) {
+                byte cell = 0;
+                if (row[x] != null) {
+                    cell = (byte) row[x].ordinal();
+                }
+                myBack[offset + x] = cell;
+            }
+        }
+        final MovableTetrisPiece piece = theBoard.getCurrentPiece();
+        if (piece != null && !theBoard.isGameOver()) {
+            final byte cell = (byte) piece.getTetrisPiece().getBlock().ordinal();
+            for (final Point p : piece.getBoardPoints()) {
+                if (p.x() >= 0 && p.x() < myWidth && p.y() >= 0 && p.y() < myHeight) {
+                    myBack[(myHeight - 1 - p.y()) * myWidth + p.x()] = cell;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the status line below the board if anything on it changed.
+     *
+     * @param theLines the lines cleared
+     * @param theLevel the level
+     * @param theNext the next piece
+     * @param theState playing, paused or over
+     */
+    private void status(final int theLines, final int theLevel, final TetrisPiece theNext,
+                        final int theState) {
+        if (theLines != myShownLines || theLevel != myShownLevel || theNext != myShownNext
+            || theState != myShownState) {
+            moveTo(TOP + myHeight + 2, LEFT);
+            color(0);
+            put(LINES);
+            putInt(theLines);
+            put(LEVEL);
+            putInt(theLevel);
+            if (theNext != null) {
+                put(NEXT);
+                put((byte) theNext.name().charAt(0));
+            }
+            if (theState == PAUSE) {
+                put(PAUSED);
+            } else if (theState == OVER) {
+                put(GAME_OVER);
+            }
+            put(CLEAR_LINE);
+            myShownLines = theLines;
+            myShownLevel = theLevel;
+            myShownNext = theNext;
+            myShownState = theState;
+        }
+    }
+
+    /**
+     * Draws the walls and floor around the board.
+     */
+    private void drawBorder() {
+        color(0);
+        for (int y = 0; y < myHeight; y++) {
+            moveTo(TOP + 1 + y, LEFT);
+            put((byte) '|');
+            moveTo(TOP + 1 + y, LEFT + 1 + myWidth * CELL_COLUMNS);
+            put((byte) '|');
+        }
+        moveTo(TOP + 1 + myHeight, LEFT);
+        for (int x = 0; x < myWidth * CELL_COLUMNS + 2; x++) {
+            put((byte) '-');
+        }
+    }
+
+    /**
+     * Selects a colour unless it is already selected.
+     *
+     * @param theBlock the block ordinal
+     */
+    private void color(final int theBlock) {
+        if (theBlock != myColor) {
+            put(COLORS[theBlock]);
+            myColor = theBlock;
+        }
+    }
+
+    /**
+     * Moves the cursor.
+     *
+     * @param theRow the terminal row, from 1
+     * @param theColumn the terminal column, from 1
+     */
+    private void moveTo(final int theRow, final int theColumn) {
+        put(ESC);
+        put((byte) '[');
+        putInt(theRow);
+        put((byte) ';');
+        putInt(theColumn);
+        put((byte) 'H');
+    }
+
+    /**
+     * Appends a non-negative number in decimal.
+     *
+     * @param theValue the number
+     */
+    private void putInt(final int theValue) {
+        int divisor = 1;
+        while (theValue / divisor >= DECIMAL) {
+            divisor *= DECIMAL;
+        }
+        for (; divisor > 0; divisor /= DECIMAL) {
+            put((byte) ('0' + theValue / divisor % DECIMAL));
+        }
+    }
+
+    /**
+     * Appends bytes.
+     *
+     * @param theBytes the bytes
+     */
+    private void put(final byte[] theBytes) {
+        ensure(theBytes.length);
+        System.arraycopy(theBytes, 0, myBuffer, myLength, theBytes.length);
+        myLength += theBytes.length;
+    }
+
+    /**
+     * Appends one byte.
+     *
+     * @param theByte the byte
+     */
+    private void put(final byte theByte) {
+        ensure(1);
+        myBuffer[myLength++] = theByte;
+    }
+
+    /**
+     * Grows the buffer if it can not take more bytes.
+     *
+     * @param theBytes the number of bytes about to be appended
+     */
+    private void ensure(final int theBytes) {
+        if (myLength + theBytes > myBuffer.length) {
+            myBuffer = Arrays.copyOf(myBuffer, Math.max(myBuffer.length * 2,
+                                                        myLength + theBytes));
+        }
+    }
+
+    /**
+     * Writes the buffer in one call if it holds anything.
+     *
+     * @throws IOException if the bytes can not be written
+     */
+    private void flush() throws IOException {
+        if (myLength > 0) {
+            myOut.write(myBuffer, 0, myLength);
+            myOut.flush();
+            myLength = 0;
+        }
+    }
+
+    /**
+     * Encodes a string of plain characters.
+     *
+     * @param theText the text
+     * @return the bytes
+     */
+    private static byte[] ascii(final String theText) {
+        return theText.getBytes(StandardCharsets.US_ASCII);
+    }
+}
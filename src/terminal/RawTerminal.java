@@ -0,0 +1,180 @@
+package terminal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Puts the controlling terminal in raw mode and delivers key presses one at a
+ * time, without waiting for enter and without echo.
+ * <p>
+ * Raw mode is set with {@code stty} on {@code /dev/tty}, so this works on any
+ * POSIX terminal, including over SSH, and the previous mode is restored on
+ * {@link #close()}. A daemon thread reads standard input and queues keys;
+ * arrow keys arrive as {@link #KEY_UP}, {@link #KEY_DOWN}, {@link #KEY_LEFT}
+ * and {@link #KEY_RIGHT}, everything else as its byte value.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class RawTerminal implements Closeable {
+    /**
+     * Returned by {@link #poll()} when no key is waiting.
+     */
+    public static final int NONE = -1;
+    /**
+     * The up arrow.
+     */
+    public static final int KEY_UP = 0x101;
+    /**
+     * The down arrow.
+     */
+    public static final int KEY_DOWN = 0x102;
+    /**
+     * The right arrow.
+     */
+    public static final int KEY_RIGHT = 0x103;
+    /**
+     * The left arrow.
+     */
+    public static final int KEY_LEFT = 0x104;
+    /**
+     * The escape character that starts arrow key sequences.
+     */
+    private static final int ESC = 0x1B;
+    /**
+     * The controlling terminal.
+     */
+    private static final File TTY = new File("/dev/tty");
+
+    /**
+     * The terminal settings before raw mode, as printed by {@code stty -g}.
+     */
+    private final String mySavedMode;
+    /**
+     * Where keys are read from.
+     */
+    private final InputStream myIn;
+    /**
+     * Keys read and not yet polled.
+     */
+    private final Queue<Integer> myKeys;
+
+    /**
+     * Switches the terminal to raw mode and starts reading keys.
+     *
+     * @param theIn standard input of the terminal
+     * @throws IOException if there is no terminal or stty fails
+     */
+    public RawTerminal(final InputStream theIn) throws IOException {
+        super();
+        mySavedMode = stty("-g").trim();
+        stty("raw", "-echo");
+        myIn = theIn;
+        myKeys = new ConcurrentLinkedQueue<>();
+        Thread.ofPlatform().name("terminal-keys").daemon().start(this::read);
+    }
+
+    /**
+     * Returns the next key pressed.
+     *
+     * @return the key, or {@link #NONE} if no key is waiting
+     */
+    public int poll() {
+        final Integer key = myKeys.poll();
+        int result = NONE;
+        if (key != null) {
+            result = key;
+        }
+        return result;
+    }
+
+    /**
+     * Restores the terminal settings.
+     *
+     * @throws IOException if stty fails
+     */
+    @Override
+    public void close() throws IOException {
+        stty(mySavedMode);
+    }
+
+    /**
+     * Reads keys until standard input ends.
+     */
+    private void read() {
+        try {
+            int key = myIn.read();
+            while (key >= 0) {
+                if (key == ESC && myIn.available() >= 2 && myIn.read() == '[') {
+                    key = arrow(myIn.read());
+                }
+                if (key != NONE) {
+                    myKeys.add(key);
+                }
+                key = myIn.read();
+            }
+        } catch (final IOException e) {
+            // the terminal went away; no more keys
+        }
+    }
+
+    /**
+     * Decodes the last byte of an arrow key sequence.
+     *
+     * @param theCode the byte after the escape and bracket
+     * @return the arrow key, or NONE for other sequences
+     */
+    private static int arrow(final int theCode) {
+        int result = NONE;
+        switch (theCode) {
+            case 'A':
+                result = KEY_UP;
+                break;
+            case 'B':
+                result = KEY_DOWN;
+                break;
+            case 'C':
+                result = KEY_RIGHT;
+                break;
+            case 'D':
+                result = KEY_LEFT;
+                break;
+            default:
+                // function keys and the like are ignored
+        }
+        return result;
+    }
+
+    /**
+     * Runs stty on the controlling terminal.
+     *
+     * @param theArgs the stty arguments
+     * @return what stty printed
+     * @throws IOException if stty can not run or fails
+     */
+    private static String stty(final String... theArgs) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("stty");
+        command.addAll(List.of(theArgs));
+        final Process process = new ProcessBuilder(command).redirectInput(TTY)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final String output = new String(process.getInputStream().readAllBytes(),
+                                         StandardCharsets.US_ASCII);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("stty failed; is this a terminal?");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running stty", e);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,358 @@
+package view;
+
+import bundle.AssetBundle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Loads and decodes images and sounds in the background so the event dispatch
+ * thread never waits for disk or codec work.
+ * <p>
+ * Every asset is loaded at most once, on its own virtual thread, and handed
+ * out as a {@link CompletableFuture}; callers attach what to do with it, usually
+ * on the event dispatch thread. {@link #preload()} is called first thing in
+ * {@code main}, so decoding overlaps with starting Swing. Sounds are decoded to
+ * PCM in memory, so a clip can be opened without touching the file again. The
+ * load time of every asset is logged, and an asset that fails to load is logged
+ * once and its future completes exceptionally, so the game runs without it.
+ * <p>
+ * Assets are named, not located. They are read from an {@link AssetBundle}:
+ * the file named by the {@code tetris.assets} system property, or else
+ * {@code /assets.pak} on the class path. Assets missing from the bundle, or
+ * every asset when there is no bundle, are read from {@code /assets/} on the
+ * class path and then from {@code src/assets}, as loose files.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class AssetLoader {
+    /**
+     * The window icon.
+     */
+    public static final String LOGO = "logo.png";
+    /**
+     * The music played in the menu.
+     */
+    public static final String MENU_MUSIC = "menu.wav";
+    /**
+     * The music played during a game.
+     */
+    public static final String PLAYING_MUSIC = "playing.wav";
+    /**
+     * The sound when rows are cleared.
+     */
+    public static final String ROW_CLEAR_SOUND = "row-clear.wav";
+    /**
+     * The sound when four rows are cleared at once.
+     */
+    public static final String TETRIS_CLEAR_SOUND = "tetris-clear.wav";
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * The loader shared by the whole application.
+     */
+    private static final AssetLoader INSTANCE = new AssetLoader();
+    /**
+     * Key of the music clip among the assets.
+     */
+    private static final String MUSIC_CLIP = "music clip";
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * System property naming a bundle file to load assets from.
+     */
+    private static final String BUNDLE_PROPERTY = "tetris.assets";
+    /**
+     * The bundle on the class path.
+     */
+    private static final String BUNDLE_RESOURCE = "/assets.pak";
+    /**
+     * Class path directory of loose assets.
+     */
+    private static final String RESOURCE_DIRECTORY = "/assets/";
+    /**
+     * Directory of loose assets when running from the source tree.
+     */
+    private static final Path SOURCE_DIRECTORY = Path.of("src", "assets");
+
+    /**
+     * Runs every load on its own virtual thread.
+     */
+    private final Executor myExecutor;
+    /**
+     * Every asset requested so far, by name.
+     */
+    private final Map<String, CompletableFuture<?>> myAssets;
+    /**
+     * How long each loaded asset took, in nanoseconds, by name.
+     */
+    private final Map<String, Long> myLoadTimes;
+    /**
+     * The bundle assets are read from, or null if there is none.
+     */
+    private AssetBundle myBundle;
+    /**
+     * Whether the bundle was looked for yet.
+     */
+    private boolean myBundleOpened;
+
+    /**
+     * Creates the loader.
+     */
+    private AssetLoader() {
+        super();
+        myExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        myAssets = new ConcurrentHashMap<>();
+        myLoadTimes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the shared loader.
+     *
+     * @return the asset loader
+     */
+    public static AssetLoader getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts loading every asset the game uses, in parallel, and returns at once.
+     */
+    public void preload() {
+        image(LOGO);
+        musicClip();
+        sound(MENU_MUSIC);
+        sound(PLAYING_MUSIC);
+        sound(ROW_CLEAR_SOUND);
+        sound(TETRIS_CLEAR_SOUND);
+    }
+
+    /**
+     * Returns an image, loading it if nobody asked for it before.
+     *
+     * @param theName the name of the image
+     * @return the image once decoded
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<BufferedImage> image(final String theName) {
+        return (CompletableFuture<BufferedImage>) myAssets.computeIfAbsent(
+                theName, n -> load(n, this::readImage));
+    }
+
+    /**
+     * Returns a sound decoded to PCM, loading it if nobody asked for it before.
+     *
+     * @param theName the name of the sound
+     * @return the sound once decoded
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Sound> sound(final String theName) {
+        return (CompletableFuture<Sound>) myAssets.computeIfAbsent(
+                theName, n -> load(n, this::readSound));
+    }
+
+    /**
+     * Returns the clip music is played on. Getting a clip opens the audio
+     * mixer, which can take longer than decoding, so it is done in the
+     * background as well.
+     *
+     * @return the clip once acquired
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Clip> musicClip() {
+        return (CompletableFuture<Clip>) myAssets.computeIfAbsent(
+                MUSIC_CLIP, n -> load(n, name -> newClip()));
+    }
+
+    /**
+     * Returns how long each asset loaded so far took.
+     *
+     * @return load times in nanoseconds by name
+     */
+    public Map<String, Long> getLoadTimes() {
+        return Map.copyOf(myLoadTimes);
+    }
+
+    /**
+     * Loads one asset on a virtual thread and logs how long it took.
+     *
+     * @param theName the name of the asset
+     * @param theReader reads and decodes the asset
+     * @param <T> the type of the asset
+     * @return the asset once loaded
+     */
+    private <T> CompletableFuture<T> load(final String theName,
+                                          final Reader<T> theReader) {
+        return CompletableFuture.supplyAsync(() -> {
+            final long start = System.nanoTime();
+            try {
+                final T asset = theReader.read(theName);
+                final long nanos = System.nanoTime() - start;
+                myLoadTimes.put(theName, nanos);
+                LOGGER.log(Level.INFO, String.format("Loaded %s in %.1f ms", theName,
+                                                     nanos / NANOS_PER_MILLI));
+                return asset;
+            } catch (final IOException | UnsupportedAudioFileException
+                           | LineUnavailableException | IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Could not load " + theName, e);
+                throw new IllegalStateException("Could not load " + theName, e);
+            }
+        }, myExecutor);
+    }
+
+    /**
+     * Reads and decodes an image.
+     *
+     * @param theName the name of the image
+     * @return the image
+     * @throws IOException if the image can not be read or decoded
+     */
+    private BufferedImage readImage(final String theName) throws IOException {
+        try (InputStream in = open(theName)) {
+            final BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Unknown image format");
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Reads a sound and decodes it to PCM in memory. A clip only opens on an
+     * array, so this is the one copy out of the bundle.
+     *
+     * @param theName the name of the sound
+     * @return the sound
+     * @throws IOException if the sound can not be read
+     * @throws UnsupportedAudioFileException if the format is not supported
+     */
+    private Sound readSound(final String theName)
+            throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(open(theName))) {
+            return new Sound(in.getFormat(), in.readAllBytes());
+        }
+    }
+
+    /**
+     * Opens an asset from the bundle, or as a loose file if it is not bundled.
+     *
+     * @param theName the name of the asset
+     * @return a stream over the asset that supports mark and reset
+     * @throws IOException if the asset can not be found or the bundle is broken
+     */
+    private InputStream open(final String theName) throws IOException {
+        final AssetBundle bundle = getBundle();
+        final InputStream result;
+        if (bundle != null && bundle.contains(theName)) {
+            result = bundle.stream(theName);
+        } else {
+            // decoders peek at headers with mark and reset
+            final URL resource = AssetLoader.class.getResource(RESOURCE_DIRECTORY + theName);
+            if (resource == null) {
+                result = new BufferedInputStream(
+                        Files.newInputStream(SOURCE_DIRECTORY.resolve(theName)));
+            } else {
+                result = new BufferedInputStream(resource.openStream());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Opens the bundle the first time it is needed.
+     *
+     * @return the bundle, or null if there is none
+     * @throws IOException if the bundle exists but can not be read
+     */
+    private synchronized AssetBundle getBundle() throws IOException {
+        if (!myBundleOpened) {
+            myBundleOpened = true;
+            final long start = System.nanoTime();
+            final String file = System.getProperty(BUNDLE_PROPERTY);
+            if (file == null) {
+                myBundle = AssetBundle.fromClasspath(BUNDLE_RESOURCE);
+            } else {
+                myBundle = AssetBundle.open(Path.of(file));
+            }
+            if (myBundle != null) {
+                final double millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+                LOGGER.log(Level.INFO, String.format(
+                        "Opened asset bundle of %d assets in %.1f ms",
+                        myBundle.getNames().size(), millis));
+            }
+        }
+        return myBundle;
+    }
+
+    /**
+     * Gets a clip from the default mixer.
+     *
+     * @return the clip
+     * @throws LineUnavailableException if there is no audio output
+     */
+    private static Clip newClip() throws LineUnavailableException {
+        return AudioSystem.getClip();
+    }
+
+    /**
+     * Reads one asset.
+     *
+     * @param <T> the type of the asset
+     */
+    @FunctionalInterface
+    private interface Reader<T> {
+        /**
+         * Reads and decodes an asset.
+         *
+         * @param theName the name of the asset
+         * @return the asset
+         * @throws IOException if the asset can not be read
+         * @throws UnsupportedAudioFileException if a sound format is not supported
+         * @throws LineUnavailableException if there is no audio output
+         */
+        T read(String theName)
+                throws IOException, UnsupportedAudioFileException, LineUnavailableException;
+    }
+
+    /**
+     * A sound decoded to PCM.
+     *
+     * @param format the format of the samples
+     * @param data the samples
+     */
+    public record Sound(AudioFormat format, byte[] data) {
+        /**
+         * Opens a clip on this sound.
+         *
+         * @param theClip a closed clip
+         * @throws LineUnavailableException if the clip can not be opened
+         */
+        public void open(final Clip theClip) throws LineUnavailableException {
+            theClip.open(format, data, 0, data.length);
+        }
+    }
+}
@@ -9,10 +9,10 @@ import java.awt.FontMetrics;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,8 +20,13 @@ import java.util.function.Consumer;
 import javax.swing.JPanel;
 import model.Block;
 import model.Board;
-import model.MyMovableTetrisPiece;
+import model.BoardExecutor;
+import model.MovableTetrisPiece;
 import model.Point;
+import telemetry.InputLatency;
+import telemetry.LatencyHistogram;
+import telemetry.PaintEvent;
+import telemetry.StartupTime;
 
 /**
  * This class holds the board for an ongoing game of Tetris.
@@ -34,33 +39,49 @@ import model.Point;
  */
 public class BoardPanel extends JPanel implements PropertyChangeListener {
     /**
-     * Holds the total width of the board panel
+     * Holds the largest size of one tetrimino block in pixels
      */
-    private static final int WIDTH = 200;
+    private static final int BLOCK_SIZE = 20;
     /**
-     * Holds the total height of the board panel
+     * Holds the widest the board panel grows before the blocks get smaller
      */
-    private static final int HEIGHT = 400;
+    private static final int MAX_WIDTH = 600;
     /**
-     * Holds the unit width of the board in regards to tetrimino blocks
+     * Holds the tallest the board panel grows before the blocks get smaller
      */
-    private static final int GRID_WIDTH = 10;
+    private static final int MAX_HEIGHT = 800;
     /**
-     * Holds the unit height of the board in regards to tetrimino blocks
+     * Holds the smallest block size that still gets an outline and grid lines
+     */
+    private static final int MIN_OUTLINED_BLOCK = 4;
+    /**
+     * The Font that is used for displaying text in the game
      */
-    private static final int GRID_HEIGHT = 20;
+    private static final Font TEXT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 20);
     /**
-     * Holds the amount of tetrimino blocks that can be held in the board horizontally
+     * The Font that is used for the input latency overlay
      */
-    private static final int BLOCK_WIDTH = WIDTH / GRID_WIDTH;
+    private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
     /**
-     * Holds the amount of tetrimino blocks that can be held in the board vertically
+     * The opacity of the ghost piece
      */
-    private static final int BLOCK_HEIGHT = HEIGHT / GRID_HEIGHT;
+    private static final int GHOST_ALPHA = 70;
     /**
-     * The Font that is used for displaying text in the game
+     * The opacity of the input latency overlay background
      */
-    private static final Font TEXT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 20);
+    private static final int OVERLAY_ALPHA = 160;
+    /**
+     * The space below the last line of the input latency overlay
+     */
+    private static final int OVERLAY_PADDING = 4;
+    /**
+     * The width of the input latency overlay in full size blocks
+     */
+    private static final int OVERLAY_COLUMNS = 5;
+    /**
+     * Nanoseconds per millisecond, to show latency in milliseconds
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
     /**
      * Stores the current theme
      */
@@ -72,15 +93,12 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
     /**
      * Contains the only instance of the board model
      */
-    private final Board myBoard;
-    /**
-     * Contains the current movable piece to display
-     */
-    private MyMovableTetrisPiece myCurrentPiece;
+    private final BoardExecutor myBoard;
     /**
-     * Contains the board data to display
+     * The snapshot to display, so that the piece, the ghost and the stack of a
+     * frame always belong together, or null before the first one is published
      */
-    private List<Block[]> myBoardData;
+    private BoardExecutor.Snapshot myFrame;
     /**
      * Stores whether the current game has been lost / quit
      */
@@ -89,55 +107,119 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
      * Stores whether the current came is paused or not
      */
     private boolean myPaused;
+    /**
+     * The snapshot gone to by going back or forward in time while paused, or
+     * null if the paused game has not been gone through
+     */
+    private BoardExecutor.Snapshot myTimeTravel;
     /**
      * Stores whether the grid lines should be drawn
      */
     private boolean myGridLines;
+    /**
+     * Stores whether the input latency overlay should be drawn
+     */
+    private boolean myLatencyOverlay;
     /**
      *
      */
     private final Map<String, Consumer<PropertyChangeEvent>> myPropertyMaps;
+    /**
+     * Holds the unit width of the board in regards to tetrimino blocks
+     */
+    private final int myGridWidth;
+    /**
+     * Holds the unit height of the board in regards to tetrimino blocks
+     */
+    private final int myGridHeight;
+    /**
+     * Holds the size of one tetrimino block in pixels, scaled to fit the board
+     */
+    private final int myBlockSize;
+    /**
+     * Holds the total width of the board panel
+     */
+    private final int myWidth;
+    /**
+     * Holds the total height of the board panel
+     */
+    private final int myHeight;
 
     /**
      * Constructor sets up the layout, size, and color of the Board Panel.
+     * The blocks are scaled down so that large boards fit on the screen; boards
+     * too large even for one pixel blocks should be shown in a scroll pane.
      *
+     * @param theBoard the board to display
      */
-    public BoardPanel(final Board theBoard) {
+    public BoardPanel(final BoardExecutor theBoard) {
         super();
         myBoard = theBoard;
         myPropertyMaps = new HashMap<>();
+        myGridWidth = theBoard.getWidth();
+        myGridHeight = theBoard.getHeight();
+        myBlockSize = Math.max(1, Math.min(BLOCK_SIZE, Math.min(MAX_WIDTH / myGridWidth,
+                                                                MAX_HEIGHT / myGridHeight)));
+        myWidth = myGridWidth * myBlockSize;
+        myHeight = myGridHeight * myBlockSize;
         setUpColors();
         setUpPanel();
         setUpPropertyMaps();
     }
 
+    /**
+     * Tells whether the board is too large to fit even with one pixel blocks,
+     * so that it has to be shown in a scroll pane.
+     *
+     * @return true if the panel is larger than the largest board size
+     */
+    public boolean needsScrolling() {
+        return myWidth > MAX_WIDTH || myHeight > MAX_HEIGHT;
+    }
+
+    /**
+     * Returns the size to show of a board that needs scrolling.
+     *
+     * @return the largest board size, or the panel size if it is smaller
+     */
+    public Dimension getViewportSize() {
+        return new Dimension(Math.min(myWidth, MAX_WIDTH), Math.min(myHeight, MAX_HEIGHT));
+    }
+
     /**
      * Sets up the property change event mappings
      */
     private void setUpPropertyMaps() {
-        myPropertyMaps.put(myBoard.PROPERTY_CURRENT_PIECE, e ->
-                myCurrentPiece = (MyMovableTetrisPiece) e.getNewValue());
-        myPropertyMaps.put(myBoard.PROPERTY_BOARD_CHANGE, e ->
-                myBoardData = (List<Block[]>) e.getNewValue());
-        myPropertyMaps.put(myBoard.PROPERTY_ROW_CLEARED, e ->
-                myCurrentPiece = null);
-        myPropertyMaps.put(myBoard.PROPERTY_GAME_OVER, e ->
-                myGameOver = true);
-        myPropertyMaps.put(myBoard.PROPERTY_NEW_GAME, e ->
+        myPropertyMaps.put(BoardExecutor.PROPERTY_SNAPSHOT, e ->
+                myFrame = (BoardExecutor.Snapshot) e.getNewValue());
+        myPropertyMaps.put(Board.PROPERTY_GAME_OVER, e -> {
+            myGameOver = (Boolean) e.getNewValue();
+            if (!myGameOver) {
+                // gone back in time from the end of the game, which is now paused
+                myPaused = true;
+            }
+        });
+        myPropertyMaps.put(BoardExecutor.PROPERTY_TIME_TRAVEL, e ->
+                myTimeTravel = (BoardExecutor.Snapshot) e.getNewValue());
+        myPropertyMaps.put(Board.PROPERTY_NEW_GAME, e ->
                 resetBoard());
         myPropertyMaps.put(TetrisPanel.PROPERTY_PAUSE, e -> {
             if (!myGameOver) {
                 myPaused = !myPaused;
+                myTimeTravel = null;
             }
         });
         myPropertyMaps.put(TetrisPanel.PROPERTY_TOGGLE_GRID, e ->
                 myGridLines = !myGridLines);
+        myPropertyMaps.put(TetrisPanel.PROPERTY_TOGGLE_LATENCY, e ->
+                myLatencyOverlay = !myLatencyOverlay);
         myPropertyMaps.put(TetrisPanel.PROPERTY_COLOR_CHANGE, e ->
                 myTheme = (Color[]) e.getNewValue());
         myPropertyMaps.put(TetrisPanel.PROPERTY_END_GAME, e -> {
             if (myPaused) {
                 myPaused = false;
             }
+            myTimeTravel = null;
             myGameOver = true;
         });
     }
@@ -146,10 +228,10 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
      * This method sets up the panel in which the board is held
      */
     private void setUpPanel() {
-        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        setPreferredSize(new Dimension(myWidth, myHeight));
 //        setBackground(Color.RED);
         myBoard.addPropertyChangeListener(this);
-        myCurrentPiece = null;
+        myFrame = null;
         myGridLines = false;
         myGameOver = false;
         myPaused = false;
@@ -179,35 +261,88 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
      */
     @Override
     protected void paintComponent(final Graphics theGraphics) {
+        final PaintEvent paint = PaintEvent.start();
         super.paintComponent(theGraphics);
         final Graphics2D g = (Graphics2D) theGraphics;
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                 RenderingHints.VALUE_ANTIALIAS_ON);
-        final GradientPaint gp = new GradientPaint(WIDTH / 2F, 0,
+        final GradientPaint gp = new GradientPaint(myWidth / 2F, 0,
                                                     myTheme[0],
-                                                   WIDTH / 2F, HEIGHT,
+                                                   myWidth / 2F, myHeight,
                                                     myTheme[1]);
         g.setPaint(gp);
-        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.fillRect(0, 0, myWidth, myHeight);
         g.setPaint(null);
-        if (myCurrentPiece == null
-            && myBoardData == null) {
+        // one snapshot for the whole frame, even if another is published meanwhile
+        final BoardExecutor.Snapshot frame = myFrame;
+        final boolean started = frame != null && frame.getCurrentPiece() != null;
+        if (!started) {
             paintStartScreen(g);
         }
-        if (myCurrentPiece != null) {
-            paintCurrentPiece(g);
+        if (started && !myGameOver) {
+            paintGhostPiece(g, frame.getGhostPiece());
         }
-        if (myBoardData != null) {
-            paintOngoingBoard(g);
+        if (started) {
+            paintCurrentPiece(g, frame.getCurrentPiece());
         }
-        if (myPaused) {
+        if (frame != null) {
+            paintOngoingBoard(g, frame.getFrozenBlocks());
+        }
+        if (myTimeTravel != null && (myPaused || myGameOver)) {
+            paintTimeTravel(g);
+        } else if (myPaused) {
             paintPauseScreen(g);
-        } else if (myGridLines && myBoardData != null) {
+        } else if (myGridLines && frame != null) {
             paintGridLines(g);
         }
-        if (myGameOver) {
-            paintGameOver(g);
+        if (myGameOver && frame != null) {
+            paintGameOver(g, frame.getFrozenBlocks());
+        }
+        if (frame != null) {
+            InputLatency.getInstance().painted(frame.getApplied(), frame.getPublished());
+        }
+        StartupTime.getInstance().framePainted();
+        if (myLatencyOverlay) {
+            paintLatencyOverlay(g);
         }
+        paint.finish("BoardPanel", theGraphics);
+    }
+
+    /**
+     * Paints the input latency percentiles in the top left corner
+     *
+     * @param theGraphics the graphics object passed from paintComponent
+     */
+    private void paintLatencyOverlay(final Graphics2D theGraphics) {
+        final LatencyHistogram latency = InputLatency.getInstance().getKeyToPaint();
+        final String[] lines = {
+            String.format("p50   %.1f ms", millis(latency, LatencyHistogram.P50)),
+            String.format("p99   %.1f ms", millis(latency, LatencyHistogram.P99)),
+            String.format("p99.9 %.1f ms", millis(latency, LatencyHistogram.P999)),
+            "n     " + latency.getCount(),
+        };
+        theGraphics.setFont(OVERLAY_FONT);
+        final int lineHeight = theGraphics.getFontMetrics().getHeight();
+        theGraphics.setColor(new Color(0, 0, 0, OVERLAY_ALPHA));
+        final Rectangle view = getVisibleRect();
+        theGraphics.fillRect(view.x, view.y, BLOCK_SIZE * OVERLAY_COLUMNS,
+                             lineHeight * lines.length + OVERLAY_PADDING);
+        theGraphics.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            theGraphics.drawString(lines[i], view.x + 2, view.y + lineHeight * (i + 1));
+        }
+    }
+
+    /**
+     * Returns a percentile of a latency histogram in milliseconds
+     *
+     * @param theLatency the histogram
+     * @param thePercentile the percentile
+     * @return the latency in milliseconds
+     */
+    private static double millis(final LatencyHistogram theLatency,
+                                 final double thePercentile) {
+        return theLatency.getValueAtPercentile(thePercentile) / NANOS_PER_MILLI;
     }
 
     /**
@@ -218,12 +353,14 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
     private void paintGridLines(final Graphics2D theGraphics) {
         final int alpha = 100;
 
-        theGraphics.setColor(new Color(0, 0, 0, alpha));
-        for (int i = 1; i < GRID_WIDTH; i++) {
-            theGraphics.drawLine(i * BLOCK_WIDTH, 0, i * BLOCK_WIDTH, HEIGHT);
-        }
-        for (int i = 1; i < GRID_HEIGHT; i++) {
-            theGraphics.drawLine(0, i * BLOCK_HEIGHT, WIDTH, i * BLOCK_HEIGHT);
+        if (myBlockSize >= MIN_OUTLINED_BLOCK) {
+            theGraphics.setColor(new Color(0, 0, 0, alpha));
+            for (int i = 1; i < myGridWidth; i++) {
+                theGraphics.drawLine(i * myBlockSize, 0, i * myBlockSize, myHeight);
+            }
+            for (int i = 1; i < myGridHeight; i++) {
+                theGraphics.drawLine(0, i * myBlockSize, myWidth, i * myBlockSize);
+            }
         }
     }
 
@@ -238,8 +375,9 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
         theGraphics.setColor(Color.DARK_GRAY);
         theGraphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, TEXT_FONT.getSize() * 2));
         final FontMetrics fontMetrics = theGraphics.getFontMetrics();
-        final int centeredX = (WIDTH - fontMetrics.stringWidth(text)) / 2;
-        final int centeredY = (HEIGHT - fontMetrics.getHeight()) / 2
+        final Rectangle view = getVisibleRect();
+        final int centeredX = view.x + (view.width - fontMetrics.stringWidth(text)) / 2;
+        final int centeredY = view.y + (view.height - fontMetrics.getHeight()) / 2
                 + fontMetrics.getHeight() / 2;
         theGraphics.drawString(text, centeredX, centeredY);
 
@@ -254,82 +392,139 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
     private void paintPauseScreen(final Graphics2D theGraphics) {
         final String text = "PAUSED";
         theGraphics.setColor(Color.BLACK);
-        theGraphics.fillRect(0, 0, WIDTH, HEIGHT);
+        theGraphics.fillRect(0, 0, myWidth, myHeight);
         theGraphics.setColor(Color.WHITE);
         theGraphics.setFont(TEXT_FONT);
         final FontMetrics fontMetrics = theGraphics.getFontMetrics();
-        final int centeredX = (WIDTH - fontMetrics.stringWidth(text)) / 2;
-        final int centeredY = (HEIGHT - fontMetrics.getHeight()) / 2
+        final Rectangle view = getVisibleRect();
+        final int centeredX = view.x + (view.width - fontMetrics.stringWidth(text)) / 2;
+        final int centeredY = view.y + (view.height - fontMetrics.getHeight()) / 2
                 + fontMetrics.getHeight() / 2;
         theGraphics.drawString(text, centeredX, centeredY);
     }
+    /**
+     * Paints the tick being shown while going back and forward through a game
+     *
+     * @param theGraphics the graphics object passed from paintComponent
+     */
+    private void paintTimeTravel(final Graphics2D theGraphics) {
+        final String text = "Tick " + myTimeTravel.getTick() + " / "
+                            + myTimeTravel.getLength();
+        theGraphics.setColor(Color.WHITE);
+        theGraphics.setFont(OVERLAY_FONT);
+        final Rectangle view = getVisibleRect();
+        theGraphics.drawString(text, view.x + 2,
+                               view.y + theGraphics.getFontMetrics().getHeight());
+    }
+
     /**
      * Paints the current piece on the board
      *
      * @param theGraphics the graphics object passed from paintComponent
+     * @param thePiece the current piece of the frame
      */
-    private void paintCurrentPiece(final Graphics2D theGraphics) {
+    private void paintCurrentPiece(final Graphics2D theGraphics,
+                                   final MovableTetrisPiece thePiece) {
 
-        final Point[] points = myCurrentPiece.getBoardPoints();
+        final Point[] points = thePiece.getBoardPoints();
 
         theGraphics.setStroke(new BasicStroke(2));
         for (final Point point : points) {
-            theGraphics.setColor(myBlockColors.
-                    get(myCurrentPiece.getTetrisPiece().getBlock()));
-            theGraphics.fillRect(point.x() * BLOCK_WIDTH,
-                    (-point.y() + GRID_HEIGHT - 1) * BLOCK_HEIGHT,
-                    BLOCK_WIDTH, BLOCK_HEIGHT);
-            theGraphics.setColor(Color.BLACK);
-            theGraphics.drawRect(point.x() * BLOCK_WIDTH,
-                    (-point.y() + GRID_HEIGHT - 1) * BLOCK_HEIGHT,
-                    BLOCK_WIDTH, BLOCK_HEIGHT);
+            paintBlock(theGraphics, thePiece.getTetrisPiece().getBlock(),
+                       point.x(), point.y());
+        }
+    }
+    /**
+     * Paints a faint copy of the current piece where it would land. The board
+     * looks the landing height up in its table when it publishes a snapshot,
+     * so moving the piece around costs no simulated drops.
+     *
+     * @param theGraphics the graphics object passed from paintComponent
+     * @param theGhost the ghost piece of the frame, or null
+     */
+    private void paintGhostPiece(final Graphics2D theGraphics,
+                                 final MovableTetrisPiece theGhost) {
+        if (theGhost != null) {
+            final Color color = myBlockColors.get(theGhost.getTetrisPiece().getBlock());
+            theGraphics.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(),
+                                           GHOST_ALPHA));
+            for (final Point point : theGhost.getBoardPoints()) {
+                theGraphics.fillRect(point.x() * myBlockSize,
+                                     (-point.y() + myGridHeight - 1) * myBlockSize,
+                                     myBlockSize, myBlockSize);
+            }
         }
     }
     /**
      * Paints the ongoing board of the game
      *
      * @param theGraphics the graphics object passed from paintComponent
+     * @param theRows the frozen blocks of the frame, bottom row first
      */
-    private void paintOngoingBoard(final Graphics2D theGraphics) {
+    private void paintOngoingBoard(final Graphics2D theGraphics, final List<Block[]> theRows) {
 
         theGraphics.setStroke(new BasicStroke(2));
-        for (int i = myBoardData.size() - 1; i >= 0; i--) {
-            for (int j = 0; j < myBoardData.get(0).length; j++) {
-                final Block cur = myBoardData.get(i)[j];
-                if (cur != null) {
-                    theGraphics.setColor(myBlockColors.get(cur));
-                    theGraphics.fillRect(j * BLOCK_WIDTH,
-                            (-i + GRID_HEIGHT - 1) * BLOCK_HEIGHT,
-                            BLOCK_WIDTH, BLOCK_HEIGHT);
-                    theGraphics.setColor(Color.BLACK);
-                    theGraphics.drawRect(j * BLOCK_WIDTH,
-                            (-i + GRID_HEIGHT - 1) * BLOCK_HEIGHT,
-                            BLOCK_WIDTH, BLOCK_HEIGHT);
+        // only the rows and columns inside the clip, which matters on large boards
+        final Rectangle clip = theGraphics.getClipBounds(getVisibleRect());
+        final int top = Math.min(theRows.size() - 1,
+                                 myGridHeight - 1 - clip.y / myBlockSize);
+        final int bottom = Math.max(0, myGridHeight - 1
+                                       - (clip.y + clip.height - 1) / myBlockSize);
+        final int left = Math.max(0, clip.x / myBlockSize);
+        final int right = Math.min(myGridWidth - 1, (clip.x + clip.width - 1) / myBlockSize);
+        for (int i = top; i >= bottom; i--) {
+            final Block[] row = theRows.get(i);
+            for (int j = left; j <= right; j++) {
+                if (row[j] != null) {
+                    paintBlock(theGraphics, row[j], j, i);
                 }
             }
         }
     }
+
+    /**
+     * Paints one block of the board, with an outline when blocks are large enough
+     *
+     * @param theGraphics the graphics object passed from paintComponent
+     * @param theBlock the block to paint
+     * @param theX the column of the block
+     * @param theY the row of the block, counted from the bottom
+     */
+    private void paintBlock(final Graphics2D theGraphics, final Block theBlock,
+                            final int theX, final int theY) {
+        final int x = theX * myBlockSize;
+        final int y = (-theY + myGridHeight - 1) * myBlockSize;
+        theGraphics.setColor(myBlockColors.get(theBlock));
+        theGraphics.fillRect(x, y, myBlockSize, myBlockSize);
+        if (myBlockSize >= MIN_OUTLINED_BLOCK) {
+            theGraphics.setColor(Color.BLACK);
+            theGraphics.drawRect(x, y, myBlockSize, myBlockSize);
+        }
+    }
     /**
      * Paints the game over screen
      *
      * @param theGraphics the graphics object passed from paintComponent
+     * @param theRows the frozen blocks of the frame, bottom row first
      */
-    private void paintGameOver(final Graphics2D theGraphics) {
+    private void paintGameOver(final Graphics2D theGraphics, final List<Block[]> theRows) {
         final String text = "Game Over!";
-        paintOngoingBoard(theGraphics);
+        paintOngoingBoard(theGraphics, theRows);
 
         // Draw black rectangle behind text
-        final int boxHeight = HEIGHT / 10;
+        final Rectangle view = getVisibleRect();
+        final int boxHeight = view.height / 10;
 
         theGraphics.setColor(Color.BLACK);
-        theGraphics.fillRect(0, HEIGHT / 2 - (boxHeight / 2), WIDTH, boxHeight);
+        theGraphics.fillRect(view.x, view.y + view.height / 2 - (boxHeight / 2),
+                             view.width, boxHeight);
 
         // Draw text centered on the board
         theGraphics.setColor(Color.WHITE);
         theGraphics.setFont(TEXT_FONT);
         final FontMetrics fontMetrics = theGraphics.getFontMetrics();
-        final int centeredX = (WIDTH - fontMetrics.stringWidth(text)) / 2;
-        final int centeredY = (HEIGHT - fontMetrics.getHeight()) / 2
+        final int centeredX = view.x + (view.width - fontMetrics.stringWidth(text)) / 2;
+        final int centeredY = view.y + (view.height - fontMetrics.getHeight()) / 2
                 + fontMetrics.getHeight() / 2;
         theGraphics.drawString(text, centeredX, centeredY);
     }
@@ -354,8 +549,7 @@ public class BoardPanel extends JPanel implements PropertyChangeListener {
     private void resetBoard() {
         myPaused = false;
         myGameOver = false;
-        myBoardData = new ArrayList<>();
-        myCurrentPiece = null;
+        myTimeTravel = null;
         repaint();
     }
 }
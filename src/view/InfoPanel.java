@@ -20,7 +20,8 @@ import java.util.function.Consumer;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import model.Board;
-import model.TetrisBoard;
+import model.ScoringEngine;
+import telemetry.PaintEvent;
 
 /**
  * The InfoPanel class that is used to create a panel containing
@@ -31,57 +32,19 @@ import model.TetrisBoard;
  */
 public final class InfoPanel extends JPanel implements PropertyChangeListener {
     /**
-     * Path for the high score folder.
+     * Path for the high score folder, which the tetris.highscore system
+     * property may change, for example so test runs keep their own.
      */
-    private static final String HIGH_SCORE_FOLDER = "src/assets/highscore.txt";
-    /**
-     * Used for the next level info.
-     */
-    private static final int DIVISOR = 5;
+    private static final String HIGH_SCORE_FOLDER =
+            System.getProperty("tetris.highscore", "src/assets/highscore.txt");
     /**
      * Number of rows for the grid layout.
      */
-    private static final int MYGRIDROWS = 12;
+    private static final int MYGRIDROWS = 15;
     /**
      * Number of columns for the grid layout.
      */
     private static final int MYGRIDCOLUMNS = 1;
-    /**
-     * Score for level 1
-     */
-    private static final int MYLEVELSTAGE1 = 40;
-    /**
-     * Score for level 2
-     */
-    private static final int MYLEVELSTAGE2 = 100;
-    /**
-     * Score for level 3
-     */
-    private static final int MYLEVELSTAGE3 = 300;
-    /**
-     * Score for level 4
-     */
-    private static final int MYLEVELSTAGE4 = 1200;
-    /**
-     * For when theNumRowsCleared = 1
-     */
-    private static final int MYROWSCLEARED1 = 1;
-    /**
-     * For when theNumRowsCleared = 2
-     */
-    private static final int MYROWSCLEARED2 = 2;
-    /**
-     * For when theNumRowsCleared = 3
-     */
-    private static final int MYROWSCLEARED3 = 3;
-    /**
-     * For when theNumRowsCleared = 4
-     */
-    private static final int MYROWSCLEARED4 = 4;
-    /**
-     * Amount of rows to progress the levels
-     */
-    private static final int MYLEVEL = 5;
     /**
      * Size for X of the panel
      */
@@ -89,28 +52,19 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
     /**
      * Size for Y of the panel
      */
-    private static final int MYHEIGHT = 250;
+    private static final int MYHEIGHT = 310;
     /**
-     * Origin Score for the game.
+     * Names of clears by the number of lines.
      */
-    private static final int MYORIGIN = -8;
+    private static final String[] CLEAR_NAMES = {"", "single", "double", "triple", "tetris"};
     /**
      * Array of colors for background of panel.
      */
     private Color[] myTheme;
     /**
-     * Represents the player's current score.
-     */
-    private int myScore = MYORIGIN;
-    /**
-     * Represents the number n of rows cleared during the game.
+     * The score of the game, as last published by the board.
      */
-    private int myRowsCleared;
-    /**
-     * The game's current level.
-     * Level is the number of rows cleared divided by 5 and then add 1
-     */
-    private int myLevel = 1;
+    private ScoringEngine.Snapshot myScore;
     /**
      * A label displaying the row count.
      */
@@ -131,6 +85,10 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
      * A label displaying when the next level occurs.
      */
     private JLabel myNextLevelLabel;
+    /**
+     * A label displaying the last clear, spin, back to back or combo.
+     */
+    private JLabel myLastClearLabel;
 
     /**
      * A map that stores and puts information regarding the board panel into it.
@@ -138,19 +96,21 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
     private Map<String, Consumer<PropertyChangeEvent>> myMappings;
     /**
      * The constructor sets up the size, color, and layout of the Info Panel.
+     *
+     * @param theBoard the board whose score is shown
      */
-    public InfoPanel() {
+    public InfoPanel(final Board theBoard) {
         super();
         setPanel();
-        final Board board = TetrisBoard.getInstance();
-        board.addPropertyChangeListener(this);
+        theBoard.addPropertyChangeListener(this);
+        myScore = new ScoringEngine().snapshot();
         buildComponents();
         setLayout(new GridLayout(MYGRIDROWS, MYGRIDCOLUMNS));
         layoutComponents();
         myTheme = TetrisPanel.DEFAULT_THEME;
         setUpMappings();
     }
-    private int getHighscore() {
+    private long getHighscore() {
         final Scanner s;
         final File file = new File(HIGH_SCORE_FOLDER);
         try {
@@ -158,46 +118,40 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
         } catch (final FileNotFoundException e) {
             throw new RuntimeException(e);
         }
-        int out = 0;
-        if (s.hasNextInt()) {
-            out = s.nextInt();
+        long out = 0;
+        if (s.hasNextLong()) {
+            out = s.nextLong();
         }
+        s.close();
         return out;
     }
     private void newHighscore() {
-        final File file = new File(HIGH_SCORE_FOLDER);
-        final PrintStream p;
-        try {
-            p = new PrintStream(file);
-        } catch (final FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-        if (myScore > getHighscore()) {
-            p.print(myScore);
+        // read the old high score before opening the file truncates it
+        if (myScore.score() > getHighscore()) {
+            try (PrintStream p = new PrintStream(new File(HIGH_SCORE_FOLDER))) {
+                p.print(myScore.score());
+            } catch (final FileNotFoundException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
     private void setUpMappings() {
-        final int pointPerTetrinom = 4;
-
         myMappings = new HashMap<>();
 
-        myMappings.put(Board.PROPERTY_ROW_CLEARED, e ->
-                updateLevel((int) e.getNewValue()));
-        myMappings.put(TetrisPanel.PROPERTY_END_GAME, e -> {
-            newHighscore();
+        myMappings.put(Board.PROPERTY_SCORE, e -> {
+            myScore = (ScoringEngine.Snapshot) e.getNewValue();
             displayScore();
-            myScore = MYORIGIN;
         });
-        myMappings.put(Board.PROPERTY_GAME_OVER, e -> {
+        myMappings.put(TetrisPanel.PROPERTY_END_GAME, e -> {
             newHighscore();
             displayScore();
-            myScore = MYORIGIN;
         });
-        myMappings.put(Board.PROPERTY_NEW_GAME, e ->
-                resetStats());
-        myMappings.put(Board.PROPERTY_NEXT_PIECE, e -> {
-            myScore += pointPerTetrinom;
+        myMappings.put(Board.PROPERTY_GAME_OVER, e -> {
+            // false when the game is gone back in from its end
+            if ((Boolean) e.getNewValue()) {
+                newHighscore();
+            }
             displayScore();
         });
         myMappings.put(TetrisPanel.PROPERTY_COLOR_CHANGE, e -> {
@@ -205,27 +159,6 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
             repaint();
         });
     }
-    private void resetStats() {
-        myScore = 0;
-        myRowsCleared = 0;
-        myLevel = 1;
-        displayScore();
-    }
-    private void updateLevel(final int theNumRowsCleared) {
-        myRowsCleared += theNumRowsCleared;
-        myLevel = this.myRowsCleared / MYLEVEL + 1;
-        if (theNumRowsCleared == MYROWSCLEARED1) {
-            myScore += MYLEVELSTAGE1 * myLevel;
-        } else if (theNumRowsCleared == MYROWSCLEARED2) {
-            myScore += MYLEVELSTAGE2 * myLevel;
-        } else if (theNumRowsCleared == MYROWSCLEARED3) {
-            myScore += MYLEVELSTAGE3 * myLevel;
-        } else if (theNumRowsCleared == MYROWSCLEARED4) {
-            myScore += MYLEVELSTAGE4 * myLevel;
-        }
-        // Still need to change the score and level.
-        displayScore();
-    }
 
     /**
      * Sets up the background color and the size of the info panel.
@@ -239,12 +172,43 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
      * Displays the current game's score.
      */
     private void displayScore() {
-        final int nextLevel = 5 - myRowsCleared % DIVISOR;
-        myRowsLabel.setText("Rows Cleared: " + myRowsCleared);
-        myLevelLabel.setText("Level: " + myLevel);
-        myScoreLabel.setText("Score: " + myScore);
+        final int nextLevel = ScoringEngine.LINES_PER_LEVEL
+                              - myScore.lines() % ScoringEngine.LINES_PER_LEVEL;
+        myRowsLabel.setText("Rows Cleared: " + myScore.lines());
+        myLevelLabel.setText("Level: " + myScore.level());
+        myScoreLabel.setText("Score: " + myScore.score());
         myHighScoreLabel.setText("High Score: " + getHighscore());
         myNextLevelLabel.setText("Next level in " + nextLevel + " lines");
+        myLastClearLabel.setText(describeLastClear());
+    }
+
+    /**
+     * Describes what the last piece scored for, such as "B2B T-spin double".
+     *
+     * @return the description, empty if the last piece was plain
+     */
+    private String describeLastClear() {
+        final StringBuilder sb = new StringBuilder();
+        if (myScore.lastBackToBack()) {
+            sb.append("B2B ");
+        }
+        switch (myScore.lastSpin()) {
+            case MINI:
+                sb.append("Mini T-spin ");
+                break;
+            case FULL:
+                sb.append("T-spin ");
+                break;
+            default:
+                break;
+        }
+        if (myScore.lastLines() > 0 || sb.length() > 0) {
+            sb.append(CLEAR_NAMES[myScore.lastLines()]);
+        }
+        if (myScore.lastLines() > 0 && myScore.combo() > 0) {
+            sb.append(" combo ").append(myScore.combo());
+        }
+        return sb.toString().trim();
     }
 
     private void buildComponents() {
@@ -254,6 +218,7 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
         myScoreLabel = new JLabel("Score: 0");
         myHighScoreLabel = new JLabel("High Score:");
         myNextLevelLabel = new JLabel("Next level in 5 lines");
+        myLastClearLabel = new JLabel();
     }
 
     private void layoutComponents() {
@@ -263,6 +228,7 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
         add(myRowsLabel);
         add(myLevelLabel);
         add(myNextLevelLabel);
+        add(myLastClearLabel);
 
         final JLabel left = new JLabel("Move left: left or A/a");
 
@@ -276,17 +242,23 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
 
         final JLabel pause = new JLabel("Pause: P/p");
 
+        final JLabel hold = new JLabel("Hold: C/c or shift");
+
         final JLabel mute = new JLabel("Mute: M/m");
 
-        paintLabel(List.of(left, right, down, rotate, drop, pause, mute));
+        final JLabel rewind = new JLabel("Rewind when paused: [ ]");
+
+        paintLabel(List.of(left, right, down, rotate, drop, hold, pause, mute, rewind));
 
         add(left);
         add(right);
         add(down);
         add(rotate);
         add(drop);
+        add(hold);
         add(pause);
         add(mute);
+        add(rewind);
     }
     private void paintLabel(final List<JLabel> theLabels) {
         for (final JLabel label: theLabels) {
@@ -295,6 +267,7 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
     }
     @Override
     protected void paintComponent(final Graphics theGraphics) {
+        final PaintEvent paint = PaintEvent.start();
         super.paintComponent(theGraphics);
         final Graphics2D g2d = (Graphics2D) theGraphics;
         // for better graphics display
@@ -308,6 +281,7 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
         g2d.setPaint(gp);
         g2d.fillRect(0, 0, MYWIDTH, MYHEIGHT);
         g2d.setPaint(null);
+        paint.finish("InfoPanel", theGraphics);
     }
 
     @Override
@@ -322,5 +296,6 @@ public final class InfoPanel extends JPanel implements PropertyChangeListener {
         myScoreLabel.setForeground(Color.WHITE);
         myHighScoreLabel.setForeground(Color.WHITE);
         myNextLevelLabel.setForeground(Color.WHITE);
+        myLastClearLabel.setForeground(Color.WHITE);
     }
 }
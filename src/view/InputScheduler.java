@@ -0,0 +1,433 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import telemetry.InputLatency;
+
+/**
+ * Turns key presses and releases into game actions with delayed auto shift (DAS)
+ * and auto repeat rate (ARR) timing that does not depend on the operating
+ * system's key repeat settings.
+ * <p>
+ * Key listeners only add timestamped inputs to a queue. A scheduler thread
+ * drains the queue once every millisecond, tracks which keys are held, and
+ * works out which actions are due. Repeats are timed from the moment the key
+ * was pressed, not from when the scheduler happened to run, so a slightly late
+ * tick does not make them drift. A tick repeats each key at most once, and a
+ * tick late by a whole repeat interval or more drops the missed repeats rather
+ * than sending them in a burst. Due actions are collected in a buffer the
+ * scheduler reuses, so a tick with nothing due allocates nothing, and are
+ * handed to the sink on the event dispatch thread in one batch per tick, where
+ * they can check the state of the game before they are queued for the board.
+ * The time of the first new key press in a batch is passed to
+ * {@link InputLatency} so the delay until it is painted can be measured.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class InputScheduler {
+    /**
+     * Default delay before a held sideways key starts repeating, in milliseconds.
+     */
+    public static final int DEFAULT_DAS = 167;
+    /**
+     * Default time between sideways repeats, in milliseconds.
+     */
+    public static final int DEFAULT_ARR = 33;
+    /**
+     * Default time between soft drops while the key is held, in milliseconds.
+     */
+    public static final int DEFAULT_SOFT_DROP = 50;
+    /**
+     * Resolution of the scheduler, in milliseconds.
+     */
+    private static final long TICK = 1;
+    /**
+     * A release followed this quickly by a press of the same key is treated as
+     * operating system key repeat and ignored, in nanoseconds.
+     */
+    private static final long RELEASE_GRACE = TimeUnit.MILLISECONDS.toNanos(5);
+    /**
+     * Marks a key with no release waiting to be applied.
+     */
+    private static final long NO_RELEASE = Long.MIN_VALUE;
+    /**
+     * Marks a tick without a new key press.
+     */
+    private static final long NO_PRESS = Long.MIN_VALUE;
+    /**
+     * Every action, so a tick does not copy Action.values().
+     */
+    private static final Action[] ALL_ACTIONS = Action.values();
+    /**
+     * The number of actions.
+     */
+    private static final int ACTIONS = ALL_ACTIONS.length;
+
+    /**
+     * The inputs not yet seen by the scheduler.
+     */
+    private final Queue<Input> myInputs;
+    /**
+     * Receives the due actions on the event dispatch thread.
+     */
+    private final Consumer<Action> mySink;
+    /**
+     * Delayed auto shift in nanoseconds.
+     */
+    private final long myDas;
+    /**
+     * Auto repeat rate in nanoseconds.
+     */
+    private final long myArr;
+    /**
+     * Soft drop repeat rate in nanoseconds.
+     */
+    private final long mySoftDrop;
+    /**
+     * Whether the key of each action is held, as seen by the scheduler.
+     */
+    private final boolean[] myHeld;
+    /**
+     * When each held action next repeats.
+     */
+    private final long[] myNextRepeat;
+    /**
+     * When each action's key was released, or NO_RELEASE.
+     */
+    private final long[] myPendingRelease;
+    /**
+     * The actions due in the tick being run, reused by every tick.
+     */
+    private final List<Action> myDue;
+    /**
+     * The sideways action that repeats while both directions are held.
+     */
+    private Action myShift;
+    /**
+     * The thread running the scheduler, or null when stopped.
+     */
+    private ScheduledExecutorService myExecutor;
+
+    /**
+     * Creates a scheduler with the default timings.
+     *
+     * @param theSink receives the due actions on the event dispatch thread
+     */
+    public InputScheduler(final Consumer<Action> theSink) {
+        this(theSink, DEFAULT_DAS, DEFAULT_ARR, DEFAULT_SOFT_DROP);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param theSink receives the due actions on the event dispatch thread
+     * @param theDas delay before a held sideways key repeats, in milliseconds
+     * @param theArr time between sideways repeats, in milliseconds, at least 1
+     * @param theSoftDrop time between soft drops, in milliseconds, at least 1
+     */
+    public InputScheduler(final Consumer<Action> theSink, final int theDas,
+                          final int theArr, final int theSoftDrop) {
+        super();
+        if (theDas < 0 || theArr < 1 || theSoftDrop < 1) {
+            throw new IllegalArgumentException("DAS must not be negative and ARR and "
+                                               + "soft drop must be at least 1 ms");
+        }
+        myInputs = new ConcurrentLinkedQueue<>();
+        mySink = theSink;
+        myDas = TimeUnit.MILLISECONDS.toNanos(theDas);
+        myArr = TimeUnit.MILLISECONDS.toNanos(theArr);
+        mySoftDrop = TimeUnit.MILLISECONDS.toNanos(theSoftDrop);
+        myHeld = new boolean[ACTIONS];
+        myNextRepeat = new long[ACTIONS];
+        myPendingRelease = new long[ACTIONS];
+        Arrays.fill(myPendingRelease, NO_RELEASE);
+        myDue = new ArrayList<>();
+    }
+
+    /**
+     * Starts the scheduler thread if it is not running.
+     */
+    public synchronized void start() {
+        if (myExecutor == null) {
+            myExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "input-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            myExecutor.scheduleAtFixedRate(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the scheduler thread.
+     */
+    public synchronized void stop() {
+        if (myExecutor != null) {
+            myExecutor.shutdownNow();
+            myExecutor = null;
+        }
+    }
+
+    /**
+     * Records that the key of an action was pressed. May be called from any thread.
+     *
+     * @param theAction the action
+     */
+    public void press(final Action theAction) {
+        myInputs.add(new Input(theAction, true, System.nanoTime()));
+    }
+
+    /**
+     * Records that the key of an action was released. May be called from any thread.
+     *
+     * @param theAction the action
+     */
+    public void release(final Action theAction) {
+        myInputs.add(new Input(theAction, false, System.nanoTime()));
+    }
+
+    /**
+     * Releases every key, for example when the game is paused or ends.
+     * May be called from any thread.
+     */
+    public void releaseAll() {
+        for (final Action action : ALL_ACTIONS) {
+            release(action);
+        }
+    }
+
+    /**
+     * Drains the inputs and hands the actions that are due to the sink.
+     * Runs on the scheduler thread only.
+     */
+    private void tick() {
+        final long now = System.nanoTime();
+        final List<Action> due = myDue;
+        due.clear();
+        long firstPress = NO_PRESS;
+        Input input = myInputs.poll();
+        while (input != null) {
+            if (!input.isPress()) {
+                myPendingRelease[input.getAction().ordinal()] = input.getTime();
+            } else if (pressed(input.getAction(), input.getTime(), due)
+                       && firstPress == NO_PRESS) {
+                firstPress = input.getTime();
+            }
+            input = myInputs.poll();
+        }
+        for (final Action action : ALL_ACTIONS) {
+            final int i = action.ordinal();
+            if (myPendingRelease[i] != NO_RELEASE
+                && now - myPendingRelease[i] >= RELEASE_GRACE) {
+                released(action, myPendingRelease[i]);
+            }
+            if (myHeld[i] && myPendingRelease[i] == NO_RELEASE && repeats(action)) {
+                if (now - myNextRepeat[i] >= 0) {
+                    due.add(action);
+                    myNextRepeat[i] += interval(action);
+                    if (now - myNextRepeat[i] >= 0) {
+                        // the scheduler stalled, so start the repeats over from now
+                        myNextRepeat[i] = now + interval(action);
+                    }
+                }
+            }
+        }
+        if (!due.isEmpty()) {
+            // the buffer is reused by the next tick, so the batch gets its own copy
+            final Action[] batch = due.toArray(new Action[0]);
+            final long press = firstPress;
+            SwingUtilities.invokeLater(() -> {
+                if (press != NO_PRESS) {
+                    InputLatency.getInstance().keyEvent(press);
+                }
+                for (final Action action : batch) {
+                    mySink.accept(action);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies a key press.
+     *
+     * @param theAction the action pressed
+     * @param theTime when the key was pressed
+     * @param theDue the actions due in this tick
+     * @return true if this was a new press rather than a key repeat
+     */
+    private boolean pressed(final Action theAction, final long theTime,
+                         final List<Action> theDue) {
+        final int i = theAction.ordinal();
+        boolean result = false;
+        if (myPendingRelease[i] != NO_RELEASE
+            && theTime - myPendingRelease[i] < RELEASE_GRACE) {
+            // a release and press this close together is operating system key repeat
+            myPendingRelease[i] = NO_RELEASE;
+        } else if (!myHeld[i] || myPendingRelease[i] != NO_RELEASE) {
+            result = true;
+            myPendingRelease[i] = NO_RELEASE;
+            myHeld[i] = true;
+            theDue.add(theAction);
+            if (theAction.isShift()) {
+                myShift = theAction;
+                myNextRepeat[i] = theTime + myDas;
+            } else {
+                myNextRepeat[i] = theTime + interval(theAction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies a key release. When one sideways key is released while the other
+     * is still held, the other one starts its delayed auto shift again.
+     *
+     * @param theAction the action released
+     * @param theTime when the key was released
+     */
+    private void released(final Action theAction, final long theTime) {
+        final int i = theAction.ordinal();
+        myHeld[i] = false;
+        myPendingRelease[i] = NO_RELEASE;
+        if (theAction == myShift) {
+            myShift = null;
+            for (final Action other : ALL_ACTIONS) {
+                if (other.isShift() && myHeld[other.ordinal()]) {
+                    myShift = other;
+                    myNextRepeat[other.ordinal()] = theTime + myDas;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a held action repeats now.
+     *
+     * @param theAction the action
+     * @return true if the action auto repeats
+     */
+    private boolean repeats(final Action theAction) {
+        return theAction == Action.SOFT_DROP || theAction == myShift;
+    }
+
+    /**
+     * Returns the repeat interval of an action.
+     *
+     * @param theAction the action
+     * @return the interval in nanoseconds
+     */
+    private long interval(final Action theAction) {
+        long result = myArr;
+        if (theAction == Action.SOFT_DROP) {
+            result = mySoftDrop;
+        }
+        return result;
+    }
+
+    /**
+     * The game actions that keys can trigger.
+     */
+    public enum Action {
+        /**
+         * Moves the piece left, repeating after the delayed auto shift.
+         */
+        LEFT,
+        /**
+         * Moves the piece right, repeating after the delayed auto shift.
+         */
+        RIGHT,
+        /**
+         * Moves the piece down, repeating at the soft drop rate.
+         */
+        SOFT_DROP,
+        /**
+         * Rotates the piece clockwise once per press.
+         */
+        ROTATE_CW,
+        /**
+         * Drops the piece once per press.
+         */
+        HARD_DROP,
+        /**
+         * Swaps the piece with the hold slot once per press.
+         */
+        HOLD;
+
+        /**
+         * Tells whether this is a sideways move.
+         *
+         * @return true for LEFT and RIGHT
+         */
+        boolean isShift() {
+            return this == LEFT || this == RIGHT;
+        }
+    }
+
+    /**
+     * A timestamped key press or release.
+     */
+    private static final class Input {
+        /**
+         * The action of the key.
+         */
+        private final Action myAction;
+        /**
+         * True for a press, false for a release.
+         */
+        private final boolean myPress;
+        /**
+         * When the input happened, from System.nanoTime.
+         */
+        private final long myTime;
+
+        /**
+         * Creates an input.
+         *
+         * @param theAction the action of the key
+         * @param thePress true for a press, false for a release
+         * @param theTime when the input happened
+         */
+        Input(final Action theAction, final boolean thePress, final long theTime) {
+            super();
+            myAction = theAction;
+            myPress = thePress;
+            myTime = theTime;
+        }
+
+        /**
+         * Returns the action of the key.
+         *
+         * @return the action
+         */
+        Action getAction() {
+            return myAction;
+        }
+
+        /**
+         * Tells whether this is a press.
+         *
+         * @return true for a press
+         */
+        boolean isPress() {
+            return myPress;
+        }
+
+        /**
+         * Returns when the input happened.
+         *
+         * @return the time from System.nanoTime
+         */
+        long getTime() {
+            return myTime;
+        }
+    }
+}
@@ -15,8 +15,10 @@ import java.util.Map;
 import javax.swing.JPanel;
 import model.Block;
 import model.Board;
+import model.PiecePreview;
 import model.Rotation;
 import model.TetrisPiece;
+import telemetry.PaintEvent;
 
 
 
@@ -51,6 +53,31 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
      * Distance of 1 square
      */
     private static final int MYSIZE = 5;
+    /**
+     * Size of one small slot below the next piece, for the hold piece and the
+     * pieces after the next one
+     */
+    private static final int SLOT = 50;
+    /**
+     * Small slots in one row
+     */
+    private static final int SLOTS_PER_ROW = MYWIDTH / SLOT;
+    /**
+     * Size of one block in a small slot
+     */
+    private static final int SLOT_BLOCK = 10;
+    /**
+     * Font size of the hold label
+     */
+    private static final int SLOTFONT = 10;
+    /**
+     * Opacity of the hold piece while it can not be swapped
+     */
+    private static final int USED_HOLD_ALPHA = 90;
+    /**
+     * Opacity of pieces that are painted normally
+     */
+    private static final int OPAQUE = 255;
     /**
      * Board of the Tetris game
      */
@@ -59,6 +86,10 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
      * The next piece of Tetris game
      */
     private TetrisPiece myPiece;
+    /**
+     * The previewed pieces and hold slot
+     */
+    private PiecePreview myPreview;
     /**
      * The colors for the tetris pieces
      */
@@ -86,12 +117,18 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
         myTheme = TetrisPanel.DEFAULT_THEME;
         myBoard = theBoard;
         myBoard.addPropertyChangeListener(this);
-        this.setPreferredSize(new Dimension(MYWIDTH, MYHEIGHT));
+        this.setPreferredSize(new Dimension(MYWIDTH, MYHEIGHT + SLOT));
     }
     @Override
     public void propertyChange(final PropertyChangeEvent theEvent) {
         if (theEvent.getPropertyName().equals(myBoard.PROPERTY_NEXT_PIECE)) {
-            myPiece = (TetrisPiece) theEvent.getNewValue();
+            myPreview = (PiecePreview) theEvent.getNewValue();
+            myPiece = myPreview.get(0);
+            final int height = MYHEIGHT + slotRows(myPreview.size()) * SLOT;
+            if (getPreferredSize().height != height) {
+                setPreferredSize(new Dimension(MYWIDTH, height));
+                revalidate();
+            }
             repaint();
         } else if (theEvent.getPropertyName().equals(TetrisPanel.PROPERTY_COLOR_CHANGE)) {
             myTheme = (Color[]) theEvent.getNewValue();
@@ -108,6 +145,7 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
      */
     @Override
     protected void paintComponent(final Graphics theGraphics) {
+        final PaintEvent paint = PaintEvent.start();
         super.paintComponent(theGraphics);
         final Graphics2D g2d = (Graphics2D) theGraphics;
         // for better graphics display
@@ -119,12 +157,14 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
         if (myPiece != null && !myGameOver) {
             paintBackgroundInGame(g2d);
             paintTetrisPiece(g2d);
+            paintSlots(g2d);
         } else if (myGameOver) {
             paintGameInfoMenu(g2d);
             myGameOver = false;
         } else {
             paintGameInfoMenu(g2d);
         }
+        paint.finish("NextPiecePanel", theGraphics);
     }
     private void paintTetrisPiece(final Graphics2D theG2d) {
         int[][] rotation = new int[1][];
@@ -167,6 +207,74 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
                     MYWIDTH / MYSIZE, MYHEIGHT / MYSIZE);
         }
     }
+    /**
+     * Returns the rows of small slots needed for the hold piece and the pieces
+     * after the next one.
+     *
+     * @param thePreviewSize the number of previewed pieces
+     * @return the number of rows
+     */
+    private static int slotRows(final int thePreviewSize) {
+        return (thePreviewSize + SLOTS_PER_ROW - 1) / SLOTS_PER_ROW;
+    }
+    /**
+     * Paints the hold piece in the first small slot and the pieces after the
+     * next one in the slots after it.
+     *
+     * @param theG2d the graphics to paint with
+     */
+    private void paintSlots(final Graphics2D theG2d) {
+        theG2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, SLOTFONT));
+        theG2d.setColor(Color.WHITE);
+        theG2d.drawString("HOLD", 2, MYHEIGHT + SLOTFONT);
+        if (myPreview.getHold() != null) {
+            int alpha = OPAQUE;
+            if (!myPreview.isHoldAvailable()) {
+                alpha = USED_HOLD_ALPHA;
+            }
+            paintSmallPiece(theG2d, myPreview.getHold(), 0, alpha);
+        }
+        for (int i = 1; i < myPreview.size(); i++) {
+            paintSmallPiece(theG2d, myPreview.get(i), i, OPAQUE);
+        }
+    }
+    /**
+     * Paints a piece centered in a small slot.
+     *
+     * @param theG2d the graphics to paint with
+     * @param thePiece the piece
+     * @param theSlot the slot, counted left to right and then top to bottom
+     * @param theAlpha the opacity of the piece
+     */
+    private void paintSmallPiece(final Graphics2D theG2d, final TetrisPiece thePiece,
+                                 final int theSlot, final int theAlpha) {
+        final int[][] points = thePiece.getPointsByRotation(myTetrisPieceMap.get(thePiece));
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (final int[] point : points) {
+            minX = Math.min(minX, point[1]);
+            maxX = Math.max(maxX, point[1]);
+            minY = Math.min(minY, point[0]);
+            maxY = Math.max(maxY, point[0]);
+        }
+        final int left = theSlot % SLOTS_PER_ROW * SLOT
+                         + (SLOT - (maxX - minX + 1) * SLOT_BLOCK) / 2;
+        final int top = MYHEIGHT + theSlot / SLOTS_PER_ROW * SLOT
+                        + (SLOT - (maxY - minY + 1) * SLOT_BLOCK) / 2;
+        final Color color = myBlockColors.get(thePiece.getBlock());
+        theG2d.setStroke(new BasicStroke(1));
+        for (final int[] point : points) {
+            final int x = left + (point[1] - minX) * SLOT_BLOCK;
+            final int y = top + (point[0] - minY) * SLOT_BLOCK;
+            theG2d.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(),
+                                      theAlpha));
+            theG2d.fillRect(x, y, SLOT_BLOCK, SLOT_BLOCK);
+            theG2d.setColor(new Color(0, 0, 0, theAlpha));
+            theG2d.drawRect(x, y, SLOT_BLOCK, SLOT_BLOCK);
+        }
+    }
     private void setUpColors() {
         myTheme = TetrisPanel.DEFAULT_THEME;
         myBlockColors = new HashMap<>();
@@ -191,19 +299,19 @@ public final class NextPiecePanel extends JPanel implements PropertyChangeListen
     private void paintBackgroundInGame(final Graphics2D theG2d) {
         final GradientPaint gp = new GradientPaint(MYWIDTH / 2F, 0,
                 myTheme[0],
-                MYWIDTH / 2F, MYHEIGHT,
+                MYWIDTH / 2F, getHeight(),
                 myTheme[1]);
         theG2d.setPaint(gp);
-        theG2d.fillRect(0, 0, MYWIDTH, MYHEIGHT);
+        theG2d.fillRect(0, 0, MYWIDTH, getHeight());
         theG2d.setPaint(null);
     }
     private void paintGameInfoMenu(final Graphics2D theG2d) {
         final String title = "Scoring";
         final String linesCleared = "       line 1  line 2  line 3  line 4";
-        final String pointsLV1 =    "L1   40      100      300      1.2k ";
-        final String pointsLV2 =    "L2   80      200      600      24.k ";
-        final String pointsLV3 =    "L3   120     300      900      3.6k ";
-        final String pointsLV10 =   "L10  400     1k       3k        12k ";
+        final String pointsLV1 =    "L1   100     300      500      800  ";
+        final String pointsLV2 =    "L2   200     600      1k       1.6k ";
+        final String pointsLV3 =    "L3   300     900      1.5k     2.4k ";
+        final String pointsLV10 =   "L10  1k      3k       5k       8k   ";
         theG2d.setColor(Color.WHITE);
         theG2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, TITLEFONT));
         final FontMetrics fontMetrics = theG2d.getFontMetrics();
@@ -0,0 +1,116 @@
+package view;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Plays sound effects, each on a clip of its own that is closed as soon as it
+ * stops, so the native audio line it holds is given back.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+public final class SoundPlayer {
+    /**
+     * Logger Object for more robust logging.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * How many rows cleared at once make a Tetris.
+     */
+    private static final int ROWS_NEEDED_FOR_TETRIS = 4;
+
+    /**
+     * Runs the opening and starting of clips.
+     */
+    private final Executor myExecutor;
+    /**
+     * Number of clips open now.
+     */
+    private final AtomicInteger myOpenClips;
+    /**
+     * Whether a failure to play has been logged as a warning yet.
+     */
+    private volatile boolean myWarned;
+
+    /**
+     * Creates a sound player.
+     *
+     * @param theExecutor runs the opening and starting of clips, for example
+     *          {@code SwingUtilities::invokeLater}
+     */
+    public SoundPlayer(final Executor theExecutor) {
+        super();
+        myExecutor = theExecutor;
+        myOpenClips = new AtomicInteger();
+    }
+
+    /**
+     * Plays a sound once with no looping, as soon as it is decoded.
+     *
+     * @param theSound the name of the sound
+     */
+    public void play(final String theSound) {
+        AssetLoader.getInstance().sound(theSound).thenAcceptAsync(this::start, myExecutor);
+    }
+
+    /**
+     * Plays the sound for clearing rows: the Tetris sound for four rows, and
+     * the row clear sound otherwise.
+     *
+     * @param theRows the number of rows cleared at once
+     */
+    public void playClear(final int theRows) {
+        if (theRows >= ROWS_NEEDED_FOR_TETRIS) {
+            play(AssetLoader.TETRIS_CLEAR_SOUND);
+        } else {
+            play(AssetLoader.ROW_CLEAR_SOUND);
+        }
+    }
+
+    /**
+     * Returns the number of clips this player has open, which are playing or
+     * about to be closed.
+     *
+     * @return the open clips
+     */
+    public int getOpenClips() {
+        return myOpenClips.get();
+    }
+
+    /**
+     * Opens a clip on a sound and starts it. The clip closes itself when it
+     * stops.
+     *
+     * @param theSound the decoded sound
+     */
+    private void start(final AssetLoader.Sound theSound) {
+        try {
+            final Clip clip = AudioSystem.getClip();
+            clip.addLineListener(event -> {
+                if (event.getType() == LineEvent.Type.STOP) {
+                    event.getLine().close();
+                } else if (event.getType() == LineEvent.Type.CLOSE) {
+                    myOpenClips.decrementAndGet();
+                }
+            });
+            theSound.open(clip);
+            myOpenClips.incrementAndGet();
+            clip.start();
+        } catch (final LineUnavailableException | IllegalArgumentException e) {
+            // without an audio device every sound fails, so only the first is a warning
+            Level level = Level.FINE;
+            if (!myWarned) {
+                myWarned = true;
+                level = Level.WARNING;
+            }
+            LOGGER.log(level, "Could not play sound", e);
+        }
+    }
+}
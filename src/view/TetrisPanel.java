@@ -9,26 +9,28 @@ import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.File;
-import java.io.IOException;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.sound.sampled.Clip;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import model.Board;
+import model.BoardExecutor;
 import model.TetrisBoard;
+import telemetry.BoardMetrics;
+import telemetry.InputLatency;
 
 /**
  * This panel displays all the required panels in a frame for the game of Tetris.
@@ -59,9 +61,9 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     public static final String PROPERTY_TOGGLE_GRID = "grid";
     /**
-     * How many rows cleared at once needed for a Tetris
+     * Holds the name corresponding to the property change when the latency overlay is toggled.
      */
-    private static final int ROWS_NEEDED_FOR_TETRIS = 4;
+    public static final String PROPERTY_TOGGLE_LATENCY = "latency";
     /**
      * Holds the color purple for the Huskies theme
      */
@@ -73,19 +75,15 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
     /**
      * Holds the file path for the Menu music
      */
-    private static final String MENU_MUSIC = "src/assets/menu.wav";
+    private static final String MENU_MUSIC = AssetLoader.MENU_MUSIC;
     /**
      * Holds the file path for the music that plays while Playing a game
      */
-    private static final String PLAYING_MUSIC = "src/assets/playing.wav";
+    private static final String PLAYING_MUSIC = AssetLoader.PLAYING_MUSIC;
     /**
-     * Holds the file path for the sound when a row is cleared
+     * Logger Object for more robust logging
      */
-    private static final String ROW_CLEAR_SOUND = "src/assets/row-clear.wav";
-    /**
-     * Holds the file path for the sound when 4 rows are cleared
-     */
-    private static final String TETRIS_CLEAR_SOUND = "src/assets/tetris-clear.wav";
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
     /**
      * Default starting Tick speed
      */
@@ -95,6 +93,10 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      * (currently set to increase speed my 15% every 5 rows cleared)
      */
     private static final double DIFFICULTY_INCREASE = 85.0 / 100.0;
+    /**
+     * Ticks gone back or forward by one press of a bracket key with shift held
+     */
+    private static final int LONG_SEEK = 10;
     /**
      * This field sets the gap between all the panels and the window of this panel
      */
@@ -104,9 +106,11 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     private JPanel myRightSide;
     /**
-     * The Board that hold the game of Tetris
+     * The Board that hold the game of Tetris, run on its own thread so the
+     * timer and the keys only queue moves, and recording them so a paused
+     * game can be gone back and forward through
      */
-    private final Board myBoard;
+    private final BoardExecutor myBoard;
     /**
      * The timer to determine when the board should advance
      */
@@ -120,9 +124,19 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     private final PropertyChangeSupport myPCS;
     /**
-     * The Clip object used to play the music in the background
+     * The Clip object used to play the music in the background, null until
+     * the asset loader has acquired it
+     */
+    private Clip myClip;
+    /**
+     * The music that should be playing, so that music which finishes loading
+     * after another was asked for is not started
      */
-    private final Clip myClip;
+    private String myMusic;
+    /**
+     * Plays the sound effects, closing each clip when it is done
+     */
+    private final SoundPlayer mySounds;
     /**
      * The button in the Menu to end an ongoing game
      */
@@ -131,6 +145,18 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      * The button in the Menu to start a new game if there isn't one ongoing
      */
     private JMenuItem myNewGameButton;
+    /**
+     * Times the held keys and applies their actions to the board
+     */
+    private final InputScheduler myInput;
+    /**
+     * The board method run for each game action
+     */
+    private final Map<InputScheduler.Action, Runnable> myBoardActions;
+    /**
+     * The live counters of the board, told about gravity changes
+     */
+    private final BoardMetrics myMetrics;
 
     /**
      * This constructor makes and displays all of the components needed for
@@ -138,64 +164,64 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     public TetrisPanel() {
         super();
-        myBoard = TetrisBoard.getInstance();
+        myBoard = new BoardExecutor(TetrisBoard.getInstance(), SwingUtilities::invokeLater);
+        myBoard.start();
         myTimer = new Timer(TIMER_TICK, e -> myBoard.step());
+        myMetrics = TetrisBoard.getInstance().getMetrics();
+        myMetrics.setGravityMillis(TIMER_TICK);
         myBoard.addPropertyChangeListener(this);
         myRowsCleared = 0;
         myPCS = new PropertyChangeSupport(this);
-        try {
-            myClip = AudioSystem.getClip();
-        } catch (final LineUnavailableException e) {
-            throw new RuntimeException(e);
-        }
+        mySounds = new SoundPlayer(SwingUtilities::invokeLater);
+        myBoardActions = new EnumMap<>(InputScheduler.Action.class);
+        myBoardActions.put(InputScheduler.Action.LEFT, myBoard::left);
+        myBoardActions.put(InputScheduler.Action.RIGHT, myBoard::right);
+        myBoardActions.put(InputScheduler.Action.SOFT_DROP, myBoard::down);
+        myBoardActions.put(InputScheduler.Action.ROTATE_CW, myBoard::rotateCW);
+        myBoardActions.put(InputScheduler.Action.HARD_DROP, myBoard::drop);
+        myBoardActions.put(InputScheduler.Action.HOLD, myBoard::hold);
+        myInput = new InputScheduler(this::perform,
+                Integer.getInteger("tetris.das", InputScheduler.DEFAULT_DAS),
+                Integer.getInteger("tetris.arr", InputScheduler.DEFAULT_ARR),
+                Integer.getInteger("tetris.softdrop", InputScheduler.DEFAULT_SOFT_DROP));
+        myInput.start();
         setUpLayout();
         setUpComponents();
     }
 
     /**
      * This method plays a music file continuously, stopping any music currently
-     * playing on the myClip Object.
+     * playing on the myClip Object. The music starts on the event dispatch
+     * thread once the asset loader has decoded it, so this never blocks.
      *
      * @param theMusic the String filepath of the music to play
      */
     private void playMusic(final String theMusic) {
-        final File song = new File(theMusic);
-        final AudioInputStream songStream;
-        try {
-            songStream = AudioSystem.getAudioInputStream(song);
-        } catch (final UnsupportedAudioFileException | IOException e) {
-            throw new RuntimeException(e);
-        }
-        try {
-            myClip.stop();
-            myClip.close();
-            myClip.open(songStream);
-            myClip.start();
-            myClip.loop(Clip.LOOP_CONTINUOUSLY);
-        } catch (final LineUnavailableException | IOException e) {
-            throw new RuntimeException(e);
-        }
+        myMusic = theMusic;
+        final AssetLoader assets = AssetLoader.getInstance();
+        assets.sound(theMusic).thenAcceptBothAsync(assets.musicClip(), (sound, clip) -> {
+            if (theMusic.equals(myMusic)) {
+                startMusic(sound, clip);
+            }
+        }, SwingUtilities::invokeLater);
     }
 
     /**
-     * Plays a sound once with no looping.
+     * Replaces the music playing on the music clip.
      *
-     * @param theSound the sound to be played
+     * @param theSound the decoded music
+     * @param theClip the music clip
      */
-    private void playSound(final String theSound) {
-        final File song = new File(theSound);
-        final AudioInputStream songStream;
-        try {
-            songStream = AudioSystem.getAudioInputStream(song);
-        } catch (final UnsupportedAudioFileException | IOException e) {
-            throw new RuntimeException(e);
-        }
+    private void startMusic(final AssetLoader.Sound theSound, final Clip theClip) {
+        myClip = theClip;
         try {
-            final Clip clip = AudioSystem.getClip();
-            clip.open(songStream);
-            clip.start();
-        } catch (final LineUnavailableException | IOException e) {
-            throw new RuntimeException(e);
+            myClip.stop();
+            myClip.close();
+            theSound.open(myClip);
+            myClip.start();
+            myClip.loop(Clip.LOOP_CONTINUOUSLY);
+        } catch (final LineUnavailableException e) {
+            LOGGER.log(Level.WARNING, "Could not play music", e);
         }
     }
 
@@ -223,7 +249,7 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         final NextPiecePanel nextPiece = new NextPiecePanel(myBoard);
         myPCS.addPropertyChangeListener(nextPiece);
 
-        final InfoPanel info = new InfoPanel();
+        final InfoPanel info = new InfoPanel(myBoard);
         myPCS.addPropertyChangeListener(info);
 
         myRightSide.add(nextPiece, BorderLayout.NORTH);
@@ -233,7 +259,14 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         requestFocus();
         addKeyListener(new ControlKeyListener());
 
-        add(board, BorderLayout.CENTER);
+        if (board.needsScrolling()) {
+            final JScrollPane scroll = new JScrollPane(board);
+            scroll.getViewport().setPreferredSize(board.getViewportSize());
+            scroll.getViewport().addChangeListener(e -> board.repaint());
+            add(scroll, BorderLayout.CENTER);
+        } else {
+            add(board, BorderLayout.CENTER);
+        }
         add(myRightSide, BorderLayout.WEST);
         playMusic(MENU_MUSIC);
     }
@@ -273,6 +306,40 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
                 "Info", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Handles what happens when you click the go to tick button: asks for a
+     * tick and shows the game at it, if the game is paused or over.
+     *
+     * @param theEvent the Action Event from the button that was clicked
+     */
+    private void handleGoToTickClick(final ActionEvent theEvent) {
+        if (canTimeTravel()) {
+            final BoardExecutor.Snapshot snapshot = myBoard.snapshot();
+            final String input = JOptionPane.showInputDialog(this,
+                    "Go to tick (0 to " + snapshot.getLength() + "):",
+                    snapshot.getTick());
+            if (input != null) {
+                try {
+                    myBoard.seek(Integer.parseInt(input.trim()));
+                } catch (final NumberFormatException e) {
+                    JOptionPane.showMessageDialog(this, "Not a tick: " + input,
+                            "Go to Tick", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the game may be gone back and forward through: while it
+     * is paused, or once it is over.
+     *
+     * @return true if the game is paused or over
+     */
+    private boolean canTimeTravel() {
+        return !myTimer.isRunning()
+               && (myEndGameButton.isEnabled() || myBoard.isGameOver());
+    }
+
     /**
      * Handles what happens when you click the end game button.
      *
@@ -282,7 +349,8 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         myEndGameButton.setEnabled(false);
         myNewGameButton.setEnabled(true);
         myTimer.stop();
-        myTimer.setDelay(TIMER_TICK);
+        setGravity(TIMER_TICK);
+        myInput.releaseAll();
         myRowsCleared = 0;
         playMusic(MENU_MUSIC);
         myPCS.firePropertyChange(PROPERTY_END_GAME, null, null);
@@ -324,8 +392,13 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         exitGameButton.addActionListener(e ->
                 theFrame.dispatchEvent(new WindowEvent(theFrame, WindowEvent.WINDOW_CLOSING)));
 
+        final JMenuItem goToTickButton = new JMenuItem("Go to Tick...");
+        goToTickButton.setMnemonic(KeyEvent.VK_T);
+        goToTickButton.addActionListener(this::handleGoToTickClick);
+
         out.add(myNewGameButton);
         out.add(myEndGameButton);
+        out.add(goToTickButton);
         out.add(exitGameButton);
         return out;
     }
@@ -349,10 +422,16 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         toggleGrid.addActionListener(e -> myPCS.firePropertyChange
                 (PROPERTY_TOGGLE_GRID, null, null));
 
+        final JMenuItem toggleLatency = new JMenuItem("Toggle Latency Overlay");
+        toggleLatency.setMnemonic(KeyEvent.VK_T);
+        toggleLatency.addActionListener(e -> myPCS.firePropertyChange
+                (PROPERTY_TOGGLE_LATENCY, null, null));
+
         final JMenu colorChange = getThemeMenu();
 
         out.add(aboutButton);
         out.add(toggleGrid);
+        out.add(toggleLatency);
         out.add(colorChange);
 
         return out;
@@ -414,14 +493,15 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     public static void createAndShowGUI() {
         final JFrame frame = new JFrame("Tetris");
-        final ImageIcon logo = new ImageIcon("src/assets/logo.png");
-        frame.setIconImage(logo.getImage());
+        AssetLoader.getInstance().image(AssetLoader.LOGO)
+                .thenAcceptAsync(frame::setIconImage, SwingUtilities::invokeLater);
 
         final TetrisPanel contentPane = new TetrisPanel();
         contentPane.setOpaque(true);
         frame.setContentPane(contentPane);
         frame.setJMenuBar(contentPane.createMenuBar(frame));
 
+        InputLatency.getInstance().logOnExit();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.pack();
         frame.setLocationRelativeTo(null);
@@ -437,14 +517,23 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(final PropertyChangeEvent theEvent) {
-        if (theEvent.getPropertyName().equals(myBoard.PROPERTY_GAME_OVER)) {
-            myRowsCleared = 0;
-            myTimer.stop();
-            myTimer.setDelay(TIMER_TICK);
-            myEndGameButton.setEnabled(false);
-            myNewGameButton.setEnabled(true);
-            playMusic(MENU_MUSIC);
-        } else if (theEvent.getPropertyName().equals(myBoard.PROPERTY_ROW_CLEARED)) {
+        final String property = theEvent.getPropertyName();
+        if (Board.PROPERTY_GAME_OVER.equals(property)) {
+            if ((Boolean) theEvent.getNewValue()) {
+                myRowsCleared = 0;
+                myTimer.stop();
+                setGravity(TIMER_TICK);
+                myInput.releaseAll();
+                myEndGameButton.setEnabled(false);
+                myNewGameButton.setEnabled(true);
+                playMusic(MENU_MUSIC);
+            } else {
+                // gone back in time from the end of the game, which is now paused
+                myEndGameButton.setEnabled(true);
+                myNewGameButton.setEnabled(false);
+                playMusic(PLAYING_MUSIC);
+            }
+        } else if (Board.PROPERTY_ROW_CLEARED.equals(property)) {
             updateTimer((int) theEvent.getNewValue());
         }
     }
@@ -458,26 +547,56 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     private void updateTimer(final int theNumClearedRows) {
         myRowsCleared += theNumClearedRows;
-        final int level = myRowsCleared / 5 + 1;
+        mySounds.playClear(theNumClearedRows);
+        setGravity(gravityFor(myRowsCleared));
+    }
+
+    /**
+     * Returns the time between gravity steps after a number of rows cleared.
+     *
+     * @param theRowsCleared the rows cleared in the game
+     * @return the milliseconds between steps
+     */
+    private static int gravityFor(final int theRowsCleared) {
+        final int level = theRowsCleared / 5 + 1;
         double tick = TIMER_TICK;
         for (int i = 1; i < level; i++) {
             tick *= DIFFICULTY_INCREASE;
         }
-        if (theNumClearedRows >= ROWS_NEEDED_FOR_TETRIS) {
-            playSound(TETRIS_CLEAR_SOUND);
+        return (int) tick;
+    }
+
+    /**
+     * Sets the time between gravity steps and reports it to the board metrics.
+     *
+     * @param theDelay the milliseconds between steps
+     */
+    private void setGravity(final int theDelay) {
+        myTimer.setDelay(theDelay);
+        myMetrics.setGravityMillis(theDelay);
+    }
+
+    /**
+     * Applies an action from the input scheduler to the board while a game is running.
+     *
+     * @param theAction the action to apply
+     */
+    private void perform(final InputScheduler.Action theAction) {
+        if (myTimer.isRunning()) {
+            myBoardActions.get(theAction).run();
+            InputLatency.getInstance().moveQueued(myBoard.getQueued());
         } else {
-            playSound(ROW_CLEAR_SOUND);
+            InputLatency.getInstance().cancel();
         }
-        myTimer.setDelay((int) tick);
     }
 
     /**
      * Handles pausing the music
      */
     private void toggleMusicMute() {
-        if (myClip.isRunning()) {
+        if (myClip != null && myClip.isRunning()) {
             myClip.stop();
-        } else {
+        } else if (myClip != null) {
             myClip.start();
         }
     }
@@ -491,9 +610,17 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
      */
     private final class ControlKeyListener extends KeyAdapter {
         /**
-         * The map that holds the Runnable corresponding to each KeyEvent trigger
+         * The map that holds the game action corresponding to each KeyEvent trigger
+         */
+        private Map<Integer, InputScheduler.Action> myActionMaps;
+        /**
+         * The map that holds the Runnable corresponding to each other KeyEvent trigger
          */
         private Map<Integer, Runnable> myKeyMaps;
+        /**
+         * The map that holds the ticks each time travel key goes forward
+         */
+        private Map<Integer, Integer> myTravelKeys;
 
         /**
          * Constructor instantiates all fields and calls super()
@@ -504,44 +631,84 @@ public class TetrisPanel extends JPanel implements PropertyChangeListener {
         }
 
         /**
-         * Maps the appropriate KeyEvent to its corresponding Runnable
+         * Maps the appropriate KeyEvent to its corresponding action or Runnable
          * to set up what each key event hould do.
          */
         private void mapTheKeys() {
-            myKeyMaps = new HashMap<>();
-            myKeyMaps.put(KeyEvent.VK_W, myBoard::rotateCW);
-            myKeyMaps.put(KeyEvent.VK_UP, myBoard::rotateCW);
-            myKeyMaps.put(KeyEvent.VK_A, myBoard::left);
-            myKeyMaps.put(KeyEvent.VK_LEFT, myBoard::left);
-            myKeyMaps.put(KeyEvent.VK_S, myBoard::down);
-            myKeyMaps.put(KeyEvent.VK_DOWN, myBoard::down);
-            myKeyMaps.put(KeyEvent.VK_D, myBoard::right);
-            myKeyMaps.put(KeyEvent.VK_RIGHT, myBoard::right);
-            myKeyMaps.put(KeyEvent.VK_SPACE, myBoard::drop);
+            myActionMaps = new HashMap<>();
+            myActionMaps.put(KeyEvent.VK_W, InputScheduler.Action.ROTATE_CW);
+            myActionMaps.put(KeyEvent.VK_UP, InputScheduler.Action.ROTATE_CW);
+            myActionMaps.put(KeyEvent.VK_A, InputScheduler.Action.LEFT);
+            myActionMaps.put(KeyEvent.VK_LEFT, InputScheduler.Action.LEFT);
+            myActionMaps.put(KeyEvent.VK_S, InputScheduler.Action.SOFT_DROP);
+            myActionMaps.put(KeyEvent.VK_DOWN, InputScheduler.Action.SOFT_DROP);
+            myActionMaps.put(KeyEvent.VK_D, InputScheduler.Action.RIGHT);
+            myActionMaps.put(KeyEvent.VK_RIGHT, InputScheduler.Action.RIGHT);
+            myActionMaps.put(KeyEvent.VK_SPACE, InputScheduler.Action.HARD_DROP);
+            myActionMaps.put(KeyEvent.VK_C, InputScheduler.Action.HOLD);
+            myActionMaps.put(KeyEvent.VK_SHIFT, InputScheduler.Action.HOLD);
 
+            myKeyMaps = new HashMap<>();
             myKeyMaps.put(KeyEvent.VK_M, TetrisPanel.this::toggleMusicMute);
+            myKeyMaps.put(KeyEvent.VK_F3, () -> myPCS.firePropertyChange(
+                    PROPERTY_TOGGLE_LATENCY, null, null));
+
+            myTravelKeys = new HashMap<>();
+            myTravelKeys.put(KeyEvent.VK_OPEN_BRACKET, -1);
+            myTravelKeys.put(KeyEvent.VK_CLOSE_BRACKET, 1);
         }
         /**
          * Handles key press events to move the current piece on the Tetris board.
+         * Game actions are queued with their time stamp for the input scheduler,
+         * which ignores the operating system's key repeat.
          *
          * @param theEvent the event to be processed
          */
         @Override
         public void keyPressed(final KeyEvent theEvent) {
+            final InputScheduler.Action action = myActionMaps.get(theEvent.getKeyCode());
+            if (action != null && myTimer.isRunning()) {
+                myInput.press(action);
+            }
             if (myTimer.isRunning() && myKeyMaps.containsKey(theEvent.getKeyCode())) {
                 myKeyMaps.get(theEvent.getKeyCode()).run();
             }
+            if (myTravelKeys.containsKey(theEvent.getKeyCode()) && canTimeTravel()) {
+                int ticks = myTravelKeys.get(theEvent.getKeyCode());
+                if (theEvent.isShiftDown()) {
+                    ticks *= LONG_SEEK;
+                }
+                myBoard.seekBy(ticks);
+            }
             if (theEvent.getKeyCode() == KeyEvent.VK_P
                 && myEndGameButton.isEnabled()) {
                 if (myTimer.isRunning()) {
                     myTimer.stop();
+                    myInput.releaseAll();
                 } else {
+                    // the game may have been gone back in, so the gravity is
+                    // that of the tick it resumes from
+                    myRowsCleared = myBoard.snapshot().getScore().lines();
+                    setGravity(gravityFor(myRowsCleared));
                     myTimer.start();
                 }
                 myPCS.firePropertyChange(PROPERTY_PAUSE, null, null);
             }
         }
 
+        /**
+         * Handles key release events so held keys stop repeating.
+         *
+         * @param theEvent the event to be processed
+         */
+        @Override
+        public void keyReleased(final KeyEvent theEvent) {
+            final InputScheduler.Action action = myActionMaps.get(theEvent.getKeyCode());
+            if (action != null) {
+                myInput.release(action);
+            }
+        }
+
     }
 }
 
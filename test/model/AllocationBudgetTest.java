@@ -0,0 +1,240 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import model.ai.HeadlessGame;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+/**
+ * Plays thousands of seeded pieces through a {@link TetrisBoard} and checks
+ * that the bytes the test thread allocates per move, per lock and per hard drop
+ * stay within a budget once the JIT has warmed up, and that the queries a bot
+ * or renderer makes every frame allocate nothing at all. The pieces are played
+ * once for the whole class and each test checks one of the results.
+ * <p>
+ * Pieces are immutable, so a move that succeeds makes one piece and one point:
+ * 48 bytes with compressed pointers and 64 without. The move budget of 128
+ * bytes is twice that, so it holds on any 64 bit JVM but fails as soon as a
+ * move makes anything more, such as a second piece or an event nobody listens
+ * for. A lock adds the piece to the persistent stack, which copies the rows it
+ * touches and the path of the tree down to them, spawns the next piece and
+ * publishes the preview; that measures about 1 KB. The lock budget of 4 KB is
+ * four times that, enough for other collectors and JIT decisions, while a copy
+ * of the whole board or anything that grows with the height of the stack
+ * fails it. A hard drop falls to the landing row in one move and then locks,
+ * so it may cost a lock and one move but must not grow with the distance
+ * fallen.
+ * <p>
+ * The budgets may be changed with the system properties
+ * {@code tetris.alloc.move} and {@code tetris.alloc.lock}, in bytes.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AllocationBudgetTest {
+    /**
+     * Bytes a move may allocate on average.
+     */
+    private static final long MOVE_BUDGET = Long.getLong("tetris.alloc.move", 128);
+    /**
+     * Bytes a lock may allocate on average.
+     */
+    private static final long LOCK_BUDGET = Long.getLong("tetris.alloc.lock", 4096);
+    /**
+     * Seed of the pieces and moves so every run plays the same games.
+     */
+    private static final long SEED = 305;
+    /**
+     * Pieces played before measuring, so the hot paths are compiled.
+     */
+    private static final int WARMUP_PIECES = 20_000;
+    /**
+     * Pieces measured.
+     */
+    private static final int PIECES = 10_000;
+    /**
+     * The most moves made with a piece before it is dropped.
+     */
+    private static final int MAX_MOVES = 12;
+    /**
+     * The moves made with a piece. Down is left out since it locks a piece
+     * on the stack, which is measured as a lock.
+     */
+    private static final Move[] MOVES = {
+        Move.LEFT, Move.RIGHT, Move.ROTATE_CW, Move.ROTATE_CCW,
+    };
+    /**
+     * Every rotation, copied once since Rotation.values() allocates.
+     */
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    /**
+     * Counts the bytes allocated by a thread.
+     */
+    private com.sun.management.ThreadMXBean myThreads;
+    /**
+     * The board played on.
+     */
+    private TetrisBoard myBoard;
+    /**
+     * Chooses the moves.
+     */
+    private Random myRandom;
+    /**
+     * Bytes allocated by the measured moves.
+     */
+    private long myMoveBytes;
+    /**
+     * Number of measured moves.
+     */
+    private long myMoves;
+    /**
+     * Bytes allocated by the measured locks.
+     */
+    private long myLockBytes;
+    /**
+     * Number of measured locks.
+     */
+    private long myLocks;
+    /**
+     * Bytes allocated by the measured hard drops.
+     */
+    private long myDropBytes;
+    /**
+     * Number of measured hard drops.
+     */
+    private long myDrops;
+    /**
+     * Bytes allocated by the measured queries.
+     */
+    private long myQueryBytes;
+
+    @BeforeAll
+    void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean()
+                   instanceof com.sun.management.ThreadMXBean,
+                   "the JVM can not count allocated bytes");
+        myThreads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(myThreads.isThreadAllocatedMemorySupported(),
+                   "the JVM can not count allocated bytes");
+        myThreads.setThreadAllocatedMemoryEnabled(true);
+        myBoard = TetrisBoard.createBoard();
+        myBoard.setPieceSequence(HeadlessGame.sequence(SEED, PIECES));
+        myRandom = new Random(SEED);
+        play(WARMUP_PIECES);
+        myMoveBytes = 0;
+        myMoves = 0;
+        myLockBytes = 0;
+        myLocks = 0;
+        myDropBytes = 0;
+        myDrops = 0;
+        myQueryBytes = 0;
+        play(PIECES);
+    }
+
+    @Test
+    void movesStayWithinBudget() {
+        final double perMove = (double) myMoveBytes / myMoves;
+        assertTrue(perMove <= MOVE_BUDGET,
+                   () -> String.format("%.1f bytes per move, budget %d",
+                                       perMove, MOVE_BUDGET));
+    }
+
+    @Test
+    void locksStayWithinBudget() {
+        final double perLock = (double) myLockBytes / myLocks;
+        assertTrue(perLock <= LOCK_BUDGET,
+                   () -> String.format("%.1f bytes per lock, budget %d",
+                                       perLock, LOCK_BUDGET));
+    }
+
+    @Test
+    void dropsCostOneMoveMoreThanLocks() {
+        final double perLock = (double) myLockBytes / myLocks;
+        final double perDrop = (double) myDropBytes / myDrops;
+        assertTrue(perDrop <= perLock + MOVE_BUDGET,
+                   () -> String.format("%.1f bytes per drop, %.1f per lock, budget %d more",
+                                       perDrop, perLock, MOVE_BUDGET));
+    }
+
+    @Test
+    void queriesAllocateNothing() {
+        assertEquals(0, myQueryBytes, "bytes allocated by landing and stack queries");
+    }
+
+    /**
+     * Plays pieces with a few random moves each, starting a new game whenever
+     * one ends, and adds up what the moves, the queries and the end of each
+     * piece allocate. Every other piece is hard dropped; the others are put on
+     * their landing row first, unmeasured, so moving down locks them at once.
+     *
+     * @param thePieces the number of pieces to play
+     */
+    private void play(final int thePieces) {
+        myBoard.newGame();
+        for (int piece = 0; piece < thePieces; piece++) {
+            if (myBoard.isGameOver()) {
+                myBoard.newGame();
+            }
+            long before = allocated();
+            query();
+            myQueryBytes += allocated() - before;
+            final int moves = myRandom.nextInt(MAX_MOVES);
+            for (int i = 0; i < moves; i++) {
+                final Move move = MOVES[myRandom.nextInt(MOVES.length)];
+                before = allocated();
+                move.playOn(myBoard);
+                myMoveBytes += allocated() - before;
+                myMoves++;
+            }
+            if (piece % 2 == 0) {
+                before = allocated();
+                myBoard.drop();
+                myDropBytes += allocated() - before;
+                myDrops++;
+            } else {
+                myBoard.setCurrentPiece(myBoard.getGhostPiece());
+                before = allocated();
+                myBoard.down();
+                myLockBytes += allocated() - before;
+                myLocks++;
+            }
+        }
+    }
+
+    /**
+     * Asks the board what a bot asks about every piece: where it lands in
+     * every rotation and column, and how the stack looks.
+     *
+     * @return a sum of the answers, so they are not optimized away
+     */
+    private int query() {
+        int result = 0;
+        for (final Rotation rotation : ROTATIONS) {
+            for (int x = -TetrisBoard.LANDING_MARGIN; x < myBoard.getWidth(); x++) {
+                result += myBoard.getLandingY(rotation, x);
+            }
+        }
+        final BoardState state = myBoard.getState();
+        for (int x = 0; x < state.getWidth(); x++) {
+            result += state.getColumnHeight(x);
+        }
+        return result + state.countFullRows();
+    }
+
+    /**
+     * Returns the bytes allocated by this thread so far.
+     *
+     * @return the bytes
+     */
+    private long allocated() {
+        return myThreads.getCurrentThreadAllocatedBytes();
+    }
+}
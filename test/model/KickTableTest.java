@@ -0,0 +1,131 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks every entry of the {@link KickTable} against the Super Rotation
+ * System wall kicks, written out here turn by turn with y pointing up, for
+ * each piece and each pair of rotations.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+class KickTableTest {
+    /**
+     * Kicks of the J, L, S, T and Z pieces for each quarter turn.
+     */
+    private static final List<Turn> JLSTZ = List.of(
+        new Turn(Rotation.NONE, Rotation.QUARTER, 0, 0, -1, 0, -1, 1, 0, -2, -1, -2),
+        new Turn(Rotation.QUARTER, Rotation.NONE, 0, 0, 1, 0, 1, -1, 0, 2, 1, 2),
+        new Turn(Rotation.QUARTER, Rotation.HALF, 0, 0, 1, 0, 1, -1, 0, 2, 1, 2),
+        new Turn(Rotation.HALF, Rotation.QUARTER, 0, 0, -1, 0, -1, 1, 0, -2, -1, -2),
+        new Turn(Rotation.HALF, Rotation.THREEQUARTER, 0, 0, 1, 0, 1, 1, 0, -2, 1, -2),
+        new Turn(Rotation.THREEQUARTER, Rotation.HALF, 0, 0, -1, 0, -1, -1, 0, 2, -1, 2),
+        new Turn(Rotation.THREEQUARTER, Rotation.NONE, 0, 0, -1, 0, -1, -1, 0, 2, -1, 2),
+        new Turn(Rotation.NONE, Rotation.THREEQUARTER, 0, 0, 1, 0, 1, 1, 0, -2, 1, -2));
+    /**
+     * Kicks of the I piece for each quarter turn.
+     */
+    private static final List<Turn> I = List.of(
+        new Turn(Rotation.NONE, Rotation.QUARTER, 0, 0, -2, 0, 1, 0, -2, -1, 1, 2),
+        new Turn(Rotation.QUARTER, Rotation.NONE, 0, 0, 2, 0, -1, 0, 2, 1, -1, -2),
+        new Turn(Rotation.QUARTER, Rotation.HALF, 0, 0, -1, 0, 2, 0, -1, 2, 2, -1),
+        new Turn(Rotation.HALF, Rotation.QUARTER, 0, 0, 1, 0, -2, 0, 1, -2, -2, 1),
+        new Turn(Rotation.HALF, Rotation.THREEQUARTER, 0, 0, 2, 0, -1, 0, 2, 1, -1, -2),
+        new Turn(Rotation.THREEQUARTER, Rotation.HALF, 0, 0, -2, 0, 1, 0, -2, -1, 1, 2),
+        new Turn(Rotation.THREEQUARTER, Rotation.NONE, 0, 0, 1, 0, -2, 0, 1, -2, -2, 1),
+        new Turn(Rotation.NONE, Rotation.THREEQUARTER, 0, 0, -1, 0, 2, 0, -1, 2, 2, -1));
+    /**
+     * Pieces that share the J, L, S, T and Z kicks.
+     */
+    private static final TetrisPiece[] JLSTZ_PIECES = {
+        TetrisPiece.J, TetrisPiece.L, TetrisPiece.S, TetrisPiece.T, TetrisPiece.Z,
+    };
+
+    @Test
+    void jlstzPiecesKickBySrs() {
+        for (final TetrisPiece piece : JLSTZ_PIECES) {
+            for (final Turn turn : JLSTZ) {
+                assertArrayEquals(turn.kicks(),
+                                  KickTable.getKicks(piece, turn.from(), turn.to()),
+                                  piece + " " + turn.from() + " to " + turn.to());
+            }
+        }
+    }
+
+    @Test
+    void iPieceKicksBySrs() {
+        for (final Turn turn : I) {
+            assertArrayEquals(turn.kicks(),
+                              KickTable.getKicks(TetrisPiece.I, turn.from(), turn.to()),
+                              "I " + turn.from() + " to " + turn.to());
+        }
+    }
+
+    @Test
+    void oPieceTurnsInPlace() {
+        for (final Turn turn : JLSTZ) {
+            assertArrayEquals(new int[] {0, 0},
+                              KickTable.getKicks(TetrisPiece.O, turn.from(), turn.to()),
+                              "O " + turn.from() + " to " + turn.to());
+        }
+    }
+
+    @Test
+    void tablesCoverEveryQuarterTurn() {
+        for (final Rotation from : Rotation.values()) {
+            assertEquals(1, count(JLSTZ, from, from.clockwise()), from + " clockwise");
+            assertEquals(1, count(JLSTZ, from, from.counterClockwise()),
+                         from + " counterclockwise");
+            assertEquals(1, count(I, from, from.clockwise()), from + " clockwise");
+            assertEquals(1, count(I, from, from.counterClockwise()),
+                         from + " counterclockwise");
+        }
+    }
+
+    @Test
+    void otherTurnsHaveNoKicks() {
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            for (final Rotation from : Rotation.values()) {
+                assertEquals(0, KickTable.getKicks(piece, from, from).length,
+                             piece + " " + from + " to itself");
+                final Rotation half = from.clockwise().clockwise();
+                assertEquals(0, KickTable.getKicks(piece, from, half).length,
+                             piece + " " + from + " to " + half);
+            }
+        }
+    }
+
+    /**
+     * Counts the turns of a table from one rotation to another.
+     *
+     * @param theTurns the table
+     * @param theFrom the rotation turned from
+     * @param theTo the rotation turned to
+     * @return the number of matching turns
+     */
+    private static int count(final List<Turn> theTurns, final Rotation theFrom,
+                             final Rotation theTo) {
+        int result = 0;
+        for (final Turn turn : theTurns) {
+            if (turn.from() == theFrom && turn.to() == theTo) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The kicks tried in order for one turn of a piece.
+     *
+     * @param from the rotation turned from
+     * @param to the rotation turned to
+     * @param kicks the kicks as x and y offsets, one pair after another
+     */
+    private record Turn(Rotation from, Rotation to, int... kicks) {
+    }
+}
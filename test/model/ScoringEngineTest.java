@@ -0,0 +1,154 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import model.ScoringEngine.Spin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the points a {@link ScoringEngine} gives for each kind of clear and
+ * spin against the guideline values, and how back to back bonuses, combos and
+ * levels add to them.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+class ScoringEngineTest {
+    /**
+     * Points every locked piece scores on top of its clear.
+     */
+    private static final int PIECE = 4;
+
+    /**
+     * The engine scored.
+     */
+    private ScoringEngine myEngine;
+
+    @BeforeEach
+    void setUp() {
+        myEngine = new ScoringEngine();
+    }
+
+    @Test
+    void clearsScoreGuidelineValues() {
+        final int[] points = {0, 100, 300, 500, 800};
+        for (int lines = 0; lines < points.length; lines++) {
+            myEngine.reset();
+            assertEquals(points[lines] + PIECE, myEngine.locked(Spin.NONE, lines),
+                         lines + " lines");
+        }
+    }
+
+    @Test
+    void miniSpinsScoreGuidelineValues() {
+        final int[] points = {100, 200, 400};
+        for (int lines = 0; lines < points.length; lines++) {
+            myEngine.reset();
+            assertEquals(points[lines] + PIECE, myEngine.locked(Spin.MINI, lines),
+                         "mini with " + lines + " lines");
+        }
+    }
+
+    @Test
+    void fullSpinsScoreGuidelineValues() {
+        final int[] points = {400, 800, 1200, 1600};
+        for (int lines = 0; lines < points.length; lines++) {
+            myEngine.reset();
+            assertEquals(points[lines] + PIECE, myEngine.locked(Spin.FULL, lines),
+                         "spin with " + lines + " lines");
+        }
+    }
+
+    @Test
+    void spinsAreCounted() {
+        myEngine.locked(Spin.MINI, 0);
+        myEngine.locked(Spin.FULL, 2);
+        myEngine.locked(Spin.NONE, 1);
+        assertEquals(2, myEngine.getTSpins());
+        assertEquals(Spin.NONE, myEngine.snapshot().lastSpin());
+    }
+
+    @Test
+    void backToBackTetrisGetsHalfAgain() {
+        assertEquals(800 + PIECE, myEngine.locked(Spin.NONE, 4));
+        assertFalse(myEngine.snapshot().lastBackToBack());
+        assertEquals(800 + 400 + 50 + PIECE, myEngine.locked(Spin.NONE, 4));
+        assertTrue(myEngine.snapshot().lastBackToBack());
+    }
+
+    @Test
+    void backToBackSurvivesPiecesThatClearNothing() {
+        myEngine.locked(Spin.NONE, 4);
+        assertEquals(PIECE, myEngine.locked(Spin.NONE, 0));
+        assertEquals(1200 + PIECE, myEngine.locked(Spin.NONE, 4));
+        assertTrue(myEngine.snapshot().lastBackToBack());
+    }
+
+    @Test
+    void spinKeepsBackToBackAfterTetris() {
+        myEngine.locked(Spin.NONE, 4);
+        myEngine.locked(Spin.NONE, 0);
+        assertEquals(800 + 400 + PIECE, myEngine.locked(Spin.FULL, 1));
+        assertTrue(myEngine.snapshot().lastBackToBack());
+    }
+
+    @Test
+    void easyClearBreaksBackToBack() {
+        myEngine.locked(Spin.FULL, 1);
+        myEngine.locked(Spin.NONE, 0);
+        myEngine.locked(Spin.NONE, 1);
+        myEngine.locked(Spin.NONE, 0);
+        assertEquals(800 + PIECE, myEngine.locked(Spin.NONE, 4));
+        assertFalse(myEngine.snapshot().lastBackToBack());
+    }
+
+    @Test
+    void comboGrowsWithEachClearingPiece() {
+        assertEquals(-1, myEngine.getCombo());
+        assertEquals(100 + PIECE, myEngine.locked(Spin.NONE, 1));
+        assertEquals(0, myEngine.getCombo());
+        assertEquals(100 + 50 + PIECE, myEngine.locked(Spin.NONE, 1));
+        assertEquals(1, myEngine.getCombo());
+        assertEquals(100 + 100 + PIECE, myEngine.locked(Spin.NONE, 1));
+        assertEquals(2, myEngine.getCombo());
+    }
+
+    @Test
+    void comboEndsWithPieceThatClearsNothing() {
+        myEngine.locked(Spin.NONE, 1);
+        myEngine.locked(Spin.NONE, 1);
+        myEngine.locked(Spin.NONE, 0);
+        assertEquals(-1, myEngine.getCombo());
+        assertEquals(100 + PIECE, myEngine.locked(Spin.NONE, 1));
+        assertEquals(1, myEngine.snapshot().maxCombo());
+    }
+
+    @Test
+    void levelMultipliesClearsAndCombos() {
+        for (int i = 0; i < ScoringEngine.LINES_PER_LEVEL; i++) {
+            myEngine.locked(Spin.NONE, 1);
+            myEngine.locked(Spin.NONE, 0);
+        }
+        assertEquals(2, myEngine.getLevel());
+        assertEquals(2 * 300 + PIECE, myEngine.locked(Spin.NONE, 2));
+        assertEquals(2 * (300 + 50) + PIECE, myEngine.locked(Spin.NONE, 2));
+    }
+
+    @Test
+    void snapshotAddsUpTheGame() {
+        myEngine.locked(Spin.NONE, 1);
+        myEngine.locked(Spin.NONE, 4);
+        myEngine.locked(Spin.NONE, 0);
+        final ScoringEngine.Snapshot snapshot = myEngine.snapshot();
+        assertEquals(myEngine.getScore(), snapshot.score());
+        assertEquals(5, snapshot.lines());
+        assertEquals(2, snapshot.level());
+        assertEquals(3, snapshot.pieces());
+        assertEquals(1, snapshot.tetrises());
+        assertEquals(PIECE, snapshot.lastPoints());
+        assertEquals(0, snapshot.lastLines());
+    }
+}
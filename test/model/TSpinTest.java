@@ -0,0 +1,160 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.ScoringEngine.Spin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Spins a T into prepared stacks on a {@link TetrisBoard} and checks how the
+ * board tells mini T-spins from full ones when the piece locks: by the corners
+ * around the centre of the T, and by the last kick of its rotation, which
+ * makes any T-spin full.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+class TSpinTest {
+    /**
+     * A slot with three corners filled, the one missing in front of a T
+     * pointing right, and a block above that keeps a T from rotating straight
+     * in from above.
+     */
+    private static final String[] KICK_SLOT = {
+        "......X...",
+        "..........",
+        ".....X.X..",
+        "..........",
+        ".....X....",
+    };
+    /**
+     * A slot with three corners filled, the one missing in front of a T
+     * pointing right.
+     */
+    private static final String[] MINI_SLOT = {
+        ".....X.X..",
+        "..........",
+        ".....X....",
+    };
+    /**
+     * A slot with all four corners filled.
+     */
+    private static final String[] FULL_SLOT = {
+        ".....X.X..",
+        "..........",
+        ".....X.X..",
+    };
+    /**
+     * A slot with three corners filled, the one missing above the front, so
+     * a T pointing right falls in without rotating.
+     */
+    private static final String[] OPEN_SLOT = {
+        ".....X....",
+        "..........",
+        ".....X.X..",
+    };
+
+    /**
+     * The board played on.
+     */
+    private TetrisBoard myBoard;
+
+    @BeforeEach
+    void setUp() {
+        myBoard = TetrisBoard.createBoard();
+        myBoard.setPieceSequence(List.of(TetrisPiece.T));
+        myBoard.newGame();
+    }
+
+    @Test
+    void threeCornersWithOneInFrontIsMini() {
+        stack(MINI_SLOT);
+        start(5, 0, Rotation.NONE);
+        myBoard.rotateCW();
+        assertEquals(new Point(5, 0), myBoard.getCurrentPiece().getPosition());
+        myBoard.down();
+        assertEquals(Spin.MINI, myBoard.getScoring().snapshot().lastSpin());
+        assertEquals(100 + 4, myBoard.getScoring().snapshot().lastPoints());
+    }
+
+    @Test
+    void bothCornersInFrontIsFull() {
+        stack(FULL_SLOT);
+        start(5, 0, Rotation.NONE);
+        myBoard.rotateCW();
+        assertEquals(new Point(5, 0), myBoard.getCurrentPiece().getPosition());
+        myBoard.down();
+        assertEquals(Spin.FULL, myBoard.getScoring().snapshot().lastSpin());
+        assertEquals(400 + 4, myBoard.getScoring().snapshot().lastPoints());
+    }
+
+    @Test
+    void lastKickMakesMiniFull() {
+        stack(KICK_SLOT);
+        start(6, 2, Rotation.NONE);
+        myBoard.rotateCW();
+        // the fifth kick of a clockwise turn from spawn is one left, two down
+        assertEquals(new Point(5, 0), myBoard.getCurrentPiece().getPosition());
+        assertEquals(Rotation.QUARTER, myBoard.getCurrentPiece().getRotation());
+        myBoard.down();
+        assertEquals(Spin.FULL, myBoard.getScoring().snapshot().lastSpin());
+    }
+
+    @Test
+    void fallingIntoCornersIsNoSpin() {
+        stack(OPEN_SLOT);
+        start(5, 4, Rotation.NONE);
+        myBoard.rotateCW();
+        myBoard.drop();
+        assertEquals(Spin.NONE, myBoard.getScoring().snapshot().lastSpin());
+        assertEquals(0, myBoard.getScoring().getTSpins());
+    }
+
+    @Test
+    void otherPiecesDoNotSpin() {
+        stack(MINI_SLOT);
+        myBoard.setCurrentPiece(new MyMovableTetrisPiece(TetrisPiece.L, new Point(1, 5),
+                                                         Rotation.NONE));
+        myBoard.rotateCW();
+        myBoard.drop();
+        assertEquals(Spin.NONE, myBoard.getScoring().snapshot().lastSpin());
+    }
+
+    /**
+     * Replaces the frozen blocks with rows drawn top first, with X for a
+     * filled cell, at the bottom of the board.
+     *
+     * @param theRows the rows, top first
+     */
+    private void stack(final String[] theRows) {
+        final List<Block[]> rows = new ArrayList<>();
+        for (int y = 0; y < myBoard.getHeight(); y++) {
+            final Block[] row = new Block[myBoard.getWidth()];
+            if (y < theRows.length) {
+                final String cells = theRows[theRows.length - 1 - y];
+                for (int x = 0; x < row.length; x++) {
+                    if (cells.charAt(x) == 'X') {
+                        row[x] = Block.I;
+                    }
+                }
+            }
+            rows.add(row);
+        }
+        myBoard.setFrozenBlocks(rows);
+    }
+
+    /**
+     * Replaces the current piece with a T.
+     *
+     * @param theX the column of the piece
+     * @param theY the row of the piece
+     * @param theRotation the rotation of the piece
+     */
+    private void start(final int theX, final int theY, final Rotation theRotation) {
+        myBoard.setCurrentPiece(new MyMovableTetrisPiece(TetrisPiece.T, new Point(theX, theY),
+                                                         theRotation));
+    }
+}
@@ -0,0 +1,190 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import model.ai.HeadlessGame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays seeded random moves through a {@link TimeMachine} and checks that
+ * seeking to any tick, stepping back and forward, and branching the timeline
+ * put the board in the same state as replaying the recorded moves from the
+ * start of the game.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+class TimeMachineTest {
+    /**
+     * Seed of the pieces and moves so every run plays the same game.
+     */
+    private static final long SEED = 46;
+    /**
+     * Pieces in the sequence, more than any game here locks.
+     */
+    private static final int PIECES = 1000;
+    /**
+     * Ticks between checkpoints, small so seeks cross many of them.
+     */
+    private static final int INTERVAL = 16;
+    /**
+     * Moves played.
+     */
+    private static final int MOVES = 1500;
+    /**
+     * Random seeks checked.
+     */
+    private static final int SEEKS = 300;
+    /**
+     * Every move, copied once since Move.values() allocates.
+     */
+    private static final Move[] ALL_MOVES = Move.values();
+
+    /**
+     * The board played on.
+     */
+    private TetrisBoard myBoard;
+    /**
+     * Records the moves played on the board.
+     */
+    private TimeMachine myMachine;
+    /**
+     * Chooses the moves and ticks.
+     */
+    private Random myRandom;
+    /**
+     * The state of the board after each tick, as it was played.
+     */
+    private List<String> myFrames;
+
+    @BeforeEach
+    void setUp() {
+        myBoard = newBoard();
+        myMachine = new TimeMachine(myBoard, INTERVAL);
+        myRandom = new Random(SEED);
+        myFrames = new ArrayList<>();
+        myFrames.add(frame(myBoard));
+        play(MOVES);
+    }
+
+    @Test
+    void seekMatchesPlay() {
+        for (int i = 0; i < SEEKS; i++) {
+            final int tick = myRandom.nextInt(myMachine.getLength() + 1);
+            myMachine.seek(tick);
+            assertEquals(myFrames.get(tick), frame(myBoard), "tick " + tick);
+            assertEquals(tick, myMachine.getTick());
+        }
+    }
+
+    @Test
+    void seekMatchesReplayFromStart() {
+        for (int i = 0; i < SEEKS / 10; i++) {
+            final int tick = myRandom.nextInt(myMachine.getLength() + 1);
+            myMachine.seek(tick);
+            final TetrisBoard replay = newBoard();
+            for (int t = 0; t < tick; t++) {
+                myMachine.getMove(t).playOn(replay);
+            }
+            assertEquals(frame(replay), frame(myBoard), "tick " + tick);
+        }
+    }
+
+    @Test
+    void backAndForwardRoundTrip() {
+        final int length = myMachine.getLength();
+        for (int tick = length - 1; tick >= 0; tick--) {
+            myMachine.back();
+            assertEquals(myFrames.get(tick), frame(myBoard), "back to tick " + tick);
+        }
+        myMachine.back();
+        assertEquals(0, myMachine.getTick());
+        for (int tick = 1; tick <= length; tick++) {
+            myMachine.forward();
+            assertEquals(myFrames.get(tick), frame(myBoard), "forward to tick " + tick);
+        }
+        myMachine.forward();
+        assertEquals(length, myMachine.getTick());
+    }
+
+    @Test
+    void playingAfterSeekBranches() {
+        final int branch = myMachine.getLength() / 3;
+        myMachine.seek(branch);
+        myFrames.subList(branch + 1, myFrames.size()).clear();
+        play(MOVES / 2);
+        assertEquals(myFrames.size() - 1, myMachine.getLength());
+        for (int i = 0; i < SEEKS; i++) {
+            final int tick = myRandom.nextInt(myMachine.getLength() + 1);
+            myMachine.seek(tick);
+            assertEquals(myFrames.get(tick), frame(myBoard), "tick " + tick);
+        }
+    }
+
+    @Test
+    void limitKeepsTheLatestMoves() {
+        final int limit = INTERVAL * 4;
+        myBoard = newBoard();
+        myMachine = new TimeMachine(myBoard, INTERVAL, limit);
+        myFrames.clear();
+        myFrames.add(frame(myBoard));
+        play(MOVES);
+        final int length = myMachine.getLength();
+        assertTrue(length <= limit, length + " moves kept");
+        final int forgotten = myFrames.size() - 1 - length;
+        assertTrue(forgotten > 0, "no moves forgotten");
+        for (int tick = 0; tick <= length; tick++) {
+            myMachine.seek(tick);
+            assertEquals(myFrames.get(forgotten + tick), frame(myBoard), "tick " + tick);
+        }
+        assertThrows(IllegalArgumentException.class, () -> myMachine.seek(length + 1));
+    }
+
+    /**
+     * Creates a board playing the seeded piece sequence, at the start of a game.
+     *
+     * @return the board
+     */
+    private static TetrisBoard newBoard() {
+        final TetrisBoard result = TetrisBoard.createBoard();
+        result.setPieceSequence(HeadlessGame.sequence(SEED, PIECES));
+        result.newGame();
+        return result;
+    }
+
+    /**
+     * Plays random moves through the time machine until the game ends,
+     * recording the board after each. Drops are made rarer so games last.
+     *
+     * @param theMoves the most moves to play
+     */
+    private void play(final int theMoves) {
+        for (int i = 0; i < theMoves && !myBoard.isGameOver(); i++) {
+            Move move = ALL_MOVES[myRandom.nextInt(ALL_MOVES.length)];
+            if (move == Move.DROP && myRandom.nextInt(4) > 0) {
+                move = Move.STEP;
+            }
+            myMachine.play(move);
+            myFrames.add(frame(myBoard));
+        }
+    }
+
+    /**
+     * Describes everything a player sees of a board: the stack, the current
+     * and next pieces, the score and whether the game is over.
+     *
+     * @param theBoard the board
+     * @return the description
+     */
+    private static String frame(final TetrisBoard theBoard) {
+        return theBoard.getState().asList().size() + "|" + theBoard
+               + "|" + theBoard.getCurrentPiece() + "|" + theBoard.getPreview()
+               + "|" + theBoard.getScoring().snapshot() + "|" + theBoard.isGameOver();
+    }
+}
@@ -0,0 +1,206 @@
+package model.ai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Places seeded random pieces on a {@link FeatureIndex} and checks after every
+ * placement, line clear and undo that the features it keeps up to date equal
+ * those of a fresh index built from the same rows.
+ *
+ * @author johannn
+ * @version 1.0
+ */
+class FeatureIndexTest {
+    /**
+     * Seed of the placements so every run places the same pieces.
+     */
+    private static final long SEED = 50;
+    /**
+     * Placements made on each board.
+     */
+    private static final int PLACEMENTS = 20_000;
+    /**
+     * Height of the boards.
+     */
+    private static final int HEIGHT = 20;
+    /**
+     * Widths of the boards: narrow ones clear lines often, and 64 fills a long.
+     */
+    private static final int[] WIDTHS = {4, 10, 13, 64};
+    /**
+     * The shapes placed, as local cells {x0, y0, x1, y1, ...}: a cell, a
+     * domino and the seven tetrominoes in one rotation each.
+     */
+    private static final int[][] SHAPES = {
+        {0, 0},
+        {0, 0, 1, 0},
+        {0, 0, 1, 0, 2, 0, 3, 0},
+        {0, 0, 0, 1, 0, 2, 0, 3},
+        {0, 0, 1, 0, 0, 1, 1, 1},
+        {0, 0, 1, 0, 2, 0, 1, 1},
+        {0, 0, 1, 0, 1, 1, 2, 1},
+        {1, 0, 2, 0, 0, 1, 1, 1},
+        {0, 0, 1, 0, 2, 0, 0, 1},
+        {0, 0, 0, 1, 1, 1, 2, 1},
+    };
+
+    @Test
+    void placementsMatchRebuild() {
+        final Random random = new Random(SEED);
+        int lines = 0;
+        for (final int width : WIDTHS) {
+            final FeatureIndex index = new FeatureIndex(width, HEIGHT);
+            for (int i = 0; i < PLACEMENTS; i++) {
+                lines += Math.max(placeRandom(index, random), 0);
+                assertMatchesRebuild(index, width + " wide, placement " + i);
+            }
+        }
+        assertTrue(lines > 0, "no lines cleared");
+    }
+
+    @Test
+    void undoRestoresPreviousFeatures() {
+        final Random random = new Random(SEED);
+        for (final int width : WIDTHS) {
+            final FeatureIndex index = new FeatureIndex(width, HEIGHT);
+            final FeatureIndex before = new FeatureIndex(width, HEIGHT);
+            for (int i = 0; i < PLACEMENTS; i++) {
+                before.copyFrom(index);
+                if (placeRandom(index, random) >= 0 && random.nextInt(3) == 0) {
+                    index.undo();
+                    final String message = width + " wide, undo " + i;
+                    assertArrayEquals(before.getRows(), index.getRows(), message);
+                    assertSameFeatures(before, index, message);
+                    assertMatchesRebuild(index, message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void clearDropsColumnsPastEmptyCells() {
+        // column 0 tops out in the cleared row with two empty cells below it
+        final long[] rows = new long[HEIGHT];
+        rows[0] = 0b0111;
+        rows[1] = 0b0110;
+        rows[2] = 0b0110;
+        rows[3] = 0b1110;
+        final FeatureIndex index = new FeatureIndex(4, HEIGHT);
+        index.reset(rows);
+        assertEquals(1, index.place(new int[] {0, 0}, 0, 3));
+        assertEquals(1, index.getColumnHeight(0));
+        assertEquals(3, index.getColumnHeight(1));
+        assertEquals(0, index.getColumnHeight(3));
+        assertMatchesRebuild(index, "after the clear");
+    }
+
+    @Test
+    void undoNeedsPlacement() {
+        final FeatureIndex index = new FeatureIndex(10, HEIGHT);
+        assertThrows(IllegalStateException.class, index::undo);
+        index.place(SHAPES[0], 0, 0);
+        index.undo();
+        assertThrows(IllegalStateException.class, index::undo);
+    }
+
+    /**
+     * Places a random shape in a random column, usually resting on the stack
+     * and sometimes floating in empty cells above it to leave holes. Starts
+     * the board over when the shape does not fit.
+     *
+     * @param theIndex the index to place on
+     * @param theRandom chooses the shape and where it goes
+     * @return the lines cleared, or -1 if the board was started over
+     */
+    private static int placeRandom(final FeatureIndex theIndex, final Random theRandom) {
+        final int[] cells = SHAPES[theRandom.nextInt(SHAPES.length)];
+        int right = 0;
+        for (int i = 0; i < cells.length; i += 2) {
+            right = Math.max(right, cells[i]);
+        }
+        int result = -1;
+        if (right < theIndex.getWidth()) {
+            final int x = theRandom.nextInt(theIndex.getWidth() - right);
+            int y = 0;
+            for (int i = 0; i < cells.length; i += 2) {
+                y = Math.max(y, theIndex.getColumnHeight(x + cells[i]) - cells[i + 1]);
+            }
+            if (theRandom.nextInt(5) == 0) {
+                y += theRandom.nextInt(3);
+            }
+            if (fits(theIndex, cells, x, y)) {
+                result = theIndex.place(cells, x, y);
+            }
+        }
+        if (result < 0) {
+            theIndex.reset(new long[theIndex.getHeight()]);
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether every cell of a shape is on the board and empty.
+     *
+     * @param theIndex the board
+     * @param theCells the local cells of the shape
+     * @param theX the x position of the shape
+     * @param theY the y position of the shape
+     * @return true if the shape can be placed
+     */
+    private static boolean fits(final FeatureIndex theIndex, final int[] theCells,
+                                final int theX, final int theY) {
+        boolean result = true;
+        for (int i = 0; i < theCells.length; i += 2) {
+            final int y = theY + theCells[i + 1];
+            result &= y < theIndex.getHeight()
+                      && (theIndex.getRows()[y] >>> (theX + theCells[i]) & 1) == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Checks that an index holds the features of a fresh index of its rows.
+     *
+     * @param theIndex the index
+     * @param theMessage what was done to the index
+     */
+    private static void assertMatchesRebuild(final FeatureIndex theIndex,
+                                             final String theMessage) {
+        final FeatureIndex fresh = new FeatureIndex(theIndex.getWidth(), theIndex.getHeight());
+        fresh.reset(theIndex.getRows());
+        assertSameFeatures(fresh, theIndex, theMessage);
+    }
+
+    /**
+     * Checks that two indexes hold the same features.
+     *
+     * @param theExpected the index with the right features
+     * @param theActual the index checked
+     * @param theMessage what was done to the index checked
+     */
+    private static void assertSameFeatures(final FeatureIndex theExpected,
+                                           final FeatureIndex theActual,
+                                           final String theMessage) {
+        for (int x = 0; x < theExpected.getWidth(); x++) {
+            assertEquals(theExpected.getColumnHeight(x), theActual.getColumnHeight(x),
+                         theMessage + ", height of column " + x);
+        }
+        assertEquals(theExpected.getAggregateHeight(), theActual.getAggregateHeight(),
+                     theMessage + ", aggregate height");
+        assertEquals(theExpected.getHoles(), theActual.getHoles(), theMessage + ", holes");
+        assertEquals(theExpected.getBumpiness(), theActual.getBumpiness(),
+                     theMessage + ", bumpiness");
+        assertEquals(theExpected.getRowTransitions(), theActual.getRowTransitions(),
+                     theMessage + ", row transitions");
+        assertEquals(theExpected.getColumnTransitions(), theActual.getColumnTransitions(),
+                     theMessage + ", column transitions");
+        assertEquals(theExpected.getWellDepths(), theActual.getWellDepths(),
+                     theMessage + ", well depths");
+    }
+}